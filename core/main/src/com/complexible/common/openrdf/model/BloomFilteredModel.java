@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import com.complexible.common.openrdf.util.StatementBloomFilter;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * <p>A {@link Model} which answers {@code contains} checks for statements which are not in the model from a
+ * {@link StatementBloomFilter}, without looking up the wrapped model.  Statements added through this model are added
+ * to the filter.  Since a Bloom filter cannot forget a statement, the filter is rebuilt once more statements have been
+ * removed since it was built than remain in the model, and it is rebuilt with twice the capacity when the model outgrows it.
+ * It can also be {@link #rebuild() rebuilt} explicitly.</p>
+ *
+ * <p>Only checks for fully bound statements use the filter: {@link #contains(Object)} and
+ * {@link #contains(Resource, IRI, Value, Resource...)} with a subject, predicate and object, in any context or in
+ * given contexts.  Everything else goes to the wrapped model.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class BloomFilteredModel extends NotifyingModel {
+	private static final long serialVersionUID = 8196473640079741023L;
+
+	/**
+	 * The default false positive rate of the filter when it is at capacity
+	 */
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+	private static final int MIN_CAPACITY = 1024;
+
+	private final double mFalsePositiveRate;
+
+	private StatementBloomFilter mFilter;
+
+	private long mCapacity;
+
+	private long mRemoved;
+
+	private BloomFilteredModel(final Model theModel, final long theCapacity, final double theFalsePositiveRate) {
+		super(theModel);
+
+		mFalsePositiveRate = theFalsePositiveRate;
+		mCapacity = theCapacity;
+
+		rebuild();
+	}
+
+	/**
+	 * Wrap the model with a filter with the {@link #DEFAULT_FALSE_POSITIVE_RATE default false positive rate}, sized for
+	 * twice the current size of the model
+	 *
+	 * @param theModel	the model
+	 * @return			the wrapped model
+	 */
+	public static BloomFilteredModel of(final Model theModel) {
+		return of(theModel, Math.max(MIN_CAPACITY, theModel.size() * 2L), DEFAULT_FALSE_POSITIVE_RATE);
+	}
+
+	/**
+	 * Wrap the model with a filter sized to have the given false positive rate when it holds the given number of
+	 * statements.  Fewer statements make for a lower rate, and the capacity grows as needed, so the capacity trades
+	 * memory for fewer rebuilds as the model grows.
+	 *
+	 * @param theModel				the model
+	 * @param theCapacity			the number of statements the filter is sized for
+	 * @param theFalsePositiveRate	the false positive rate at that capacity
+	 * @return						the wrapped model
+	 */
+	public static BloomFilteredModel of(final Model theModel, final long theCapacity, final double theFalsePositiveRate) {
+		return new BloomFilteredModel(theModel, Math.max(theCapacity, theModel.size()), theFalsePositiveRate);
+	}
+
+	/**
+	 * Return the filter, for instance to check its {@link StatementBloomFilter#getFalsePositiveRate() false positive
+	 * rate} or its {@link StatementBloomFilter#getMemoryUsage() memory usage}
+	 *
+	 * @return	the filter
+	 */
+	public StatementBloomFilter getFilter() {
+		return mFilter;
+	}
+
+	/**
+	 * Rebuild the filter from the statements currently in the model
+	 */
+	public void rebuild() {
+		final StatementBloomFilter aFilter = StatementBloomFilter.create(mCapacity, mFalsePositiveRate);
+
+		// the underlying statements, not iterator() which would report their removal to us
+		super.forEach(aFilter::add);
+
+		mFilter = aFilter;
+		mRemoved = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		return theObj instanceof Statement && mFilter.mightContain((Statement) theObj) && super.contains(theObj);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		if (theSubj != null && thePred != null && theObj != null && theContexts != null) {
+			if (theContexts.length == 0) {
+				if (!mFilter.mightContain(theSubj, thePred, theObj)) {
+					return false;
+				}
+			}
+			else {
+				boolean aMaybe = false;
+
+				for (int i = 0; i < theContexts.length && !aMaybe; i++) {
+					aMaybe = mFilter.mightContain(theSubj, thePred, theObj, theContexts[i]);
+				}
+
+				if (!aMaybe) {
+					return false;
+				}
+			}
+		}
+
+		return super.contains(theSubj, thePred, theObj, theContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void statementAdded(final Statement theStatement) {
+		if (mFilter.getStatementCount() >= mCapacity) {
+			// the statement is already in the model, so the rebuild includes it
+			mCapacity *= 2;
+			rebuild();
+		}
+		else {
+			mFilter.add(theStatement);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void statementRemoved(final Statement theStatement) {
+		if (++mRemoved > size()) {
+			rebuild();
+		}
+	}
+}
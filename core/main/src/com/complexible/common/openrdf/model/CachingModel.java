@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * <p>A {@link Model} which caches the results of {@link #filter(Resource, IRI, Value, Resource...) filter} for read-heavy
+ * use, such as repeated {@link Models2#getObject} lookups of the same subject and predicate.  The views returned by
+ * {@code filter} for a pattern with a bound subject, predicate or object are kept in a least recently used cache, and
+ * each holds a copy of the statements matching its pattern, and of their objects, which answers {@code size},
+ * iteration and {@link Model#objects() objects} without going back to the wrapped model.  The cache is bounded by the
+ * total number of statements copied, rather than the number of patterns, so a pattern with a very large result is not
+ * kept at all.</p>
+ *
+ * <p>Every change made through the model or its views is checked against the cached patterns, and only the patterns
+ * the changed statement matches are dropped, to be copied again when they are next filtered.  A view which is dropped
+ * from the cache, because of a change or an eviction, goes on answering from the wrapped model.  Changes made directly
+ * to the wrapped model are not seen, see {@link NotifyingModel}.  Writes to a cached view, and removal through its
+ * iterator, go to the model; the sets returned by its {@code objects()} while it is cached are read-only.  The cache
+ * is safe for concurrent readers as long as the wrapped model is, but changes must not be concurrent with reads.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class CachingModel extends NotifyingModel {
+	private static final long serialVersionUID = 5670104243304106104L;
+
+	/**
+	 * The default number of statements cached
+	 */
+	public static final long DEFAULT_MAXIMUM_STATEMENTS = 100_000;
+
+	private static final Resource[] ANY_CTX = new Resource[0];
+
+	private final Cache<Pattern, CachedView> mCache;
+
+	/**
+	 * The cached patterns by their subject, predicate and object, to find the patterns a statement affects
+	 */
+	private final ConcurrentMap<Pattern, Set<Pattern>> mDependents = new ConcurrentHashMap<>();
+
+	private final LongAdder mLookups = new LongAdder();
+
+	private final LongAdder mHits = new LongAdder();
+
+	private final LongAdder mInvalidations = new LongAdder();
+
+	private CachingModel(final Model theModel, final long theMaximumStatements) {
+		super(theModel);
+
+		// an empty result weighs one, so that the patterns which match nothing are bounded too
+		mCache = CacheBuilder.newBuilder()
+		                     .maximumWeight(theMaximumStatements)
+		                     .<Pattern, CachedView>weigher((thePattern, theView) -> theView.mStatements.length + 1)
+		                     .<Pattern, CachedView>removalListener(theRemoval -> {
+			                     theRemoval.getValue().drop();
+			                     forget(theRemoval.getKey());
+		                     })
+		                     .build();
+	}
+
+	/**
+	 * Cache up to the {@link #DEFAULT_MAXIMUM_STATEMENTS default number} of statements of the model
+	 *
+	 * @param theModel	the model
+	 * @return			the caching model
+	 */
+	public static CachingModel of(final Model theModel) {
+		return of(theModel, DEFAULT_MAXIMUM_STATEMENTS);
+	}
+
+	/**
+	 * Cache up to about the given number of statements of the model, over all the cached patterns; the least recently
+	 * used patterns are evicted first.  The cache is split in a few independently evicted segments, so a pattern is
+	 * only kept if its result is a fraction of the maximum.
+	 *
+	 * @param theModel				the model
+	 * @param theMaximumStatements	the maximum number of statements to cache
+	 * @return						the caching model
+	 */
+	public static CachingModel of(final Model theModel, final long theMaximumStatements) {
+		return new CachingModel(theModel, theMaximumStatements);
+	}
+
+	/**
+	 * Return the number of filters of patterns which can be cached
+	 *
+	 * @return	the number of lookups
+	 */
+	public long getLookups() {
+		return mLookups.sum();
+	}
+
+	/**
+	 * Return the number of filters of patterns which were answered from the cache, rather than copied from the wrapped
+	 * model
+	 *
+	 * @return	the number of hits
+	 */
+	public long getHits() {
+		return mHits.sum();
+	}
+
+	/**
+	 * Return the fraction of the filters of patterns which can be cached which were answered from the cache
+	 *
+	 * @return	the hit rate, between 0 and 1
+	 */
+	public double getHitRate() {
+		final long aLookups = getLookups();
+
+		return aLookups == 0 ? 0 : getHits() / (double) aLookups;
+	}
+
+	/**
+	 * Return the number of times a cached pattern was dropped because a change affected it
+	 *
+	 * @return	the number of invalidations
+	 */
+	public long getInvalidations() {
+		return mInvalidations.sum();
+	}
+
+	/**
+	 * Return the number of patterns currently cached
+	 *
+	 * @return	the number of patterns
+	 */
+	public long getCachedPatterns() {
+		return mCache.size();
+	}
+
+	/**
+	 * Drop every cached pattern, for instance after changing the wrapped model directly
+	 */
+	public void invalidateAll() {
+		mCache.invalidateAll();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format("CachingModel [%,d patterns, %,d lookups, %.1f%% hits, %,d invalidations]",
+		                     getCachedPatterns(), getLookups(), getHitRate() * 100, getInvalidations());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		if (theSubj == null && thePred == null && theObj == null) {
+			// not selective enough to be worth a copy
+			return super.filter(theSubj, thePred, theObj, theContexts);
+		}
+
+		final Pattern aPattern = new Pattern(theSubj, thePred, theObj, theContexts);
+
+		mLookups.increment();
+
+		final CachedView aView = mCache.getIfPresent(aPattern);
+
+		if (aView != null) {
+			mHits.increment();
+			return aView;
+		}
+
+		final CachedView aNewView = new CachedView(super.filter(theSubj, thePred, theObj, theContexts));
+		final CachedView aExisting = mCache.asMap().putIfAbsent(aPattern, aNewView);
+
+		// registered once cached, so that forgetting an evicted view of the same pattern does not undo it
+		mDependents.computeIfAbsent(aPattern.spo(), theKey -> ConcurrentHashMap.newKeySet()).add(aPattern);
+
+		return aExisting != null ? aExisting : aNewView;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void statementAdded(final Statement theStatement) {
+		invalidate(theStatement);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void statementRemoved(final Statement theStatement) {
+		invalidate(theStatement);
+	}
+
+	/**
+	 * Drop every cached pattern the statement matches: those whose subject, predicate and object are either unbound or
+	 * the statement's, and whose contexts include the statement's
+	 */
+	private void invalidate(final Statement theStatement) {
+		if (mDependents.isEmpty()) {
+			return;
+		}
+
+		for (int aMask = 1; aMask < 8; aMask++) {
+			final Pattern aKey = new Pattern((aMask & 1) != 0 ? theStatement.getSubject() : null,
+			                                 (aMask & 2) != 0 ? theStatement.getPredicate() : null,
+			                                 (aMask & 4) != 0 ? theStatement.getObject() : null,
+			                                 ANY_CTX);
+
+			final Set<Pattern> aPatterns = mDependents.get(aKey);
+
+			if (aPatterns != null) {
+				for (Pattern aPattern : aPatterns) {
+					if (!mCache.asMap().containsKey(aPattern)) {
+						forget(aPattern);
+					}
+					else if (aPattern.matchesContext(theStatement.getContext()) && mCache.asMap().remove(aPattern) != null) {
+						mInvalidations.increment();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop tracking the pattern, unless it is cached
+	 */
+	private void forget(final Pattern thePattern) {
+		mDependents.computeIfPresent(thePattern.spo(), (theKey, thePatterns) -> {
+			if (!mCache.asMap().containsKey(thePattern)) {
+				thePatterns.remove(thePattern);
+			}
+
+			return thePatterns.isEmpty() ? null : thePatterns;
+		});
+	}
+
+	/**
+	 * A filter pattern, compared by value
+	 */
+	private static final class Pattern {
+		private final Resource mSubj;
+
+		private final IRI mPred;
+
+		private final Value mObj;
+
+		private final Resource[] mContexts;
+
+		private final int mHash;
+
+		Pattern(final Resource theSubj, final IRI thePred, final Value theObj, final Resource[] theContexts) {
+			mSubj = theSubj;
+			mPred = thePred;
+			mObj = theObj;
+			mContexts = theContexts == null ? new Resource[] { null } : theContexts.clone();
+			mHash = Objects.hash(mSubj, mPred, mObj) * 31 + Arrays.hashCode(mContexts);
+		}
+
+		/**
+		 * Return the pattern without its contexts
+		 */
+		Pattern spo() {
+			return mContexts.length == 0 ? this : new Pattern(mSubj, mPred, mObj, ANY_CTX);
+		}
+
+		boolean matchesContext(final Resource theContext) {
+			if (mContexts.length == 0) {
+				return true;
+			}
+
+			for (Resource aContext : mContexts) {
+				if (Objects.equals(aContext, theContext)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		@Override
+		public boolean equals(final Object theObj) {
+			if (this == theObj) {
+				return true;
+			}
+			else if (!(theObj instanceof Pattern)) {
+				return false;
+			}
+
+			final Pattern aOther = (Pattern) theObj;
+
+			return mHash == aOther.mHash
+			       && Objects.equals(mSubj, aOther.mSubj)
+			       && Objects.equals(mPred, aOther.mPred)
+			       && Objects.equals(mObj, aOther.mObj)
+			       && Arrays.equals(mContexts, aOther.mContexts);
+		}
+
+		@Override
+		public int hashCode() {
+			return mHash;
+		}
+	}
+
+	/**
+	 * A view of the statements matching a pattern whose reads are answered from a copy of those statements, taken when
+	 * the view is created.  Once the view is dropped from the cache, or for anything else, it goes to the live view.
+	 */
+	private final class CachedView extends DelegatingModel {
+		private static final long serialVersionUID = -7553704833636926569L;
+
+		private final Statement[] mStatements;
+
+		private volatile Set<Value> mObjects;
+
+		private volatile boolean mDropped;
+
+		CachedView(final Model theView) {
+			super(theView);
+
+			final List<Statement> aStatements = new ArrayList<>();
+
+			super.forEach(aStatements::add);
+
+			mStatements = aStatements.toArray(new Statement[aStatements.size()]);
+		}
+
+		/**
+		 * Stop answering from the copy of the statements, which may no longer match those of the model
+		 */
+		void drop() {
+			mDropped = true;
+			mObjects = null;
+		}
+
+		@Override
+		public int size() {
+			return mDropped ? super.size() : mStatements.length;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return mDropped ? super.isEmpty() : mStatements.length == 0;
+		}
+
+		@Override
+		public Set<Value> objects() {
+			if (mDropped) {
+				return super.objects();
+			}
+
+			Set<Value> aObjects = mObjects;
+
+			if (aObjects == null) {
+				aObjects = new LinkedHashSet<>();
+
+				for (Statement aStmt : mStatements) {
+					aObjects.add(aStmt.getObject());
+				}
+
+				aObjects = Collections.unmodifiableSet(aObjects);
+				mObjects = aObjects;
+			}
+
+			return aObjects;
+		}
+
+		@Override
+		public void forEach(final Consumer<? super Statement> theAction) {
+			if (mDropped) {
+				super.forEach(theAction);
+				return;
+			}
+
+			for (Statement aStmt : mStatements) {
+				theAction.accept(aStmt);
+			}
+		}
+
+		@Override
+		public Iterator<Statement> iterator() {
+			if (mDropped) {
+				return super.iterator();
+			}
+
+			final Iterator<Statement> aIter = Arrays.asList(mStatements).iterator();
+
+			return new Iterator<Statement>() {
+				private Statement mLast;
+
+				@Override
+				public boolean hasNext() {
+					return aIter.hasNext();
+				}
+
+				@Override
+				public Statement next() {
+					mLast = aIter.next();
+					return mLast;
+				}
+
+				@Override
+				public void remove() {
+					if (mLast == null) {
+						throw new IllegalStateException();
+					}
+
+					CachingModel.this.remove(mLast);
+					mLast = null;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,710 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+/**
+ * <p>Canonical N-Quads serialization of a model, in the spirit of URDNA2015: blank nodes are relabeled {@code _:c14n0},
+ * {@code _:c14n1}, ... as a function of the structure of the model only, and the lines are sorted, so isomorphic models
+ * produce the same bytes regardless of blank node labels or statement order.</p>
+ *
+ * <p>Blank nodes are split into the connected components of the statements they share, and each component is labeled on
+ * its own, in parallel.  Within a component, nodes are coloured by the same refinement as {@link Isomorphism}, seeded
+ * with hashes of the N-Quads form of the other values of their statements so that the colours are stable across runs.
+ * Ties which refinement can't break are broken by trying each node of the tied class and keeping the labeling with the
+ * smallest serialization.  Nodes whose statements are the same but for the node itself, such as the blank children of a
+ * node which all look alike, are twins: swapping them changes nothing, so they are given distinct colours all at once
+ * rather than searched one by one.  Otherwise a node whose first labeling is the same as that of an earlier node of the
+ * class, and maps that node to it, is interchangeable with it and is not searched further.  The search keeps its own
+ * stack rather than recursing, and each level gives its nodes colours of their own.  Components are then ordered by
+ * their serialization to number their labels.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+final class Canonicalization {
+	private static final String PREFIX = "_:c14n";
+
+	private Canonicalization() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Return the canonical N-Quads lines of the model, sorted and without line terminators
+	 */
+	static String[] lines(final Model theModel) {
+		final Statement[] aStatements = theModel.toArray(new Statement[theModel.size()]);
+
+		final Map<BNode, Integer> aIds = new HashMap<>();
+		final List<BNode> aNodes = new ArrayList<>();
+		final List<Statement> aGround = new ArrayList<>();
+		final List<Statement> aBNodeStatements = new ArrayList<>();
+
+		for (Statement aStmt : aStatements) {
+			boolean aHasBNode = false;
+
+			for (Value aValue : terms(aStmt)) {
+				if (aValue instanceof BNode) {
+					aHasBNode = true;
+
+					aIds.computeIfAbsent((BNode) aValue, theNode -> {
+						aNodes.add(theNode);
+						return aNodes.size() - 1;
+					});
+				}
+			}
+
+			(aHasBNode ? aBNodeStatements : aGround).add(aStmt);
+		}
+
+		final Component[] aComponents = components(aBNodeStatements, aIds, aNodes.size());
+
+		Arrays.stream(aComponents).parallel().forEach(Component::label);
+
+		Arrays.sort(aComponents, Comparator.comparing((Component theComponent) -> theComponent.mLines, Canonicalization::compare));
+
+		int aOffset = 0;
+
+		for (Component aComponent : aComponents) {
+			aComponent.mOffset = aOffset;
+			aOffset += aComponent.mNodes.size();
+		}
+
+		final String[] aLines = Stream.concat(aGround.parallelStream().map(theStmt -> line(theStmt, null, 0)),
+		                                      Arrays.stream(aComponents).parallel().flatMap(Component::lines))
+		                              .toArray(String[]::new);
+
+		Arrays.parallelSort(aLines);
+
+		return aLines;
+	}
+
+	/**
+	 * Group the statements with blank nodes by the connected component of their blank nodes
+	 */
+	private static Component[] components(final List<Statement> theStatements, final Map<BNode, Integer> theIds, final int theCount) {
+		final int[] aParents = new int[theCount];
+
+		for (int i = 0; i < theCount; i++) {
+			aParents[i] = i;
+		}
+
+		for (Statement aStmt : theStatements) {
+			int aFirst = -1;
+
+			for (Value aValue : terms(aStmt)) {
+				if (aValue instanceof BNode) {
+					final int aRoot = find(aParents, theIds.get(aValue));
+
+					if (aFirst == -1) {
+						aFirst = aRoot;
+					}
+					else if (aRoot != aFirst) {
+						aParents[aRoot] = aFirst;
+					}
+				}
+			}
+		}
+
+		final Map<Integer, Component> aComponents = new HashMap<>();
+
+		for (Statement aStmt : theStatements) {
+			for (Value aValue : terms(aStmt)) {
+				if (aValue instanceof BNode) {
+					aComponents.computeIfAbsent(find(aParents, theIds.get(aValue)), theRoot -> new Component()).mStatements.add(aStmt);
+					break;
+				}
+			}
+		}
+
+		return aComponents.values().toArray(new Component[aComponents.size()]);
+	}
+
+	private static int find(final int[] theParents, final int theNode) {
+		int aNode = theNode;
+
+		while (theParents[aNode] != aNode) {
+			theParents[aNode] = theParents[theParents[aNode]];
+			aNode = theParents[aNode];
+		}
+
+		return aNode;
+	}
+
+	private static Value[] terms(final Statement theStmt) {
+		return new Value[] { theStmt.getSubject(), theStmt.getObject(), theStmt.getContext() };
+	}
+
+	/**
+	 * Return the N-Quads line of the statement, with its blank nodes relabeled by the function
+	 */
+	private static String line(final Statement theStmt, final Component theComponent, final int theOffset) {
+		final StringBuilder aBuilder = new StringBuilder();
+
+		append(aBuilder, theStmt.getSubject(), theComponent, theOffset).append(' ');
+		append(aBuilder, theStmt.getPredicate(), theComponent, theOffset).append(' ');
+		append(aBuilder, theStmt.getObject(), theComponent, theOffset);
+
+		if (theStmt.getContext() != null) {
+			append(aBuilder.append(' '), theStmt.getContext(), theComponent, theOffset);
+		}
+
+		return aBuilder.append(" .").toString();
+	}
+
+	private static StringBuilder append(final StringBuilder theBuilder, final Value theValue, final Component theComponent, final int theOffset) {
+		if (theValue instanceof BNode) {
+			return theBuilder.append(PREFIX).append(theOffset + theComponent.mRanks[theComponent.mIds.get(theValue)]);
+		}
+
+		return theBuilder.append(term(theValue));
+	}
+
+	/**
+	 * Return the canonical N-Quads form of an IRI or literal
+	 */
+	static String term(final Value theValue) {
+		if (theValue instanceof IRI) {
+			return "<" + theValue.stringValue() + ">";
+		}
+
+		final Literal aLiteral = (Literal) theValue;
+		final StringBuilder aBuilder = new StringBuilder(aLiteral.getLabel().length() + 2).append('"');
+
+		for (int i = 0; i < aLiteral.getLabel().length(); i++) {
+			final char c = aLiteral.getLabel().charAt(i);
+
+			switch (c) {
+				case '\b': aBuilder.append("\\b"); break;
+				case '\t': aBuilder.append("\\t"); break;
+				case '\n': aBuilder.append("\\n"); break;
+				case '\f': aBuilder.append("\\f"); break;
+				case '\r': aBuilder.append("\\r"); break;
+				case '"': aBuilder.append("\\\""); break;
+				case '\\': aBuilder.append("\\\\"); break;
+				default:
+					if (c < 0x20 || c == 0x7F) {
+						aBuilder.append(String.format("\\u%04X", (int) c));
+					}
+					else {
+						aBuilder.append(c);
+					}
+			}
+		}
+
+		aBuilder.append('"');
+
+		if (aLiteral.getLanguage().isPresent()) {
+			aBuilder.append('@').append(aLiteral.getLanguage().get());
+		}
+		else if (aLiteral.getDatatype() != null && !aLiteral.getDatatype().equals(XMLSchema.STRING)) {
+			aBuilder.append("^^<").append(aLiteral.getDatatype().stringValue()).append('>');
+		}
+
+		return aBuilder.toString();
+	}
+
+	private static long hash(final String theString) {
+		// FNV-1a, unlike String.hashCode it is 64 bits wide
+		long aHash = 0xcbf29ce484222325L;
+
+		for (int i = 0; i < theString.length(); i++) {
+			aHash = (aHash ^ theString.charAt(i)) * 0x100000001b3L;
+		}
+
+		return Isomorphism.mix(aHash);
+	}
+
+	private static int compare(final String[] theFirst, final String[] theSecond) {
+		for (int i = 0; i < Math.min(theFirst.length, theSecond.length); i++) {
+			final int aCompare = theFirst[i].compareTo(theSecond[i]);
+
+			if (aCompare != 0) {
+				return aCompare;
+			}
+		}
+
+		return Integer.compare(theFirst.length, theSecond.length);
+	}
+
+	private static int distinct(final long[] theColours) {
+		final long[] aSorted = theColours.clone();
+		Arrays.sort(aSorted);
+
+		int aCount = aSorted.length == 0 ? 0 : 1;
+
+		for (int i = 1; i < aSorted.length; i++) {
+			if (aSorted[i] != aSorted[i - 1]) {
+				aCount++;
+			}
+		}
+
+		return aCount;
+	}
+
+	/**
+	 * A connected component of blank nodes and the statements they appear in
+	 */
+	private static final class Component {
+		private final List<Statement> mStatements = new ArrayList<>();
+
+		private final Map<BNode, Integer> mIds = new HashMap<>();
+
+		private final List<BNode> mNodes = new ArrayList<>();
+
+		/**
+		 * The node id at each of the subject, object and context positions of the statements, -1 for other values
+		 */
+		private int[] mTerms;
+
+		/**
+		 * The hash of the values of each statement other than its blank nodes
+		 */
+		private long[] mGroundHashes;
+
+		/**
+		 * The twin group of each node; nodes in the same group have the same statements but for themselves
+		 */
+		private int[] mTwins;
+
+		/**
+		 * The canonical label number of each node, relative to the first label of the component
+		 */
+		private int[] mRanks;
+
+		/**
+		 * The sorted lines of the component under the canonical labels, relative to the first label of the component
+		 */
+		private String[] mLines;
+
+		private int mOffset;
+
+		void label() {
+			mTerms = new int[mStatements.size() * 3];
+			mGroundHashes = new long[mStatements.size()];
+
+			for (int i = 0; i < mStatements.size(); i++) {
+				final Statement aStmt = mStatements.get(i);
+				final Value[] aTerms = terms(aStmt);
+
+				long aHash = hash(term(aStmt.getPredicate()));
+
+				for (int aPosition = 0; aPosition < 3; aPosition++) {
+					final Value aValue = aTerms[aPosition];
+
+					if (aValue instanceof BNode) {
+						mTerms[i * 3 + aPosition] = mIds.computeIfAbsent((BNode) aValue, theNode -> {
+							mNodes.add(theNode);
+							return mNodes.size() - 1;
+						});
+					}
+					else {
+						mTerms[i * 3 + aPosition] = -1;
+					}
+
+					aHash = Isomorphism.mix(aHash * 31 + (aValue instanceof BNode ? 1 : aValue == null ? 0 : hash(term(aValue))));
+				}
+
+				mGroundHashes[i] = aHash;
+			}
+
+			mTwins = twins();
+
+			final long[] aColours = new long[mNodes.size()];
+			Arrays.fill(aColours, 1);
+
+			final Leaf aLeaf = search(refine(aColours));
+
+			mRanks = aLeaf.mRanks;
+			mLines = aLeaf.mLines;
+		}
+
+		Stream<String> lines() {
+			return mStatements.stream().map(theStmt -> line(theStmt, this, mOffset));
+		}
+
+		/**
+		 * Group the nodes whose statements, with the node itself left out, are the same.  Swapping two nodes of a group
+		 * maps the statements of the component onto themselves, since a statement with both nodes would be in the
+		 * statements of one of them but not of the other.
+		 */
+		private int[] twins() {
+			final List<List<String>> aStatements = new ArrayList<>(mNodes.size());
+
+			for (int i = 0; i < mNodes.size(); i++) {
+				aStatements.add(new ArrayList<>(2));
+			}
+
+			for (int i = 0; i < mStatements.size(); i++) {
+				final Set<Integer> aNodes = new HashSet<>(3);
+
+				for (int aPosition = 0; aPosition < 3; aPosition++) {
+					final int aNode = mTerms[i * 3 + aPosition];
+
+					if (aNode != -1 && aNodes.add(aNode)) {
+						aStatements.get(aNode).add(pattern(i, aNode));
+					}
+				}
+			}
+
+			final Map<List<String>, Integer> aGroups = new HashMap<>();
+			final int[] aTwins = new int[mNodes.size()];
+
+			for (int i = 0; i < aTwins.length; i++) {
+				final List<String> aSignature = aStatements.get(i);
+				aSignature.sort(null);
+
+				aTwins[i] = aGroups.computeIfAbsent(aSignature, theSignature -> aGroups.size());
+			}
+
+			return aTwins;
+		}
+
+		/**
+		 * Return the N-Quads form of the statement with the node as {@code *} and the other blank nodes by their id
+		 */
+		private String pattern(final int theStatement, final int theNode) {
+			final Statement aStmt = mStatements.get(theStatement);
+			final Value[] aTerms = terms(aStmt);
+			final StringBuilder aBuilder = new StringBuilder(term(aStmt.getPredicate()));
+
+			for (int aPosition = 0; aPosition < 3; aPosition++) {
+				final int aNode = mTerms[theStatement * 3 + aPosition];
+
+				aBuilder.append(' ');
+
+				if (aNode == theNode) {
+					aBuilder.append('*');
+				}
+				else if (aNode != -1) {
+					aBuilder.append("_:").append(aNode);
+				}
+				else if (aTerms[aPosition] != null) {
+					aBuilder.append(term(aTerms[aPosition]));
+				}
+			}
+
+			return aBuilder.toString();
+		}
+
+		/**
+		 * Refine the colours by at least one step, and until the number of classes is stable
+		 */
+		private long[] refine(final long[] theColours) {
+			long[] aColours = step(theColours);
+			int aClasses = distinct(aColours);
+
+			while (aClasses < aColours.length) {
+				final long[] aNext = step(aColours);
+				final int aNextClasses = distinct(aNext);
+
+				if (aNextClasses == aClasses) {
+					break;
+				}
+
+				aColours = aNext;
+				aClasses = aNextClasses;
+			}
+
+			return aColours;
+		}
+
+		private long[] step(final long[] theColours) {
+			final long[] aNext = new long[theColours.length];
+
+			for (int i = 0; i < aNext.length; i++) {
+				aNext[i] = Isomorphism.mix(theColours[i]);
+			}
+
+			for (int i = 0; i < mGroundHashes.length; i++) {
+				long aHash = mGroundHashes[i];
+
+				for (int aPosition = 0; aPosition < 3; aPosition++) {
+					final int aNode = mTerms[i * 3 + aPosition];
+
+					aHash = aHash * 31 + (aNode == -1 ? 0 : theColours[aNode]);
+				}
+
+				aHash = Isomorphism.mix(aHash);
+
+				for (int aPosition = 0; aPosition < 3; aPosition++) {
+					final int aNode = mTerms[i * 3 + aPosition];
+
+					if (aNode != -1) {
+						aNext[aNode] += Isomorphism.mix(aHash + aPosition);
+					}
+				}
+			}
+
+			return aNext;
+		}
+
+		/**
+		 * Return the smallest leaf below the refined colours.  The search is depth first, with a frame on the stack for
+		 * each level being searched.
+		 */
+		private Leaf search(final long[] theColours) {
+			final int aNode = tiedNode(theColours);
+
+			if (aNode == -1) {
+				return leaf(theColours);
+			}
+
+			final Deque<Frame> aStack = new ArrayDeque<>();
+			aStack.push(new Frame(theColours, aNode, 0));
+
+			// the smallest leaf of the frame last taken off the stack
+			Leaf aResult = null;
+
+			while (true) {
+				final Frame aFrame = aStack.peek();
+
+				if (aResult != null) {
+					aFrame.offer(aResult);
+					aResult = null;
+				}
+
+				final long[] aChild = aFrame.next();
+
+				if (aChild == null) {
+					aStack.pop();
+
+					if (aStack.isEmpty()) {
+						return aFrame.mBest;
+					}
+
+					aResult = aFrame.mBest;
+				}
+				else {
+					final int aTied = tiedNode(aChild);
+
+					if (aTied == -1) {
+						aResult = leaf(aChild);
+					}
+					else {
+						aStack.push(new Frame(aChild, aTied, aFrame.mDepth + 1));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Return the first leaf below the refined colours, individualizing the first node of the smallest tied class at
+		 * each level
+		 */
+		private Leaf firstLeaf(final long[] theColours, final int theDepth) {
+			long[] aColours = theColours;
+			int aDepth = theDepth;
+
+			for (int aNode = tiedNode(aColours); aNode != -1; aNode = tiedNode(aColours)) {
+				aColours = refine(individualize(aColours, aNode, aDepth++));
+			}
+
+			return leaf(aColours);
+		}
+
+		/**
+		 * Return the colours with the node, and its twins of the same colour, each given a colour of its own.  The colours
+		 * depend on the depth of the search, so they are not those of the nodes individualized at other levels.
+		 */
+		private long[] individualize(final long[] theColours, final int theNode, final int theDepth) {
+			final long[] aColours = theColours.clone();
+			final long aIndividual = Isomorphism.mix(theColours[theNode] ^ Isomorphism.mix(0x5DEECE66DL + theDepth));
+
+			int aCount = 0;
+
+			for (int i = 0; i < aColours.length; i++) {
+				if (theColours[i] == theColours[theNode] && mTwins[i] == mTwins[theNode]) {
+					aColours[i] = Isomorphism.mix(aIndividual + aCount++);
+				}
+			}
+
+			return aColours;
+		}
+
+		/**
+		 * Return the first node of the smallest class with more than one node
+		 *
+		 * @return	the node, or -1 if every colour is unique
+		 */
+		private int tiedNode(final long[] theColours) {
+			final long[] aSorted = theColours.clone();
+			Arrays.sort(aSorted);
+
+			long aColour = 0;
+			int aSize = Integer.MAX_VALUE;
+
+			for (int i = 0; i < aSorted.length; ) {
+				int j = i + 1;
+
+				while (j < aSorted.length && aSorted[j] == aSorted[i]) {
+					j++;
+				}
+
+				if (j - i > 1 && j - i < aSize) {
+					aColour = aSorted[i];
+					aSize = j - i;
+				}
+
+				i = j;
+			}
+
+			if (aSize == Integer.MAX_VALUE) {
+				return -1;
+			}
+
+			int aNode = 0;
+
+			while (theColours[aNode] != aColour) {
+				aNode++;
+			}
+
+			return aNode;
+		}
+
+		/**
+		 * Return the labeling of the nodes in the order of their colours, which are all distinct
+		 */
+		private Leaf leaf(final long[] theColours) {
+			final Integer[] aOrder = new Integer[theColours.length];
+
+			for (int i = 0; i < aOrder.length; i++) {
+				aOrder[i] = i;
+			}
+
+			Arrays.sort(aOrder, Comparator.comparingLong(theNode -> theColours[theNode]));
+
+			final int[] aRanks = new int[theColours.length];
+
+			for (int i = 0; i < aOrder.length; i++) {
+				aRanks[aOrder[i]] = i;
+			}
+
+			final int[] aPrevious = mRanks;
+			mRanks = aRanks;
+
+			final String[] aLines = new String[mStatements.size()];
+
+			for (int i = 0; i < aLines.length; i++) {
+				aLines[i] = line(mStatements.get(i), this, 0);
+			}
+
+			mRanks = aPrevious;
+
+			Arrays.sort(aLines);
+
+			return new Leaf(aRanks, aLines);
+		}
+
+		/**
+		 * A level of the search: the refined colours, and the nodes of their smallest tied class which are tried in turn
+		 */
+		private final class Frame {
+			private final long[] mColours;
+
+			private final long mColour;
+
+			private final int mDepth;
+
+			/**
+			 * The twin groups of the class already tried
+			 */
+			private final Set<Integer> mTried = new HashSet<>();
+
+			/**
+			 * The first leaf below each node searched, by node
+			 */
+			private final Map<Integer, Leaf> mFirsts = new LinkedHashMap<>();
+
+			private int mNext = 0;
+
+			private Leaf mBest;
+
+			Frame(final long[] theColours, final int theNode, final int theDepth) {
+				mColours = theColours;
+				mColour = theColours[theNode];
+				mDepth = theDepth;
+			}
+
+			/**
+			 * Return the refined colours below the next node of the class to search, or null once every node was tried
+			 */
+			long[] next() {
+				while (mNext < mColours.length) {
+					final int aNode = mNext++;
+
+					if (mColours[aNode] != mColour || !mTried.add(Component.this.mTwins[aNode])) {
+						continue;
+					}
+
+					final long[] aRefined = refine(individualize(mColours, aNode, mDepth));
+					final Leaf aFirst = firstLeaf(aRefined, mDepth + 1);
+
+					// the same first leaf is an automorphism, the node is interchangeable with the earlier one if it maps it
+					// to this one
+					if (mFirsts.entrySet().stream().anyMatch(theEntry -> Arrays.equals(theEntry.getValue().mLines, aFirst.mLines)
+					                                                     && theEntry.getValue().mRanks[theEntry.getKey()] == aFirst.mRanks[aNode])) {
+						continue;
+					}
+
+					mFirsts.put(aNode, aFirst);
+
+					return aRefined;
+				}
+
+				return null;
+			}
+
+			void offer(final Leaf theLeaf) {
+				if (mBest == null || compare(theLeaf.mLines, mBest.mLines) < 0) {
+					mBest = theLeaf;
+				}
+			}
+		}
+	}
+
+	private static final class Leaf {
+		private final int[] mRanks;
+
+		private final String[] mLines;
+
+		Leaf(final int[] theRanks, final String[] theLines) {
+			mRanks = theRanks;
+			mLines = theLines;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+
+/**
+ * <p>A {@link Model} which records the net changes made to it: the statements added which were not in the wrapped model,
+ * and the statements removed which were.  Adding a statement that was removed, or removing one that was added, cancels
+ * the earlier change, so after any sequence of changes the additions and removals are exactly the difference between the
+ * model when tracking started and the model now.</p>
+ *
+ * <p>The changes are kept in {@link CompactModel compact models} sharing a {@link ValueDictionary dictionary}, so large
+ * deltas are cheap to hold on to.  Use
+ * {@link com.complexible.common.openrdf.repository.RepositoryConnections#applyChanges} to apply them to a repository.</p>
+ *
+ * <p>This implementation is not thread-safe.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ChangeTrackingModel extends NotifyingModel {
+	private static final long serialVersionUID = 1199473362486339054L;
+
+	private CompactModel mAdditions;
+
+	private CompactModel mRemovals;
+
+	private ChangeTrackingModel(final Model theModel) {
+		super(theModel);
+
+		reset();
+	}
+
+	/**
+	 * Track the changes made to the model from now on
+	 *
+	 * @param theModel	the model
+	 * @return			the tracking model
+	 */
+	public static ChangeTrackingModel of(final Model theModel) {
+		return new ChangeTrackingModel(theModel);
+	}
+
+	/**
+	 * Return the statements added to the model since tracking started, or was last {@link #reset}
+	 *
+	 * @return	an unmodifiable view of the added statements
+	 */
+	public Model getAdditions() {
+		return mAdditions.unmodifiable();
+	}
+
+	/**
+	 * Return the statements removed from the model since tracking started, or was last {@link #reset}
+	 *
+	 * @return	an unmodifiable view of the removed statements
+	 */
+	public Model getRemovals() {
+		return mRemovals.unmodifiable();
+	}
+
+	/**
+	 * Return whether or not the model differs from when tracking started, or was last {@link #reset}
+	 *
+	 * @return	true if there are changes
+	 */
+	public boolean hasChanges() {
+		return !mAdditions.isEmpty() || !mRemovals.isEmpty();
+	}
+
+	/**
+	 * Forget the recorded changes, for instance once they have been applied elsewhere, and track changes from the
+	 * current state of the model
+	 */
+	public void reset() {
+		final ValueDictionary aDictionary = new ValueDictionary();
+
+		mAdditions = new CompactModel(aDictionary);
+		mRemovals = new CompactModel(aDictionary);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void statementAdded(final Statement theStatement) {
+		if (!mRemovals.remove(theStatement)) {
+			mAdditions.add(theStatement);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void statementRemoved(final Statement theStatement) {
+		if (!mAdditions.remove(theStatement)) {
+			mRemovals.add(theStatement);
+		}
+	}
+}
@@ -0,0 +1,762 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.AbstractModel;
+import org.eclipse.rdf4j.model.impl.FilteredModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * <p>A {@link Model} which keeps its statements dictionary encoded.  Each {@link Value} is assigned an {@code int} id by
+ * a {@link ValueDictionary}, which may be shared between models, and each statement is stored as four consecutive ids
+ * (subject, predicate, object, context) in a single {@code int[]}.  Statement lookups go through an open-addressed table
+ * of statement slots and pattern matching goes through primitive, id-keyed indexes for each position, so there are no
+ * per-statement objects retained by the model.</p>
+ *
+ * <p>The {@link Statement statements} returned by the model are created on demand as they are iterated.  Removed statements
+ * leave a hole in the storage which is reclaimed the next time the model grows while more than half of it is garbage.</p>
+ *
+ * <p>This implementation is not thread-safe.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class CompactModel extends AbstractModel {
+	private static final long serialVersionUID = -3165069453328311294L;
+
+	private static final Resource[] NULL_CTX = new Resource[] { null };
+
+	/**
+	 * Marker placed in the subject position of a removed statement
+	 */
+	private static final int DELETED = -1;
+
+	/**
+	 * Marker for an unbound position in a pattern
+	 */
+	private static final int ANY = -2;
+
+	private static final int INITIAL_SLOTS = 16;
+
+	/**
+	 * The minimum amount of garbage before removed statements are reclaimed
+	 */
+	private static final int MIN_GARBAGE = 1024;
+
+	private final ValueDictionary mDictionary;
+
+	private final Set<Namespace> mNamespaces = new LinkedHashSet<>();
+
+	/**
+	 * The statements, four ids per slot
+	 */
+	private int[] mQuads;
+
+	/**
+	 * The number of slots in use, including removed statements
+	 */
+	private int mSlots;
+
+	/**
+	 * The number of live statements
+	 */
+	private int mSize;
+
+	/**
+	 * Open-addressed table of {@code slot + 1} keyed by the hash of the statement, 0 marks an empty bucket
+	 */
+	private int[] mTable;
+
+	private final IntIndex mSubjects = new IntIndex();
+
+	private final IntIndex mPredicates = new IntIndex();
+
+	private final IntIndex mObjects = new IntIndex();
+
+	private final IntIndex mContexts = new IntIndex();
+
+	private transient int mModCount;
+
+	/**
+	 * Create a new, empty CompactModel with its own dictionary
+	 */
+	public CompactModel() {
+		this(new ValueDictionary());
+	}
+
+	/**
+	 * Create a new, empty CompactModel which encodes its values using the given dictionary
+	 *
+	 * @param theDictionary	the dictionary
+	 */
+	public CompactModel(final ValueDictionary theDictionary) {
+		mDictionary = Objects.requireNonNull(theDictionary);
+		mQuads = new int[INITIAL_SLOTS * 4];
+		mTable = new int[INITIAL_SLOTS * 2];
+	}
+
+	/**
+	 * Return the dictionary used to encode the values of this model
+	 *
+	 * @return	the dictionary
+	 */
+	public ValueDictionary getDictionary() {
+		return mDictionary;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Namespace> getNamespaces() {
+		return mNamespaces;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setNamespace(final Namespace theNamespace) {
+		removeNamespace(theNamespace.getPrefix());
+		mNamespaces.add(theNamespace);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> removeNamespace(final String thePrefix) {
+		final Optional<Namespace> aNamespace = getNamespace(thePrefix);
+		aNamespace.ifPresent(mNamespaces::remove);
+		return aNamespace;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		Objects.requireNonNull(theSubj, "subject cannot be null");
+		Objects.requireNonNull(thePred, "predicate cannot be null");
+		Objects.requireNonNull(theObj, "object cannot be null");
+
+		final int s = mDictionary.encode(theSubj);
+		final int p = mDictionary.encode(thePred);
+		final int o = mDictionary.encode(theObj);
+
+		boolean aChanged = false;
+		for (Resource aContext : theContexts == null || theContexts.length == 0 ? NULL_CTX : theContexts) {
+			aChanged |= add(s, p, o, mDictionary.encode(aContext));
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		if (theObj instanceof Statement) {
+			return find((Statement) theObj) != -1;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return matchPattern(theSubj, thePred, theObj, theContexts).hasNext();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Object theObj) {
+		if (theObj instanceof Statement) {
+			final int aSlot = find((Statement) theObj);
+
+			if (aSlot != -1) {
+				removeSlot(aSlot);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		boolean aChanged = false;
+
+		final Iterator<Statement> aIter = matchPattern(theSubj, thePred, theObj, theContexts);
+		while (aIter.hasNext()) {
+			aIter.next();
+			aIter.remove();
+			aChanged = true;
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		mQuads = new int[INITIAL_SLOTS * 4];
+		mTable = new int[INITIAL_SLOTS * 2];
+		mSlots = 0;
+		mSize = 0;
+
+		mSubjects.clear();
+		mPredicates.clear();
+		mObjects.clear();
+		mContexts.clear();
+
+		mModCount++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		return matchPattern(null, null, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return new FilteredModel(this, theSubj, thePred, theObj, theContexts) {
+			private static final long serialVersionUID = 5826483066512087637L;
+
+			@Override
+			public Iterator<Statement> iterator() {
+				return CompactModel.this.matchPattern(subj, pred, obj, contexts);
+			}
+
+			@Override
+			protected void removeFilteredTermIteration(final Iterator<Statement> theIter, final Resource theSubj,
+			                                           final IRI thePred, final Value theObj, final Resource... theContexts) {
+				CompactModel.this.removeTermIteration(theIter, theSubj, thePred, theObj, theContexts);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeTermIteration(final Iterator<Statement> theIter, final Resource theSubj, final IRI thePred,
+	                                final Value theObj, final Resource... theContexts) {
+		remove(theSubj, thePred, theObj, theContexts);
+	}
+
+	/**
+	 * Return an iterator over the statements matching the pattern
+	 */
+	private Iterator<Statement> matchPattern(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final int s = theSubj == null ? ANY : mDictionary.id(theSubj);
+		final int p = thePred == null ? ANY : mDictionary.id(thePred);
+		final int o = theObj == null ? ANY : mDictionary.id(theObj);
+
+		if (s == ValueDictionary.NO_ID || p == ValueDictionary.NO_ID || o == ValueDictionary.NO_ID) {
+			return new SlotIterator(new int[0][], new int[0], s, p, o, null);
+		}
+
+		int[] aContexts = null;
+		if (theContexts == null || theContexts.length > 0) {
+			aContexts = Arrays.stream(theContexts == null ? NULL_CTX : theContexts)
+			                  .mapToInt(mDictionary::id)
+			                  .filter(aId -> aId != ValueDictionary.NO_ID)
+			                  .distinct()
+			                  .toArray();
+
+			if (aContexts.length == 0) {
+				return new SlotIterator(new int[0][], new int[0], s, p, o, null);
+			}
+		}
+
+		// pick the most selective of the indexes for the bound positions
+		IntIndex aIndex = null;
+		int aPos = -1;
+
+		for (int i = 0; i < 3; i++) {
+			final int aKey = i == 0 ? s : (i == 1 ? p : o);
+			if (aKey == ANY) {
+				continue;
+			}
+
+			final IntIndex aCandidate = i == 0 ? mSubjects : (i == 1 ? mPredicates : mObjects);
+			final int aCandidatePos = aCandidate.find(aKey);
+
+			if (aCandidatePos == -1) {
+				return new SlotIterator(new int[0][], new int[0], s, p, o, null);
+			}
+			else if (aIndex == null || aCandidate.count(aCandidatePos) < aIndex.count(aPos)) {
+				aIndex = aCandidate;
+				aPos = aCandidatePos;
+			}
+		}
+
+		if (aIndex != null) {
+			return new SlotIterator(new int[][] { aIndex.list(aPos) }, new int[] { aIndex.count(aPos) }, s, p, o, aContexts);
+		}
+		else if (aContexts != null) {
+			final int[][] aLists = new int[aContexts.length][];
+			final int[] aCounts = new int[aContexts.length];
+
+			for (int i = 0; i < aContexts.length; i++) {
+				final int aCxtPos = mContexts.find(aContexts[i]);
+				aLists[i] = aCxtPos == -1 ? new int[0] : mContexts.list(aCxtPos);
+				aCounts[i] = aCxtPos == -1 ? 0 : mContexts.count(aCxtPos);
+			}
+
+			return new SlotIterator(aLists, aCounts, s, p, o, null);
+		}
+		else {
+			// no bound positions, scan all of the slots
+			return new SlotIterator(null, null, s, p, o, null);
+		}
+	}
+
+	private boolean add(final int s, final int p, final int o, final int c) {
+		if (find(s, p, o, c) != -1) {
+			return false;
+		}
+
+		final int aGarbage = mSlots - mSize;
+		if (aGarbage > MIN_GARBAGE && aGarbage > mSize) {
+			compact();
+		}
+
+		if ((mSlots + 1) * 4 > mQuads.length) {
+			mQuads = Arrays.copyOf(mQuads, mQuads.length * 2);
+		}
+
+		final int aSlot = mSlots++;
+		final int aBase = aSlot * 4;
+
+		mQuads[aBase] = s;
+		mQuads[aBase + 1] = p;
+		mQuads[aBase + 2] = o;
+		mQuads[aBase + 3] = c;
+
+		if (mSlots * 2 > mTable.length) {
+			rebuildTable(mTable.length * 2);
+		}
+		else {
+			insert(mTable, aSlot);
+		}
+
+		index(aSlot);
+
+		mSize++;
+		mModCount++;
+
+		return true;
+	}
+
+	private void index(final int theSlot) {
+		final int aBase = theSlot * 4;
+
+		mSubjects.add(mQuads[aBase], theSlot);
+		mPredicates.add(mQuads[aBase + 1], theSlot);
+		mObjects.add(mQuads[aBase + 2], theSlot);
+		mContexts.add(mQuads[aBase + 3], theSlot);
+	}
+
+	private void removeSlot(final int theSlot) {
+		// the table and the indexes still reference the slot, they skip it until the storage is compacted
+		mQuads[theSlot * 4] = DELETED;
+		mSize--;
+		mModCount++;
+	}
+
+	private int find(final Statement theStmt) {
+		final int s = mDictionary.id(theStmt.getSubject());
+		final int p = mDictionary.id(theStmt.getPredicate());
+		final int o = mDictionary.id(theStmt.getObject());
+		final int c = mDictionary.id(theStmt.getContext());
+
+		if (s == ValueDictionary.NO_ID || p == ValueDictionary.NO_ID || o == ValueDictionary.NO_ID || c == ValueDictionary.NO_ID) {
+			return -1;
+		}
+
+		return find(s, p, o, c);
+	}
+
+	private int find(final int s, final int p, final int o, final int c) {
+		final int aMask = mTable.length - 1;
+
+		for (int i = hash(s, p, o, c) & aMask; mTable[i] != 0; i = (i + 1) & aMask) {
+			final int aSlot = mTable[i] - 1;
+			final int aBase = aSlot * 4;
+
+			if (mQuads[aBase] == s && mQuads[aBase + 1] == p && mQuads[aBase + 2] == o && mQuads[aBase + 3] == c) {
+				return aSlot;
+			}
+		}
+
+		return -1;
+	}
+
+	private void insert(final int[] theTable, final int theSlot) {
+		final int aMask = theTable.length - 1;
+		final int aBase = theSlot * 4;
+
+		int i = hash(mQuads[aBase], mQuads[aBase + 1], mQuads[aBase + 2], mQuads[aBase + 3]) & aMask;
+		while (theTable[i] != 0) {
+			i = (i + 1) & aMask;
+		}
+
+		theTable[i] = theSlot + 1;
+	}
+
+	private void rebuildTable(final int theCapacity) {
+		final int[] aTable = new int[theCapacity];
+
+		for (int aSlot = 0; aSlot < mSlots; aSlot++) {
+			if (mQuads[aSlot * 4] != DELETED) {
+				insert(aTable, aSlot);
+			}
+		}
+
+		mTable = aTable;
+	}
+
+	/**
+	 * Reclaim the space of removed statements, renumbering the remaining slots and rebuilding the table and indexes
+	 */
+	private void compact() {
+		int aLive = 0;
+		for (int aSlot = 0; aSlot < mSlots; aSlot++) {
+			if (mQuads[aSlot * 4] != DELETED) {
+				if (aSlot != aLive) {
+					System.arraycopy(mQuads, aSlot * 4, mQuads, aLive * 4, 4);
+				}
+
+				aLive++;
+			}
+		}
+
+		mSlots = aLive;
+
+		mSubjects.clear();
+		mPredicates.clear();
+		mObjects.clear();
+		mContexts.clear();
+
+		for (int aSlot = 0; aSlot < mSlots; aSlot++) {
+			index(aSlot);
+		}
+
+		int aCapacity = INITIAL_SLOTS * 2;
+		while (aCapacity < (mSlots + 1) * 2) {
+			aCapacity *= 2;
+		}
+
+		rebuildTable(aCapacity);
+
+		mModCount++;
+	}
+
+	private Statement statement(final int theSlot) {
+		final int aBase = theSlot * 4;
+
+		final Resource aSubj = (Resource) mDictionary.value(mQuads[aBase]);
+		final IRI aPred = (IRI) mDictionary.value(mQuads[aBase + 1]);
+		final Value aObj = mDictionary.value(mQuads[aBase + 2]);
+		final Resource aContext = (Resource) mDictionary.value(mQuads[aBase + 3]);
+
+		return aContext == null
+		       ? SimpleValueFactory.getInstance().createStatement(aSubj, aPred, aObj)
+		       : SimpleValueFactory.getInstance().createStatement(aSubj, aPred, aObj, aContext);
+	}
+
+	private static int hash(final int s, final int p, final int o, final int c) {
+		return ValueDictionary.mix(((s * 31 + p) * 31 + o) * 31 + c);
+	}
+
+	/**
+	 * Iterator over the slots which match a pattern, either drawn from index lists or by scanning all of the slots
+	 */
+	private final class SlotIterator implements Iterator<Statement> {
+		private final int[][] mLists;
+
+		private final int[] mCounts;
+
+		private final int mSubj;
+
+		private final int mPred;
+
+		private final int mObj;
+
+		private final int[] mCxts;
+
+		private final int mLimit;
+
+		private int mList = 0;
+
+		private int mIndex = 0;
+
+		private int mNext = -1;
+
+		private int mLast = -1;
+
+		private int mExpectedModCount = mModCount;
+
+		SlotIterator(final int[][] theLists, final int[] theCounts, final int theSubj, final int thePred, final int theObj,
+		             final int[] theCxts) {
+			mLists = theLists;
+			mCounts = theCounts;
+			mSubj = theSubj;
+			mPred = thePred;
+			mObj = theObj;
+			mCxts = theCxts;
+			mLimit = mSlots;
+		}
+
+		@Override
+		public boolean hasNext() {
+			checkForComodification();
+
+			if (mNext == -1) {
+				mNext = advance();
+			}
+
+			return mNext != -1;
+		}
+
+		@Override
+		public Statement next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			mLast = mNext;
+			mNext = -1;
+
+			return statement(mLast);
+		}
+
+		@Override
+		public void remove() {
+			if (mLast == -1) {
+				throw new IllegalStateException();
+			}
+
+			checkForComodification();
+
+			removeSlot(mLast);
+
+			mLast = -1;
+			mExpectedModCount = mModCount;
+		}
+
+		private void checkForComodification() {
+			if (mModCount != mExpectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		private int advance() {
+			if (mLists == null) {
+				while (mIndex < mLimit) {
+					final int aSlot = mIndex++;
+					if (matches(aSlot)) {
+						return aSlot;
+					}
+				}
+
+				return -1;
+			}
+
+			while (mList < mLists.length) {
+				while (mIndex < mCounts[mList]) {
+					final int aSlot = mLists[mList][mIndex++];
+					if (matches(aSlot)) {
+						return aSlot;
+					}
+				}
+
+				mList++;
+				mIndex = 0;
+			}
+
+			return -1;
+		}
+
+		private boolean matches(final int theSlot) {
+			final int aBase = theSlot * 4;
+
+			if (mQuads[aBase] == DELETED
+			    || (mSubj != ANY && mQuads[aBase] != mSubj)
+			    || (mPred != ANY && mQuads[aBase + 1] != mPred)
+			    || (mObj != ANY && mQuads[aBase + 2] != mObj)) {
+				return false;
+			}
+
+			if (mCxts != null) {
+				for (int aCxt : mCxts) {
+					if (mQuads[aBase + 3] == aCxt) {
+						return true;
+					}
+				}
+
+				return false;
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * Map from an {@code int} key to the list of slots whose statements have that key in some position
+	 */
+	private static final class IntIndex implements java.io.Serializable {
+		private static final long serialVersionUID = 4630367632580005286L;
+
+		private static final int INITIAL_CAPACITY = 16;
+
+		/**
+		 * Keys, stored as {@code key + 1} so that 0 marks an empty bucket
+		 */
+		private int[] mKeys;
+
+		private int[][] mLists;
+
+		private int[] mCounts;
+
+		private int mSize;
+
+		IntIndex() {
+			clear();
+		}
+
+		void clear() {
+			mKeys = new int[INITIAL_CAPACITY];
+			mLists = new int[INITIAL_CAPACITY][];
+			mCounts = new int[INITIAL_CAPACITY];
+			mSize = 0;
+		}
+
+		int find(final int theKey) {
+			final int aMask = mKeys.length - 1;
+
+			for (int i = ValueDictionary.mix(theKey) & aMask; mKeys[i] != 0; i = (i + 1) & aMask) {
+				if (mKeys[i] == theKey + 1) {
+					return i;
+				}
+			}
+
+			return -1;
+		}
+
+		int[] list(final int thePos) {
+			return mLists[thePos];
+		}
+
+		int count(final int thePos) {
+			return mCounts[thePos];
+		}
+
+		void add(final int theKey, final int theSlot) {
+			int aPos = find(theKey);
+
+			if (aPos == -1) {
+				if ((mSize + 1) * 2 > mKeys.length) {
+					grow();
+				}
+
+				final int aMask = mKeys.length - 1;
+
+				aPos = ValueDictionary.mix(theKey) & aMask;
+				while (mKeys[aPos] != 0) {
+					aPos = (aPos + 1) & aMask;
+				}
+
+				mKeys[aPos] = theKey + 1;
+				mLists[aPos] = new int[2];
+				mSize++;
+			}
+			else if (mCounts[aPos] == mLists[aPos].length) {
+				mLists[aPos] = Arrays.copyOf(mLists[aPos], mLists[aPos].length * 2);
+			}
+
+			mLists[aPos][mCounts[aPos]++] = theSlot;
+		}
+
+		private void grow() {
+			final int[] aKeys = mKeys;
+			final int[][] aLists = mLists;
+			final int[] aCounts = mCounts;
+
+			mKeys = new int[aKeys.length * 2];
+			mLists = new int[aKeys.length * 2][];
+			mCounts = new int[aKeys.length * 2];
+
+			final int aMask = mKeys.length - 1;
+
+			for (int i = 0; i < aKeys.length; i++) {
+				if (aKeys[i] != 0) {
+					int aPos = ValueDictionary.mix(aKeys[i] - 1) & aMask;
+					while (mKeys[aPos] != 0) {
+						aPos = (aPos + 1) & aMask;
+					}
+
+					mKeys[aPos] = aKeys[i];
+					mLists[aPos] = aLists[i];
+					mCounts[aPos] = aCounts[i];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Iterators;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.AbstractModel;
+import org.eclipse.rdf4j.model.impl.FilteredModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * <p>A thread-safe {@link Model} for models shared by many threads which mostly read.  The statements are kept in a
+ * concurrent set, and indexed by subject, predicate, object and context in concurrent maps of concurrent sets, so
+ * {@code contains}, {@code size} and pattern matching never take a lock.  Writers take one of a number of striped locks,
+ * chosen by the hash of the statement, so that adding and removing the same statement are ordered while writers of
+ * different statements proceed in parallel; updating an index entry locks only that entry, for the time it takes to
+ * add or remove the statement.</p>
+ *
+ * <p>Iterators are weakly consistent, as those of the {@link java.util.concurrent} collections: they never throw
+ * {@link java.util.ConcurrentModificationException}, return each matching statement at most once, and may or may not
+ * see changes made after they were created.  Compared with {@link ShardedModel}, which locks for reads as well and is
+ * meant as a target for collecting parallel streams, this model favors readers, and answers patterns from its
+ * indexes.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ *
+ * @see Models2#newConcurrentModel()
+ */
+public final class ConcurrentModel extends AbstractModel {
+	private static final long serialVersionUID = -8012336585925312742L;
+
+	private static final Resource[] NULL_CTX = new Resource[] { null };
+
+	/**
+	 * Stands in for the default context in the context index, the keys of a concurrent map cannot be null
+	 */
+	private static final Object DEFAULT_CONTEXT = new Object();
+
+	private final Object[] mLocks;
+
+	private final Set<Statement> mStatements = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The statements by subject, predicate, object and context
+	 */
+	private final ConcurrentMap<Object, Set<Statement>>[] mIndex;
+
+	private final ConcurrentMap<String, Namespace> mNamespaces = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new ConcurrentModel with a number of write locks based on the number of available processors
+	 */
+	public ConcurrentModel() {
+		this(Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	/**
+	 * Create a new ConcurrentModel
+	 *
+	 * @param theStripes	the minimum number of write locks, this is rounded up to the next power of two
+	 */
+	public ConcurrentModel(final int theStripes) {
+		int aStripes = 1;
+		while (aStripes < Math.max(theStripes, 1)) {
+			aStripes <<= 1;
+		}
+
+		mLocks = new Object[aStripes];
+
+		for (int i = 0; i < aStripes; i++) {
+			mLocks[i] = new Object();
+		}
+
+		@SuppressWarnings("unchecked")
+		final ConcurrentMap<Object, Set<Statement>>[] aIndex = (ConcurrentMap<Object, Set<Statement>>[]) new ConcurrentMap<?, ?>[4];
+
+		mIndex = aIndex;
+
+		for (int i = 0; i < mIndex.length; i++) {
+			mIndex[i] = new ConcurrentHashMap<>();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Namespace> getNamespaces() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(mNamespaces.values()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> getNamespace(final String thePrefix) {
+		return Optional.ofNullable(mNamespaces.get(thePrefix));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setNamespace(final Namespace theNamespace) {
+		mNamespaces.put(theNamespace.getPrefix(), theNamespace);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> removeNamespace(final String thePrefix) {
+		return Optional.ofNullable(mNamespaces.remove(thePrefix));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return mStatements.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Statement theStmt) {
+		Objects.requireNonNull(theStmt);
+
+		synchronized (lock(theStmt)) {
+			if (!mStatements.add(theStmt)) {
+				return false;
+			}
+
+			index(0, theStmt.getSubject(), theStmt);
+			index(1, theStmt.getPredicate(), theStmt);
+			index(2, theStmt.getObject(), theStmt);
+			index(3, theStmt.getContext(), theStmt);
+
+			return true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		if (theContexts == null || theContexts.length == 0) {
+			return add(SimpleValueFactory.getInstance().createStatement(theSubj, thePred, theObj));
+		}
+
+		boolean aChanged = false;
+
+		for (Resource aContext : theContexts) {
+			aChanged |= add(SimpleValueFactory.getInstance().createStatement(theSubj, thePred, theObj, aContext));
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		return mStatements.contains(theObj);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return lookup(theSubj, thePred, theObj, theContexts).hasNext();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Object theObj) {
+		if (!(theObj instanceof Statement)) {
+			return false;
+		}
+
+		final Statement aStmt = (Statement) theObj;
+
+		synchronized (lock(aStmt)) {
+			if (!mStatements.remove(aStmt)) {
+				return false;
+			}
+
+			unindex(0, aStmt.getSubject(), aStmt);
+			unindex(1, aStmt.getPredicate(), aStmt);
+			unindex(2, aStmt.getObject(), aStmt);
+			unindex(3, aStmt.getContext(), aStmt);
+
+			return true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		boolean aChanged = false;
+
+		for (Iterator<Statement> aIter = lookup(theSubj, thePred, theObj, theContexts); aIter.hasNext(); ) {
+			aChanged |= remove(aIter.next());
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		for (Statement aStmt : mStatements) {
+			remove(aStmt);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		return matchPattern(null, null, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return new FilteredModel(this, theSubj, thePred, theObj, theContexts) {
+			private static final long serialVersionUID = 3542311307129466826L;
+
+			@Override
+			public Iterator<Statement> iterator() {
+				return ConcurrentModel.this.matchPattern(subj, pred, obj, contexts);
+			}
+
+			@Override
+			protected void removeFilteredTermIteration(final Iterator<Statement> theIter, final Resource theSubj,
+			                                           final IRI thePred, final Value theObj, final Resource... theContexts) {
+				ConcurrentModel.this.removeTermIteration(theIter, theSubj, thePred, theObj, theContexts);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeTermIteration(final Iterator<Statement> theIter, final Resource theSubj, final IRI thePred,
+	                                final Value theObj, final Resource... theContexts) {
+		remove(theSubj, thePred, theObj, theContexts);
+	}
+
+	private Object lock(final Statement theStmt) {
+		final int aHash = theStmt.hashCode() * 0x9E3779B9;
+
+		return mLocks[(aHash ^ (aHash >>> 16)) & (mLocks.length - 1)];
+	}
+
+	private static Object key(final Value theValue) {
+		return theValue == null ? DEFAULT_CONTEXT : theValue;
+	}
+
+	private void index(final int theIndex, final Value theValue, final Statement theStmt) {
+		mIndex[theIndex].compute(key(theValue), (theKey, theEntry) -> {
+			final Set<Statement> aEntry = theEntry == null ? ConcurrentHashMap.newKeySet() : theEntry;
+			aEntry.add(theStmt);
+			return aEntry;
+		});
+	}
+
+	private void unindex(final int theIndex, final Value theValue, final Statement theStmt) {
+		mIndex[theIndex].computeIfPresent(key(theValue), (theKey, theEntry) -> {
+			theEntry.remove(theStmt);
+			return theEntry.isEmpty() ? null : theEntry;
+		});
+	}
+
+	private Set<Statement> entry(final int theIndex, final Value theValue) {
+		final Set<Statement> aEntry = mIndex[theIndex].get(key(theValue));
+
+		return aEntry == null ? Collections.emptySet() : aEntry;
+	}
+
+	/**
+	 * Return an iterator over the statements matching the pattern.  Removing through the iterator removes the statement
+	 * from the model.
+	 */
+	private Iterator<Statement> matchPattern(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final Iterator<Statement> aIter = lookup(theSubj, thePred, theObj, theContexts);
+
+		return new Iterator<Statement>() {
+			private Statement mLast;
+
+			@Override
+			public boolean hasNext() {
+				return aIter.hasNext();
+			}
+
+			@Override
+			public Statement next() {
+				mLast = aIter.next();
+				return mLast;
+			}
+
+			@Override
+			public void remove() {
+				if (mLast == null) {
+					throw new IllegalStateException();
+				}
+
+				ConcurrentModel.this.remove(mLast);
+				mLast = null;
+			}
+		};
+	}
+
+	private Iterator<Statement> lookup(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final Resource[] aContexts = theContexts == null ? NULL_CTX : theContexts;
+
+		Set<Statement> aCandidates = mStatements;
+
+		final Value[] aBound = { theSubj, thePred, theObj };
+
+		for (int i = 0; i < aBound.length; i++) {
+			if (aBound[i] != null) {
+				final Set<Statement> aEntry = entry(i, aBound[i]);
+
+				if (aCandidates == mStatements || aEntry.size() < aCandidates.size()) {
+					aCandidates = aEntry;
+				}
+			}
+		}
+
+		if (aCandidates == mStatements) {
+			if (aContexts.length == 0) {
+				return Iterators.unmodifiableIterator(mStatements.iterator());
+			}
+
+			final Iterator<Iterator<Statement>> aIters = Arrays.stream(aContexts)
+			                                                   .distinct()
+			                                                   .map(theContext -> entry(3, theContext).iterator())
+			                                                   .iterator();
+
+			return Iterators.unmodifiableIterator(Iterators.concat(aIters));
+		}
+
+		return Iterators.filter(aCandidates.iterator(), theStmt -> matches(theStmt, theSubj, thePred, theObj, aContexts));
+	}
+
+	private static boolean matches(final Statement theStmt, final Resource theSubj, final IRI thePred,
+	                               final Value theObj, final Resource[] theContexts) {
+		if ((theSubj != null && !theSubj.equals(theStmt.getSubject()))
+		    || (thePred != null && !thePred.equals(theStmt.getPredicate()))
+		    || (theObj != null && !theObj.equals(theStmt.getObject()))) {
+			return false;
+		}
+
+		if (theContexts.length == 0) {
+			return true;
+		}
+
+		for (Resource aContext : theContexts) {
+			if (Objects.equals(aContext, theStmt.getContext())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -15,9 +15,18 @@
 
 package com.complexible.common.openrdf.model;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
+
+import com.google.common.collect.ImmutableList;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Model;
@@ -26,18 +35,28 @@ import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 
 /**
- * <p>A {@link Model} which has a {@link Predicate constraint} placed upon which statements can be added to the Model.</p>
+ * <p>A {@link Model} which has a {@link Predicate constraint} placed upon which statements can be added to the Model.  A
+ * statement violates a constraint when the constraint returns false or throws a {@link StatementViolatedConstraintException};
+ * adding a statement which violates a constraint throws a {@link StatementViolatedConstraintException}.</p>
+ *
+ * <p>Large batches can be added with {@link #addValid(Collection)}, which checks the statements against the constraints
+ * in parallel, then adds the valid ones, and reports every violation rather than stopping at the first one.</p>
  *
  * @author Michael Grove
  * @since	4.0
  * @version	4.0
  */
 public final class ConstrainedModel extends DelegatingModel {
-	private final Predicate<Statement> mConstraint;
+	/**
+	 * The smallest number of statements checked by a single task of a batch
+	 */
+	private static final int MIN_BATCH = 256;
+
+	private final List<Predicate<Statement>> mConstraints;
 
-	ConstrainedModel(final Model theGraph, final Predicate<Statement> theConstraint) {
+	ConstrainedModel(final Model theGraph, final List<Predicate<Statement>> theConstraints) {
 		super(theGraph);
-		mConstraint = theConstraint;
+		mConstraints = theConstraints;
 	}
 
 	/**
@@ -59,18 +78,32 @@ public final class ConstrainedModel extends DelegatingModel {
 	 * @return					the new ConstrainedGraph
 	 */
 	public static ConstrainedModel of(final Model theGraph, final Predicate<Statement> theConstraint) {
-		return new ConstrainedModel(theGraph, theConstraint);
+		return new ConstrainedModel(theGraph, ImmutableList.of(theConstraint));
+	}
+
+	/**
+	 * Create a new ConstrainedGraph which will enforce each of the constraints, in turn, on all additions.  Keeping
+	 * constraints separate, rather than combining them in a single {@link Predicate}, lets
+	 * {@link #addValid(Collection) batch additions} report which constraint a statement violated and how long each
+	 * constraint took.
+	 *
+	 * @param theGraph			the graph to constrain
+	 * @param theConstraints	the constraints to enforce
+	 * @return					the new ConstrainedGraph
+	 */
+	public static ConstrainedModel of(final Model theGraph, final List<? extends Predicate<Statement>> theConstraints) {
+		return new ConstrainedModel(theGraph, ImmutableList.copyOf(theConstraints));
 	}
 
 	/**
-	 * Return a {@link Predicate} which will only allow {@link Statements#isLiteralValid(Literal) valid} literals into the graph.
+	 * Return a {@link Predicate} which will only allow {@link LiteralValidator#isValid(Literal) valid} literals into the graph.
 	 *
 	 * @return	a Constraint to enforce valid literals
 	 */
 	public static Predicate<Statement> onlyValidLiterals() {
 		return theStatement -> {
-			if (theStatement.getObject() instanceof Literal && !Statements.isLiteralValid((Literal) theStatement.getObject())) {
-				throw new StatementViolatedConstraintException(theStatement.getObject() + " is not a well-formed literal value.");
+			if (theStatement.getObject() instanceof Literal && !LiteralValidator.isValid((Literal) theStatement.getObject())) {
+				throw new StatementViolatedConstraintException(theStatement.getObject() + " is not a well-formed literal value.", false);
 			}
 
 			return true;
@@ -82,7 +115,7 @@ public final class ConstrainedModel extends DelegatingModel {
 	 */
 	@Override
 	public boolean add(final Statement e) {
-		mConstraint.test(e);
+		require(e);
 
 		return super.add(e);
 	}
@@ -109,17 +142,187 @@ public final class ConstrainedModel extends DelegatingModel {
 
 	/**
 	 * {@inheritDoc}
+	 *
+	 * <p>Each statement is checked and added in a single pass over the collection; when a statement violates a
+	 * constraint, the statements before it remain in the model.</p>
 	 */
 	@Override
 	public boolean addAll(final Collection<? extends Statement> c) {
-		all(c, mConstraint);
+		boolean aChanged = false;
+
+		for (Statement aStmt : c) {
+			require(aStmt);
+
+			aChanged |= super.add(aStmt);
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * Add the valid statements of the collection to the model and report the others, using the
+	 * {@link ForkJoinPool#commonPool() common pool}.
+	 *
+	 * @param theStatements	the statements to add
+	 * @return				the report of the violations
+	 *
+	 * @see #addValid(Collection, ForkJoinPool)
+	 */
+	public ValidationReport addValid(final Collection<? extends Statement> theStatements) {
+		return addValid(theStatements, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Add the valid statements of the collection to the model and report the others.  The statements are split in
+	 * batches which are checked in parallel on the pool; only the checking is parallel, the valid statements are then
+	 * added to the model on the calling thread, in the order of the collection.  A statement is reported with the first
+	 * constraint it violates; no exception escapes for a violation.  Constraints must be safe to call from several
+	 * threads.
+	 *
+	 * @param theStatements	the statements to add
+	 * @param thePool		the pool to check the statements in
+	 * @return				the report of the violations
+	 */
+	public ValidationReport addValid(final Collection<? extends Statement> theStatements, final ForkJoinPool thePool) {
+		final Statement[] aStatements = theStatements.toArray(new Statement[theStatements.size()]);
+		final Batch aBatch = new Batch(aStatements, Math.max(MIN_BATCH, aStatements.length / (thePool.getParallelism() * 8)));
+
+		thePool.invoke(new Check(aBatch, 0, aStatements.length));
+
+		final List<ValidationReport.Violation> aViolations = new ArrayList<>(aBatch.mViolations);
+		aViolations.sort(Comparator.comparingInt(ValidationReport.Violation::getIndex));
+
+		// the statements between the violations are the valid ones
+		int aAdded = 0;
+		int aNext = 0;
+
+		for (ValidationReport.Violation aViolation : aViolations) {
+			aAdded += addChecked(aStatements, aNext, aViolation.getIndex());
+			aNext = aViolation.getIndex() + 1;
+		}
+
+		aAdded += addChecked(aStatements, aNext, aStatements.length);
+
+		return new ValidationReport(aStatements.length, aAdded, aViolations,
+		                            Arrays.stream(aBatch.mNanos).mapToLong(LongAdder::sum).toArray());
+	}
+
+	/**
+	 * Check the statement against each constraint in turn
+	 *
+	 * @return	the violation, or null if the statement is valid
+	 */
+	private ValidationReport.Violation check(final int theIndex, final Statement theStatement, final LongAdder[] theNanos) {
+		for (int i = 0; i < mConstraints.size(); i++) {
+			final long aStart = System.nanoTime();
+
+			String aMessage;
+
+			try {
+				aMessage = mConstraints.get(i).test(theStatement) ? null : rejected(theStatement, i);
+			}
+			catch (StatementViolatedConstraintException e) {
+				aMessage = e.getMessage();
+			}
+
+			theNanos[i].add(System.nanoTime() - aStart);
+
+			if (aMessage != null) {
+				return new ValidationReport.Violation(theIndex, theStatement, i, aMessage);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Check the statement against each constraint in turn
+	 *
+	 * @throws StatementViolatedConstraintException	if the statement violates a constraint
+	 */
+	private void require(final Statement theStatement) {
+		for (int i = 0; i < mConstraints.size(); i++) {
+			if (!mConstraints.get(i).test(theStatement)) {
+				throw new StatementViolatedConstraintException(rejected(theStatement, i), false);
+			}
+		}
+	}
 
-		return super.addAll(c);
+	private static String rejected(final Statement theStatement, final int theConstraint) {
+		return theStatement + " was rejected by constraint " + theConstraint;
 	}
 
-	private static <T> void all(final Iterable<? extends T> theObjects, final Predicate<T> theConstraint) {
-		for (T aObj : theObjects) {
-			theConstraint.test(aObj);
+	/**
+	 * Add the statements in the range, which have been checked, to the model
+	 *
+	 * @return	the number of statements which were not already in the model
+	 */
+	private int addChecked(final Statement[] theStatements, final int theStart, final int theEnd) {
+		int aAdded = 0;
+
+		for (int i = theStart; i < theEnd; i++) {
+			if (super.add(theStatements[i])) {
+				aAdded++;
+			}
+		}
+
+		return aAdded;
+	}
+
+	/**
+	 * The state shared by the tasks checking a batch
+	 */
+	private final class Batch {
+		private final Statement[] mStatements;
+
+		private final int mThreshold;
+
+		private final LongAdder[] mNanos;
+
+		private final Collection<ValidationReport.Violation> mViolations = new ConcurrentLinkedQueue<>();
+
+		Batch(final Statement[] theStatements, final int theThreshold) {
+			mStatements = theStatements;
+			mThreshold = theThreshold;
+			mNanos = new LongAdder[mConstraints.size()];
+
+			for (int i = 0; i < mNanos.length; i++) {
+				mNanos[i] = new LongAdder();
+			}
+		}
+	}
+
+	private final class Check extends RecursiveAction {
+		private static final long serialVersionUID = -4380474633052815416L;
+
+		private final Batch mBatch;
+
+		private final int mStart;
+
+		private final int mEnd;
+
+		Check(final Batch theBatch, final int theStart, final int theEnd) {
+			mBatch = theBatch;
+			mStart = theStart;
+			mEnd = theEnd;
+		}
+
+		@Override
+		protected void compute() {
+			if (mEnd - mStart > mBatch.mThreshold) {
+				final int aMiddle = (mStart + mEnd) >>> 1;
+
+				invokeAll(new Check(mBatch, mStart, aMiddle), new Check(mBatch, aMiddle, mEnd));
+				return;
+			}
+
+			for (int i = mStart; i < mEnd; i++) {
+				final ValidationReport.Violation aViolation = check(i, mBatch.mStatements[i], mBatch.mNanos);
+
+				if (aViolation != null) {
+					mBatch.mViolations.add(aViolation);
+				}
+			}
 		}
 	}
 
@@ -135,5 +338,17 @@ public final class ConstrainedModel extends DelegatingModel {
 		public StatementViolatedConstraintException(final String theMessage) {
 			super(theMessage);
 		}
+
+		/**
+		 * Create a new StatementViolatedConstraintException, optionally without a stack trace.  Filling in the stack
+		 * trace is most of the cost of the exception, and a constraint violation is reported by its message, so
+		 * constraints checking many statements can leave it out.
+		 *
+		 * @param theMessage	a note about why the constraint was violated
+		 * @param theStackTrace	whether or not to fill in the stack trace
+		 */
+		public StatementViolatedConstraintException(final String theMessage, final boolean theStackTrace) {
+			super(theMessage, null, false, theStackTrace);
+		}
 	}
 }
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.AbstractModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>A read-only view of a {@link Model} as if all of its statements were in a single context.  This is the lazy
+ * counterpart of {@link Models2#withContext(Iterable, Resource)}: nothing is copied, statements are re-created in the
+ * new context only as they are iterated, and {@link #contains containment} and {@link #filter filtering} are answered
+ * by the source model.  Because the view is itself a {@link Model}, it can be passed directly to
+ * {@link ModelIO#write(Model, java.io.Writer, org.eclipse.rdf4j.rio.RDFFormat) ModelIO} or to
+ * {@link com.complexible.common.openrdf.repository.RepositoryConnections#add RepositoryConnections} which will stream
+ * from it.</p>
+ *
+ * <p>When the source has the same triple in more than one context, the view has it only once.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ContextModel extends AbstractModel {
+	private static final long serialVersionUID = -3618950183451427286L;
+
+	private final Model mModel;
+
+	private final Resource mContext;
+
+	private ContextModel(final Model theModel, final Resource theContext) {
+		mModel = theModel;
+		mContext = theContext;
+	}
+
+	/**
+	 * Create a view of the model with all of its statements in the given context
+	 *
+	 * @param theModel		the source model
+	 * @param theContext	the context, or {@code null} for the default context
+	 * @return				the view
+	 */
+	public static ContextModel of(final Model theModel, final Resource theContext) {
+		return new ContextModel(checkNotNull(theModel), theContext);
+	}
+
+	/**
+	 * Return the context of the statements in this view
+	 *
+	 * @return	the context, {@code null} when it is the default context
+	 */
+	public Resource getContext() {
+		return mContext;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		int aSize = 0;
+
+		for (Iterator<Statement> aIter = iterator(); aIter.hasNext(); aIter.next()) {
+			aSize++;
+		}
+
+		return aSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return mModel.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		return new ContextIterator(mModel.iterator());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		if (!(theObj instanceof Statement)) {
+			return false;
+		}
+
+		final Statement aStmt = (Statement) theObj;
+
+		return Objects.equals(mContext, aStmt.getContext())
+		       && mModel.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return inContext(theContexts) && mModel.contains(theSubj, thePred, theObj);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return inContext(theContexts)
+		       ? new ContextModel(mModel.filter(theSubj, thePred, theObj), mContext)
+		       : Models2.newModel().unmodifiable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Resource> subjects() {
+		return Collections.unmodifiableSet(mModel.subjects());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<IRI> predicates() {
+		return Collections.unmodifiableSet(mModel.predicates());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Value> objects() {
+		return Collections.unmodifiableSet(mModel.objects());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Resource> contexts() {
+		return mModel.isEmpty()
+		       ? Collections.<Resource>emptySet()
+		       : Collections.singleton(mContext);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Namespace> getNamespaces() {
+		return Collections.unmodifiableSet(mModel.getNamespaces());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> getNamespace(final String thePrefix) {
+		return mModel.getNamespace(thePrefix);
+	}
+
+	/**
+	 * Unsupported, the view is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void setNamespace(final Namespace theNamespace) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the view is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Optional<Namespace> removeNamespace(final String thePrefix) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the view is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the view is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the view is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void removeTermIteration(final Iterator<Statement> theIter, final Resource theSubj, final IRI thePred,
+	                                final Value theObj, final Resource... theContexts) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Return whether the context pattern, as passed to {@link #filter} or {@link #contains}, matches the context of
+	 * this view
+	 */
+	private boolean inContext(final Resource... theContexts) {
+		if (theContexts == null) {
+			return mContext == null;
+		}
+		else if (theContexts.length == 0) {
+			return true;
+		}
+
+		for (Resource aContext : theContexts) {
+			if (Objects.equals(mContext, aContext)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Maps the statements of the source to the context of the view, dropping the copies of a triple which is in more
+	 * than one context of the source.  Contexts are ranked in the order the iteration first reaches them, and a
+	 * statement is kept only when its triple is in no context of a lower rank, so each triple is returned exactly once,
+	 * from the lowest ranked context which has it.  Statements of the first context are always kept without a lookup,
+	 * and only the ranks of the contexts are remembered, never the statements.
+	 */
+	private final class ContextIterator implements Iterator<Statement> {
+		private final Iterator<Statement> mIter;
+
+		/**
+		 * The rank of each context of the source reached so far
+		 */
+		private final Map<Resource, Integer> mRanks = new HashMap<>();
+
+		private Statement mNext;
+
+		ContextIterator(final Iterator<Statement> theIter) {
+			mIter = theIter;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (mNext == null && mIter.hasNext()) {
+				final Statement aStmt = mIter.next();
+
+				Integer aRank = mRanks.get(aStmt.getContext());
+
+				if (aRank == null) {
+					aRank = mRanks.size();
+					mRanks.put(aStmt.getContext(), aRank);
+				}
+
+				if (aRank == 0 || !inEarlierContext(aStmt, aRank)) {
+					mNext = mContext == null
+					        ? SimpleValueFactory.getInstance().createStatement(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject())
+					        : SimpleValueFactory.getInstance().createStatement(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), mContext);
+				}
+			}
+
+			return mNext != null;
+		}
+
+		@Override
+		public Statement next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			final Statement aStmt = mNext;
+			mNext = null;
+			return aStmt;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Return whether the triple of the statement is also in a context ranked lower than the given one.  A context
+		 * which was not reached yet will be ranked higher, so it does not count.
+		 */
+		private boolean inEarlierContext(final Statement theStmt, final int theRank) {
+			for (Statement aCopy : mModel.filter(theStmt.getSubject(), theStmt.getPredicate(), theStmt.getObject())) {
+				final Integer aRank = mRanks.get(aCopy.getContext());
+
+				if (aRank != null && aRank < theRank) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+}
@@ -249,7 +249,7 @@ public abstract class DelegatingModel implements Model {
 
 	@Override
 	public boolean equals(final Object o) {
-		return mModel.equals(o);
+		return this == o || (o instanceof Model && Models2.isomorphic(this, (Model) o));
 	}
 
 	@Override
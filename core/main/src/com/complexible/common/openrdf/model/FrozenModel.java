@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.AbstractModel;
+import org.eclipse.rdf4j.model.impl.FilteredModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * <p>An immutable {@link Model}, for models which are built once and then only queried.  Values are dictionary encoded
+ * as in {@link CompactModel} and the statements are stored as four ids each in a single {@code int[]} sorted in
+ * subject, predicate, object, context order.  Two more arrays hold the positions of the statements sorted in
+ * predicate, object, subject and in object, subject, predicate order, so that any pattern of bound subject, predicate
+ * and object is answered by a binary search for the range of statements starting with the bound values and a scan of
+ * that range.  A bound context is checked while scanning.  Apart from the distinct values, a statement takes the
+ * memory of six {@code int}s, and no objects are kept per statement; {@link Statement statements} are created as the
+ * model is iterated.</p>
+ *
+ * <p>Every method which would change the model throws {@link UnsupportedOperationException}.  Being immutable, the model
+ * is safe to read from several threads.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ *
+ * @see Models2#freeze(Model)
+ */
+public final class FrozenModel extends AbstractModel {
+	private static final long serialVersionUID = 4309385207815049347L;
+
+	/**
+	 * Marker for an unbound position in a pattern
+	 */
+	private static final int ANY = -2;
+
+	private static final int[] SPOC = { 0, 1, 2, 3 };
+
+	private static final int[] POSC = { 1, 2, 0, 3 };
+
+	private static final int[] OSPC = { 2, 0, 1, 3 };
+
+	private final ValueDictionary mDictionary;
+
+	private final Set<Namespace> mNamespaces;
+
+	/**
+	 * The statements, four ids each, in subject, predicate, object, context order
+	 */
+	private final int[] mQuads;
+
+	/**
+	 * The statements in predicate, object, subject, context order
+	 */
+	private final int[] mPOS;
+
+	/**
+	 * The statements in object, subject, predicate, context order
+	 */
+	private final int[] mOSP;
+
+	private FrozenModel(final ValueDictionary theDictionary, final Set<Namespace> theNamespaces, final int[] theQuads) {
+		mDictionary = theDictionary;
+		mNamespaces = theNamespaces;
+
+		final int aSize = theQuads.length / 4;
+		final int aValues = theDictionary.size() + 1;
+
+		final int[] aSPO = sort(theQuads, identity(aSize), SPOC, aValues);
+
+		mQuads = new int[theQuads.length];
+
+		for (int i = 0; i < aSize; i++) {
+			System.arraycopy(theQuads, aSPO[i] * 4, mQuads, i * 4, 4);
+		}
+
+		mPOS = sort(mQuads, identity(aSize), POSC, aValues);
+		mOSP = sort(mQuads, identity(aSize), OSPC, aValues);
+	}
+
+	/**
+	 * Create a frozen copy of the statements and namespaces of the model
+	 *
+	 * @param theModel	the model
+	 * @return			the frozen model
+	 */
+	public static FrozenModel of(final Model theModel) {
+		if (theModel instanceof FrozenModel) {
+			return (FrozenModel) theModel;
+		}
+
+		final ValueDictionary aDictionary = new ValueDictionary();
+		final int[] aQuads = new int[theModel.size() * 4];
+
+		int aIndex = 0;
+
+		for (Statement aStmt : theModel) {
+			aQuads[aIndex++] = aDictionary.encode(aStmt.getSubject());
+			aQuads[aIndex++] = aDictionary.encode(aStmt.getPredicate());
+			aQuads[aIndex++] = aDictionary.encode(aStmt.getObject());
+			aQuads[aIndex++] = aDictionary.encode(aStmt.getContext());
+		}
+
+		if (aIndex != aQuads.length) {
+			throw new ConcurrentModificationException();
+		}
+
+		return new FrozenModel(aDictionary, Collections.unmodifiableSet(new LinkedHashSet<>(theModel.getNamespaces())), aQuads);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Namespace> getNamespaces() {
+		return mNamespaces;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return mQuads.length / 4;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		if (theObj instanceof Statement) {
+			final Statement aStmt = (Statement) theObj;
+
+			return contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), aStmt.getContext());
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return matchPattern(theSubj, thePred, theObj, theContexts).hasNext();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		return matchPattern(null, null, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return new FilteredModel(this, theSubj, thePred, theObj, theContexts) {
+			private static final long serialVersionUID = -2210436851209406371L;
+
+			@Override
+			public Iterator<Statement> iterator() {
+				return FrozenModel.this.matchPattern(subj, pred, obj, contexts);
+			}
+
+			@Override
+			protected void removeFilteredTermIteration(final Iterator<Statement> theIter, final Resource theSubj,
+			                                           final IRI thePred, final Value theObj, final Resource... theContexts) {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Unsupported, the model is immutable
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void setNamespace(final Namespace theNamespace) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the model is immutable
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Optional<Namespace> removeNamespace(final String thePrefix) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the model is immutable
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the model is immutable
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the model is immutable
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the model is immutable
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void removeTermIteration(final Iterator<Statement> theIter, final Resource theSubj, final IRI thePred,
+	                                final Value theObj, final Resource... theContexts) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Return an iterator over the statements matching the pattern
+	 */
+	private Iterator<Statement> matchPattern(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final int s = theSubj == null ? ANY : mDictionary.id(theSubj);
+		final int p = thePred == null ? ANY : mDictionary.id(thePred);
+		final int o = theObj == null ? ANY : mDictionary.id(theObj);
+
+		int[] aContexts = null;
+
+		if (theContexts == null || theContexts.length > 0) {
+			aContexts = new int[theContexts == null ? 1 : theContexts.length];
+
+			for (int i = 0; i < aContexts.length; i++) {
+				aContexts[i] = mDictionary.id(theContexts == null ? null : theContexts[i]);
+			}
+		}
+
+		if (s == ValueDictionary.NO_ID || p == ValueDictionary.NO_ID || o == ValueDictionary.NO_ID) {
+			return new RangeIterator(null, 0, 0, s, p, o, null);
+		}
+
+		// the index whose sort order starts with the most bound positions
+		final int[] aOrder;
+		final int[] aIndex;
+
+		if (s != ANY) {
+			aOrder = o != ANY && p == ANY ? OSPC : SPOC;
+			aIndex = o != ANY && p == ANY ? mOSP : null;
+		}
+		else if (p != ANY) {
+			aOrder = POSC;
+			aIndex = mPOS;
+		}
+		else if (o != ANY) {
+			aOrder = OSPC;
+			aIndex = mOSP;
+		}
+		else {
+			return new RangeIterator(null, 0, size(), s, p, o, aContexts);
+		}
+
+		final int[] aPattern = { s, p, o };
+		final int[] aPrefix = new int[3];
+		int aLength = 0;
+
+		while (aLength < 3 && aPattern[aOrder[aLength]] != ANY) {
+			aPrefix[aLength] = aPattern[aOrder[aLength]];
+			aLength++;
+		}
+
+		final int aStart = bound(aIndex, aOrder, aPrefix, aLength, false);
+		final int aEnd = bound(aIndex, aOrder, aPrefix, aLength, true);
+
+		return new RangeIterator(aIndex, aStart, aEnd, s, p, o, aContexts);
+	}
+
+	/**
+	 * Return the first position in the index whose statement starts with values greater than, or if the flag is not
+	 * set, greater than or equal to, the prefix
+	 */
+	private int bound(final int[] theIndex, final int[] theOrder, final int[] thePrefix, final int theLength, final boolean theAfter) {
+		int aLow = 0;
+		int aHigh = size();
+
+		while (aLow < aHigh) {
+			final int aMid = (aLow + aHigh) >>> 1;
+			final int aBase = (theIndex == null ? aMid : theIndex[aMid]) * 4;
+
+			int aCompare = 0;
+
+			for (int i = 0; i < theLength && aCompare == 0; i++) {
+				aCompare = Integer.compare(mQuads[aBase + theOrder[i]], thePrefix[i]);
+			}
+
+			if (aCompare < 0 || (theAfter && aCompare == 0)) {
+				aLow = aMid + 1;
+			}
+			else {
+				aHigh = aMid;
+			}
+		}
+
+		return aLow;
+	}
+
+	private Statement statement(final int theStatement) {
+		final int aBase = theStatement * 4;
+
+		final Resource aSubj = (Resource) mDictionary.value(mQuads[aBase]);
+		final IRI aPred = (IRI) mDictionary.value(mQuads[aBase + 1]);
+		final Value aObj = mDictionary.value(mQuads[aBase + 2]);
+		final Resource aContext = (Resource) mDictionary.value(mQuads[aBase + 3]);
+
+		return aContext == null
+		       ? SimpleValueFactory.getInstance().createStatement(aSubj, aPred, aObj)
+		       : SimpleValueFactory.getInstance().createStatement(aSubj, aPred, aObj, aContext);
+	}
+
+	private static int[] identity(final int theSize) {
+		final int[] aIdentity = new int[theSize];
+
+		for (int i = 0; i < theSize; i++) {
+			aIdentity[i] = i;
+		}
+
+		return aIdentity;
+	}
+
+	/**
+	 * Sort the statements in the given order of their positions, with a radix sort over the ids, from the last position
+	 * to the first
+	 *
+	 * @return	the positions of the statements in sorted order
+	 */
+	private static int[] sort(final int[] theQuads, final int[] theStatements, final int[] theOrder, final int theValues) {
+		int[] aStatements = theStatements;
+		int[] aSorted = new int[aStatements.length];
+
+		final int[] aCounts = new int[theValues + 1];
+
+		for (int aPosition = 3; aPosition >= 0; aPosition--) {
+			final int aOffset = theOrder[aPosition];
+
+			Arrays.fill(aCounts, 0);
+
+			for (int aStmt : aStatements) {
+				aCounts[theQuads[aStmt * 4 + aOffset] + 1]++;
+			}
+
+			for (int i = 1; i < aCounts.length; i++) {
+				aCounts[i] += aCounts[i - 1];
+			}
+
+			for (int aStmt : aStatements) {
+				aSorted[aCounts[theQuads[aStmt * 4 + aOffset]]++] = aStmt;
+			}
+
+			final int[] aTemp = aStatements;
+			aStatements = aSorted;
+			aSorted = aTemp;
+		}
+
+		return aStatements;
+	}
+
+	/**
+	 * Iterator over a range of an index, skipping the statements which do not match the rest of the pattern
+	 */
+	private final class RangeIterator implements Iterator<Statement> {
+		private final int[] mIndex;
+
+		private final int mEnd;
+
+		private final int mSubj;
+
+		private final int mPred;
+
+		private final int mObj;
+
+		private final int[] mContexts;
+
+		private int mPosition;
+
+		private int mNext = -1;
+
+		RangeIterator(final int[] theIndex, final int theStart, final int theEnd, final int theSubj, final int thePred,
+		              final int theObj, final int[] theContexts) {
+			mIndex = theIndex;
+			mPosition = theStart;
+			mEnd = theEnd;
+			mSubj = theSubj;
+			mPred = thePred;
+			mObj = theObj;
+			mContexts = theContexts;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			while (mNext == -1 && mPosition < mEnd) {
+				final int aStmt = mIndex == null ? mPosition : mIndex[mPosition];
+
+				mPosition++;
+
+				if (matches(aStmt)) {
+					mNext = aStmt;
+				}
+			}
+
+			return mNext != -1;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Statement next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			final Statement aStmt = statement(mNext);
+			mNext = -1;
+
+			return aStmt;
+		}
+
+		private boolean matches(final int theStmt) {
+			final int aBase = theStmt * 4;
+
+			if ((mSubj != ANY && mQuads[aBase] != mSubj)
+			    || (mPred != ANY && mQuads[aBase + 1] != mPred)
+			    || (mObj != ANY && mQuads[aBase + 2] != mObj)) {
+				return false;
+			}
+
+			if (mContexts == null) {
+				return true;
+			}
+
+			for (int aContext : mContexts) {
+				if (mQuads[aBase + 3] == aContext) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * <p>A persistent hash map: a compressed hash array mapped trie.  Maps are immutable; {@link #put} and {@link #remove}
+ * return a new map which shares all of the trie with the old one except the path to the changed key, so a change costs
+ * {@code O(log32 n)} copies of small nodes and the old map is untouched.</p>
+ *
+ * <p>Each node consumes five bits of the hash of the key and keeps two bitmaps, one for the entries stored inline and one
+ * for the child nodes, with the entries first and the children after them in a single array.  A node never holds a lone
+ * child with a single entry, that entry is stored inline instead, so a map has a single shape for a given set of keys.
+ * Keys whose hashes are entirely equal end up in a collision node.  Keys may be {@code null}, values may not.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+final class Hamt<K, V> {
+	private static final int BITS = 5;
+
+	private static final int MASK = (1 << BITS) - 1;
+
+	/**
+	 * The deepest a cursor has to go: seven bitmap levels for 32 bits of hash and a collision node
+	 */
+	private static final int MAX_DEPTH = 8;
+
+	private static final Hamt<?, ?> EMPTY = new Hamt<>(new BitmapNode(0, 0, new Object[0]), 0);
+
+	private final Node mRoot;
+
+	private final int mSize;
+
+	private Hamt(final Node theRoot, final int theSize) {
+		mRoot = theRoot;
+		mSize = theSize;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <K, V> Hamt<K, V> empty() {
+		return (Hamt<K, V>) EMPTY;
+	}
+
+	int size() {
+		return mSize;
+	}
+
+	boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	V get(final Object theKey) {
+		return (V) mRoot.get(theKey, hash(theKey), 0);
+	}
+
+	boolean containsKey(final Object theKey) {
+		return get(theKey) != null;
+	}
+
+	/**
+	 * Return a map with the key mapped to the value, or this map if it already is
+	 */
+	Hamt<K, V> put(final K theKey, final V theValue) {
+		final Change aChange = new Change();
+		final Node aRoot = mRoot.put(theKey, Objects.requireNonNull(theValue), hash(theKey), 0, aChange);
+
+		return aRoot == mRoot ? this : new Hamt<>(aRoot, aChange.mAdded ? mSize + 1 : mSize);
+	}
+
+	/**
+	 * Return a map without the key, or this map if it does not contain it
+	 */
+	Hamt<K, V> remove(final Object theKey) {
+		final Node aRoot = mRoot.remove(theKey, hash(theKey), 0);
+
+		return aRoot == mRoot ? this : new Hamt<>(aRoot, mSize - 1);
+	}
+
+	Iterator<K> keys() {
+		return new Cursor<>(mRoot, true);
+	}
+
+	Iterator<V> values() {
+		return new Cursor<>(mRoot, false);
+	}
+
+	private static int hash(final Object theKey) {
+		final int aHash = Objects.hashCode(theKey) * 0x9E3779B9;
+		return aHash ^ (aHash >>> 16);
+	}
+
+	private static int bit(final int theHash, final int theShift) {
+		return 1 << ((theHash >>> theShift) & MASK);
+	}
+
+	private static Node merge(final Object theKey1, final Object theValue1, final int theHash1,
+	                          final Object theKey2, final Object theValue2, final int theHash2, final int theShift) {
+		if (theShift >= Integer.SIZE) {
+			return new CollisionNode(theHash1, new Object[] { theKey1, theValue1, theKey2, theValue2 });
+		}
+
+		final int aBit1 = bit(theHash1, theShift);
+		final int aBit2 = bit(theHash2, theShift);
+
+		if (aBit1 == aBit2) {
+			return new BitmapNode(0, aBit1, new Object[] { merge(theKey1, theValue1, theHash1, theKey2, theValue2, theHash2, theShift + BITS) });
+		}
+
+		// entries are kept in the order of their bits, compared unsigned since the top bit is a valid position
+		return Integer.compareUnsigned(aBit1, aBit2) < 0
+		       ? new BitmapNode(aBit1 | aBit2, 0, new Object[] { theKey1, theValue1, theKey2, theValue2 })
+		       : new BitmapNode(aBit1 | aBit2, 0, new Object[] { theKey2, theValue2, theKey1, theValue1 });
+	}
+
+	private static final class Change {
+		private boolean mAdded;
+	}
+
+	private static abstract class Node {
+		abstract Object get(final Object theKey, final int theHash, final int theShift);
+
+		abstract Node put(final Object theKey, final Object theValue, final int theHash, final int theShift, final Change theChange);
+
+		abstract Node remove(final Object theKey, final int theHash, final int theShift);
+
+		abstract int entries();
+
+		abstract Object key(final int theIndex);
+
+		abstract Object value(final int theIndex);
+
+		abstract int children();
+
+		abstract Node child(final int theIndex);
+
+		/**
+		 * Whether the node has a single entry and no children, and so can be inlined in its parent
+		 */
+		boolean isSingleEntry() {
+			return entries() == 1 && children() == 0;
+		}
+	}
+
+	private static final class BitmapNode extends Node {
+		private final int mEntryMap;
+
+		private final int mChildMap;
+
+		/**
+		 * The keys and values of the entries, then the children
+		 */
+		private final Object[] mContent;
+
+		BitmapNode(final int theEntryMap, final int theChildMap, final Object[] theContent) {
+			mEntryMap = theEntryMap;
+			mChildMap = theChildMap;
+			mContent = theContent;
+		}
+
+		@Override
+		Object get(final Object theKey, final int theHash, final int theShift) {
+			final int aBit = bit(theHash, theShift);
+
+			if ((mEntryMap & aBit) != 0) {
+				final int aIndex = entryIndex(aBit);
+
+				return Objects.equals(theKey, mContent[2 * aIndex]) ? mContent[2 * aIndex + 1] : null;
+			}
+			else if ((mChildMap & aBit) != 0) {
+				return child(childIndex(aBit)).get(theKey, theHash, theShift + BITS);
+			}
+
+			return null;
+		}
+
+		@Override
+		Node put(final Object theKey, final Object theValue, final int theHash, final int theShift, final Change theChange) {
+			final int aBit = bit(theHash, theShift);
+
+			if ((mEntryMap & aBit) != 0) {
+				final int aIndex = entryIndex(aBit);
+				final Object aKey = mContent[2 * aIndex];
+				final Object aValue = mContent[2 * aIndex + 1];
+
+				if (Objects.equals(theKey, aKey)) {
+					if (aValue == theValue) {
+						return this;
+					}
+
+					final Object[] aContent = mContent.clone();
+					aContent[2 * aIndex + 1] = theValue;
+
+					return new BitmapNode(mEntryMap, mChildMap, aContent);
+				}
+
+				theChange.mAdded = true;
+
+				// move the existing entry and the new one down into a new child
+				final Node aChild = merge(aKey, aValue, hash(aKey), theKey, theValue, theHash, theShift + BITS);
+				final int aEntries = entries();
+				final int aChildIndex = childIndex(aBit);
+				final Object[] aContent = new Object[mContent.length - 1];
+
+				System.arraycopy(mContent, 0, aContent, 0, 2 * aIndex);
+				System.arraycopy(mContent, 2 * aIndex + 2, aContent, 2 * aIndex, 2 * (aEntries - aIndex - 1) + aChildIndex);
+				aContent[2 * (aEntries - 1) + aChildIndex] = aChild;
+				System.arraycopy(mContent, 2 * aEntries + aChildIndex, aContent, 2 * (aEntries - 1) + aChildIndex + 1,
+				                 children() - aChildIndex);
+
+				return new BitmapNode(mEntryMap ^ aBit, mChildMap | aBit, aContent);
+			}
+			else if ((mChildMap & aBit) != 0) {
+				final int aIndex = 2 * entries() + childIndex(aBit);
+				final Node aChild = (Node) mContent[aIndex];
+				final Node aNewChild = aChild.put(theKey, theValue, theHash, theShift + BITS, theChange);
+
+				if (aNewChild == aChild) {
+					return this;
+				}
+
+				final Object[] aContent = mContent.clone();
+				aContent[aIndex] = aNewChild;
+
+				return new BitmapNode(mEntryMap, mChildMap, aContent);
+			}
+
+			theChange.mAdded = true;
+
+			final int aIndex = entryIndex(aBit);
+			final Object[] aContent = new Object[mContent.length + 2];
+
+			System.arraycopy(mContent, 0, aContent, 0, 2 * aIndex);
+			aContent[2 * aIndex] = theKey;
+			aContent[2 * aIndex + 1] = theValue;
+			System.arraycopy(mContent, 2 * aIndex, aContent, 2 * aIndex + 2, mContent.length - 2 * aIndex);
+
+			return new BitmapNode(mEntryMap | aBit, mChildMap, aContent);
+		}
+
+		@Override
+		Node remove(final Object theKey, final int theHash, final int theShift) {
+			final int aBit = bit(theHash, theShift);
+
+			if ((mEntryMap & aBit) != 0) {
+				final int aIndex = entryIndex(aBit);
+
+				if (!Objects.equals(theKey, mContent[2 * aIndex])) {
+					return this;
+				}
+
+				final Object[] aContent = new Object[mContent.length - 2];
+
+				System.arraycopy(mContent, 0, aContent, 0, 2 * aIndex);
+				System.arraycopy(mContent, 2 * aIndex + 2, aContent, 2 * aIndex, mContent.length - 2 * aIndex - 2);
+
+				return new BitmapNode(mEntryMap ^ aBit, mChildMap, aContent);
+			}
+			else if ((mChildMap & aBit) != 0) {
+				final int aEntries = entries();
+				final int aChildIndex = childIndex(aBit);
+				final Node aChild = (Node) mContent[2 * aEntries + aChildIndex];
+				final Node aNewChild = aChild.remove(theKey, theHash, theShift + BITS);
+
+				if (aNewChild == aChild) {
+					return this;
+				}
+
+				if (!aNewChild.isSingleEntry()) {
+					final Object[] aContent = mContent.clone();
+					aContent[2 * aEntries + aChildIndex] = aNewChild;
+
+					return new BitmapNode(mEntryMap, mChildMap, aContent);
+				}
+
+				// the child is down to one entry, inline it here
+				final int aIndex = entryIndex(aBit);
+				final Object[] aContent = new Object[mContent.length + 1];
+
+				System.arraycopy(mContent, 0, aContent, 0, 2 * aIndex);
+				aContent[2 * aIndex] = aNewChild.key(0);
+				aContent[2 * aIndex + 1] = aNewChild.value(0);
+				System.arraycopy(mContent, 2 * aIndex, aContent, 2 * aIndex + 2, 2 * (aEntries - aIndex) + aChildIndex);
+				System.arraycopy(mContent, 2 * aEntries + aChildIndex + 1, aContent, 2 * aEntries + 2 + aChildIndex,
+				                 children() - aChildIndex - 1);
+
+				return new BitmapNode(mEntryMap | aBit, mChildMap ^ aBit, aContent);
+			}
+
+			return this;
+		}
+
+		@Override
+		int entries() {
+			return Integer.bitCount(mEntryMap);
+		}
+
+		@Override
+		Object key(final int theIndex) {
+			return mContent[2 * theIndex];
+		}
+
+		@Override
+		Object value(final int theIndex) {
+			return mContent[2 * theIndex + 1];
+		}
+
+		@Override
+		int children() {
+			return Integer.bitCount(mChildMap);
+		}
+
+		@Override
+		Node child(final int theIndex) {
+			return (Node) mContent[2 * entries() + theIndex];
+		}
+
+		private int entryIndex(final int theBit) {
+			return Integer.bitCount(mEntryMap & (theBit - 1));
+		}
+
+		private int childIndex(final int theBit) {
+			return Integer.bitCount(mChildMap & (theBit - 1));
+		}
+	}
+
+	private static final class CollisionNode extends Node {
+		private final int mHash;
+
+		private final Object[] mContent;
+
+		CollisionNode(final int theHash, final Object[] theContent) {
+			mHash = theHash;
+			mContent = theContent;
+		}
+
+		@Override
+		Object get(final Object theKey, final int theHash, final int theShift) {
+			final int aIndex = indexOf(theKey);
+
+			return aIndex == -1 ? null : mContent[aIndex + 1];
+		}
+
+		@Override
+		Node put(final Object theKey, final Object theValue, final int theHash, final int theShift, final Change theChange) {
+			final int aIndex = indexOf(theKey);
+
+			if (aIndex != -1) {
+				if (mContent[aIndex + 1] == theValue) {
+					return this;
+				}
+
+				final Object[] aContent = mContent.clone();
+				aContent[aIndex + 1] = theValue;
+
+				return new CollisionNode(mHash, aContent);
+			}
+
+			theChange.mAdded = true;
+
+			final Object[] aContent = Arrays.copyOf(mContent, mContent.length + 2);
+			aContent[mContent.length] = theKey;
+			aContent[mContent.length + 1] = theValue;
+
+			return new CollisionNode(mHash, aContent);
+		}
+
+		@Override
+		Node remove(final Object theKey, final int theHash, final int theShift) {
+			final int aIndex = indexOf(theKey);
+
+			if (aIndex == -1) {
+				return this;
+			}
+
+			final Object[] aContent = new Object[mContent.length - 2];
+
+			System.arraycopy(mContent, 0, aContent, 0, aIndex);
+			System.arraycopy(mContent, aIndex + 2, aContent, aIndex, mContent.length - aIndex - 2);
+
+			return new CollisionNode(mHash, aContent);
+		}
+
+		@Override
+		int entries() {
+			return mContent.length / 2;
+		}
+
+		@Override
+		Object key(final int theIndex) {
+			return mContent[2 * theIndex];
+		}
+
+		@Override
+		Object value(final int theIndex) {
+			return mContent[2 * theIndex + 1];
+		}
+
+		@Override
+		int children() {
+			return 0;
+		}
+
+		@Override
+		Node child(final int theIndex) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		private int indexOf(final Object theKey) {
+			for (int i = 0; i < mContent.length; i += 2) {
+				if (Objects.equals(theKey, mContent[i])) {
+					return i;
+				}
+			}
+
+			return -1;
+		}
+	}
+
+	/**
+	 * Depth first iteration over the keys or values of a trie
+	 */
+	private static final class Cursor<T> implements Iterator<T> {
+		private final boolean mKeys;
+
+		private final Node[] mNodes = new Node[MAX_DEPTH];
+
+		private final int[] mEntries = new int[MAX_DEPTH];
+
+		private final int[] mChildren = new int[MAX_DEPTH];
+
+		private int mDepth = 0;
+
+		Cursor(final Node theRoot, final boolean theKeys) {
+			mKeys = theKeys;
+			mNodes[0] = theRoot;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (mDepth >= 0) {
+				final Node aNode = mNodes[mDepth];
+
+				if (mEntries[mDepth] < aNode.entries()) {
+					return true;
+				}
+				else if (mChildren[mDepth] < aNode.children()) {
+					final Node aChild = aNode.child(mChildren[mDepth]++);
+
+					mDepth++;
+					mNodes[mDepth] = aChild;
+					mEntries[mDepth] = 0;
+					mChildren[mDepth] = 0;
+				}
+				else {
+					mNodes[mDepth--] = null;
+				}
+			}
+
+			return false;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			final int aIndex = mEntries[mDepth]++;
+
+			return (T) (mKeys ? mNodes[mDepth].key(aIndex) : mNodes[mDepth].value(aIndex));
+		}
+	}
+}
@@ -0,0 +1,786 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * <p>Isomorphism and diff of models by blank node colour refinement.  Every blank node starts with the same colour; in
+ * each round, a node's new colour is a hash of its colour and of the statements it appears in, with the other blank
+ * nodes in those statements replaced by their colours.  Nodes with different colours can't be mapped to one another, so
+ * once the colours stop splitting into more classes, a colour which is unique in both models fixes the mapping of its
+ * node.  When some classes still have several nodes, their members are paired in order and the mapping is verified, which
+ * settles the usual symmetric case, many blank nodes with the same surroundings, at once.  Otherwise a node of the
+ * smallest class is given a colour of its own, and each candidate for it in the other model in turn, and the refinement
+ * continues from there.  That search is depth first, without recursion: it only keeps the node and candidate of each
+ * level, and rather than copying the colours at every level, it restores them by replaying the levels above when it
+ * goes back.  A mapping is only accepted once it has been verified against the statements, so hash collisions cost time
+ * but never produce a wrong answer.</p>
+ *
+ * <p>Before refining, the models are compared on their sizes, their statements without blank nodes, and a multiset hash
+ * of their statements with all blank nodes the same, which rejects most non-isomorphic models cheaply.  After each round,
+ * the multisets of colours of the two models must match as well.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+final class Isomorphism {
+	private static final int SUBJECT = 0;
+
+	private static final int OBJECT = 1;
+
+	private static final int CONTEXT = 2;
+
+	private Isomorphism() {
+		throw new AssertionError();
+	}
+
+	static boolean isomorphic(final Model theFirst, final Model theSecond) {
+		if (theFirst == theSecond) {
+			return true;
+		}
+
+		if (theFirst.size() != theSecond.size()) {
+			return false;
+		}
+
+		final Graph aFirst = new Graph(theFirst);
+		final Graph aSecond = new Graph(theSecond);
+
+		if (aFirst.mGroundCount != aSecond.mGroundCount
+		    || aFirst.size() != aSecond.size()
+		    || !containsGround(aFirst, theSecond)
+		    || aFirst.multisetHash() != aSecond.multisetHash()) {
+			return false;
+		}
+
+		return aFirst.size() == 0 || search(aFirst, aSecond) != null;
+	}
+
+	static ModelDiff diff(final Model theFirst, final Model theSecond) {
+		final Graph aFirst = new Graph(theFirst);
+		final Graph aSecond = new Graph(theSecond);
+
+		int[] aMapping = null;
+
+		if (aFirst.size() == aSecond.size() && aFirst.multisetHash() == aSecond.multisetHash()) {
+			aMapping = search(aFirst, aSecond);
+		}
+
+		if (aMapping == null) {
+			aMapping = approximateMapping(aFirst, aSecond);
+		}
+
+		final int[] aInverse = new int[aSecond.size()];
+		Arrays.fill(aInverse, -1);
+
+		for (int i = 0; i < aMapping.length; i++) {
+			if (aMapping[i] != -1) {
+				aInverse[aMapping[i]] = i;
+			}
+		}
+
+		return new ModelDiff(missing(aFirst, aSecond, aMapping), missing(aSecond, aFirst, aInverse));
+	}
+
+	private static boolean containsGround(final Graph theGraph, final Model theOther) {
+		for (Statement aStmt : theGraph.mModel) {
+			if (!theGraph.hasBNode(aStmt) && !theOther.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), aStmt.getContext())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Return the statements of the graph which are not in the other graph under the mapping of blank node ids
+	 */
+	private static Model missing(final Graph theGraph, final Graph theOther, final int[] theMapping) {
+		final Model aMissing = Models2.newModel();
+
+		for (Statement aStmt : theGraph.mModel) {
+			if (!theGraph.hasBNode(aStmt)) {
+				if (!theOther.mModel.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), aStmt.getContext())) {
+					aMissing.add(aStmt);
+				}
+			}
+		}
+
+		for (int i = 0; i < theGraph.mStatements.length; i++) {
+			if (!theOther.containsImage(theGraph, i, theMapping)) {
+				aMissing.add(theGraph.mStatements[i]);
+			}
+		}
+
+		return aMissing;
+	}
+
+	/**
+	 * Refine the colours of both graphs until they stop splitting, checking that they stay the same multisets
+	 *
+	 * @return	false if the colours diverged, in which case the graphs are not isomorphic under the current colouring
+	 */
+	private static boolean refine(final Graph theFirst, final Graph theSecond) {
+		long[] aSorted = theFirst.sortedColours();
+
+		if (!Arrays.equals(aSorted, theSecond.sortedColours())) {
+			return false;
+		}
+
+		int aClasses = distinct(aSorted);
+
+		while (aClasses < theFirst.size()) {
+			theFirst.refine();
+			theSecond.refine();
+
+			aSorted = theFirst.sortedColours();
+
+			if (!Arrays.equals(aSorted, theSecond.sortedColours())) {
+				return false;
+			}
+
+			final int aNext = distinct(aSorted);
+
+			if (aNext == aClasses) {
+				break;
+			}
+
+			aClasses = aNext;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Search for a mapping of the blank nodes of the first graph to those of the second under which the graphs are equal
+	 *
+	 * @return	the mapping, indexed by blank node id of the first graph, or null if there is none
+	 */
+	private static int[] search(final Graph theFirst, final Graph theSecond) {
+		// the node of the first graph given a colour of its own at each level, and its current candidate in the second
+		final int[] aNodes = new int[theFirst.size()];
+		final int[] aCandidates = new int[theFirst.size()];
+
+		int aDepth = 0;
+
+		if (!replay(theFirst, theSecond, aNodes, aCandidates, 0)) {
+			return null;
+		}
+
+		// the level whose colours, before its node is individualized, are saved in the graphs
+		int aSaved = -1;
+
+		while (true) {
+			final int[] aMapping = pair(theFirst, theSecond);
+
+			if (verify(theFirst, theSecond, aMapping)) {
+				return aMapping;
+			}
+
+			final int aNode = tiedNode(theFirst);
+
+			if (aNode != -1) {
+				aNodes[aDepth] = aNode;
+				aCandidates[aDepth] = -1;
+				aDepth++;
+
+				theFirst.save();
+				theSecond.save();
+				aSaved = aDepth - 1;
+			}
+
+			// try the next candidate of the deepest level which has one left
+			boolean aConsistent = false;
+
+			while (!aConsistent) {
+				if (aDepth == 0) {
+					return null;
+				}
+
+				final int aLevel = aDepth - 1;
+
+				if (aSaved == aLevel) {
+					theFirst.restore();
+					theSecond.restore();
+				}
+				else {
+					replay(theFirst, theSecond, aNodes, aCandidates, aLevel);
+
+					theFirst.save();
+					theSecond.save();
+					aSaved = aLevel;
+				}
+
+				final long aColour = theFirst.mColours[aNodes[aLevel]];
+
+				int aCandidate = aCandidates[aLevel] + 1;
+
+				while (aCandidate < theSecond.size() && theSecond.mColours[aCandidate] != aColour) {
+					aCandidate++;
+				}
+
+				if (aCandidate == theSecond.size()) {
+					aDepth--;
+					continue;
+				}
+
+				aCandidates[aLevel] = aCandidate;
+
+				individualize(theFirst, theSecond, aNodes[aLevel], aCandidate, aLevel);
+
+				aConsistent = refine(theFirst, theSecond);
+			}
+		}
+	}
+
+	/**
+	 * Reset the colours of both graphs to those of the given level of the search, by refining from the initial colours and
+	 * individualizing the node and candidate of each level above it
+	 *
+	 * @return	false if the colours diverged, which only happens at the first level
+	 */
+	private static boolean replay(final Graph theFirst, final Graph theSecond, final int[] theNodes, final int[] theCandidates,
+	                              final int theLevel) {
+		Arrays.fill(theFirst.mColours, 1);
+		Arrays.fill(theSecond.mColours, 1);
+
+		boolean aConsistent = refine(theFirst, theSecond);
+
+		for (int i = 0; i < theLevel && aConsistent; i++) {
+			individualize(theFirst, theSecond, theNodes[i], theCandidates[i], i);
+
+			aConsistent = refine(theFirst, theSecond);
+		}
+
+		return aConsistent;
+	}
+
+	/**
+	 * Give the node of the first graph and its candidate in the second the same colour, which no other node has.  The
+	 * colour depends on the level, so that the nodes individualized at different levels never share a colour.
+	 */
+	private static void individualize(final Graph theFirst, final Graph theSecond, final int theNode, final int theCandidate,
+	                                  final int theLevel) {
+		final long aIndividual = mix(theFirst.mColours[theNode] ^ mix(0x5DEECE66DL + theLevel));
+
+		theFirst.mColours[theNode] = aIndividual;
+		theSecond.mColours[theCandidate] = aIndividual;
+	}
+
+	/**
+	 * Return the first node of the smallest class of the graph with more than one node
+	 *
+	 * @return	the node, or -1 if every colour is unique
+	 */
+	private static int tiedNode(final Graph theGraph) {
+		final long[] aSorted = theGraph.sortedColours();
+
+		long aColour = 0;
+		int aSize = Integer.MAX_VALUE;
+
+		for (int i = 0; i < aSorted.length; ) {
+			int j = i + 1;
+
+			while (j < aSorted.length && aSorted[j] == aSorted[i]) {
+				j++;
+			}
+
+			if (j - i > 1 && j - i < aSize) {
+				aColour = aSorted[i];
+				aSize = j - i;
+			}
+
+			i = j;
+		}
+
+		if (aSize == Integer.MAX_VALUE) {
+			return -1;
+		}
+
+		int aNode = 0;
+
+		while (theGraph.mColours[aNode] != aColour) {
+			aNode++;
+		}
+
+		return aNode;
+	}
+
+	/**
+	 * Pair the nodes of the two graphs which have the same colour, in the order of their ids.  The colours of both graphs
+	 * must be the same multiset.
+	 */
+	private static int[] pair(final Graph theFirst, final Graph theSecond) {
+		final Map<Long, Deque<Integer>> aNodes = new HashMap<>();
+
+		for (int i = 0; i < theSecond.size(); i++) {
+			aNodes.computeIfAbsent(theSecond.mColours[i], theColour -> new ArrayDeque<>()).add(i);
+		}
+
+		final int[] aMapping = new int[theFirst.size()];
+
+		for (int i = 0; i < aMapping.length; i++) {
+			aMapping[i] = aNodes.get(theFirst.mColours[i]).poll();
+		}
+
+		return aMapping;
+	}
+
+	private static boolean verify(final Graph theFirst, final Graph theSecond, final int[] theMapping) {
+		for (int i = 0; i < theFirst.mStatements.length; i++) {
+			if (!theSecond.containsImage(theFirst, i, theMapping)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Map the blank nodes of graphs which are not isomorphic, as well as possible.  Colours which belong to a single node
+	 * in both graphs after some round of refinement pair those nodes, since nothing else has the same surroundings.  The
+	 * mapping is then extended from the pairs along the statements they share, so a difference only affects the nodes
+	 * next to it, rather than every node whose colour it reaches.  Nodes left over are paired by their colour after the
+	 * first round, and the rest are unmapped.
+	 */
+	private static int[] approximateMapping(final Graph theFirst, final Graph theSecond) {
+		final int[] aMapping = new int[theFirst.size()];
+		Arrays.fill(aMapping, -1);
+
+		final int[] aInverse = new int[theSecond.size()];
+		Arrays.fill(aInverse, -1);
+
+		final Deque<Integer> aPaired = new ArrayDeque<>();
+
+		long[] aFirst = theFirst.refine(initial(theFirst.size()));
+		long[] aSecond = theSecond.refine(initial(theSecond.size()));
+
+		final long[] aFirstLocal = aFirst;
+		final long[] aSecondLocal = aSecond;
+
+		int aClasses = -1;
+
+		while (true) {
+			pairUnique(aFirst, aSecond, aMapping, aInverse, aPaired);
+
+			final int aNext = distinct(sorted(aFirst)) + distinct(sorted(aSecond));
+
+			if (aNext == aClasses) {
+				break;
+			}
+
+			aClasses = aNext;
+			aFirst = theFirst.refine(aFirst);
+			aSecond = theSecond.refine(aSecond);
+		}
+
+		while (!aPaired.isEmpty()) {
+			final int aNode = aPaired.poll();
+
+			final Map<Long, Deque<Integer>> aCandidates = theSecond.neighbours(aMapping[aNode], aInverse);
+
+			for (Map.Entry<Long, Deque<Integer>> aEntry : theFirst.neighbours(aNode, aMapping).entrySet()) {
+				final Deque<Integer> aOthers = aCandidates.get(aEntry.getKey());
+
+				for (int aNeighbour : aEntry.getValue()) {
+					if (aOthers == null || aOthers.isEmpty()) {
+						break;
+					}
+
+					final int aOther = aOthers.poll();
+
+					if (aMapping[aNeighbour] == -1 && aInverse[aOther] == -1) {
+						aMapping[aNeighbour] = aOther;
+						aInverse[aOther] = aNeighbour;
+						aPaired.add(aNeighbour);
+					}
+				}
+			}
+		}
+
+		final Map<Long, Deque<Integer>> aCandidates = new HashMap<>();
+
+		for (int i = 0; i < aSecondLocal.length; i++) {
+			if (aInverse[i] == -1) {
+				aCandidates.computeIfAbsent(aSecondLocal[i], theColour -> new ArrayDeque<>()).add(i);
+			}
+		}
+
+		for (int i = 0; i < aFirstLocal.length; i++) {
+			final Deque<Integer> aOthers = aCandidates.get(aFirstLocal[i]);
+
+			if (aMapping[i] == -1 && aOthers != null && !aOthers.isEmpty()) {
+				aMapping[i] = aOthers.poll();
+			}
+		}
+
+		return aMapping;
+	}
+
+	/**
+	 * Pair the unmapped nodes whose colour belongs to no other node in either graph
+	 */
+	private static void pairUnique(final long[] theFirst, final long[] theSecond, final int[] theMapping, final int[] theInverse,
+	                               final Deque<Integer> thePaired) {
+		final Map<Long, Integer> aUnique = new HashMap<>();
+
+		for (int i = 0; i < theSecond.length; i++) {
+			aUnique.merge(theSecond[i], i, (theOld, theNew) -> -1);
+		}
+
+		final Map<Long, Integer> aFirstUnique = new HashMap<>();
+
+		for (int i = 0; i < theFirst.length; i++) {
+			aFirstUnique.merge(theFirst[i], i, (theOld, theNew) -> -1);
+		}
+
+		for (Map.Entry<Long, Integer> aEntry : aFirstUnique.entrySet()) {
+			final int aNode = aEntry.getValue();
+			final Integer aOther = aUnique.get(aEntry.getKey());
+
+			if (aNode != -1 && aOther != null && aOther != -1 && theMapping[aNode] == -1 && theInverse[aOther] == -1) {
+				theMapping[aNode] = aOther;
+				theInverse[aOther] = aNode;
+				thePaired.add(aNode);
+			}
+		}
+	}
+
+	private static long[] initial(final int theSize) {
+		final long[] aColours = new long[theSize];
+		Arrays.fill(aColours, 1);
+		return aColours;
+	}
+
+	private static long[] sorted(final long[] theColours) {
+		final long[] aSorted = theColours.clone();
+		Arrays.sort(aSorted);
+		return aSorted;
+	}
+
+	private static int distinct(final long[] theSorted) {
+		int aCount = theSorted.length == 0 ? 0 : 1;
+
+		for (int i = 1; i < theSorted.length; i++) {
+			if (theSorted[i] != theSorted[i - 1]) {
+				aCount++;
+			}
+		}
+
+		return aCount;
+	}
+
+	static long mix(final long theValue) {
+		long aValue = theValue;
+
+		aValue = (aValue ^ (aValue >>> 33)) * 0xff51afd7ed558ccdL;
+		aValue = (aValue ^ (aValue >>> 33)) * 0xc4ceb9fe1a85ec53L;
+
+		return aValue ^ (aValue >>> 33);
+	}
+
+	/**
+	 * The statements of a model which have blank nodes, with the blank nodes numbered and their current colours
+	 */
+	private static final class Graph {
+		private final Model mModel;
+
+		private final Map<BNode, Integer> mIds = new HashMap<>();
+
+		private final List<BNode> mNodes = new ArrayList<>();
+
+		private final Statement[] mStatements;
+
+		/**
+		 * The blank node id at each of the subject, object and context positions of the statements, -1 for other values
+		 */
+		private final int[] mTerms;
+
+		/**
+		 * The hash of the values of each statement other than its blank nodes
+		 */
+		private final long[] mGroundHashes;
+
+		private final int mGroundCount;
+
+		private long[] mColours;
+
+		/**
+		 * The colours of the next round of refinement, swapped with the current ones
+		 */
+		private long[] mNext;
+
+		/**
+		 * The current colours, sorted
+		 */
+		private final long[] mSorted;
+
+		/**
+		 * The colours saved by the search before it individualizes a node
+		 */
+		private final long[] mSaved;
+
+		/**
+		 * The statements each blank node appears in, built when first needed
+		 */
+		private List<List<Integer>> mIncidences;
+
+		Graph(final Model theModel) {
+			mModel = theModel;
+
+			final List<Statement> aStatements = new ArrayList<>();
+			int aGround = 0;
+
+			for (Statement aStmt : theModel) {
+				if (hasBNode(aStmt)) {
+					aStatements.add(aStmt);
+				}
+				else {
+					aGround++;
+				}
+			}
+
+			mGroundCount = aGround;
+			mStatements = aStatements.toArray(new Statement[aStatements.size()]);
+			mTerms = new int[mStatements.length * 3];
+			mGroundHashes = new long[mStatements.length];
+
+			for (int i = 0; i < mStatements.length; i++) {
+				final Statement aStmt = mStatements[i];
+
+				mTerms[i * 3 + SUBJECT] = id(aStmt.getSubject());
+				mTerms[i * 3 + OBJECT] = id(aStmt.getObject());
+				mTerms[i * 3 + CONTEXT] = id(aStmt.getContext());
+
+				long aHash = ground(aStmt.getSubject());
+				aHash = aHash * 31 + aStmt.getPredicate().hashCode();
+				aHash = aHash * 31 + ground(aStmt.getObject());
+				aHash = aHash * 31 + ground(aStmt.getContext());
+
+				mGroundHashes[i] = aHash;
+			}
+
+			mColours = initial(mNodes.size());
+			mNext = new long[mNodes.size()];
+			mSorted = new long[mNodes.size()];
+			mSaved = new long[mNodes.size()];
+		}
+
+		int size() {
+			return mNodes.size();
+		}
+
+		boolean hasBNode(final Statement theStmt) {
+			return theStmt.getSubject() instanceof BNode
+			       || theStmt.getObject() instanceof BNode
+			       || theStmt.getContext() instanceof BNode;
+		}
+
+		private int id(final Value theValue) {
+			if (!(theValue instanceof BNode)) {
+				return -1;
+			}
+
+			return mIds.computeIfAbsent((BNode) theValue, theNode -> {
+				mNodes.add(theNode);
+				return mNodes.size() - 1;
+			});
+		}
+
+		private static long ground(final Value theValue) {
+			return theValue == null || theValue instanceof BNode ? 0 : theValue.hashCode();
+		}
+
+		/**
+		 * Return the hash of the statement, with its blank nodes replaced by their colours
+		 */
+		private long hash(final int theStatement, final long[] theColours) {
+			long aHash = mGroundHashes[theStatement];
+
+			for (int aPosition = 0; aPosition < 3; aPosition++) {
+				final int aNode = mTerms[theStatement * 3 + aPosition];
+
+				aHash = aHash * 31 + (aNode == -1 ? 0 : theColours[aNode]);
+			}
+
+			return mix(aHash);
+		}
+
+		/**
+		 * Return the hash of the statements with blank nodes, with every blank node the same, combined so that it does not
+		 * depend on the order of the statements
+		 */
+		long multisetHash() {
+			final long[] aColours = initial(mNodes.size());
+
+			long aHash = 0;
+
+			for (int i = 0; i < mStatements.length; i++) {
+				aHash += hash(i, aColours);
+			}
+
+			return aHash;
+		}
+
+		/**
+		 * Refine the current colours by one round
+		 */
+		void refine() {
+			final long[] aColours = mColours;
+
+			mColours = refine(aColours, mNext);
+			mNext = aColours;
+		}
+
+		/**
+		 * Return the current colours, sorted.  The array is reused, it is only valid until the colours change.
+		 */
+		long[] sortedColours() {
+			System.arraycopy(mColours, 0, mSorted, 0, mColours.length);
+			Arrays.sort(mSorted);
+			return mSorted;
+		}
+
+		void save() {
+			System.arraycopy(mColours, 0, mSaved, 0, mColours.length);
+		}
+
+		void restore() {
+			System.arraycopy(mSaved, 0, mColours, 0, mColours.length);
+		}
+
+		/**
+		 * Return the colours after one round of refinement
+		 */
+		long[] refine(final long[] theColours) {
+			return refine(theColours, new long[theColours.length]);
+		}
+
+		/**
+		 * Write the colours after one round of refinement to the given array
+		 *
+		 * @return	the array
+		 */
+		private long[] refine(final long[] theColours, final long[] theNext) {
+			for (int i = 0; i < theNext.length; i++) {
+				theNext[i] = mix(theColours[i]);
+			}
+
+			for (int i = 0; i < mStatements.length; i++) {
+				final long aHash = hash(i, theColours);
+
+				for (int aPosition = 0; aPosition < 3; aPosition++) {
+					final int aNode = mTerms[i * 3 + aPosition];
+
+					if (aNode != -1) {
+						theNext[aNode] += mix(aHash + aPosition);
+					}
+				}
+			}
+
+			return theNext;
+		}
+
+		/**
+		 * Return the unmapped blank nodes which share a statement with the node, keyed by the values of the statement
+		 * other than blank nodes and by the positions of the two nodes in it
+		 */
+		Map<Long, Deque<Integer>> neighbours(final int theNode, final int[] theMapping) {
+			if (mIncidences == null) {
+				mIncidences = new ArrayList<>(mNodes.size());
+
+				for (int i = 0; i < mNodes.size(); i++) {
+					mIncidences.add(new ArrayList<>(2));
+				}
+
+				for (int i = 0; i < mTerms.length; i++) {
+					if (mTerms[i] != -1) {
+						final List<Integer> aIncidences = mIncidences.get(mTerms[i]);
+
+						// a node at several positions of a statement only needs it listed once
+						if (aIncidences.isEmpty() || aIncidences.get(aIncidences.size() - 1) != i / 3) {
+							aIncidences.add(i / 3);
+						}
+					}
+				}
+			}
+
+			final Map<Long, Deque<Integer>> aNeighbours = new HashMap<>();
+
+			for (int aStatement : mIncidences.get(theNode)) {
+				for (int aPosition = 0; aPosition < 3; aPosition++) {
+					if (mTerms[aStatement * 3 + aPosition] != theNode) {
+						continue;
+					}
+
+					for (int aOther = 0; aOther < 3; aOther++) {
+						final int aNeighbour = mTerms[aStatement * 3 + aOther];
+
+						if (aNeighbour != -1 && aNeighbour != theNode && theMapping[aNeighbour] == -1) {
+							aNeighbours.computeIfAbsent(mix(mGroundHashes[aStatement] * 31 + aPosition * 3 + aOther), theKey -> new ArrayDeque<>())
+							           .add(aNeighbour);
+						}
+					}
+				}
+			}
+
+			return aNeighbours;
+		}
+
+		/**
+		 * Return whether this graph contains the image of a statement of the other graph with blank nodes under the
+		 * mapping of the other graph's blank node ids to this graph's
+		 */
+		boolean containsImage(final Graph theOther, final int theStatement, final int[] theMapping) {
+			final Statement aStmt = theOther.mStatements[theStatement];
+
+			final Value aSubj = theOther.image(theStatement, SUBJECT, aStmt.getSubject(), theMapping, this);
+			final Value aObj = theOther.image(theStatement, OBJECT, aStmt.getObject(), theMapping, this);
+			final Value aContext = theOther.image(theStatement, CONTEXT, aStmt.getContext(), theMapping, this);
+
+			if (aSubj == null || aObj == null || (aContext == null && aStmt.getContext() != null)) {
+				// a blank node without a counterpart
+				return false;
+			}
+
+			return mModel.contains((Resource) aSubj, aStmt.getPredicate(), aObj, (Resource) aContext);
+		}
+
+		private Value image(final int theStatement, final int thePosition, final Value theValue, final int[] theMapping, final Graph theTarget) {
+			final int aNode = mTerms[theStatement * 3 + thePosition];
+
+			if (aNode == -1) {
+				return theValue;
+			}
+
+			return theMapping[aNode] == -1 ? null : theTarget.mNodes.get(theMapping[aNode]);
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
+
+/**
+ * <p>Parses line-based RDF, N-Triples and N-Quads, from memory mapped files with a {@link LineTokenizer}.</p>
+ *
+ * <p>Since every statement is on a line of its own, a file can also be cut into chunks at newline boundaries and each
+ * chunk {@link #parseParallel parsed} independently on a {@link ForkJoinPool}.  The statements are handed to the
+ * {@link RDFHandler} on the calling thread, in the order of the chunks, so the handler sees exactly what it would have
+ * seen from a sequential parse.  Blank node labels in these formats are scoped to the document, not the chunk; like
+ * {@link ModelIO}'s parsers, the tokenizers preserve the labels as blank node ids so the same label in two chunks yields
+ * the same blank node, as it does with a single parser.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+final class LineBasedParser {
+	/**
+	 * The target size of a chunk
+	 */
+	private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * How many chunks, per thread in the pool, can be parsed ahead of the handler
+	 */
+	private static final int CHUNKS_IN_FLIGHT = 2;
+
+	private LineBasedParser() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Return whether the format is one handled by this parser
+	 *
+	 * @param theFormat	the format
+	 * @return			true if it is a line-based format
+	 */
+	static boolean isLineBased(final RDFFormat theFormat) {
+		return RDFFormat.NTRIPLES.equals(theFormat) || RDFFormat.NQUADS.equals(theFormat);
+	}
+
+	/**
+	 * Parse the file, which must be in a {@link #isLineBased line-based} format, on the calling thread
+	 *
+	 * @param theFile		the file
+	 * @param theFormat		the format of the file
+	 * @param theHandler	the handler to receive the statements
+	 * @param theFactory	the factory to create the values with
+	 *
+	 * @throws IOException			if there was an error reading the file
+	 * @throws RDFParseException	if the file could not be parsed, or the handler failed
+	 */
+	static void parse(final Path theFile, final RDFFormat theFormat, final RDFHandler theHandler,
+	                  final ValueFactory theFactory) throws IOException, RDFParseException {
+		try (FileChannel aChannel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+			final long[] aBounds = MappedFile.lineChunks(aChannel, MappedFile.WINDOW_SIZE);
+			final LineTokenizer aTokenizer = newTokenizer(theFormat, theFactory);
+
+			theHandler.startRDF();
+
+			for (int i = 0; i < aBounds.length - 1; i++) {
+				aTokenizer.tokenize(MappedFile.map(aChannel, aBounds[i], aBounds[i + 1]), aBounds[i], theHandler);
+			}
+
+			theHandler.endRDF();
+		}
+		catch (RDFHandlerException e) {
+			throw new RDFParseException(e);
+		}
+	}
+
+	/**
+	 * Parse the file, which must be in a {@link #isLineBased line-based} format, on the given pool
+	 *
+	 * @param theFile		the file
+	 * @param theFormat		the format of the file
+	 * @param theHandler	the handler to receive the statements
+	 * @param theFactory	the factory to create the values with, it is shared by the tasks parsing the chunks
+	 * @param thePool		the pool to parse on
+	 *
+	 * @throws IOException			if there was an error reading the file
+	 * @throws RDFParseException	if the file could not be parsed, or the handler failed
+	 */
+	static void parseParallel(final Path theFile, final RDFFormat theFormat, final RDFHandler theHandler,
+	                          final ValueFactory theFactory, final ForkJoinPool thePool) throws IOException, RDFParseException {
+		try (FileChannel aChannel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+			final long[] aBounds = MappedFile.lineChunks(aChannel, CHUNK_SIZE);
+			final int aMaxInFlight = Math.max(thePool.getParallelism() * CHUNKS_IN_FLIGHT, 2);
+
+			final Deque<ForkJoinTask<Chunk>> aInFlight = new ArrayDeque<>();
+
+			// the number of lines in the chunks handled so far, chunks count their lines from their own start
+			long aLines = 0;
+
+			try {
+				theHandler.startRDF();
+
+				int aNext = 0;
+				while (aNext < aBounds.length - 1 || !aInFlight.isEmpty()) {
+					while (aNext < aBounds.length - 1 && aInFlight.size() < aMaxInFlight) {
+						final long aStart = aBounds[aNext];
+						final long aEnd = aBounds[++aNext];
+
+						aInFlight.add(thePool.submit(() -> parseChunk(aChannel, aStart, aEnd, theFormat, theFactory)));
+					}
+
+					final Chunk aChunk;
+
+					try {
+						aChunk = aInFlight.removeFirst().get();
+					}
+					catch (ExecutionException e) {
+						if (e.getCause() instanceof LineTokenizer.TokenizerException) {
+							throw ((LineTokenizer.TokenizerException) e.getCause()).afterLines(aLines);
+						}
+
+						throw e;
+					}
+
+					for (Statement aStmt : aChunk.mStatements) {
+						theHandler.handleStatement(aStmt);
+					}
+
+					aLines += aChunk.mLines;
+				}
+
+				theHandler.endRDF();
+			}
+			catch (RDFHandlerException e) {
+				throw new RDFParseException(e);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+			catch (ExecutionException e) {
+				if (e.getCause() instanceof RDFParseException) {
+					throw (RDFParseException) e.getCause();
+				}
+				else if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				else {
+					throw new RDFParseException(e.getCause());
+				}
+			}
+			finally {
+				for (ForkJoinTask<?> aTask : aInFlight) {
+					aTask.cancel(true);
+				}
+			}
+		}
+	}
+
+	private static LineTokenizer newTokenizer(final RDFFormat theFormat, final ValueFactory theFactory) {
+		return new LineTokenizer(theFactory, RDFFormat.NQUADS.equals(theFormat));
+	}
+
+	private static Chunk parseChunk(final FileChannel theChannel, final long theStart, final long theEnd,
+	                                final RDFFormat theFormat, final ValueFactory theFactory) throws IOException, RDFParseException {
+		final List<Statement> aStmts = new ArrayList<>();
+		final LineTokenizer aTokenizer = newTokenizer(theFormat, theFactory);
+
+		try {
+			aTokenizer.tokenize(MappedFile.map(theChannel, theStart, theEnd), theStart, new StatementCollector(aStmts));
+		}
+		catch (RDFHandlerException e) {
+			throw new RDFParseException(e);
+		}
+
+		return new Chunk(aStmts, aTokenizer.getLines());
+	}
+
+	/**
+	 * The statements parsed from a chunk, and the number of lines in it
+	 */
+	private static final class Chunk {
+		private final Collection<Statement> mStatements;
+
+		private final long mLines;
+
+		Chunk(final Collection<Statement> theStatements, final long theLines) {
+			mStatements = theStatements;
+			mLines = theLines;
+		}
+	}
+}
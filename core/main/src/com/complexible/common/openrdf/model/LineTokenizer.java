@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Charsets;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+
+/**
+ * <p>A tokenizer for N-Triples and N-Quads which works directly on the bytes of a {@link ByteBuffer}, such as a memory
+ * mapped file.  Rather than decoding the whole input into characters, it scans the bytes for the boundaries of each
+ * term and decodes only the term itself, so punctuation, whitespace and comments are never turned into characters.
+ * Escape sequences are only processed for the terms which contain them.</p>
+ *
+ * <p>It handles data the way {@link ModelIO} configures its parsers: datatype values are not verified or normalized and
+ * blank node labels are preserved as the ids of the blank nodes.  It checks terms as the Rio N-Triples parser does, so
+ * a file is accepted or rejected the same whichever way it is read: IRIs may not contain unencoded spaces or escapes
+ * other than unicode escapes, blank node labels are ASCII letters and digits, and language tags start with a letter.
+ * A tokenizer keeps count of lines across calls to {@link #tokenize} so a file can be fed to it a window at a time; it
+ * is not thread-safe.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+final class LineTokenizer {
+	private static final int EOF = -1;
+
+	private final ValueFactory mFactory;
+
+	private final boolean mQuads;
+
+	/**
+	 * Buffer the bytes of a term are copied to for decoding
+	 */
+	private byte[] mScratch = new byte[256];
+
+	private ByteBuffer mBuffer;
+
+	private int mPos;
+
+	private int mLimit;
+
+	/**
+	 * The offset of the current buffer in the file, for error messages
+	 */
+	private long mOffset;
+
+	private long mLine = 0;
+
+	/**
+	 * Create a new tokenizer
+	 *
+	 * @param theFactory	the factory to create values with
+	 * @param theQuads		true to tokenize N-Quads, false for N-Triples
+	 */
+	LineTokenizer(final ValueFactory theFactory, final boolean theQuads) {
+		mFactory = theFactory;
+		mQuads = theQuads;
+	}
+
+	/**
+	 * Return the number of lines tokenized so far
+	 *
+	 * @return	the number of lines
+	 */
+	long getLines() {
+		return mLine;
+	}
+
+	/**
+	 * Tokenize the remaining bytes of the buffer, which must end at the end of a line or of the input, and pass each
+	 * statement to the handler.
+	 *
+	 * @param theBuffer		the buffer
+	 * @param theOffset		the offset of the start of the buffer in the input, used in error messages
+	 * @param theHandler	the handler for the statements
+	 *
+	 * @throws RDFParseException	if the input is not valid
+	 * @throws RDFHandlerException	if the handler failed
+	 */
+	void tokenize(final ByteBuffer theBuffer, final long theOffset, final RDFHandler theHandler) throws RDFParseException, RDFHandlerException {
+		mBuffer = theBuffer;
+		mPos = theBuffer.position();
+		mLimit = theBuffer.limit();
+		mOffset = theOffset - mPos;
+
+		// skip a UTF-8 byte order mark at the start of the input
+		if (theOffset == 0 && mLimit - mPos >= 3 && byteAt(mPos) == 0xEF && byteAt(mPos + 1) == 0xBB && byteAt(mPos + 2) == 0xBF) {
+			mPos += 3;
+		}
+
+		while (mPos < mLimit) {
+			mLine++;
+			line(theHandler);
+		}
+
+		mBuffer = null;
+	}
+
+	private void line(final RDFHandler theHandler) throws RDFParseException, RDFHandlerException {
+		skipWhitespace();
+
+		if (atEndOfLine()) {
+			skipEndOfLine();
+			return;
+		}
+		else if (peek() == '#') {
+			skipComment();
+			return;
+		}
+
+		final Resource aSubj = resource();
+		skipWhitespace();
+
+		final IRI aPred = iri();
+		skipWhitespace();
+
+		final Value aObj = value();
+		skipWhitespace();
+
+		Resource aContext = null;
+
+		if (mQuads && peek() != '.') {
+			aContext = resource();
+			skipWhitespace();
+		}
+
+		expect('.');
+		skipWhitespace();
+
+		if (peek() == '#') {
+			skipComment();
+		}
+		else if (!atEndOfLine()) {
+			throw error("Unexpected content after the end of the statement");
+		}
+		else {
+			skipEndOfLine();
+		}
+
+		theHandler.handleStatement(aContext == null
+		                           ? mFactory.createStatement(aSubj, aPred, aObj)
+		                           : mFactory.createStatement(aSubj, aPred, aObj, aContext));
+	}
+
+	private Value value() throws RDFParseException {
+		return peek() == '"' ? literal() : resource();
+	}
+
+	private Resource resource() throws RDFParseException {
+		return peek() == '_' ? bnode() : iri();
+	}
+
+	private IRI iri() throws RDFParseException {
+		expect('<');
+
+		final int aStart = mPos;
+		boolean aEscaped = false;
+
+		for (int c = peek(); c != '>'; c = peek()) {
+			if (atEndOfLine()) {
+				throw error("Unterminated IRI");
+			}
+			else if (c == ' ') {
+				throw error("IRI included an unencoded space");
+			}
+			else if (c == '\\') {
+				final int aEscape = mPos + 1 < mLimit ? byteAt(mPos + 1) : EOF;
+
+				if (aEscape != 'u' && aEscape != 'U') {
+					throw error("IRI includes string escapes: \\ followed by " + (aEscape == EOF ? "the end of the input" : describe(mPos + 1)));
+				}
+
+				aEscaped = true;
+			}
+
+			mPos++;
+		}
+
+		final String aIRI = decode(aStart, mPos, aEscaped);
+		mPos++;
+
+		try {
+			return mFactory.createIRI(aIRI);
+		}
+		catch (IllegalArgumentException e) {
+			throw error("Invalid IRI <" + aIRI + ">: " + e.getMessage());
+		}
+	}
+
+	private Resource bnode() throws RDFParseException {
+		expect('_');
+		expect(':');
+
+		final int aStart = mPos;
+
+		while (isLetterOrNumber(peek())) {
+			mPos++;
+		}
+
+		if (mPos == aStart) {
+			throw error(atEndOfLine()
+			            ? "Expected a letter or number, found the end of the line"
+			            : "Expected a letter or number, found " + describe(mPos));
+		}
+
+		return mFactory.createBNode(decode(aStart, mPos, false));
+	}
+
+	private Value literal() throws RDFParseException {
+		expect('"');
+
+		final int aStart = mPos;
+		boolean aEscaped = false;
+
+		for (int c = peek(); c != '"'; c = peek()) {
+			if (atEndOfLine()) {
+				throw error("Unterminated literal");
+			}
+
+			if (c == '\\') {
+				aEscaped = true;
+				mPos++;
+
+				if (atEndOfLine()) {
+					throw error("Unterminated literal");
+				}
+			}
+
+			mPos++;
+		}
+
+		final String aLabel = decode(aStart, mPos, aEscaped);
+		mPos++;
+
+		if (peek() == '@') {
+			mPos++;
+
+			final int aLangStart = mPos;
+
+			if (!isLetter(peek())) {
+				throw error(atEndOfLine()
+				            ? "Expected a letter, found the end of the line"
+				            : "Expected a letter, found " + describe(mPos));
+			}
+
+			// as with Rio, the tag runs up to the next whitespace, '.' or '^'
+			for (int c = peek(); !atEndOfLine() && c != ' ' && c != '\t' && c != '.' && c != '^'; c = peek()) {
+				mPos++;
+			}
+
+			return mFactory.createLiteral(aLabel, decode(aLangStart, mPos, false));
+		}
+		else if (peek() == '^') {
+			expect('^');
+			expect('^');
+
+			return mFactory.createLiteral(aLabel, iri());
+		}
+		else {
+			return mFactory.createLiteral(aLabel);
+		}
+	}
+
+	/**
+	 * Decode the bytes in the range as UTF-8, then process any escape sequences
+	 */
+	private String decode(final int theStart, final int theEnd, final boolean theEscaped) throws RDFParseException {
+		final int aLength = theEnd - theStart;
+
+		if (mScratch.length < aLength) {
+			mScratch = new byte[Math.max(aLength, mScratch.length * 2)];
+		}
+
+		for (int i = 0; i < aLength; i++) {
+			mScratch[i] = mBuffer.get(theStart + i);
+		}
+
+		final String aStr = new String(mScratch, 0, aLength, Charsets.UTF_8);
+
+		return theEscaped ? unescape(aStr) : aStr;
+	}
+
+	private String unescape(final String theStr) throws RDFParseException {
+		final StringBuilder aBuilder = new StringBuilder(theStr.length());
+
+		for (int i = 0; i < theStr.length(); i++) {
+			final char c = theStr.charAt(i);
+
+			if (c != '\\') {
+				aBuilder.append(c);
+				continue;
+			}
+
+			if (++i == theStr.length()) {
+				throw error("Incomplete escape sequence");
+			}
+
+			final char aEscape = theStr.charAt(i);
+
+			switch (aEscape) {
+				case 't': aBuilder.append('\t'); break;
+				case 'b': aBuilder.append('\b'); break;
+				case 'n': aBuilder.append('\n'); break;
+				case 'r': aBuilder.append('\r'); break;
+				case 'f': aBuilder.append('\f'); break;
+				case '"': aBuilder.append('"'); break;
+				case '\'': aBuilder.append('\''); break;
+				case '\\': aBuilder.append('\\'); break;
+				case 'u':
+				case 'U':
+					final int aDigits = aEscape == 'u' ? 4 : 8;
+
+					if (i + aDigits >= theStr.length()) {
+						throw error("Incomplete unicode escape sequence");
+					}
+
+					try {
+						aBuilder.appendCodePoint(Integer.parseInt(theStr.substring(i + 1, i + 1 + aDigits), 16));
+					}
+					catch (IllegalArgumentException e) {
+						throw error("Invalid unicode escape sequence: \\" + theStr.substring(i, i + 1 + aDigits));
+					}
+
+					i += aDigits;
+					break;
+				default:
+					throw error("Invalid escape sequence: \\" + aEscape);
+			}
+		}
+
+		return aBuilder.toString();
+	}
+
+	private static boolean isLetter(final int theChar) {
+		return (theChar >= 'a' && theChar <= 'z') || (theChar >= 'A' && theChar <= 'Z');
+	}
+
+	private static boolean isLetterOrNumber(final int theChar) {
+		return isLetter(theChar) || (theChar >= '0' && theChar <= '9');
+	}
+
+	private int byteAt(final int thePos) {
+		return mBuffer.get(thePos) & 0xFF;
+	}
+
+	private int peek() {
+		return mPos < mLimit ? byteAt(mPos) : EOF;
+	}
+
+	private boolean atEndOfLine() {
+		final int c = peek();
+		return c == EOF || c == '\n' || c == '\r';
+	}
+
+	private void skipWhitespace() {
+		for (int c = peek(); c == ' ' || c == '\t'; c = peek()) {
+			mPos++;
+		}
+	}
+
+	private void skipEndOfLine() {
+		if (peek() == '\r') {
+			mPos++;
+		}
+
+		if (peek() == '\n') {
+			mPos++;
+		}
+	}
+
+	private void skipComment() {
+		while (!atEndOfLine()) {
+			mPos++;
+		}
+
+		skipEndOfLine();
+	}
+
+	private void expect(final char theChar) throws RDFParseException {
+		if (peek() != theChar) {
+			throw error(atEndOfLine()
+			            ? "Expected '" + theChar + "', found the end of the line"
+			            : "Expected '" + theChar + "', found " + describe(mPos));
+		}
+
+		mPos++;
+	}
+
+	/**
+	 * Describe the character starting at the position for an error message: the character quoted, when the bytes there
+	 * are a valid UTF-8 sequence, otherwise the byte in hex
+	 */
+	private String describe(final int thePos) {
+		final int aByte = byteAt(thePos);
+		final int aLength = aByte < 0x80 ? 1
+		                    : (aByte & 0xE0) == 0xC0 ? 2
+		                    : (aByte & 0xF0) == 0xE0 ? 3
+		                    : (aByte & 0xF8) == 0xF0 ? 4
+		                    : 0;
+
+		final String aHex = String.format("byte 0x%02X", aByte);
+
+		if (aLength == 0 || thePos + aLength > mLimit) {
+			return aHex;
+		}
+
+		int aCodePoint = aLength == 1 ? aByte : aByte & (0x7F >> aLength);
+
+		for (int i = 1; i < aLength; i++) {
+			final int aNext = byteAt(thePos + i);
+
+			if ((aNext & 0xC0) != 0x80) {
+				return aHex;
+			}
+
+			aCodePoint = (aCodePoint << 6) | (aNext & 0x3F);
+		}
+
+		return Character.isValidCodePoint(aCodePoint)
+		       ? "'" + new String(Character.toChars(aCodePoint)) + "'"
+		       : aHex;
+	}
+
+	private TokenizerException error(final String theMessage) {
+		return new TokenizerException(theMessage + " (at byte " + (mOffset + mPos) + ")", mLine);
+	}
+
+	/**
+	 * A parse error whose line number counts from the first line the tokenizer saw, which can be moved to the line of
+	 * the whole input when the tokenizer was given only a part of it
+	 */
+	static final class TokenizerException extends RDFParseException {
+		private static final long serialVersionUID = 6318807021558302519L;
+
+		private final String mReason;
+
+		TokenizerException(final String theReason, final long theLine) {
+			super(theReason, theLine, -1);
+
+			mReason = theReason;
+		}
+
+		/**
+		 * Return the error as it would be reported if the input the tokenizer was given were preceded by the given
+		 * number of lines
+		 *
+		 * @param theLines	the number of lines before the input of the tokenizer
+		 * @return			the error
+		 */
+		RDFParseException afterLines(final long theLines) {
+			final RDFParseException aError = new RDFParseException(mReason, getLineNumber() + theLines, getColumnNumber());
+
+			aError.setStackTrace(getStackTrace());
+
+			return aError;
+		}
+	}
+}
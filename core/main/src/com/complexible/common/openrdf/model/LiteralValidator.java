@@ -0,0 +1,806 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.turtle.TurtleUtil;
+
+/**
+ * <p>Checks that the label of a literal is in the lexical space of its datatype, e.g. that an {@code xsd:int} is a
+ * number in the range of an int or that an {@code xsd:date} is a real date.  The built-in XSD datatypes each have a
+ * scanner of their own which works directly on the characters of the label, so checking a literal never parses its
+ * value, allocates, or throws, which matters when bulk loading data with many invalid literals.  Literals of other
+ * datatypes are considered valid.</p>
+ *
+ * <p>As the XSD whitespace facet collapses whitespace for all but the string types, leading and trailing whitespace is
+ * allowed around the labels of the other types.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class LiteralValidator {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	private static final Map<IRI, LexicalSpace> SPACES = new HashMap<>();
+
+	static {
+		SPACES.put(XMLSchema.STRING, (theLabel, theStart, theEnd) -> true);
+		SPACES.put(XMLSchema.ANYURI, (theLabel, theStart, theEnd) -> true);
+		SPACES.put(XMLSchema.NORMALIZEDSTRING, LiteralValidator::isNormalizedString);
+		SPACES.put(XMLSchema.TOKEN, LiteralValidator::isToken);
+		SPACES.put(XMLSchema.LANGUAGE, collapsed(LiteralValidator::isLanguage));
+		SPACES.put(XMLSchema.NAME, collapsed((theLabel, theStart, theEnd) -> isName(theLabel, theStart, theEnd, true)));
+		SPACES.put(XMLSchema.NCNAME, collapsed((theLabel, theStart, theEnd) -> isName(theLabel, theStart, theEnd, false)));
+		SPACES.put(XMLSchema.ID, SPACES.get(XMLSchema.NCNAME));
+		SPACES.put(XMLSchema.IDREF, SPACES.get(XMLSchema.NCNAME));
+		SPACES.put(XMLSchema.ENTITY, SPACES.get(XMLSchema.NCNAME));
+		SPACES.put(XMLSchema.NMTOKEN, collapsed(LiteralValidator::isNameToken));
+
+		SPACES.put(XMLSchema.BOOLEAN, collapsed(LiteralValidator::isBoolean));
+		SPACES.put(XMLSchema.DECIMAL, collapsed(LiteralValidator::isDecimal));
+		SPACES.put(XMLSchema.FLOAT, collapsed(LiteralValidator::isFloatingPoint));
+		SPACES.put(XMLSchema.DOUBLE, collapsed(LiteralValidator::isFloatingPoint));
+
+		SPACES.put(XMLSchema.INTEGER, integer(null, null));
+		SPACES.put(XMLSchema.NON_POSITIVE_INTEGER, integer(null, 0L));
+		SPACES.put(XMLSchema.NEGATIVE_INTEGER, integer(null, -1L));
+		SPACES.put(XMLSchema.NON_NEGATIVE_INTEGER, integer(0L, null));
+		SPACES.put(XMLSchema.POSITIVE_INTEGER, integer(1L, null));
+		SPACES.put(XMLSchema.LONG, integer(Long.MIN_VALUE, Long.MAX_VALUE));
+		SPACES.put(XMLSchema.INT, integer((long) Integer.MIN_VALUE, (long) Integer.MAX_VALUE));
+		SPACES.put(XMLSchema.SHORT, integer((long) Short.MIN_VALUE, (long) Short.MAX_VALUE));
+		SPACES.put(XMLSchema.BYTE, integer((long) Byte.MIN_VALUE, (long) Byte.MAX_VALUE));
+		SPACES.put(XMLSchema.UNSIGNED_LONG, collapsed(LiteralValidator::isUnsignedLong));
+		SPACES.put(XMLSchema.UNSIGNED_INT, integer(0L, 0xFFFFFFFFL));
+		SPACES.put(XMLSchema.UNSIGNED_SHORT, integer(0L, 0xFFFFL));
+		SPACES.put(XMLSchema.UNSIGNED_BYTE, integer(0L, 0xFFL));
+
+		SPACES.put(XMLSchema.DATETIME, collapsed((theLabel, theStart, theEnd) -> isDateTime(theLabel, theStart, theEnd, false)));
+		SPACES.put(xsd("dateTimeStamp"), collapsed((theLabel, theStart, theEnd) -> isDateTime(theLabel, theStart, theEnd, true)));
+		SPACES.put(XMLSchema.DATE, collapsed((theLabel, theStart, theEnd) -> isDate(theLabel, theStart, theEnd, true, true, true)));
+		SPACES.put(XMLSchema.GYEARMONTH, collapsed((theLabel, theStart, theEnd) -> isDate(theLabel, theStart, theEnd, true, true, false)));
+		SPACES.put(XMLSchema.GYEAR, collapsed((theLabel, theStart, theEnd) -> isDate(theLabel, theStart, theEnd, true, false, false)));
+		SPACES.put(XMLSchema.GMONTHDAY, collapsed((theLabel, theStart, theEnd) -> isDate(theLabel, theStart, theEnd, false, true, true)));
+		SPACES.put(XMLSchema.GMONTH, collapsed((theLabel, theStart, theEnd) -> isDate(theLabel, theStart, theEnd, false, true, false)));
+		SPACES.put(XMLSchema.GDAY, collapsed((theLabel, theStart, theEnd) -> isDate(theLabel, theStart, theEnd, false, false, true)));
+		SPACES.put(XMLSchema.TIME, collapsed(LiteralValidator::isTime));
+		SPACES.put(XMLSchema.DURATION, collapsed((theLabel, theStart, theEnd) -> isDuration(theLabel, theStart, theEnd, true, true)));
+		SPACES.put(XMLSchema.DAYTIMEDURATION, collapsed((theLabel, theStart, theEnd) -> isDuration(theLabel, theStart, theEnd, false, true)));
+		SPACES.put(xsd("yearMonthDuration"), collapsed((theLabel, theStart, theEnd) -> isDuration(theLabel, theStart, theEnd, true, false)));
+
+		SPACES.put(XMLSchema.HEXBINARY, collapsed(LiteralValidator::isHexBinary));
+		SPACES.put(XMLSchema.BASE64BINARY, collapsed(LiteralValidator::isBase64Binary));
+	}
+
+	private static final int[] DAYS_IN_MONTH = { 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+	private static final String UNSIGNED_LONG_MAX = "18446744073709551615";
+
+	private LiteralValidator() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Return whether the literal is valid: its language tag, if it has one, is well-formed and its label is in the
+	 * lexical space of its datatype.
+	 *
+	 * @param theLiteral	the literal
+	 * @return				true if the literal is valid, false otherwise
+	 */
+	public static boolean isValid(final Literal theLiteral) {
+		if (theLiteral.getLanguage().isPresent()) {
+			return isLanguageTag(theLiteral.getLanguage().get());
+		}
+
+		return isValid(theLiteral.getLabel(), theLiteral.getDatatype());
+	}
+
+	/**
+	 * Return whether the label is in the lexical space of the datatype.  Labels of datatypes other than the built-in XSD
+	 * datatypes are always valid.
+	 *
+	 * @param theLabel		the label
+	 * @param theDatatype	the datatype
+	 * @return				true if the label is valid for the datatype, false otherwise
+	 */
+	public static boolean isValid(final String theLabel, final IRI theDatatype) {
+		final LexicalSpace aSpace = SPACES.get(theDatatype);
+
+		return aSpace == null || aSpace.contains(theLabel, 0, theLabel.length());
+	}
+
+	private static IRI xsd(final String theLocalName) {
+		return FACTORY.createIRI(XMLSchema.NAMESPACE, theLocalName);
+	}
+
+	private static boolean isLanguageTag(final String theTag) {
+		if (theTag.isEmpty() || !TurtleUtil.isLanguageStartChar(theTag.charAt(0))) {
+			return false;
+		}
+
+		for (int i = 1; i < theTag.length(); i++) {
+			if (!TurtleUtil.isLanguageChar(theTag.charAt(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isWhitespace(final char theChar) {
+		return theChar == ' ' || theChar == '\t' || theChar == '\n' || theChar == '\r';
+	}
+
+	private static boolean isDigit(final char theChar) {
+		return theChar >= '0' && theChar <= '9';
+	}
+
+	/**
+	 * Wrap the space so that leading and trailing whitespace is ignored
+	 */
+	private static LexicalSpace collapsed(final LexicalSpace theSpace) {
+		return (theLabel, theStart, theEnd) -> {
+			int aStart = theStart;
+			int aEnd = theEnd;
+
+			while (aStart < aEnd && isWhitespace(theLabel.charAt(aStart))) {
+				aStart++;
+			}
+
+			while (aEnd > aStart && isWhitespace(theLabel.charAt(aEnd - 1))) {
+				aEnd--;
+			}
+
+			return theSpace.contains(theLabel, aStart, aEnd);
+		};
+	}
+
+	private static boolean isNormalizedString(final String theLabel, final int theStart, final int theEnd) {
+		for (int i = theStart; i < theEnd; i++) {
+			final char aChar = theLabel.charAt(i);
+
+			if (aChar == '\t' || aChar == '\n' || aChar == '\r') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isToken(final String theLabel, final int theStart, final int theEnd) {
+		if (theStart == theEnd) {
+			return true;
+		}
+
+		if (theLabel.charAt(theStart) == ' ' || theLabel.charAt(theEnd - 1) == ' ') {
+			return false;
+		}
+
+		for (int i = theStart; i < theEnd; i++) {
+			final char aChar = theLabel.charAt(i);
+
+			if (aChar == '\t' || aChar == '\n' || aChar == '\r' || (aChar == ' ' && theLabel.charAt(i + 1) == ' ')) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isLanguage(final String theLabel, final int theStart, final int theEnd) {
+		// [a-zA-Z]{1,8}(-[a-zA-Z0-9]{1,8})*
+		int aLength = 0;
+		boolean aFirst = true;
+
+		for (int i = theStart; i < theEnd; i++) {
+			final char aChar = theLabel.charAt(i);
+
+			if (aChar == '-') {
+				if (aLength == 0) {
+					return false;
+				}
+
+				aLength = 0;
+				aFirst = false;
+			}
+			else if (((aChar | 0x20) >= 'a' && (aChar | 0x20) <= 'z') || (!aFirst && isDigit(aChar))) {
+				if (++aLength > 8) {
+					return false;
+				}
+			}
+			else {
+				return false;
+			}
+		}
+
+		return aLength > 0;
+	}
+
+	private static boolean isNameStartChar(final char theChar, final boolean theColon) {
+		return ((theChar | 0x20) >= 'a' && (theChar | 0x20) <= 'z')
+		       || theChar == '_'
+		       || (theColon && theChar == ':')
+		       || (theChar >= 0xC0 && theChar != 0xD7 && theChar != 0xF7);
+	}
+
+	private static boolean isNameChar(final char theChar, final boolean theColon) {
+		return isNameStartChar(theChar, theColon) || isDigit(theChar) || theChar == '-' || theChar == '.' || theChar == 0xB7;
+	}
+
+	private static boolean isName(final String theLabel, final int theStart, final int theEnd, final boolean theColon) {
+		if (theStart == theEnd || !isNameStartChar(theLabel.charAt(theStart), theColon)) {
+			return false;
+		}
+
+		for (int i = theStart + 1; i < theEnd; i++) {
+			if (!isNameChar(theLabel.charAt(i), theColon)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isNameToken(final String theLabel, final int theStart, final int theEnd) {
+		if (theStart == theEnd) {
+			return false;
+		}
+
+		for (int i = theStart; i < theEnd; i++) {
+			if (!isNameChar(theLabel.charAt(i), true)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isBoolean(final String theLabel, final int theStart, final int theEnd) {
+		final int aLength = theEnd - theStart;
+
+		if (aLength == 1) {
+			return theLabel.charAt(theStart) == '0' || theLabel.charAt(theStart) == '1';
+		}
+
+		return (aLength == 4 && theLabel.startsWith("true", theStart))
+		       || (aLength == 5 && theLabel.startsWith("false", theStart));
+	}
+
+	/**
+	 * Return the index after the run of digits starting at the index
+	 */
+	private static int digits(final String theLabel, final int theStart, final int theEnd) {
+		int i = theStart;
+
+		while (i < theEnd && isDigit(theLabel.charAt(i))) {
+			i++;
+		}
+
+		return i;
+	}
+
+	private static int skipSign(final String theLabel, final int theStart, final int theEnd) {
+		return theStart < theEnd && (theLabel.charAt(theStart) == '+' || theLabel.charAt(theStart) == '-')
+		       ? theStart + 1
+		       : theStart;
+	}
+
+	/**
+	 * Return the index after the unsigned decimal number, i.e. {@code digits ('.' digits?)?} or {@code '.' digits},
+	 * starting at the index, or -1 if there is none
+	 */
+	private static int unsignedDecimal(final String theLabel, final int theStart, final int theEnd) {
+		int i = digits(theLabel, theStart, theEnd);
+		boolean aDigits = i > theStart;
+
+		if (i < theEnd && theLabel.charAt(i) == '.') {
+			final int aFraction = i + 1;
+
+			i = digits(theLabel, aFraction, theEnd);
+			aDigits |= i > aFraction;
+		}
+
+		return aDigits ? i : -1;
+	}
+
+	private static boolean isDecimal(final String theLabel, final int theStart, final int theEnd) {
+		return unsignedDecimal(theLabel, skipSign(theLabel, theStart, theEnd), theEnd) == theEnd;
+	}
+
+	private static boolean isFloatingPoint(final String theLabel, final int theStart, final int theEnd) {
+		final int aLength = theEnd - theStart;
+
+		if ((aLength == 3 && (theLabel.startsWith("INF", theStart) || theLabel.startsWith("NaN", theStart)))
+		    || (aLength == 4 && (theLabel.startsWith("-INF", theStart) || theLabel.startsWith("+INF", theStart)))) {
+			return true;
+		}
+
+		int i = unsignedDecimal(theLabel, skipSign(theLabel, theStart, theEnd), theEnd);
+
+		if (i == -1) {
+			return false;
+		}
+
+		if (i < theEnd && (theLabel.charAt(i) == 'e' || theLabel.charAt(i) == 'E')) {
+			final int aExponent = skipSign(theLabel, i + 1, theEnd);
+
+			i = digits(theLabel, aExponent, theEnd);
+
+			if (i == aExponent) {
+				return false;
+			}
+		}
+
+		return i == theEnd;
+	}
+
+	/**
+	 * Return a space of integers in the given range, a null bound meaning the range is unbounded on that side
+	 */
+	private static LexicalSpace integer(final Long theMin, final Long theMax) {
+		// the digits of the bounds, for labels too long to accumulate in a long; null when no label of that sign is in range
+		final String aMinDigits = theMin == null || theMin >= 0 ? null : Long.toString(theMin).substring(1);
+		final String aMaxDigits = theMax == null || theMax < 0 ? null : Long.toString(theMax);
+
+		return collapsed((theLabel, theStart, theEnd) -> {
+			final boolean aNegative = theStart < theEnd && theLabel.charAt(theStart) == '-';
+			final int aDigitsStart = skipSign(theLabel, theStart, theEnd);
+
+			if (aDigitsStart == theEnd || digits(theLabel, aDigitsStart, theEnd) != theEnd) {
+				return false;
+			}
+
+			int aSignificant = aDigitsStart;
+
+			while (aSignificant < theEnd - 1 && theLabel.charAt(aSignificant) == '0') {
+				aSignificant++;
+			}
+
+			if (theEnd - aSignificant > 18) {
+				// too long to accumulate in a long without overflow, compare its digits with those of the bound on its
+				// side, if any
+				if (aNegative) {
+					return theMin == null || (aMinDigits != null && compareDigits(theLabel, aSignificant, theEnd, aMinDigits) <= 0);
+				}
+				else {
+					return theMax == null || (aMaxDigits != null && compareDigits(theLabel, aSignificant, theEnd, aMaxDigits) <= 0);
+				}
+			}
+
+			long aValue = 0;
+
+			for (int i = aSignificant; i < theEnd; i++) {
+				aValue = aValue * 10 + (theLabel.charAt(i) - '0');
+			}
+
+			if (aNegative) {
+				aValue = -aValue;
+			}
+
+			return (theMin == null || aValue >= theMin) && (theMax == null || aValue <= theMax);
+		});
+	}
+
+	private static boolean isUnsignedLong(final String theLabel, final int theStart, final int theEnd) {
+		final int aDigitsStart = skipSign(theLabel, theStart, theEnd);
+
+		if (aDigitsStart == theEnd || digits(theLabel, aDigitsStart, theEnd) != theEnd) {
+			return false;
+		}
+
+		int aSignificant = aDigitsStart;
+
+		while (aSignificant < theEnd - 1 && theLabel.charAt(aSignificant) == '0') {
+			aSignificant++;
+		}
+
+		if (theLabel.charAt(theStart) == '-') {
+			return theEnd - aSignificant == 1 && theLabel.charAt(aSignificant) == '0';
+		}
+
+		return compareDigits(theLabel, aSignificant, theEnd, UNSIGNED_LONG_MAX) <= 0;
+	}
+
+	/**
+	 * Compare the number written by the digits in the range, without leading zeros, with the number written by the given
+	 * digits, also without leading zeros
+	 */
+	private static int compareDigits(final String theLabel, final int theStart, final int theEnd, final String theDigits) {
+		if (theEnd - theStart != theDigits.length()) {
+			return Integer.compare(theEnd - theStart, theDigits.length());
+		}
+
+		for (int i = 0; i < theDigits.length(); i++) {
+			final int aCompare = Character.compare(theLabel.charAt(theStart + i), theDigits.charAt(i));
+
+			if (aCompare != 0) {
+				return aCompare;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Return the value of the fixed number of digits at the index, or -1 if they are not all digits
+	 */
+	private static int fixed(final String theLabel, final int theStart, final int theEnd, final int theCount) {
+		if (theEnd - theStart < theCount) {
+			return -1;
+		}
+
+		int aValue = 0;
+
+		for (int i = theStart; i < theStart + theCount; i++) {
+			final char aChar = theLabel.charAt(i);
+
+			if (!isDigit(aChar)) {
+				return -1;
+			}
+
+			aValue = aValue * 10 + (aChar - '0');
+		}
+
+		return aValue;
+	}
+
+	private static boolean isLeapYear(final long theYear) {
+		return (theYear % 4 == 0 && theYear % 100 != 0) || theYear % 400 == 0;
+	}
+
+	/**
+	 * Return the index after the optional timezone at the index, or -1 if it is malformed
+	 */
+	private static int timezone(final String theLabel, final int theStart, final int theEnd) {
+		if (theStart == theEnd) {
+			return theStart;
+		}
+
+		final char aChar = theLabel.charAt(theStart);
+
+		if (aChar == 'Z') {
+			return theStart + 1;
+		}
+
+		if (aChar != '+' && aChar != '-') {
+			return -1;
+		}
+
+		final int aHours = fixed(theLabel, theStart + 1, theEnd, 2);
+
+		if (aHours == -1 || theStart + 3 >= theEnd || theLabel.charAt(theStart + 3) != ':') {
+			return -1;
+		}
+
+		final int aMinutes = fixed(theLabel, theStart + 4, theEnd, 2);
+
+		return aMinutes != -1 && aMinutes < 60 && (aHours < 14 || (aHours == 14 && aMinutes == 0))
+		       ? theStart + 6
+		       : -1;
+	}
+
+	/**
+	 * Return the index after the time, {@code hh:mm:ss('.' s+)?}, at the index, or -1 if it is malformed
+	 */
+	private static int time(final String theLabel, final int theStart, final int theEnd) {
+		final int aHours = fixed(theLabel, theStart, theEnd, 2);
+
+		if (aHours == -1 || theStart + 2 >= theEnd || theLabel.charAt(theStart + 2) != ':') {
+			return -1;
+		}
+
+		final int aMinutes = fixed(theLabel, theStart + 3, theEnd, 2);
+
+		if (aMinutes == -1 || theStart + 5 >= theEnd || theLabel.charAt(theStart + 5) != ':') {
+			return -1;
+		}
+
+		final int aSeconds = fixed(theLabel, theStart + 6, theEnd, 2);
+
+		if (aSeconds == -1 || aMinutes > 59 || aSeconds > 59) {
+			return -1;
+		}
+
+		int i = theStart + 8;
+		boolean aFractionZero = true;
+
+		if (i < theEnd && theLabel.charAt(i) == '.') {
+			final int aFraction = i + 1;
+
+			i = digits(theLabel, aFraction, theEnd);
+
+			if (i == aFraction) {
+				return -1;
+			}
+
+			for (int j = aFraction; j < i; j++) {
+				aFractionZero &= theLabel.charAt(j) == '0';
+			}
+		}
+
+		// 24:00:00 is allowed as the end of the day
+		return aHours < 24 || (aHours == 24 && aMinutes == 0 && aSeconds == 0 && aFractionZero) ? i : -1;
+	}
+
+	private static boolean isTime(final String theLabel, final int theStart, final int theEnd) {
+		final int i = time(theLabel, theStart, theEnd);
+
+		return i != -1 && timezone(theLabel, i, theEnd) == theEnd;
+	}
+
+	/**
+	 * Check a date or one of the gregorian types, which are the parts of {@code -?yyyy-mm-dd} that are present followed by
+	 * an optional timezone; the types without a year start with {@code --} and {@code gDay} with {@code ---}
+	 */
+	private static boolean isDate(final String theLabel, final int theStart, final int theEnd,
+	                              final boolean theYear, final boolean theMonth, final boolean theDay) {
+		final int i = date(theLabel, theStart, theEnd, theYear, theMonth, theDay);
+
+		return i != -1 && timezone(theLabel, i, theEnd) == theEnd;
+	}
+
+	/**
+	 * Return the index after the date parts at the index, or -1 if they are malformed
+	 */
+	private static int date(final String theLabel, final int theStart, final int theEnd,
+	                        final boolean theYear, final boolean theMonth, final boolean theDay) {
+		int i = theStart;
+		long aYear = 2000; // a leap year, so that --02-29 is allowed
+
+		if (theYear) {
+			if (i < theEnd && theLabel.charAt(i) == '-') {
+				i++;
+			}
+
+			final int aYearStart = i;
+			i = digits(theLabel, i, theEnd);
+
+			final int aLength = i - aYearStart;
+
+			// at least four digits, and no leading zero when there are more
+			if (aLength < 4 || (aLength > 4 && theLabel.charAt(aYearStart) == '0')) {
+				return -1;
+			}
+
+			// only whether it is a leap year matters, which the year modulo 400 tells, however long it is
+			aYear = 0;
+
+			for (int j = aYearStart; j < i; j++) {
+				aYear = (aYear * 10 + (theLabel.charAt(j) - '0')) % 400;
+			}
+		}
+		else {
+			if (!theLabel.startsWith("--", i)) {
+				return -1;
+			}
+
+			i += 2;
+		}
+
+		int aMonth = 1;
+
+		if (theMonth) {
+			if (theYear) {
+				if (i >= theEnd || theLabel.charAt(i) != '-') {
+					return -1;
+				}
+
+				i++;
+			}
+
+			aMonth = fixed(theLabel, i, theEnd, 2);
+
+			if (aMonth < 1 || aMonth > 12) {
+				return -1;
+			}
+
+			i += 2;
+		}
+
+		if (theDay) {
+			if (i >= theEnd || theLabel.charAt(i) != '-') {
+				return -1;
+			}
+
+			i++;
+
+			final int aDay = fixed(theLabel, i, theEnd, 2);
+
+			if (aDay < 1 || aDay > DAYS_IN_MONTH[aMonth - 1] || (aMonth == 2 && aDay == 29 && !isLeapYear(aYear))) {
+				return -1;
+			}
+
+			i += 2;
+		}
+
+		return i;
+	}
+
+	private static boolean isDateTime(final String theLabel, final int theStart, final int theEnd, final boolean theTimezoneRequired) {
+		int i = date(theLabel, theStart, theEnd, true, true, true);
+
+		if (i == -1 || i >= theEnd || theLabel.charAt(i) != 'T') {
+			return false;
+		}
+
+		i = time(theLabel, i + 1, theEnd);
+
+		if (i == -1 || (theTimezoneRequired && i == theEnd)) {
+			return false;
+		}
+
+		return timezone(theLabel, i, theEnd) == theEnd;
+	}
+
+	/**
+	 * Check a duration, {@code -?P(nY)?(nM)?(nD)?(T(nH)?(nM)?(n(.n)?S)?)?} with at least one part, where the year and month
+	 * parts and the day and time parts may be excluded
+	 */
+	private static boolean isDuration(final String theLabel, final int theStart, final int theEnd,
+	                                  final boolean theYearMonth, final boolean theDayTime) {
+		int i = theStart;
+
+		if (i < theEnd && theLabel.charAt(i) == '-') {
+			i++;
+		}
+
+		if (i >= theEnd || theLabel.charAt(i) != 'P') {
+			return false;
+		}
+
+		i++;
+
+		// the designators in the order they must appear, lower case for those after the T
+		final String aOrder = "YMDhms";
+
+		int aNext = theYearMonth ? 0 : 2;
+		boolean aTime = false;
+		boolean aParts = false;
+		boolean aTimeParts = false;
+
+		while (i < theEnd) {
+			final char aChar = theLabel.charAt(i);
+
+			if (aChar == 'T') {
+				if (aTime || !theDayTime) {
+					return false;
+				}
+
+				aTime = true;
+				aNext = Math.max(aNext, 3);
+				i++;
+				continue;
+			}
+
+			final int aNumberStart = i;
+
+			i = digits(theLabel, i, theEnd);
+
+			if (i == aNumberStart || i >= theEnd) {
+				return false;
+			}
+
+			boolean aFraction = false;
+
+			if (theLabel.charAt(i) == '.') {
+				final int aFractionStart = i + 1;
+
+				i = digits(theLabel, aFractionStart, theEnd);
+
+				if (i == aFractionStart || i >= theEnd) {
+					return false;
+				}
+
+				aFraction = true;
+			}
+
+			final char aDesignator = aTime ? Character.toLowerCase(theLabel.charAt(i)) : theLabel.charAt(i);
+
+			if (aTime && !Character.isUpperCase(theLabel.charAt(i))) {
+				return false;
+			}
+
+			final int aIndex = aOrder.indexOf(aDesignator, aNext);
+
+			if (aIndex == -1
+			    || (aTime != aIndex >= 3)
+			    || (aFraction && aDesignator != 's')
+			    || (!theDayTime && aIndex >= 2)) {
+				return false;
+			}
+
+			aNext = aIndex + 1;
+			aParts = true;
+			aTimeParts |= aTime;
+			i++;
+		}
+
+		return aParts && (!aTime || aTimeParts);
+	}
+
+	private static boolean isHexBinary(final String theLabel, final int theStart, final int theEnd) {
+		if ((theEnd - theStart) % 2 != 0) {
+			return false;
+		}
+
+		for (int i = theStart; i < theEnd; i++) {
+			final char aChar = theLabel.charAt(i);
+
+			if (!isDigit(aChar) && !((aChar | 0x20) >= 'a' && (aChar | 0x20) <= 'f')) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isBase64Binary(final String theLabel, final int theStart, final int theEnd) {
+		int aCount = 0;
+		int aPadding = 0;
+		char aLast = 0;
+
+		for (int i = theStart; i < theEnd; i++) {
+			final char aChar = theLabel.charAt(i);
+
+			if (aChar == ' ') {
+				continue;
+			}
+
+			if (aChar == '=') {
+				aPadding++;
+			}
+			else if (aPadding > 0) {
+				// nothing but padding after padding
+				return false;
+			}
+			else if (((aChar | 0x20) >= 'a' && (aChar | 0x20) <= 'z') || isDigit(aChar) || aChar == '+' || aChar == '/') {
+				aLast = aChar;
+			}
+			else {
+				return false;
+			}
+
+			aCount++;
+		}
+
+		if (aCount % 4 != 0 || aPadding > 2) {
+			return false;
+		}
+
+		// the character before the padding must not have bits set which the padding drops
+		return aPadding == 0
+		       || (aPadding == 1 && "AEIMQUYcgkosw048".indexOf(aLast) != -1)
+		       || (aPadding == 2 && "AQgw".indexOf(aLast) != -1);
+	}
+
+	/**
+	 * The lexical space of a datatype
+	 */
+	private interface LexicalSpace {
+		/**
+		 * Return whether the characters of the label between the indexes are in the space
+		 */
+		boolean contains(final String theLabel, final int theStart, final int theEnd);
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Utilities for reading files through memory mapping.  A single mapping is limited to 2GB, so larger files are
+ * mapped as a series of windows.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+final class MappedFile {
+	/**
+	 * The size of the windows a file is mapped in
+	 */
+	static final long WINDOW_SIZE = 1L << 30;
+
+	private MappedFile() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Map the given range of the file
+	 *
+	 * @param theChannel	the file
+	 * @param theStart		the start of the range
+	 * @param theEnd		the end of the range, exclusive
+	 * @return				the mapped range
+	 *
+	 * @throws IOException	if the file could not be mapped
+	 */
+	static ByteBuffer map(final FileChannel theChannel, final long theStart, final long theEnd) throws IOException {
+		return theChannel.map(FileChannel.MapMode.READ_ONLY, theStart, theEnd - theStart);
+	}
+
+	/**
+	 * Open an input stream which reads the file through memory mapped windows
+	 *
+	 * @param theFile	the file
+	 * @return			the stream
+	 *
+	 * @throws IOException	if the file could not be opened
+	 */
+	static InputStream newInputStream(final Path theFile) throws IOException {
+		return new MappedInputStream(FileChannel.open(theFile, StandardOpenOption.READ));
+	}
+
+	/**
+	 * Return the offsets at which the file should be split so that each piece is about the target size and starts at
+	 * the beginning of a line.  The offsets include the start and the end of the file; a line longer than the target
+	 * size makes a piece larger than the target.
+	 *
+	 * @param theChannel	the file
+	 * @param theTargetSize	the target size of each piece
+	 * @return				the offsets
+	 *
+	 * @throws IOException	if there was an error reading the file
+	 */
+	static long[] lineChunks(final FileChannel theChannel, final long theTargetSize) throws IOException {
+		final long aSize = theChannel.size();
+		final List<Long> aBounds = new ArrayList<>();
+
+		aBounds.add(0L);
+
+		final ByteBuffer aBuffer = ByteBuffer.allocate(64 * 1024);
+
+		long aPos = theTargetSize;
+		while (aPos < aSize) {
+			long aLineStart = -1;
+
+			while (aLineStart == -1 && aPos < aSize) {
+				aBuffer.clear();
+
+				final int aRead = theChannel.read(aBuffer, aPos);
+				if (aRead <= 0) {
+					break;
+				}
+
+				for (int i = 0; i < aRead; i++) {
+					if (aBuffer.get(i) == '\n') {
+						aLineStart = aPos + i + 1;
+						break;
+					}
+				}
+
+				if (aLineStart == -1) {
+					aPos += aRead;
+				}
+			}
+
+			if (aLineStart == -1 || aLineStart >= aSize) {
+				break;
+			}
+
+			aBounds.add(aLineStart);
+			aPos = aLineStart + theTargetSize;
+		}
+
+		aBounds.add(aSize);
+
+		final long[] aResult = new long[aBounds.size()];
+		for (int i = 0; i < aResult.length; i++) {
+			aResult[i] = aBounds.get(i);
+		}
+
+		return aResult;
+	}
+
+	/**
+	 * An input stream over a file which maps the next window of the file as the previous one is consumed
+	 */
+	private static final class MappedInputStream extends InputStream {
+		private final FileChannel mChannel;
+
+		private final long mSize;
+
+		/**
+		 * The offset in the file of the end of the current window
+		 */
+		private long mWindowEnd = 0;
+
+		private ByteBuffer mWindow = ByteBuffer.allocate(0);
+
+		MappedInputStream(final FileChannel theChannel) throws IOException {
+			mChannel = theChannel;
+			mSize = theChannel.size();
+		}
+
+		@Override
+		public int read() throws IOException {
+			return nextWindow() ? mWindow.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] theBytes, final int theOffset, final int theLength) throws IOException {
+			if (theLength == 0) {
+				return 0;
+			}
+			else if (!nextWindow()) {
+				return -1;
+			}
+
+			final int aRead = Math.min(theLength, mWindow.remaining());
+			mWindow.get(theBytes, theOffset, aRead);
+			return aRead;
+		}
+
+		@Override
+		public long skip(final long theCount) throws IOException {
+			long aSkipped = 0;
+
+			while (aSkipped < theCount && nextWindow()) {
+				final int aSkip = (int) Math.min(theCount - aSkipped, mWindow.remaining());
+				mWindow.position(mWindow.position() + aSkip);
+				aSkipped += aSkip;
+			}
+
+			return aSkipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return mWindow.remaining();
+		}
+
+		@Override
+		public void close() throws IOException {
+			mChannel.close();
+		}
+
+		/**
+		 * Make sure the current window has bytes remaining, mapping the next one if needed
+		 *
+		 * @return	false if the end of the file was reached
+		 */
+		private boolean nextWindow() throws IOException {
+			if (mWindow.hasRemaining()) {
+				return true;
+			}
+			else if (mWindowEnd >= mSize) {
+				return false;
+			}
+
+			final long aStart = mWindowEnd;
+			mWindowEnd = Math.min(mSize, aStart + WINDOW_SIZE);
+			mWindow = map(mChannel, aStart, mWindowEnd);
+
+			return mWindow.hasRemaining();
+		}
+	}
+}
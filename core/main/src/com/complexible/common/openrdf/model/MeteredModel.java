@@ -0,0 +1,945 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * <p>A {@link DelegatingModel} which records, for each kind of {@link Operation operation}, the number of calls, a
+ * histogram of their latencies and the number of statements or values they returned or were given.  The counters are
+ * {@link LongAdder striped}, so threads using the model do not contend on them, and recording a call costs two reads
+ * of {@link System#nanoTime()} and a few increments.</p>
+ *
+ * <p>The metrics are available as a {@link #getMetrics() snapshot}, and can be {@link #registerMBeans(String)
+ * registered} with the platform MBean server, one {@link OperationMetricsMXBean MBean} per operation.  Views returned
+ * by {@link #filter(Resource, IRI, Value, Resource...) filter} record their calls in the metrics of this model.  The
+ * latency of {@link #iterator()} and {@link #match} is that of creating the iterator, their result size is counted for
+ * iterators which are iterated to the end, while the time of {@link #forEach(Consumer)} includes that of the action.
+ * Deprecated methods, {@code equals} and {@code hashCode} are not recorded.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+@SuppressWarnings("deprecation")
+public final class MeteredModel extends DelegatingModel {
+	private static final long serialVersionUID = 7079287456244822550L;
+
+	/**
+	 * The kinds of operation whose metrics are recorded
+	 */
+	public enum Operation {
+		/**
+		 * Adding a statement, or a statement in several contexts
+		 */
+		ADD,
+
+		/**
+		 * Adding a collection of statements, the result size is the size of the collection
+		 */
+		ADD_ALL,
+
+		/**
+		 * Removing a statement or the statements matching a pattern
+		 */
+		REMOVE,
+
+		/**
+		 * Removing a collection of statements, or the statements matching a predicate, the result size is the number of
+		 * statements in the collection, if any
+		 */
+		REMOVE_ALL,
+
+		/**
+		 * Clearing the model or some of its contexts
+		 */
+		CLEAR,
+
+		/**
+		 * Checking for a statement, a pattern or a collection of statements
+		 */
+		CONTAINS,
+
+		/**
+		 * {@code size} and {@code isEmpty}
+		 */
+		SIZE,
+
+		/**
+		 * Creating a filtered view
+		 */
+		FILTER,
+
+		/**
+		 * Creating an iterator over the statements matching a pattern
+		 */
+		MATCH,
+
+		/**
+		 * Creating an iterator over the model, or going over it with {@code forEach} or {@code toArray}
+		 */
+		ITERATE,
+
+		/**
+		 * Creating a stream, parallel stream or spliterator
+		 */
+		STREAM,
+
+		SUBJECTS,
+
+		PREDICATES,
+
+		OBJECTS,
+
+		CONTEXTS,
+
+		/**
+		 * Reading or changing the namespaces
+		 */
+		NAMESPACES
+	}
+
+	/**
+	 * The number of buckets of the latency histogram, the last bucket holds every call of over 2^(BUCKETS - 2) ns
+	 */
+	private static final int BUCKETS = 40;
+
+	private final Meter[] mMeters;
+
+	private final Set<ObjectName> mRegistered = ConcurrentHashMap.newKeySet();
+
+	private MeteredModel(final Model theModel, final Meter[] theMeters) {
+		super(theModel);
+
+		mMeters = theMeters;
+	}
+
+	/**
+	 * Record the metrics of the operations on the model
+	 *
+	 * @param theModel	the model
+	 * @return			the metered model
+	 */
+	public static MeteredModel of(final Model theModel) {
+		final Meter[] aMeters = new Meter[Operation.values().length];
+
+		for (int i = 0; i < aMeters.length; i++) {
+			aMeters[i] = new Meter();
+		}
+
+		return new MeteredModel(theModel, aMeters);
+	}
+
+	/**
+	 * Return a snapshot of the metrics of every operation.  Each operation is read separately, so the snapshot is not
+	 * atomic while the model is being used.
+	 *
+	 * @return	the metrics, by operation
+	 */
+	public Map<Operation, OperationMetrics> getMetrics() {
+		final Map<Operation, OperationMetrics> aMetrics = new EnumMap<>(Operation.class);
+
+		for (Operation aOperation : Operation.values()) {
+			aMetrics.put(aOperation, getMetrics(aOperation));
+		}
+
+		return Collections.unmodifiableMap(aMetrics);
+	}
+
+	/**
+	 * Return a snapshot of the metrics of the operation
+	 *
+	 * @param theOperation	the operation
+	 * @return				the metrics
+	 */
+	public OperationMetrics getMetrics(final Operation theOperation) {
+		return mMeters[theOperation.ordinal()].snapshot(theOperation);
+	}
+
+	/**
+	 * Reset the metrics of every operation
+	 */
+	public void reset() {
+		for (Meter aMeter : mMeters) {
+			aMeter.reset();
+		}
+	}
+
+	/**
+	 * Register an MBean for each operation with the platform MBean server, named
+	 * {@code com.complexible.common.openrdf:type=MeteredModel,name=<theName>,operation=<operation>}
+	 *
+	 * @param theName	the name of the model
+	 *
+	 * @throws JMException	if the MBeans cannot be registered, for instance if the name is already in use
+	 */
+	public void registerMBeans(final String theName) throws JMException {
+		final MBeanServer aServer = ManagementFactory.getPlatformMBeanServer();
+
+		for (Operation aOperation : Operation.values()) {
+			final ObjectName aName = new ObjectName("com.complexible.common.openrdf:type=MeteredModel,name="
+			                                        + ObjectName.quote(theName) + ",operation=" + aOperation.name());
+
+			aServer.registerMBean(new OperationMBean(aOperation, mMeters[aOperation.ordinal()]), aName);
+			mRegistered.add(aName);
+		}
+	}
+
+	/**
+	 * Unregister the MBeans {@link #registerMBeans(String) registered} for this model
+	 *
+	 * @throws JMException	if there is an error unregistering the MBeans
+	 */
+	public void unregisterMBeans() throws JMException {
+		final MBeanServer aServer = ManagementFactory.getPlatformMBeanServer();
+
+		for (Iterator<ObjectName> aIter = mRegistered.iterator(); aIter.hasNext(); ) {
+			final ObjectName aName = aIter.next();
+
+			if (aServer.isRegistered(aName)) {
+				aServer.unregisterMBean(aName);
+			}
+
+			aIter.remove();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.add(theSubj, thePred, theObj, theContexts);
+		}
+		finally {
+			record(Operation.ADD, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Deprecated
+	public boolean add(final Resource theSubj, final org.eclipse.rdf4j.model.URI thePred, final Value theObj, final Resource... theContexts) {
+		return add(theSubj, (IRI) thePred, theObj, theContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Statement theStatement) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.add(theStatement);
+		}
+		finally {
+			record(Operation.ADD, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean addAll(final Collection<? extends Statement> theStatements) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.addAll(theStatements);
+		}
+		finally {
+			record(Operation.ADD_ALL, aStart, theStatements.size());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Object theObj) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.remove(theObj);
+		}
+		finally {
+			record(Operation.REMOVE, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.remove(theSubj, thePred, theObj, theContexts);
+		}
+		finally {
+			record(Operation.REMOVE, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Deprecated
+	public boolean remove(final Resource theSubj, final org.eclipse.rdf4j.model.URI thePred, final Value theObj, final Resource... theContexts) {
+		return remove(theSubj, (IRI) thePred, theObj, theContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removeAll(final Collection<?> theObjects) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.removeAll(theObjects);
+		}
+		finally {
+			record(Operation.REMOVE_ALL, aStart, theObjects.size());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removeIf(final Predicate<? super Statement> theFilter) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.removeIf(theFilter);
+		}
+		finally {
+			record(Operation.REMOVE_ALL, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean retainAll(final Collection<?> theObjects) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.retainAll(theObjects);
+		}
+		finally {
+			record(Operation.REMOVE_ALL, aStart, theObjects.size());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		final long aStart = System.nanoTime();
+
+		try {
+			super.clear();
+		}
+		finally {
+			record(Operation.CLEAR, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean clear(final Resource... theContexts) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.clear(theContexts);
+		}
+		finally {
+			record(Operation.CLEAR, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.contains(theObj);
+		}
+		finally {
+			record(Operation.CONTAINS, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.contains(theSubj, thePred, theObj, theContexts);
+		}
+		finally {
+			record(Operation.CONTAINS, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Deprecated
+	public boolean contains(final Resource theSubj, final org.eclipse.rdf4j.model.URI thePred, final Value theObj, final Resource... theContexts) {
+		return contains(theSubj, (IRI) thePred, theObj, theContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsAll(final Collection<?> theObjects) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.containsAll(theObjects);
+		}
+		finally {
+			record(Operation.CONTAINS, aStart, theObjects.size());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.size();
+		}
+		finally {
+			record(Operation.SIZE, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.isEmpty();
+		}
+		finally {
+			record(Operation.SIZE, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return new MeteredModel(super.filter(theSubj, thePred, theObj, theContexts), mMeters);
+		}
+		finally {
+			record(Operation.FILTER, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Deprecated
+	public Model filter(final Resource theSubj, final org.eclipse.rdf4j.model.URI thePred, final Value theObj, final Resource... theContexts) {
+		return filter(theSubj, (IRI) thePred, theObj, theContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> match(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return new CountingIterator(super.match(theSubj, thePred, theObj, theContexts), mMeters[Operation.MATCH.ordinal()]);
+		}
+		finally {
+			record(Operation.MATCH, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return new CountingIterator(super.iterator(), mMeters[Operation.ITERATE.ordinal()]);
+		}
+		finally {
+			record(Operation.ITERATE, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEach(final Consumer<? super Statement> theAction) {
+		final long aStart = System.nanoTime();
+		final long[] aCount = { 0 };
+
+		try {
+			super.forEach(theStmt -> {
+				aCount[0]++;
+				theAction.accept(theStmt);
+			});
+		}
+		finally {
+			record(Operation.ITERATE, aStart, aCount[0]);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object[] toArray() {
+		final long aStart = System.nanoTime();
+
+		Object[] aResult = null;
+
+		try {
+			aResult = super.toArray();
+			return aResult;
+		}
+		finally {
+			record(Operation.ITERATE, aStart, aResult == null ? 0 : aResult.length);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T[] toArray(final T[] theArray) {
+		final long aStart = System.nanoTime();
+
+		T[] aResult = null;
+
+		try {
+			aResult = super.toArray(theArray);
+			return aResult;
+		}
+		finally {
+			record(Operation.ITERATE, aStart, aResult == null ? 0 : aResult.length);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Stream<Statement> stream() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.stream();
+		}
+		finally {
+			record(Operation.STREAM, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Stream<Statement> parallelStream() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.parallelStream();
+		}
+		finally {
+			record(Operation.STREAM, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Spliterator<Statement> spliterator() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.spliterator();
+		}
+		finally {
+			record(Operation.STREAM, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Resource> subjects() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.subjects();
+		}
+		finally {
+			record(Operation.SUBJECTS, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<IRI> predicates() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.predicates();
+		}
+		finally {
+			record(Operation.PREDICATES, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Value> objects() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.objects();
+		}
+		finally {
+			record(Operation.OBJECTS, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Resource> contexts() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.contexts();
+		}
+		finally {
+			record(Operation.CONTEXTS, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> getNamespace(final String thePrefix) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.getNamespace(thePrefix);
+		}
+		finally {
+			record(Operation.NAMESPACES, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Namespace> getNamespaces() {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.getNamespaces();
+		}
+		finally {
+			record(Operation.NAMESPACES, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setNamespace(final Namespace theNamespace) {
+		final long aStart = System.nanoTime();
+
+		try {
+			super.setNamespace(theNamespace);
+		}
+		finally {
+			record(Operation.NAMESPACES, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Namespace setNamespace(final String thePrefix, final String theName) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.setNamespace(thePrefix, theName);
+		}
+		finally {
+			record(Operation.NAMESPACES, aStart, 0);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> removeNamespace(final String thePrefix) {
+		final long aStart = System.nanoTime();
+
+		try {
+			return super.removeNamespace(thePrefix);
+		}
+		finally {
+			record(Operation.NAMESPACES, aStart, 0);
+		}
+	}
+
+	private void record(final Operation theOperation, final long theStart, final long theResultSize) {
+		mMeters[theOperation.ordinal()].record(System.nanoTime() - theStart, theResultSize);
+	}
+
+	/**
+	 * The counters of one operation
+	 */
+	private static final class Meter {
+		private final LongAdder mCount = new LongAdder();
+
+		private final LongAdder mNanos = new LongAdder();
+
+		private final LongAdder mResults = new LongAdder();
+
+		private final LongAccumulator mMax = new LongAccumulator(Long::max, 0);
+
+		private final LongAdder[] mHistogram = new LongAdder[BUCKETS];
+
+		Meter() {
+			for (int i = 0; i < mHistogram.length; i++) {
+				mHistogram[i] = new LongAdder();
+			}
+		}
+
+		void record(final long theNanos, final long theResultSize) {
+			mCount.increment();
+			mNanos.add(theNanos);
+			mMax.accumulate(theNanos);
+			mHistogram[Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(theNanos))].increment();
+
+			if (theResultSize != 0) {
+				mResults.add(theResultSize);
+			}
+		}
+
+		OperationMetrics snapshot(final Operation theOperation) {
+			final long[] aHistogram = new long[mHistogram.length];
+
+			for (int i = 0; i < aHistogram.length; i++) {
+				aHistogram[i] = mHistogram[i].sum();
+			}
+
+			return new OperationMetrics(theOperation, mCount.sum(), mNanos.sum(), mMax.get(), mResults.sum(), aHistogram);
+		}
+
+		void reset() {
+			mCount.reset();
+			mNanos.reset();
+			mResults.reset();
+			mMax.reset();
+
+			for (LongAdder aBucket : mHistogram) {
+				aBucket.reset();
+			}
+		}
+	}
+
+	/**
+	 * Counts the statements of an iterator into the result size of an operation once it is iterated to the end
+	 */
+	private static final class CountingIterator implements Iterator<Statement> {
+		private final Iterator<Statement> mIter;
+
+		private final Meter mMeter;
+
+		private long mCount;
+
+		CountingIterator(final Iterator<Statement> theIter, final Meter theMeter) {
+			mIter = theIter;
+			mMeter = theMeter;
+		}
+
+		@Override
+		public boolean hasNext() {
+			final boolean aHasNext = mIter.hasNext();
+
+			if (!aHasNext && mCount > 0) {
+				mMeter.mResults.add(mCount);
+				mCount = 0;
+			}
+
+			return aHasNext;
+		}
+
+		@Override
+		public Statement next() {
+			final Statement aStmt = mIter.next();
+			mCount++;
+			return aStmt;
+		}
+
+		@Override
+		public void remove() {
+			mIter.remove();
+		}
+	}
+
+	/**
+	 * The MBean of one operation, reading the live counters
+	 */
+	private static final class OperationMBean implements OperationMetricsMXBean {
+		private final Operation mOperation;
+
+		private final Meter mMeter;
+
+		OperationMBean(final Operation theOperation, final Meter theMeter) {
+			mOperation = theOperation;
+			mMeter = theMeter;
+		}
+
+		@Override
+		public String getOperation() {
+			return mOperation.name();
+		}
+
+		@Override
+		public long getCount() {
+			return mMeter.mCount.sum();
+		}
+
+		@Override
+		public long getTotalTime() {
+			return mMeter.mNanos.sum();
+		}
+
+		@Override
+		public double getMeanTime() {
+			return mMeter.snapshot(mOperation).getMeanTime();
+		}
+
+		@Override
+		public long getMaxTime() {
+			return mMeter.mMax.get();
+		}
+
+		@Override
+		public long getMedianTime() {
+			return mMeter.snapshot(mOperation).getPercentile(0.5);
+		}
+
+		@Override
+		public long get99thPercentileTime() {
+			return mMeter.snapshot(mOperation).getPercentile(0.99);
+		}
+
+		@Override
+		public long getResultSize() {
+			return mMeter.mResults.sum();
+		}
+
+		@Override
+		public double getMeanResultSize() {
+			return mMeter.snapshot(mOperation).getMeanResultSize();
+		}
+
+		@Override
+		public void reset() {
+			mMeter.reset();
+		}
+	}
+}
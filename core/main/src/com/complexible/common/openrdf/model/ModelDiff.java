@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import org.eclipse.rdf4j.model.Model;
+
+/**
+ * <p>The difference between two models, see {@link Models2#diff(Model, Model)}.  Statements with blank nodes are compared
+ * under a mapping of the blank nodes of one model to those of the other, so the same structure with differently labeled
+ * blank nodes is not a difference.  Removed statements are reported as they are in the first model, added statements as
+ * they are in the second.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ModelDiff {
+	private final Model mRemoved;
+
+	private final Model mAdded;
+
+	ModelDiff(final Model theRemoved, final Model theAdded) {
+		mRemoved = theRemoved;
+		mAdded = theAdded;
+	}
+
+	/**
+	 * Return the statements of the first model which are not in the second
+	 *
+	 * @return	the removed statements
+	 */
+	public Model getRemoved() {
+		return mRemoved;
+	}
+
+	/**
+	 * Return the statements of the second model which are not in the first
+	 *
+	 * @return	the added statements
+	 */
+	public Model getAdded() {
+		return mAdded;
+	}
+
+	/**
+	 * Return whether there is no difference, i.e. whether the models are isomorphic
+	 *
+	 * @return	true if the models are the same
+	 */
+	public boolean isEmpty() {
+		return mRemoved.isEmpty() && mAdded.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "ModelDiff [removed=" + mRemoved.size() + ", added=" + mAdded.size() + "]";
+	}
+}
@@ -15,6 +15,8 @@
 
 package com.complexible.common.openrdf.model;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -23,16 +25,25 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import com.complexible.common.openrdf.util.AsyncRDFHandler;
+import com.complexible.common.openrdf.util.Compression;
 import com.complexible.common.openrdf.util.ModelBuildingRDFHandler;
 import com.complexible.common.openrdf.util.RDFByteSource;
+import com.complexible.common.openrdf.util.RDFSnapshot;
+import com.complexible.common.openrdf.util.TransferStats;
 import com.google.common.base.Charsets;
+import com.google.common.io.CountingOutputStream;
 import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFHandler;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
@@ -41,6 +52,9 @@ import org.eclipse.rdf4j.rio.RDFParser;
 import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.Rio;
 import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+import org.eclipse.rdf4j.rio.helpers.RDFHandlerWrapper;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * <p>Support for IO for {@link Model models}/</p>
@@ -52,6 +66,8 @@ import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
 public final class ModelIO {
 	public static final String DEFAULT_BASE_URI = "http://openrdf.clarkparsia.com/";
 
+	private static final int BUFFER_SIZE = 64 * 1024;
+
 	private ModelIO() {
 		throw new AssertionError();
 	}
@@ -65,23 +81,191 @@ public final class ModelIO {
 	 * @throws RDFParseException	if the RDF could not be parsed
 	 */
 	public static Model read(final Path theFile) throws IOException, RDFParseException {
-		return read(theFile, Rio.getParserFormatForFileName(theFile.getFileName().toString()).orElse(RDFFormat.TURTLE));
+		return read(theFile, Compression.getFormatForFileName(theFile.getFileName().toString()).orElse(RDFFormat.TURTLE));
 	}
 
 	public static Model read(final Path theFile, final RDFFormat theFormat) throws IOException, RDFParseException {
-		return read(new InputStreamReader(Files.newInputStream(theFile), getCharset(theFormat).orElse(Charsets.UTF_8)),
-		            theFormat,
-		            DEFAULT_BASE_URI);
+		return read(theFile, theFormat, Models2.newModel());
+	}
+
+	/**
+	 * Read an RDF graph from the specified file into the given model.  This can be used to read into a model other than
+	 * the {@link Models2#newModel() default} implementation, such as a {@link Models2#newCompactModel() compact} model.
+	 *
+	 * @param theFile	the file to read from
+	 * @param theFormat	the format of the file
+	 * @param theModel	the model to add the parsed statements to
+	 * @return			the model
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the RDF could not be parsed
+	 */
+	public static Model read(final Path theFile, final RDFFormat theFormat, final Model theModel) throws IOException, RDFParseException {
+		return read(theFile, theFormat, theModel, SimpleValueFactory.getInstance());
+	}
+
+	/**
+	 * Read an RDF graph from the specified file into the given model, creating the values of the statements with the given
+	 * factory, for example an {@link com.complexible.common.openrdf.util.InterningValueFactory} to share equal values
+	 * across the graphs which are read.
+	 *
+	 * @param theFile		the file to read from
+	 * @param theFormat		the format of the file
+	 * @param theModel		the model to add the parsed statements to
+	 * @param theFactory	the factory to create the values with
+	 * @return				the model
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the RDF could not be parsed
+	 */
+	public static Model read(final Path theFile, final RDFFormat theFormat, final Model theModel,
+	                         final ValueFactory theFactory) throws IOException, RDFParseException {
+		ModelBuildingRDFHandler aHandler = new ModelBuildingRDFHandler(theModel);
+
+		read(theFile, theFormat, aHandler, theFactory);
+
+		return aHandler.getModel();
+	}
+
+	/**
+	 * Parse the specified file and pass the results to the handler.  The file is memory mapped rather than read through
+	 * a stream; N-Triples and N-Quads are tokenized directly from the mapped bytes, decoding only the terms themselves,
+	 * while other formats are parsed from a stream over the mapped file.  A {@link Compression compressed} file is instead
+	 * decompressed on a separate thread and parsed from the decompressed stream.
+	 *
+	 * @param theFile		the file to read from
+	 * @param theFormat		the format of the file
+	 * @param theHandler	the handler for the results of reading the data
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the RDF could not be parsed
+	 */
+	public static void read(final Path theFile, final RDFFormat theFormat, final RDFHandler theHandler) throws IOException, RDFParseException {
+		read(theFile, theFormat, theHandler, SimpleValueFactory.getInstance());
+	}
+
+	/**
+	 * Parse the specified file, creating the values of the statements with the given factory, and pass the results to the
+	 * handler.  See {@link #read(Path, RDFFormat, RDFHandler)}.
+	 *
+	 * @param theFile		the file to read from
+	 * @param theFormat		the format of the file
+	 * @param theHandler	the handler for the results of reading the data
+	 * @param theFactory	the factory to create the values with
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the RDF could not be parsed
+	 */
+	public static void read(final Path theFile, final RDFFormat theFormat, final RDFHandler theHandler,
+	                        final ValueFactory theFactory) throws IOException, RDFParseException {
+		if (Compression.isCompressed(theFile)) {
+			read(theHandler, Files.newInputStream(theFile), theFormat, DEFAULT_BASE_URI, theFactory);
+		}
+		else if (LineBasedParser.isLineBased(theFormat)) {
+			LineBasedParser.parse(theFile, theFormat, theHandler, theFactory);
+		}
+		else {
+			read(theHandler, MappedFile.newInputStream(theFile), theFormat, DEFAULT_BASE_URI, theFactory);
+		}
+	}
+
+	/**
+	 * Read an RDF graph from the specified file, parsing it in parallel when it is N-Triples or N-Quads.  Other formats
+	 * are read {@link #read(Path, RDFFormat) sequentially}.
+	 *
+	 * @param theFile	the file to read from
+	 * @param theFormat	the format of the file
+	 * @return			the RDF graph contained in the file
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the RDF could not be parsed
+	 */
+	public static Model readParallel(final Path theFile, final RDFFormat theFormat) throws IOException, RDFParseException {
+		return readParallel(theFile, theFormat, Models2.newModel());
+	}
+
+	/**
+	 * Read an RDF graph from the specified file into the given model, parsing it in parallel when it is N-Triples or
+	 * N-Quads.  Other formats are read {@link #read(Path, RDFFormat, Model) sequentially}.
+	 *
+	 * @param theFile	the file to read from
+	 * @param theFormat	the format of the file
+	 * @param theModel	the model to add the parsed statements to
+	 * @return			the model
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the RDF could not be parsed
+	 */
+	public static Model readParallel(final Path theFile, final RDFFormat theFormat, final Model theModel) throws IOException, RDFParseException {
+		return readParallel(theFile, theFormat, theModel, SimpleValueFactory.getInstance());
+	}
+
+	/**
+	 * Read an RDF graph from the specified file into the given model, parsing it in parallel when it is N-Triples or
+	 * N-Quads and creating the values of the statements with the given factory.  The factory must be safe to use from
+	 * several threads.
+	 *
+	 * @param theFile		the file to read from
+	 * @param theFormat		the format of the file
+	 * @param theModel		the model to add the parsed statements to
+	 * @param theFactory	the factory to create the values with
+	 * @return				the model
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the RDF could not be parsed
+	 */
+	public static Model readParallel(final Path theFile, final RDFFormat theFormat, final Model theModel,
+	                                 final ValueFactory theFactory) throws IOException, RDFParseException {
+		ModelBuildingRDFHandler aHandler = new ModelBuildingRDFHandler(theModel);
+
+		readParallel(theFile, theFormat, aHandler, theFactory);
+
+		return aHandler.getModel();
+	}
+
+	/**
+	 * Parse the specified file, in parallel when it is N-Triples or N-Quads, and pass the results to the handler.  The
+	 * file is split into chunks at line boundaries which are parsed on the {@link ForkJoinPool#commonPool() common pool};
+	 * the handler is called only from the calling thread and receives the statements in the order they appear in the
+	 * file.  Blank nodes are identified by their label across the whole file, exactly as with a sequential parse.  Other
+	 * formats, and compressed files, are {@link #read(Path, RDFFormat, RDFHandler) parsed} sequentially.
+	 *
+	 * @param theFile		the file to read from
+	 * @param theFormat		the format of the file
+	 * @param theHandler	the handler for the results of reading the data
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the RDF could not be parsed
+	 */
+	public static void readParallel(final Path theFile, final RDFFormat theFormat, final RDFHandler theHandler) throws IOException, RDFParseException {
+		readParallel(theFile, theFormat, theHandler, SimpleValueFactory.getInstance());
 	}
 
-	private static Optional<Charset> getCharset(final RDFFormat theFormat) {
-		return theFormat.hasCharset() ? Optional.of(theFormat.getCharset()) : Optional.empty();
+	/**
+	 * Parse the specified file, in parallel when it is N-Triples or N-Quads, creating the values of the statements with the
+	 * given factory, and pass the results to the handler.  See {@link #readParallel(Path, RDFFormat, RDFHandler)}.  The
+	 * factory must be safe to use from several threads.
+	 *
+	 * @param theFile		the file to read from
+	 * @param theFormat		the format of the file
+	 * @param theHandler	the handler for the results of reading the data
+	 * @param theFactory	the factory to create the values with
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the RDF could not be parsed
+	 */
+	public static void readParallel(final Path theFile, final RDFFormat theFormat, final RDFHandler theHandler,
+	                                final ValueFactory theFactory) throws IOException, RDFParseException {
+		if (LineBasedParser.isLineBased(theFormat) && !Compression.isCompressed(theFile)) {
+			LineBasedParser.parseParallel(theFile, theFormat, theHandler, theFactory, ForkJoinPool.commonPool());
+		}
+		else {
+			read(theFile, theFormat, theHandler, theFactory);
+		}
 	}
 
 	public static Model read(final RDFByteSource theSource) throws IOException, RDFParseException {
-		return read(theSource.asCharSource(getCharset(theSource.getFormat()).orElse(Charsets.UTF_8)).openStream(),
-	                theSource.getFormat(),
-	                theSource.getBaseURI());
+		return read(theSource.openStream(), theSource.getFormat(), theSource.getBaseURI());
 	}
 
 	/**
@@ -93,7 +277,7 @@ public final class ModelIO {
 	 * @throws RDFParseException if there is an error while trying to parse the data as the specified format
 	 */
 	public static Model read(InputStream theInput, RDFFormat theFormat) throws IOException, RDFParseException {
-		return read(new InputStreamReader(theInput, getCharset(theFormat).orElse(Charsets.UTF_8)), theFormat, DEFAULT_BASE_URI);
+		return read(theInput, theFormat, DEFAULT_BASE_URI);
 	}
 
 
@@ -107,44 +291,99 @@ public final class ModelIO {
 	 * @throws RDFParseException if there is an error while trying to parse the data as the specified format
 	 */
 	public static Model read(InputStream theInput, RDFFormat theFormat, final String theBase) throws IOException, RDFParseException {
-		return read(new InputStreamReader(theInput, getCharset(theFormat).orElse(Charsets.UTF_8)), theFormat, theBase);
+		ModelBuildingRDFHandler aHandler = new ModelBuildingRDFHandler();
+
+		read(aHandler, theInput, theFormat, theBase);
+
+		return aHandler.getModel();
 	}
 
 	/**
-	 * Read an RDF graph from the Reader using the specified format.  The reader is closed after parsing.
+	 * Read an RDF graph from the stream using the specified format.  A {@link Compression compressed} stream is detected
+	 * and decompressed on a separate thread.  Text formats are decoded using the charset of the format; formats without
+	 * a charset, such as {@link RDFSnapshot snapshots}, are binary and are parsed from the stream directly.  The stream
+	 * is closed after parsing.
 	 *
-	 * @param theInput  the reader to read from
+	 * @param theHandler the handler for the results of reading the data
+	 * @param theInput the stream to read from
 	 * @param theFormat the format the data is in
-	 * @param theBase   the base url for parsing
-	 *
-	 * @return the graph represented by the data from the stream
+	 * @param theBase the base url for parsing
+	 * @throws IOException if there is an error while reading
+	 * @throws RDFParseException if there is an error while trying to parse the data as the specified format
+	 */
+	public static void read(RDFHandler theHandler, InputStream theInput, RDFFormat theFormat, String theBase) throws IOException, RDFParseException {
+		read(theHandler, theInput, theFormat, theBase, SimpleValueFactory.getInstance());
+	}
+
+	/**
+	 * Read an RDF graph from the stream using the specified format, creating the values of the statements with the given
+	 * factory.  See {@link #read(RDFHandler, InputStream, RDFFormat, String)}.
 	 *
+	 * @param theHandler the handler for the results of reading the data
+	 * @param theInput the stream to read from
+	 * @param theFormat the format the data is in
+	 * @param theBase the base url for parsing
+	 * @param theFactory the factory to create the values with
 	 * @throws IOException if there is an error while reading
 	 * @throws RDFParseException if there is an error while trying to parse the data as the specified format
 	 */
-	public static Model read(final Reader theInput, final RDFFormat theFormat, final String theBase) throws IOException, RDFParseException {
-		RDFParser aParser = Rio.createParser(theFormat);
+	public static void read(RDFHandler theHandler, InputStream theInput, RDFFormat theFormat, String theBase,
+	                        ValueFactory theFactory) throws IOException, RDFParseException {
+		final InputStream aInput = Compression.decompress(theInput);
 
-		aParser.getParserConfig().set(BasicParserSettings.VERIFY_DATATYPE_VALUES, false);
-		aParser.getParserConfig().set(BasicParserSettings.FAIL_ON_UNKNOWN_DATATYPES, false);
-		aParser.getParserConfig().set(BasicParserSettings.NORMALIZE_DATATYPE_VALUES, false);
-		aParser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+		if (theFormat.hasCharset()) {
+			read(theHandler, new InputStreamReader(aInput, theFormat.getCharset()), theFormat, theBase, theFactory);
+			return;
+		}
 
-		ModelBuildingRDFHandler aHandler = new ModelBuildingRDFHandler();
+		RDFParser aParser = newParser(theFormat, theFactory);
 
-		aParser.setRDFHandler(aHandler);
+		aParser.setRDFHandler(theHandler);
 
 		try {
-			aParser.parse(theInput, theBase);
+			aParser.parse(aInput, theBase);
 		}
 		catch (RDFHandlerException e) {
 			throw new RDFParseException(e);
 		}
 		finally {
-			if (theInput != null) {
-				theInput.close();
-			}
+			aInput.close();
 		}
+	}
+
+	/**
+	 * Read an RDF graph from the Reader using the specified format.  The reader is closed after parsing.
+	 *
+	 * @param theInput  the reader to read from
+	 * @param theFormat the format the data is in
+	 * @param theBase   the base url for parsing
+	 *
+	 * @return the graph represented by the data from the stream
+	 *
+	 * @throws IOException if there is an error while reading
+	 * @throws RDFParseException if there is an error while trying to parse the data as the specified format
+	 */
+	public static Model read(final Reader theInput, final RDFFormat theFormat, final String theBase) throws IOException, RDFParseException {
+		return read(theInput, theFormat, theBase, Models2.newModel());
+	}
+
+	/**
+	 * Read an RDF graph from the Reader using the specified format into the given model.  The reader is closed after parsing.
+	 *
+	 * @param theInput  the reader to read from
+	 * @param theFormat the format the data is in
+	 * @param theBase   the base url for parsing
+	 * @param theModel  the model to add the parsed statements to
+	 *
+	 * @return the model
+	 *
+	 * @throws IOException if there is an error while reading
+	 * @throws RDFParseException if there is an error while trying to parse the data as the specified format
+	 */
+	public static Model read(final Reader theInput, final RDFFormat theFormat, final String theBase, final Model theModel) throws IOException, RDFParseException {
+		ModelBuildingRDFHandler aHandler = new ModelBuildingRDFHandler(theModel);
+
+		read(aHandler, theInput, theFormat, theBase);
 
 		return aHandler.getModel();
 	}
@@ -160,12 +399,24 @@ public final class ModelIO {
 	 * @throws RDFParseException if there is an error while trying to parse the data as the specified format
 	 */
 	public static void read(RDFHandler theHandler, Reader theInput, RDFFormat theFormat, String theBase) throws IOException, RDFParseException {
-		RDFParser aParser = Rio.createParser(theFormat);
+		read(theHandler, theInput, theFormat, theBase, SimpleValueFactory.getInstance());
+	}
 
-		aParser.getParserConfig().set(BasicParserSettings.VERIFY_DATATYPE_VALUES, false);
-		aParser.getParserConfig().set(BasicParserSettings.FAIL_ON_UNKNOWN_DATATYPES, false);
-		aParser.getParserConfig().set(BasicParserSettings.NORMALIZE_DATATYPE_VALUES, false);
-		aParser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+	/**
+	 * Read an RDF graph from the Reader using the specified format, creating the values of the statements with the given
+	 * factory.  The reader is closed after parsing.
+	 *
+	 * @param theHandler the handler for the results of reading the data
+	 * @param theInput the reader to read from
+	 * @param theFormat the format the data is in
+	 * @param theBase the base url for parsing
+	 * @param theFactory the factory to create the values with
+	 * @throws IOException if there is an error while reading
+	 * @throws RDFParseException if there is an error while trying to parse the data as the specified format
+	 */
+	public static void read(RDFHandler theHandler, Reader theInput, RDFFormat theFormat, String theBase,
+	                        ValueFactory theFactory) throws IOException, RDFParseException {
+		RDFParser aParser = newParser(theFormat, theFactory);
 
 		aParser.setRDFHandler(theHandler);
 
@@ -181,6 +432,90 @@ public final class ModelIO {
 			}
 		}
 	}
+
+	/**
+	 * Return the statements in the specified file as a stream.  See {@link #stream(Path, RDFFormat)}.
+	 *
+	 * @param theFile	the file to read from
+	 * @return			the statements in the file
+	 */
+	public static Stream<Statement> stream(final Path theFile) {
+		return stream(theFile, Compression.getFormatForFileName(theFile.getFileName().toString()).orElse(RDFFormat.TURTLE));
+	}
+
+	/**
+	 * Return the statements in the specified file as a stream.  Unlike {@link #read(Path, RDFFormat)}, the file is not
+	 * read into a model first: it is parsed on a separate thread as the stream is consumed, buffering only a bounded
+	 * number of statements, so files larger than the heap can be processed.  Closing the stream stops the parse and
+	 * releases the file; it should be closed if it is not consumed entirely.
+	 *
+	 * <p>Errors reading the file are thrown by the stream, as an {@link java.io.UncheckedIOException} or an
+	 * {@link RDFParseException}.</p>
+	 *
+	 * @param theFile	the file to read from
+	 * @param theFormat	the format of the file
+	 * @return			the statements in the file
+	 */
+	public static Stream<Statement> stream(final Path theFile, final RDFFormat theFormat) {
+		return StatementStream.of(theHandler -> read(theFile, theFormat, theHandler), null);
+	}
+
+	/**
+	 * Return the statements in the stream as a {@link Stream}, parsing them as the stream is consumed.  Closing the
+	 * returned stream stops the parse and closes the input.  See {@link #stream(Path, RDFFormat)}.
+	 *
+	 * @param theInput	the stream to read from
+	 * @param theFormat	the format the data is in
+	 * @return			the statements
+	 */
+	public static Stream<Statement> stream(final InputStream theInput, final RDFFormat theFormat) {
+		return stream(theInput, theFormat, DEFAULT_BASE_URI);
+	}
+
+	/**
+	 * Return the statements in the stream as a {@link Stream}, parsing them as the stream is consumed.  Closing the
+	 * returned stream stops the parse and closes the input.  See {@link #stream(Path, RDFFormat)}.
+	 *
+	 * @param theInput	the stream to read from
+	 * @param theFormat	the format the data is in
+	 * @param theBase	the base url for parsing
+	 * @return			the statements
+	 */
+	public static Stream<Statement> stream(final InputStream theInput, final RDFFormat theFormat, final String theBase) {
+		return StatementStream.of(theHandler -> read(theHandler, theInput, theFormat, theBase), theInput);
+	}
+
+	/**
+	 * Return the statements in the source as a {@link Stream}, parsing them as the stream is consumed.  The source is
+	 * opened when the stream is first consumed.  See {@link #stream(Path, RDFFormat)}.
+	 *
+	 * @param theSource	the source to read from
+	 * @return			the statements
+	 */
+	public static Stream<Statement> stream(final RDFByteSource theSource) {
+		return StatementStream.of(theHandler -> read(theHandler, theSource.openStream(), theSource.getFormat(), theSource.getBaseURI()), null);
+	}
+
+	/**
+	 * Create a parser for the format which is configured as lenient as possible about the values in the data
+	 *
+	 * @param theFormat	the format to parse
+	 * @param theFactory	the factory to create the values with
+	 * @return			the new parser
+	 */
+	private static RDFParser newParser(final RDFFormat theFormat, final ValueFactory theFactory) {
+		RDFParser aParser = Rio.createParser(theFormat);
+
+		aParser.setValueFactory(checkNotNull(theFactory));
+
+		aParser.getParserConfig().set(BasicParserSettings.VERIFY_DATATYPE_VALUES, false);
+		aParser.getParserConfig().set(BasicParserSettings.FAIL_ON_UNKNOWN_DATATYPES, false);
+		aParser.getParserConfig().set(BasicParserSettings.NORMALIZE_DATATYPE_VALUES, false);
+		aParser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+
+		return aParser;
+	}
+
 	/**
 	 * Write the contents of the Graph to the stream in the specified RDF format
 	 *
@@ -191,7 +526,65 @@ public final class ModelIO {
 	 * @throws IOException thrown if there is an error while writing
 	 */
 	public static void write(final Model theGraph, final OutputStream theStream, final RDFFormat theFormat) throws IOException {
-		write(theGraph, new OutputStreamWriter(theStream), theFormat);
+		write(theGraph, newWriter(theStream, theFormat));
+
+		theStream.flush();
+	}
+
+	/**
+	 * Write the contents of the Graph to the file in the specified RDF format.  If the name of the file has the extension
+	 * of a {@link Compression compressed} file, e.g. {@code .nt.gz}, the output is compressed in parallel.
+	 *
+	 * @param theGraph  the graph to write
+	 * @param theFile   the file to write to
+	 * @param theFormat the RDF format to write in
+	 *
+	 * @throws IOException thrown if there is an error while writing
+	 */
+	public static void write(final Model theGraph, final Path theFile, final RDFFormat theFormat) throws IOException {
+		try (OutputStream aStream = Compression.isCompressed(theFile.getFileName().toString())
+		                            ? Compression.compress(Files.newOutputStream(theFile))
+		                            : Files.newOutputStream(theFile)) {
+			write(theGraph, aStream, theFormat);
+		}
+	}
+
+	/**
+	 * Write the contents of the Graph to the stream in the specified RDF format, formatting the RDF on a separate thread
+	 * from the one iterating over the graph.  See {@link AsyncRDFHandler}.
+	 *
+	 * @param theGraph  the graph to write
+	 * @param theStream the stream to write to
+	 * @param theFormat the RDF format to write in
+	 * @return			the number of statements and bytes written, and how long it took
+	 *
+	 * @throws IOException thrown if there is an error while writing
+	 */
+	public static TransferStats writePipelined(final Model theGraph, final OutputStream theStream, final RDFFormat theFormat) throws IOException {
+		final CountingOutputStream aCounter = new CountingOutputStream(theStream);
+
+		try (AsyncRDFHandler aHandler = new AsyncRDFHandler(newWriter(aCounter, theFormat))) {
+			write(theGraph, aHandler);
+
+			aCounter.flush();
+
+			return new TransferStats(aHandler.getStatementCount(), aCounter.getCount(), aHandler.getElapsed(TimeUnit.NANOSECONDS));
+		}
+	}
+
+	/**
+	 * Create a writer for the format which writes to the stream through a buffer.  Text formats are encoded in the
+	 * charset of the format, or UTF-8 if it does not specify one.  The writer flushes the buffer when it handles the end
+	 * of the RDF.
+	 *
+	 * @param theStream	the stream to write to
+	 * @param theFormat	the RDF format to write in
+	 * @return			the new writer
+	 */
+	public static RDFWriter newWriter(final OutputStream theStream, final RDFFormat theFormat) {
+		return theFormat.hasCharset()
+		       ? Rio.createWriter(theFormat, new BufferedWriter(new OutputStreamWriter(theStream, theFormat.getCharset()), BUFFER_SIZE))
+		       : Rio.createWriter(theFormat, new BufferedOutputStream(theStream, BUFFER_SIZE));
 	}
 
 	/**
@@ -207,6 +600,133 @@ public final class ModelIO {
 		write(theGraph, Rio.createWriter(theFormat, theWriter));
 	}
 
+	/**
+	 * Write the graph to the stream as canonical N-Quads: blank nodes are relabeled {@code _:c14n0}, {@code _:c14n1}, ...
+	 * from the structure of the graph alone and the lines are sorted, so isomorphic graphs are written as the same bytes,
+	 * suitable for hashing or signing.  Namespaces are not written.
+	 *
+	 * @param theGraph  the graph to write
+	 * @param theStream the stream to write to
+	 *
+	 * @throws IOException thrown if there is an error while writing
+	 */
+	public static void writeCanonical(final Model theGraph, final OutputStream theStream) throws IOException {
+		final Writer aWriter = new BufferedWriter(new OutputStreamWriter(theStream, Charsets.UTF_8), BUFFER_SIZE);
+
+		for (String aLine : Canonicalization.lines(theGraph)) {
+			aWriter.write(aLine);
+			aWriter.write('\n');
+		}
+
+		aWriter.flush();
+	}
+
+	/**
+	 * Write the graph to the file as canonical N-Quads, see {@link #writeCanonical(Model, OutputStream)}
+	 *
+	 * @param theGraph  the graph to write
+	 * @param theFile   the file to write to
+	 *
+	 * @throws IOException thrown if there is an error while writing
+	 */
+	public static void writeCanonical(final Model theGraph, final Path theFile) throws IOException {
+		try (OutputStream aStream = Files.newOutputStream(theFile)) {
+			writeCanonical(theGraph, aStream);
+		}
+	}
+
+	/**
+	 * Write the graph, and its namespaces, to the stream as an {@link RDFSnapshot RDF snapshot}, a compact binary format
+	 * meant for saving and restoring models quickly.
+	 *
+	 * @param theGraph  the graph to write
+	 * @param theStream the stream to write to
+	 *
+	 * @throws IOException thrown if there is an error while writing
+	 */
+	public static void writeBinary(final Model theGraph, final OutputStream theStream) throws IOException {
+		final RDFWriter aWriter = Rio.createWriter(RDFSnapshot.FORMAT, theStream);
+
+		try {
+			aWriter.startRDF();
+
+			for (Namespace aNamespace : theGraph.getNamespaces()) {
+				aWriter.handleNamespace(aNamespace.getPrefix(), aNamespace.getName());
+			}
+
+			for (Statement aStmt : theGraph) {
+				aWriter.handleStatement(aStmt);
+			}
+
+			aWriter.endRDF();
+		}
+		catch (RDFHandlerException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Write the graph, and its namespaces, to the file as an {@link RDFSnapshot RDF snapshot}
+	 *
+	 * @param theGraph  the graph to write
+	 * @param theFile   the file to write to
+	 *
+	 * @throws IOException thrown if there is an error while writing
+	 */
+	public static void writeBinary(final Model theGraph, final Path theFile) throws IOException {
+		try (OutputStream aStream = Files.newOutputStream(theFile)) {
+			writeBinary(theGraph, aStream);
+		}
+	}
+
+	/**
+	 * Read a graph, and its namespaces, from an {@link RDFSnapshot RDF snapshot}.  The stream is closed after reading.
+	 *
+	 * @param theInput	the stream to read from
+	 * @return			the graph
+	 *
+	 * @throws IOException			if there was an error reading from the stream
+	 * @throws RDFParseException	if the snapshot could not be parsed
+	 */
+	public static Model readBinary(final InputStream theInput) throws IOException, RDFParseException {
+		return readBinary(theInput, Models2.newModel());
+	}
+
+	/**
+	 * Read a graph, and its namespaces, from an {@link RDFSnapshot RDF snapshot} into the given model.  The stream is
+	 * closed after reading.
+	 *
+	 * @param theInput	the stream to read from
+	 * @param theModel	the model to add the statements and namespaces to
+	 * @return			the model
+	 *
+	 * @throws IOException			if there was an error reading from the stream
+	 * @throws RDFParseException	if the snapshot could not be parsed
+	 */
+	public static Model readBinary(final InputStream theInput, final Model theModel) throws IOException, RDFParseException {
+		read(new RDFHandlerWrapper(new ModelBuildingRDFHandler(theModel)) {
+			@Override
+			public void handleNamespace(final String thePrefix, final String theURI) throws RDFHandlerException {
+				theModel.setNamespace(thePrefix, theURI);
+			}
+		}, theInput, RDFSnapshot.FORMAT, DEFAULT_BASE_URI);
+
+		return theModel;
+	}
+
+	/**
+	 * Read a graph, and its namespaces, from a file containing an {@link RDFSnapshot RDF snapshot}
+	 *
+	 * @param theFile	the file to read from
+	 * @return			the graph
+	 *
+	 * @throws IOException			if there was an error reading from the file
+	 * @throws RDFParseException	if the snapshot could not be parsed
+	 */
+	public static Model readBinary(final Path theFile) throws IOException, RDFParseException {
+		return readBinary(MappedFile.newInputStream(theFile));
+	}
+
 	/**
 	 * Write the Graph to a String in the given format
 	 * @param theGraph	the graph to write
@@ -226,7 +746,7 @@ public final class ModelIO {
 		}
 	}
 
-	private static void write(final Model theGraph, final RDFWriter theWriter) throws IOException {
+	private static void write(final Model theGraph, final RDFHandler theWriter) throws IOException {
 		try {
 			theWriter.startRDF();
 
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.complexible.common.openrdf.util.HyperLogLog;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * <p>Statistics about the shape of a {@link Model}: its size, the number of statements for each predicate and in each
+ * context, and estimates of the number of distinct subjects and objects, overall and for each predicate.  Distinct
+ * counts are estimated with {@link HyperLogLog} sketches over 64 bit hashes of the values, which take a fixed amount
+ * of memory regardless of the size of the model, and are within a few percent of the actual counts.</p>
+ *
+ * <p>{@link #of(Model)} computes the statistics of a model in a single parallel pass.  To keep them up to date as the
+ * model changes, wrap the model in a {@link StatisticsModel}.  Sketches cannot forget elements, so after statements are
+ * removed the distinct counts are those of every statement which was in the model since the statistics were computed;
+ * the other counts are exact.</p>
+ *
+ * <p>This implementation is not thread-safe.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ModelStatistics {
+	/**
+	 * The precision of the sketches for each predicate, lower than for the whole model since there can be many predicates
+	 */
+	private static final int PREDICATE_PRECISION = 10;
+
+	private static final int PRECISION = 14;
+
+	private long mSize;
+
+	private final HyperLogLog mSubjects = new HyperLogLog(PRECISION);
+
+	private final HyperLogLog mObjects = new HyperLogLog(PRECISION);
+
+	private final Map<IRI, PredicateStatistics> mPredicates = new HashMap<>();
+
+	private final Map<Resource, Long> mContexts = new HashMap<>();
+
+	ModelStatistics() {
+	}
+
+	/**
+	 * Compute the statistics of the model
+	 *
+	 * @param theModel	the model
+	 * @return			its statistics
+	 */
+	public static ModelStatistics of(final Model theModel) {
+		return theModel.parallelStream().collect(ModelStatistics::new, ModelStatistics::add, ModelStatistics::merge);
+	}
+
+	/**
+	 * Return the number of statements in the model
+	 *
+	 * @return	the size
+	 */
+	public long size() {
+		return mSize;
+	}
+
+	/**
+	 * Return the estimated number of distinct subjects in the model
+	 *
+	 * @return	the number of subjects
+	 */
+	public long distinctSubjects() {
+		return mSubjects.estimate();
+	}
+
+	/**
+	 * Return the estimated number of distinct objects in the model
+	 *
+	 * @return	the number of objects
+	 */
+	public long distinctObjects() {
+		return mObjects.estimate();
+	}
+
+	/**
+	 * Return the number of distinct predicates in the model
+	 *
+	 * @return	the number of predicates
+	 */
+	public int distinctPredicates() {
+		return mPredicates.size();
+	}
+
+	/**
+	 * Return the number of statements with the predicate
+	 *
+	 * @param thePredicate	the predicate
+	 * @return				the number of statements
+	 */
+	public long count(final IRI thePredicate) {
+		final PredicateStatistics aStats = mPredicates.get(thePredicate);
+
+		return aStats == null ? 0 : aStats.mCount;
+	}
+
+	/**
+	 * Return the estimated number of distinct subjects of the statements with the predicate
+	 *
+	 * @param thePredicate	the predicate
+	 * @return				the number of subjects
+	 */
+	public long distinctSubjects(final IRI thePredicate) {
+		final PredicateStatistics aStats = mPredicates.get(thePredicate);
+
+		return aStats == null ? 0 : aStats.mSubjects.estimate();
+	}
+
+	/**
+	 * Return the estimated number of distinct objects of the statements with the predicate
+	 *
+	 * @param thePredicate	the predicate
+	 * @return				the number of objects
+	 */
+	public long distinctObjects(final IRI thePredicate) {
+		final PredicateStatistics aStats = mPredicates.get(thePredicate);
+
+		return aStats == null ? 0 : aStats.mObjects.estimate();
+	}
+
+	/**
+	 * Return the average number of statements per subject
+	 *
+	 * @return	the average out-degree
+	 */
+	public double averageOutDegree() {
+		return ratio(mSize, distinctSubjects());
+	}
+
+	/**
+	 * Return the average number of statements with the predicate per subject which has the predicate
+	 *
+	 * @param thePredicate	the predicate
+	 * @return				the average out-degree along the predicate
+	 */
+	public double averageOutDegree(final IRI thePredicate) {
+		return ratio(count(thePredicate), distinctSubjects(thePredicate));
+	}
+
+	/**
+	 * Return the number of statements for each predicate, the most used predicates first
+	 *
+	 * @return	the predicate histogram
+	 */
+	public Map<IRI, Long> getPredicateHistogram() {
+		final Map<IRI, Long> aHistogram = new LinkedHashMap<>();
+
+		mPredicates.entrySet().stream()
+		           .sorted((theFirst, theSecond) -> Long.compare(theSecond.getValue().mCount, theFirst.getValue().mCount))
+		           .forEach(theEntry -> aHistogram.put(theEntry.getKey(), theEntry.getValue().mCount));
+
+		return aHistogram;
+	}
+
+	/**
+	 * Return the number of statements in each context.  Statements in the default context are counted under the
+	 * {@code null} key.
+	 *
+	 * @return	the context sizes
+	 */
+	public Map<Resource, Long> getContextSizes() {
+		return Collections.unmodifiableMap(mContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format("ModelStatistics [size=%,d, subjects~%,d, predicates=%,d, objects~%,d, contexts=%,d]",
+		                     mSize, distinctSubjects(), distinctPredicates(), distinctObjects(), mContexts.size());
+	}
+
+	void add(final Statement theStatement) {
+		final long aSubject = hash(theStatement.getSubject());
+		final long aObject = hash(theStatement.getObject());
+
+		mSize++;
+		mSubjects.add(aSubject);
+		mObjects.add(aObject);
+
+		final PredicateStatistics aStats = mPredicates.computeIfAbsent(theStatement.getPredicate(), thePredicate -> new PredicateStatistics());
+		aStats.mCount++;
+		aStats.mSubjects.add(aSubject);
+		aStats.mObjects.add(aObject);
+
+		mContexts.merge(theStatement.getContext(), 1L, Long::sum);
+	}
+
+	void remove(final Statement theStatement) {
+		mSize--;
+
+		final PredicateStatistics aStats = mPredicates.get(theStatement.getPredicate());
+
+		if (aStats != null && --aStats.mCount == 0) {
+			mPredicates.remove(theStatement.getPredicate());
+		}
+
+		mContexts.computeIfPresent(theStatement.getContext(), (theContext, theCount) -> theCount == 1 ? null : theCount - 1);
+	}
+
+	void merge(final ModelStatistics theOther) {
+		mSize += theOther.mSize;
+		mSubjects.merge(theOther.mSubjects);
+		mObjects.merge(theOther.mObjects);
+
+		theOther.mPredicates.forEach((thePredicate, theStats) -> mPredicates.merge(thePredicate, theStats, PredicateStatistics::merge));
+		theOther.mContexts.forEach((theContext, theCount) -> mContexts.merge(theContext, theCount, Long::sum));
+	}
+
+	/**
+	 * Hash the value into 64 bits.  {@link Value#hashCode()} has only 32, so billions of distinct values would collide
+	 * often enough to skew the estimates; this hashes the characters of the value instead, without copying them.
+	 */
+	private static long hash(final Value theValue) {
+		long aHash = theValue instanceof IRI ? 1 : theValue instanceof Literal ? 2 : 3;
+
+		aHash = hash(aHash, theValue.stringValue(), false);
+
+		if (theValue instanceof Literal) {
+			final Literal aLiteral = (Literal) theValue;
+
+			aHash = hash(aHash, aLiteral.getDatatype().stringValue(), false);
+
+			if (aLiteral.getLanguage().isPresent()) {
+				aHash = hash(aHash, aLiteral.getLanguage().get(), true);
+			}
+		}
+
+		return Isomorphism.mix(aHash);
+	}
+
+	/**
+	 * Combine the hash with the characters of the string, FNV-1a style
+	 */
+	private static long hash(final long theHash, final String theString, final boolean theIgnoreCase) {
+		long aHash = (theHash ^ theString.length()) * 0x100000001B3L;
+
+		for (int i = 0; i < theString.length(); i++) {
+			final char aChar = theString.charAt(i);
+
+			aHash = (aHash ^ (theIgnoreCase ? Character.toLowerCase(aChar) : aChar)) * 0x100000001B3L;
+		}
+
+		return aHash;
+	}
+
+	private static double ratio(final long theCount, final long theTotal) {
+		return theTotal == 0 ? 0 : theCount / (double) theTotal;
+	}
+
+	private static final class PredicateStatistics {
+		private long mCount;
+
+		private final HyperLogLog mSubjects = new HyperLogLog(PREDICATE_PRECISION);
+
+		private final HyperLogLog mObjects = new HyperLogLog(PREDICATE_PRECISION);
+
+		private PredicateStatistics merge(final PredicateStatistics theOther) {
+			mCount += theOther.mCount;
+			mSubjects.merge(theOther.mSubjects);
+			mObjects.merge(theOther.mObjects);
+
+			return this;
+		}
+	}
+}
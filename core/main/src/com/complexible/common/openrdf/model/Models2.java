@@ -60,7 +60,12 @@ public final class Models2 {
 			@Override
 			public BinaryOperator<Model> combiner() {
 				return (theGraph, theOtherGraph) -> {
-					theGraph.addAll((Collection) theOtherGraph);
+					if (theGraph.size() < theOtherGraph.size()) {
+						theOtherGraph.addAll(theGraph);
+						return theOtherGraph;
+					}
+
+					theGraph.addAll(theOtherGraph);
 					return theGraph;
 				};
 			}
@@ -72,8 +77,40 @@ public final class Models2 {
 
 			@Override
 			public Set<Collector.Characteristics> characteristics() {
-				return (Set<java.util.stream.Collector.Characteristics>) Sets.newHashSet((java.util.stream.Collector.Characteristics[]) new Collector.Characteristics[]{
-						Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED});
+				return Sets.newHashSet(Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+			}
+		};
+	}
+
+	public static Collector<Statement, ShardedModel, Model> toConcurrentModel() {
+		return new Collector<Statement, ShardedModel, Model>() {
+
+			@Override
+			public Supplier<ShardedModel> supplier() {
+				return ShardedModel::new;
+			}
+
+			@Override
+			public BiConsumer<ShardedModel, Statement> accumulator() {
+				return ShardedModel::add;
+			}
+
+			@Override
+			public BinaryOperator<ShardedModel> combiner() {
+				return ShardedModel::merge;
+			}
+
+			@Override
+			public Function<ShardedModel, Model> finisher() {
+				return (theGraph) -> {
+					return theGraph;
+				};
+			}
+
+			@Override
+			public Set<Collector.Characteristics> characteristics() {
+				return Sets.newHashSet(Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED,
+				                       Collector.Characteristics.CONCURRENT);
 			}
 		};
 	}
@@ -86,6 +123,30 @@ public final class Models2 {
 		return new LinkedHashModel();
 	}
 
+	public static ConcurrentModel newConcurrentModel() {
+		return new ConcurrentModel();
+	}
+
+	public static PartitionedModel newPartitionedModel() {
+		return new PartitionedModel();
+	}
+
+	public static Model newCompactModel() {
+		return new CompactModel();
+	}
+
+	public static Model newCompactModel(ValueDictionary theDictionary) {
+		return new CompactModel(theDictionary);
+	}
+
+	public static Model freeze(Model theModel) {
+		return FrozenModel.of(theModel);
+	}
+
+	public static PersistentModel newPersistentModel() {
+		return new PersistentModel();
+	}
+
 	public static Model newModel(Iterable<Statement> theStmts) {
 		Model aModel = Models2.newModel();
 		Iterables.addAll((Collection) aModel, theStmts);
@@ -127,6 +188,14 @@ public final class Models2 {
 		return aModel;
 	}
 
+	public static boolean isomorphic(Model theFirst, Model theSecond) {
+		return Isomorphism.isomorphic(theFirst, theSecond);
+	}
+
+	public static ModelDiff diff(Model theFirst, Model theSecond) {
+		return Isomorphism.diff(theFirst, theSecond);
+	}
+
 	public static Optional<Value> getObject(Model theGraph, Resource theSubj, IRI thePred) {
 		Iterator aCollection = theGraph.filter(theSubj, thePred, null, new Resource[0]).objects().iterator();
 		if (aCollection.hasNext()) {
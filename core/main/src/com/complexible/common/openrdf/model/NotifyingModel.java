@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * <p>A {@link DelegatingModel} which reports every statement added to, or removed from, the underlying model to its
+ * subclass.  All of the ways of changing the model are funneled into adding or removing single statements: pattern
+ * removals, {@link #clear(Resource...)}, {@link #removeIf(Predicate)} and the like first collect the matching
+ * statements, removal through an {@link #iterator() iterator} is reported, and the views returned by
+ * {@link #filter(Resource, IRI, Value, Resource...) filter} report their changes through this model.  Only statements
+ * which actually changed the model are reported.</p>
+ *
+ * <p>Changes made directly to the underlying model, or through the {@link #subjects()} and similar value sets, are not
+ * seen.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+@SuppressWarnings("deprecation")
+public abstract class NotifyingModel extends DelegatingModel {
+	private static final long serialVersionUID = 7982125087630033984L;
+
+	public NotifyingModel(final Model theModel) {
+		super(theModel);
+	}
+
+	/**
+	 * Called after a statement was added to the model
+	 *
+	 * @param theStatement	the statement
+	 */
+	protected abstract void statementAdded(final Statement theStatement);
+
+	/**
+	 * Called after a statement was removed from the model
+	 *
+	 * @param theStatement	the statement
+	 */
+	protected abstract void statementRemoved(final Statement theStatement);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Statement theStatement) {
+		if (super.add(theStatement)) {
+			statementAdded(theStatement);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		if (theContexts == null || theContexts.length == 0) {
+			return add(SimpleValueFactory.getInstance().createStatement(theSubj, thePred, theObj));
+		}
+
+		boolean aChanged = false;
+
+		for (Resource aContext : theContexts) {
+			aChanged |= add(SimpleValueFactory.getInstance().createStatement(theSubj, thePred, theObj, aContext));
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Deprecated
+	public boolean add(final Resource theSubj, final org.eclipse.rdf4j.model.URI thePred, final Value theObj, final Resource... theContexts) {
+		return add(theSubj, (IRI) thePred, theObj, theContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean addAll(final Collection<? extends Statement> theStatements) {
+		boolean aChanged = false;
+
+		for (Statement aStmt : theStatements) {
+			aChanged |= add(aStmt);
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Object theObj) {
+		if (theObj instanceof Statement && super.remove(theObj)) {
+			statementRemoved((Statement) theObj);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return removeAll(new ArrayList<>(super.filter(theSubj, thePred, theObj, theContexts)));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Deprecated
+	public boolean remove(final Resource theSubj, final org.eclipse.rdf4j.model.URI thePred, final Value theObj, final Resource... theContexts) {
+		return remove(theSubj, (IRI) thePred, theObj, theContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removeAll(final Collection<?> theObjects) {
+		boolean aChanged = false;
+
+		for (Object aObj : theObjects) {
+			aChanged |= remove(aObj);
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removeIf(final Predicate<? super Statement> theFilter) {
+		final List<Statement> aRemoved = new ArrayList<>();
+
+		for (Statement aStmt : this) {
+			if (theFilter.test(aStmt)) {
+				aRemoved.add(aStmt);
+			}
+		}
+
+		return removeAll(aRemoved);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean retainAll(final Collection<?> theObjects) {
+		return removeIf(theStmt -> !theObjects.contains(theStmt));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		removeAll(new ArrayList<>(this));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean clear(final Resource... theContexts) {
+		return remove(null, null, null, theContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		final Iterator<Statement> aIter = super.iterator();
+
+		return new Iterator<Statement>() {
+			private Statement mLast;
+
+			@Override
+			public boolean hasNext() {
+				return aIter.hasNext();
+			}
+
+			@Override
+			public Statement next() {
+				mLast = aIter.next();
+				return mLast;
+			}
+
+			@Override
+			public void remove() {
+				aIter.remove();
+				statementRemoved(mLast);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return new NotifyingModel(super.filter(theSubj, thePred, theObj, theContexts)) {
+			private static final long serialVersionUID = 731539215560820345L;
+
+			@Override
+			protected void statementAdded(final Statement theStatement) {
+				NotifyingModel.this.statementAdded(theStatement);
+			}
+
+			@Override
+			protected void statementRemoved(final Statement theStatement) {
+				NotifyingModel.this.statementRemoved(theStatement);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Deprecated
+	public Model filter(final Resource theSubj, final org.eclipse.rdf4j.model.URI thePred, final Value theObj, final Resource... theContexts) {
+		return filter(theSubj, (IRI) thePred, theObj, theContexts);
+	}
+}
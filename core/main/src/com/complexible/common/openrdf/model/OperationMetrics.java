@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A snapshot of the metrics of one {@link MeteredModel.Operation operation} of a {@link MeteredModel}: the number of
+ * calls, their latencies, and the number of statements or values the calls returned or were given.  Latencies are kept
+ * in a histogram of power of two buckets, bucket {@code i} counting the calls which took less than {@code 2^i}
+ * nanoseconds but not less than {@code 2^(i-1)}, so percentiles are accurate to within a factor of two.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class OperationMetrics {
+	private final MeteredModel.Operation mOperation;
+
+	private final long mCount;
+
+	private final long mTotalNanos;
+
+	private final long mMaxNanos;
+
+	private final long mResultSize;
+
+	private final long[] mHistogram;
+
+	OperationMetrics(final MeteredModel.Operation theOperation, final long theCount, final long theTotalNanos,
+	                 final long theMaxNanos, final long theResultSize, final long[] theHistogram) {
+		mOperation = theOperation;
+		mCount = theCount;
+		mTotalNanos = theTotalNanos;
+		mMaxNanos = theMaxNanos;
+		mResultSize = theResultSize;
+		mHistogram = theHistogram;
+	}
+
+	/**
+	 * Return the operation
+	 *
+	 * @return	the operation
+	 */
+	public MeteredModel.Operation getOperation() {
+		return mOperation;
+	}
+
+	/**
+	 * Return the number of calls
+	 *
+	 * @return	the number of calls
+	 */
+	public long getCount() {
+		return mCount;
+	}
+
+	/**
+	 * Return the time spent in the calls
+	 *
+	 * @param theUnit	the unit of the time
+	 * @return			the total time
+	 */
+	public long getTotalTime(final TimeUnit theUnit) {
+		return theUnit.convert(mTotalNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Return the mean time of a call, in nanoseconds
+	 *
+	 * @return	the mean time, or 0 if there were no calls
+	 */
+	public double getMeanTime() {
+		return mCount == 0 ? 0 : mTotalNanos / (double) mCount;
+	}
+
+	/**
+	 * Return the longest time a call took
+	 *
+	 * @param theUnit	the unit of the time
+	 * @return			the longest time
+	 */
+	public long getMaxTime(final TimeUnit theUnit) {
+		return theUnit.convert(mMaxNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Return the time, in nanoseconds, which the given fraction of the calls took at most, rounded up to the next power
+	 * of two
+	 *
+	 * @param thePercentile	the fraction of calls, between 0 and 1
+	 * @return				the time
+	 */
+	public long getPercentile(final double thePercentile) {
+		final long aRank = (long) Math.ceil(thePercentile * mCount);
+
+		long aSeen = 0;
+
+		for (int i = 0; i < mHistogram.length; i++) {
+			aSeen += mHistogram[i];
+
+			if (aSeen >= aRank && aSeen > 0) {
+				return Math.min(1L << i, mMaxNanos);
+			}
+		}
+
+		return mMaxNanos;
+	}
+
+	/**
+	 * Return the latency histogram, see the class documentation for the buckets
+	 *
+	 * @return	the number of calls in each bucket
+	 */
+	public long[] getHistogram() {
+		return mHistogram.clone();
+	}
+
+	/**
+	 * Return the total number of statements or values returned by, or given to, the calls.  For iteration, this counts
+	 * the statements of iterators which were iterated to the end.
+	 *
+	 * @return	the total result size
+	 */
+	public long getResultSize() {
+		return mResultSize;
+	}
+
+	/**
+	 * Return the mean number of statements or values returned by, or given to, a call
+	 *
+	 * @return	the mean result size, or 0 if there were no calls
+	 */
+	public double getMeanResultSize() {
+		return mCount == 0 ? 0 : mResultSize / (double) mCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s [count=%d, mean=%.0fns, p50=%dns, p99=%dns, max=%dns, results=%d]", mOperation, mCount,
+		                     getMeanTime(), getPercentile(0.5), getPercentile(0.99), mMaxNanos, mResultSize);
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+/**
+ * <p>The management interface of the metrics of one {@link MeteredModel.Operation operation} of a {@link MeteredModel},
+ * as registered by {@link MeteredModel#registerMBeans(String)}.  Times are in nanoseconds; percentiles are the upper
+ * bound of the power of two bucket the percentile falls in.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public interface OperationMetricsMXBean {
+	String getOperation();
+
+	long getCount();
+
+	long getTotalTime();
+
+	double getMeanTime();
+
+	long getMaxTime();
+
+	long getMedianTime();
+
+	long get99thPercentileTime();
+
+	long getResultSize();
+
+	double getMeanResultSize();
+
+	/**
+	 * Reset the metrics of the operation
+	 */
+	void reset();
+}
@@ -0,0 +1,752 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Iterators;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.AbstractModel;
+import org.eclipse.rdf4j.model.impl.FilteredModel;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.SESAME;
+import org.eclipse.rdf4j.query.Dataset;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>A {@link Model} which keeps the statements of each context in a separate partition, a model of its own.  Operations
+ * which name their contexts only visit the partitions of those contexts, so dropping a whole graph with
+ * {@link #clear(Resource...) clear(context)} discards its partition rather than removing its statements one by one,
+ * {@link #contexts()} is a view of the partitions, and {@link #filter(Resource, IRI, Value, Resource...) filtering} by
+ * context never looks at the statements of other contexts.  Streams of the model, or of its filters, split along the
+ * partitions so that {@link #parallelStream() parallel streams} process different graphs on different threads.</p>
+ *
+ * <p>A {@link Dataset}, such as an {@link com.complexible.common.openrdf.query.ImmutableDataset}, can be served from the
+ * model as a {@link #view(Dataset) view} over the partitions of its graphs.</p>
+ *
+ * <p>Partitions are never left empty; the partition of a context is created when its first statement is added and
+ * dropped with its last.  Like {@link LinkedHashModel}, this model is not thread-safe.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ *
+ * @see Models2#newPartitionedModel()
+ */
+public final class PartitionedModel extends AbstractModel {
+	private static final long serialVersionUID = 2519804512316240381L;
+
+	private static final Resource[] NULL_CTX = new Resource[] { null };
+
+	private static final Supplier<Model> DEFAULT_PARTITION = (Supplier<Model> & Serializable) LinkedHashModel::new;
+
+	private final Supplier<Model> mFactory;
+
+	/**
+	 * The partitions by context, the default context being the {@code null} key
+	 */
+	private final Map<Resource, Model> mPartitions = new LinkedHashMap<>();
+
+	private final Set<Namespace> mNamespaces = new LinkedHashSet<>();
+
+	private int mSize = 0;
+
+	/**
+	 * Create a new PartitionedModel whose partitions are {@link LinkedHashModel LinkedHashModels}
+	 */
+	public PartitionedModel() {
+		this(DEFAULT_PARTITION);
+	}
+
+	/**
+	 * Create a new PartitionedModel
+	 *
+	 * @param theFactory	the factory for the model of a new partition, it must return a new, empty, model each time it
+	 *                      is called.  The model is only serializable if the factory and the partitions are.
+	 */
+	public PartitionedModel(final Supplier<Model> theFactory) {
+		mFactory = checkNotNull(theFactory);
+	}
+
+	/**
+	 * Return the number of partitions, which is the number of distinct contexts in the model
+	 *
+	 * @return	the number of partitions
+	 */
+	public int getPartitionCount() {
+		return mPartitions.size();
+	}
+
+	/**
+	 * Return a read-only view of the dataset over the partitions of its graphs.  As in a SPARQL dataset, the default
+	 * graphs are merged into a single default graph: their statements are reported in the default, {@code null}, context
+	 * and a triple in several of them is reported once.  The statements of the named graphs keep their context.  The
+	 * {@link SESAME#NIL} graph stands for the default context of the model.  A dataset with no graphs is an empty view.
+	 *
+	 * @param theDataset	the dataset
+	 * @return				the view of its graphs
+	 */
+	public Model view(final Dataset theDataset) {
+		final Resource[] aDefaults = contexts(theDataset.getDefaultGraphs());
+		final Resource[] aNamed = contexts(theDataset.getNamedGraphs());
+
+		return new DatasetView(aDefaults.length == 0 ? null : ContextModel.of(filter(null, null, null, aDefaults), null),
+		                       aNamed.length == 0 ? null : filter(null, null, null, aNamed),
+		                       Collections.unmodifiableSet(mNamespaces));
+	}
+
+	private static Resource[] contexts(final Set<IRI> theGraphs) {
+		return theGraphs.stream()
+		                .map(theGraph -> SESAME.NIL.equals(theGraph) ? null : theGraph)
+		                .distinct()
+		                .toArray(Resource[]::new);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Namespace> getNamespaces() {
+		return mNamespaces;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setNamespace(final Namespace theNamespace) {
+		removeNamespace(theNamespace.getPrefix());
+		mNamespaces.add(theNamespace);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> removeNamespace(final String thePrefix) {
+		final Optional<Namespace> aNamespace = getNamespace(thePrefix);
+		aNamespace.ifPresent(mNamespaces::remove);
+		return aNamespace;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Statement theStmt) {
+		Objects.requireNonNull(theStmt);
+
+		final Model aPartition = mPartitions.computeIfAbsent(theStmt.getContext(), theContext -> mFactory.get());
+
+		if (aPartition.add(theStmt)) {
+			mSize++;
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		if (theContexts == null || theContexts.length == 0) {
+			return add(SimpleValueFactory.getInstance().createStatement(theSubj, thePred, theObj));
+		}
+
+		boolean aChanged = false;
+
+		for (Resource aContext : theContexts) {
+			aChanged |= add(SimpleValueFactory.getInstance().createStatement(theSubj, thePred, theObj, aContext));
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		if (!(theObj instanceof Statement)) {
+			return false;
+		}
+
+		final Model aPartition = mPartitions.get(((Statement) theObj).getContext());
+
+		return aPartition != null && aPartition.contains(theObj);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		for (Resource aContext : selected(theContexts)) {
+			if (mPartitions.get(aContext).contains(theSubj, thePred, theObj)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Object theObj) {
+		if (!(theObj instanceof Statement)) {
+			return false;
+		}
+
+		final Resource aContext = ((Statement) theObj).getContext();
+		final Model aPartition = mPartitions.get(aContext);
+
+		if (aPartition == null || !aPartition.remove(theObj)) {
+			return false;
+		}
+
+		mSize--;
+		dropIfEmpty(aContext, aPartition);
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		boolean aChanged = false;
+
+		for (Resource aContext : selected(theContexts)) {
+			final Model aPartition = mPartitions.get(aContext);
+
+			if (theSubj == null && thePred == null && theObj == null) {
+				// the whole graph is going, drop the partition rather than emptying it
+				mPartitions.remove(aContext);
+				mSize -= aPartition.size();
+				aChanged = true;
+			}
+			else {
+				final int aSize = aPartition.size();
+
+				if (aPartition.remove(theSubj, thePred, theObj)) {
+					mSize -= aSize - aPartition.size();
+					aChanged = true;
+
+					dropIfEmpty(aContext, aPartition);
+				}
+			}
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * Remove all the statements in the given contexts.  Each context is dropped as a whole, in constant time, no matter
+	 * the number of statements in it.
+	 *
+	 * @param theContexts	the contexts to clear, all of them when none are given
+	 * @return				true if the model changed
+	 */
+	@Override
+	public boolean clear(final Resource... theContexts) {
+		return remove(null, null, null, theContexts);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		mPartitions.clear();
+		mSize = 0;
+	}
+
+	/**
+	 * Return the contexts of the model, a view of its partitions.  Removing a context removes all of its statements.
+	 *
+	 * @return	the contexts
+	 */
+	@Override
+	public Set<Resource> contexts() {
+		return new AbstractSet<Resource>() {
+			@Override
+			public int size() {
+				return mPartitions.size();
+			}
+
+			@Override
+			public boolean contains(final Object theObj) {
+				return (theObj == null || theObj instanceof Resource) && mPartitions.containsKey(theObj);
+			}
+
+			@Override
+			public boolean remove(final Object theObj) {
+				return contains(theObj) && PartitionedModel.this.clear((Resource) theObj);
+			}
+
+			@Override
+			public Iterator<Resource> iterator() {
+				final Iterator<Map.Entry<Resource, Model>> aIter = mPartitions.entrySet().iterator();
+
+				return new Iterator<Resource>() {
+					private Map.Entry<Resource, Model> mLast;
+
+					@Override
+					public boolean hasNext() {
+						return aIter.hasNext();
+					}
+
+					@Override
+					public Resource next() {
+						mLast = aIter.next();
+						return mLast.getKey();
+					}
+
+					@Override
+					public void remove() {
+						if (mLast == null) {
+							throw new IllegalStateException();
+						}
+
+						aIter.remove();
+						mSize -= mLast.getValue().size();
+						mLast = null;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		return new PartitionIterator(null, null, null, selected(new Resource[0]));
+	}
+
+	/**
+	 * Return a spliterator over the statements of the model which splits along its partitions, and then, when only one
+	 * partition is left, as the spliterator of that partition does.  It covers the partitions of the model at the time
+	 * it is created.
+	 *
+	 * @return	the spliterator
+	 */
+	@Override
+	public Spliterator<Statement> spliterator() {
+		return new PartitionSpliterator(null, null, null, partitions(new Resource[0]));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return new FilteredModel(this, theSubj, thePred, theObj, theContexts) {
+			private static final long serialVersionUID = -6061848418740437386L;
+
+			@Override
+			public int size() {
+				if (subj == null && pred == null && obj == null) {
+					return partitions(contexts).stream().mapToInt(Model::size).sum();
+				}
+
+				return super.size();
+			}
+
+			@Override
+			public Iterator<Statement> iterator() {
+				return new PartitionIterator(subj, pred, obj, selected(contexts));
+			}
+
+			@Override
+			public Spliterator<Statement> spliterator() {
+				return new PartitionSpliterator(subj, pred, obj, partitions(contexts));
+			}
+
+			@Override
+			protected void removeFilteredTermIteration(final Iterator<Statement> theIter, final Resource theSubj,
+			                                           final IRI thePred, final Value theObj, final Resource... theContexts) {
+				PartitionedModel.this.removeTermIteration(theIter, theSubj, thePred, theObj, theContexts);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeTermIteration(final Iterator<Statement> theIter, final Resource theSubj, final IRI thePred,
+	                                final Value theObj, final Resource... theContexts) {
+		remove(theSubj, thePred, theObj, theContexts);
+	}
+
+	private void dropIfEmpty(final Resource theContext, final Model thePartition) {
+		if (thePartition.isEmpty()) {
+			mPartitions.remove(theContext);
+		}
+	}
+
+	/**
+	 * Return the contexts of the partitions selected by the contexts of a pattern, every partition when no contexts are
+	 * given.  The list is a copy, so the model can be changed while going through it.
+	 */
+	private List<Resource> selected(final Resource[] theContexts) {
+		final Resource[] aContexts = theContexts == null ? NULL_CTX : theContexts;
+
+		if (aContexts.length == 0) {
+			return new ArrayList<>(mPartitions.keySet());
+		}
+
+		return Arrays.stream(aContexts)
+		             .distinct()
+		             .filter(mPartitions::containsKey)
+		             .collect(Collectors.toList());
+	}
+
+	private List<Model> partitions(final Resource[] theContexts) {
+		return selected(theContexts).stream()
+		                            .map(mPartitions::get)
+		                            .collect(Collectors.toList());
+	}
+
+	/**
+	 * The view of a dataset: the merged default graph, a {@link ContextModel} in the default context, followed by the
+	 * named graphs, a filter of the model by their contexts.  Either part is {@code null} when the dataset has no such
+	 * graphs.
+	 */
+	private static final class DatasetView extends AbstractModel {
+		private static final long serialVersionUID = -4390851186236577921L;
+
+		private final Model mDefault;
+
+		private final Model mNamed;
+
+		private final Set<Namespace> mNamespaces;
+
+		DatasetView(final Model theDefault, final Model theNamed, final Set<Namespace> theNamespaces) {
+			mDefault = theDefault;
+			mNamed = theNamed;
+			mNamespaces = theNamespaces;
+		}
+
+		@Override
+		public int size() {
+			return (mDefault == null ? 0 : mDefault.size()) + (mNamed == null ? 0 : mNamed.size());
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return (mDefault == null || mDefault.isEmpty()) && (mNamed == null || mNamed.isEmpty());
+		}
+
+		@Override
+		public Iterator<Statement> iterator() {
+			return Iterators.unmodifiableIterator(Iterators.concat(mDefault == null ? Collections.<Statement>emptyIterator() : mDefault.iterator(),
+			                                                       mNamed == null ? Collections.<Statement>emptyIterator() : mNamed.iterator()));
+		}
+
+		@Override
+		public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+			return (mDefault != null && hasDefault(theContexts) && mDefault.contains(theSubj, thePred, theObj))
+			       || (mNamed != null && mNamed.contains(theSubj, thePred, theObj, theContexts));
+		}
+
+		@Override
+		public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+			return new DatasetView(mDefault != null && hasDefault(theContexts) ? mDefault.filter(theSubj, thePred, theObj) : null,
+			                       mNamed == null ? null : mNamed.filter(theSubj, thePred, theObj, theContexts),
+			                       mNamespaces);
+		}
+
+		@Override
+		public Set<Namespace> getNamespaces() {
+			return mNamespaces;
+		}
+
+		@Override
+		public void setNamespace(final Namespace theNamespace) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Optional<Namespace> removeNamespace(final String thePrefix) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void removeTermIteration(final Iterator<Statement> theIter, final Resource theSubj, final IRI thePred,
+		                                final Value theObj, final Resource... theContexts) {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Return whether the contexts of a pattern select the default context
+		 */
+		private static boolean hasDefault(final Resource[] theContexts) {
+			return theContexts == null || theContexts.length == 0 || Arrays.asList(theContexts).contains(null);
+		}
+	}
+
+	/**
+	 * Iterator over the statements of a list of partitions which match a pattern.  Removing through the iterator removes
+	 * the statement from the model.
+	 */
+	private final class PartitionIterator implements Iterator<Statement> {
+		private final Resource mSubj;
+
+		private final IRI mPred;
+
+		private final Value mObj;
+
+		private final List<Resource> mContexts;
+
+		private int mNext = 0;
+
+		private Iterator<Statement> mCurrent = Collections.emptyIterator();
+
+		private Resource mContext;
+
+		private Model mPartition;
+
+		private Iterator<Statement> mLastIter;
+
+		private Resource mLastContext;
+
+		private Model mLastPartition;
+
+		PartitionIterator(final Resource theSubj, final IRI thePred, final Value theObj, final List<Resource> theContexts) {
+			mSubj = theSubj;
+			mPred = thePred;
+			mObj = theObj;
+			mContexts = theContexts;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!mCurrent.hasNext() && mNext < mContexts.size()) {
+				mContext = mContexts.get(mNext++);
+				mPartition = mPartitions.get(mContext);
+
+				if (mPartition == null) {
+					mCurrent = Collections.emptyIterator();
+				}
+				else if (mSubj == null && mPred == null && mObj == null) {
+					mCurrent = mPartition.iterator();
+				}
+				else {
+					mCurrent = mPartition.filter(mSubj, mPred, mObj).iterator();
+				}
+			}
+
+			return mCurrent.hasNext();
+		}
+
+		@Override
+		public Statement next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			mLastIter = mCurrent;
+			mLastContext = mContext;
+			mLastPartition = mPartition;
+
+			return mCurrent.next();
+		}
+
+		@Override
+		public void remove() {
+			if (mLastIter == null) {
+				throw new IllegalStateException();
+			}
+
+			mLastIter.remove();
+
+			// the partition might have been dropped, by clearing its context, since the statement was returned
+			if (mPartitions.get(mLastContext) == mLastPartition) {
+				mSize--;
+				dropIfEmpty(mLastContext, mLastPartition);
+			}
+
+			mLastIter = null;
+		}
+	}
+
+	/**
+	 * Spliterator over the statements of a list of partitions which match a pattern.  It splits by handing half of its
+	 * remaining partitions to the new spliterator, and once it is down to a single partition, by splitting the spliterator
+	 * of that partition.  The statements of different partitions are in different contexts, so they are distinct.
+	 */
+	private static final class PartitionSpliterator implements Spliterator<Statement> {
+		private final Resource mSubj;
+
+		private final IRI mPred;
+
+		private final Value mObj;
+
+		private final List<Model> mPartitions;
+
+		private int mFrom;
+
+		private final int mTo;
+
+		private Spliterator<Statement> mCurrent;
+
+		PartitionSpliterator(final Resource theSubj, final IRI thePred, final Value theObj, final List<Model> thePartitions) {
+			this(theSubj, thePred, theObj, thePartitions, 0, thePartitions.size());
+		}
+
+		private PartitionSpliterator(final Resource theSubj, final IRI thePred, final Value theObj,
+		                             final List<Model> thePartitions, final int theFrom, final int theTo) {
+			mSubj = theSubj;
+			mPred = thePred;
+			mObj = theObj;
+			mPartitions = thePartitions;
+			mFrom = theFrom;
+			mTo = theTo;
+		}
+
+		@Override
+		public boolean tryAdvance(final Consumer<? super Statement> theAction) {
+			while (true) {
+				if (mCurrent == null) {
+					if (mFrom == mTo) {
+						return false;
+					}
+
+					mCurrent = open(mPartitions.get(mFrom++));
+				}
+
+				if (mCurrent.tryAdvance(theAction)) {
+					return true;
+				}
+
+				mCurrent = null;
+			}
+		}
+
+		@Override
+		public void forEachRemaining(final Consumer<? super Statement> theAction) {
+			if (mCurrent != null) {
+				mCurrent.forEachRemaining(theAction);
+				mCurrent = null;
+			}
+
+			while (mFrom < mTo) {
+				open(mPartitions.get(mFrom++)).forEachRemaining(theAction);
+			}
+		}
+
+		@Override
+		public Spliterator<Statement> trySplit() {
+			if (mCurrent == null && mTo - mFrom > 1) {
+				final int aMid = (mFrom + mTo) >>> 1;
+				final Spliterator<Statement> aPrefix = new PartitionSpliterator(mSubj, mPred, mObj, mPartitions, mFrom, aMid);
+
+				mFrom = aMid;
+
+				return aPrefix;
+			}
+			else if (mCurrent == null && mFrom < mTo) {
+				mCurrent = open(mPartitions.get(mFrom++));
+			}
+			else if (mCurrent != null && mFrom < mTo) {
+				// hand over the partitions not yet started, and keep working on the current one
+				final Spliterator<Statement> aRest = new PartitionSpliterator(mSubj, mPred, mObj, mPartitions, mFrom, mTo);
+
+				mFrom = mTo;
+
+				return aRest;
+			}
+
+			return mCurrent == null ? null : mCurrent.trySplit();
+		}
+
+		/**
+		 * The number of statements in the remaining partitions, which is exact only when the pattern matches every
+		 * statement
+		 */
+		@Override
+		public long estimateSize() {
+			long aSize = mCurrent == null ? 0 : mCurrent.estimateSize();
+
+			for (int i = mFrom; i < mTo; i++) {
+				aSize += mPartitions.get(i).size();
+			}
+
+			return aSize;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.DISTINCT | Spliterator.NONNULL;
+		}
+
+		private Spliterator<Statement> open(final Model thePartition) {
+			return mSubj == null && mPred == null && mObj == null
+			       ? thePartition.spliterator()
+			       : thePartition.filter(mSubj, mPred, mObj).spliterator();
+		}
+	}
+}
@@ -0,0 +1,519 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import com.google.common.collect.Iterators;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.AbstractModel;
+import org.eclipse.rdf4j.model.impl.FilteredModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * <p>A thread-safe {@link Model} built from persistent hash tries which share structure between versions.  The
+ * statements, an index of them by subject, predicate, object and context, and the namespaces make up an immutable
+ * state; a change builds a new state by copying only the trie nodes on the path to the changed entries, so it costs
+ * {@code O(log n)}, and installs it with a compare-and-set.  Readers never lock and never block writers: an iterator,
+ * {@link #filter(Resource, IRI, Value, Resource...) filter} iteration or {@code contains} check works on the state
+ * current when it started, and does not see, nor fail on, later changes.</p>
+ *
+ * <p>Because states are never modified, {@link #snapshot()} is {@code O(1)}: it returns a new model starting from the
+ * current state, which can then be read, or changed, independently of this one.  This suits models shared between
+ * request threads and a writer refreshing them, in place of locking or copying the whole model, and it composes with
+ * the wrappers of this package, for instance a {@link ConstrainedModel} or other {@link DelegatingModel} over a
+ * persistent model.</p>
+ *
+ * <p>A pattern with a bound subject, predicate or object is answered from the smallest of the matching index entries,
+ * a pattern with only contexts bound from the entries of those contexts.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ *
+ * @see Models2#newPersistentModel()
+ */
+public final class PersistentModel extends AbstractModel {
+	private static final long serialVersionUID = 6270591853329487012L;
+
+	private static final Resource[] NULL_CTX = new Resource[] { null };
+
+	private static final Resource[] ANY_CTX = new Resource[0];
+
+	private final transient AtomicReference<State> mState;
+
+	/**
+	 * Create a new, empty, PersistentModel
+	 */
+	public PersistentModel() {
+		this(State.EMPTY);
+	}
+
+	private PersistentModel(final State theState) {
+		mState = new AtomicReference<>(theState);
+	}
+
+	/**
+	 * Create a persistent model with the statements and namespaces of the model
+	 *
+	 * @param theModel	the model to copy
+	 * @return			the persistent model
+	 */
+	public static PersistentModel of(final Model theModel) {
+		if (theModel instanceof PersistentModel) {
+			return ((PersistentModel) theModel).snapshot();
+		}
+
+		State aState = State.EMPTY;
+
+		for (Namespace aNamespace : theModel.getNamespaces()) {
+			aState = aState.withNamespace(aNamespace.getPrefix(), aNamespace);
+		}
+
+		for (Statement aStmt : theModel) {
+			aState = aState.add(aStmt);
+		}
+
+		return new PersistentModel(aState);
+	}
+
+	/**
+	 * Return a model with the current statements and namespaces of this one, in constant time.  Changes to either model
+	 * are not seen by the other.
+	 *
+	 * @return	the snapshot
+	 */
+	public PersistentModel snapshot() {
+		return new PersistentModel(mState.get());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Namespace> getNamespaces() {
+		final Set<Namespace> aNamespaces = new LinkedHashSet<>();
+
+		Iterators.addAll(aNamespaces, mState.get().mNamespaces.values());
+
+		return Collections.unmodifiableSet(aNamespaces);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> getNamespace(final String thePrefix) {
+		return Optional.ofNullable(mState.get().mNamespaces.get(thePrefix));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setNamespace(final Namespace theNamespace) {
+		update(theState -> theState.withNamespace(theNamespace.getPrefix(), theNamespace));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> removeNamespace(final String thePrefix) {
+		final State aState = update(theState -> theState.withNamespace(thePrefix, null));
+
+		return aState == null ? Optional.empty() : Optional.ofNullable(aState.mNamespaces.get(thePrefix));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return mState.get().mStatements.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Statement theStmt) {
+		Objects.requireNonNull(theStmt);
+
+		return update(theState -> theState.add(theStmt)) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final Resource[] aContexts = theContexts == null || theContexts.length == 0 ? NULL_CTX : theContexts;
+
+		return update(theState -> {
+			State aState = theState;
+
+			for (Resource aContext : aContexts) {
+				aState = aState.add(SimpleValueFactory.getInstance().createStatement(theSubj, thePred, theObj, aContext));
+			}
+
+			return aState;
+		}) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		return mState.get().mStatements.containsKey(theObj);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return mState.get().match(theSubj, thePred, theObj, theContexts).hasNext();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Object theObj) {
+		return theObj instanceof Statement && update(theState -> theState.remove((Statement) theObj)) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return update(theState -> {
+			State aState = theState;
+
+			for (Iterator<Statement> aIter = theState.match(theSubj, thePred, theObj, theContexts); aIter.hasNext(); ) {
+				aState = aState.remove(aIter.next());
+			}
+
+			return aState;
+		}) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		update(theState -> theState.mStatements.isEmpty()
+		                   ? theState
+		                   : new State(State.EMPTY.mStatements, State.EMPTY.mIndex, theState.mNamespaces));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		return matchPattern(null, null, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return new FilteredModel(this, theSubj, thePred, theObj, theContexts) {
+			private static final long serialVersionUID = -5370870418932425466L;
+
+			@Override
+			public Iterator<Statement> iterator() {
+				return PersistentModel.this.matchPattern(subj, pred, obj, contexts);
+			}
+
+			@Override
+			protected void removeFilteredTermIteration(final Iterator<Statement> theIter, final Resource theSubj,
+			                                           final IRI thePred, final Value theObj, final Resource... theContexts) {
+				PersistentModel.this.removeTermIteration(theIter, theSubj, thePred, theObj, theContexts);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeTermIteration(final Iterator<Statement> theIter, final Resource theSubj, final IRI thePred,
+	                                final Value theObj, final Resource... theContexts) {
+		remove(theSubj, thePred, theObj, theContexts);
+	}
+
+	/**
+	 * Return an iterator over the statements matching the pattern in the current state.  Removing through the iterator
+	 * removes the statement from the model.
+	 */
+	private Iterator<Statement> matchPattern(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final Iterator<Statement> aIter = mState.get().match(theSubj, thePred, theObj, theContexts);
+
+		return new Iterator<Statement>() {
+			private Statement mLast;
+
+			@Override
+			public boolean hasNext() {
+				return aIter.hasNext();
+			}
+
+			@Override
+			public Statement next() {
+				mLast = aIter.next();
+				return mLast;
+			}
+
+			@Override
+			public void remove() {
+				if (mLast == null) {
+					throw new IllegalStateException();
+				}
+
+				PersistentModel.this.remove(mLast);
+				mLast = null;
+			}
+		};
+	}
+
+	/**
+	 * Apply the change to the current state until it is installed without a concurrent change getting in first
+	 *
+	 * @return	the state replaced, or null if the change left the state as it was
+	 */
+	private State update(final UnaryOperator<State> theChange) {
+		while (true) {
+			final State aCurrent = mState.get();
+			final State aNext = theChange.apply(aCurrent);
+
+			if (aNext == aCurrent) {
+				return null;
+			}
+			else if (mState.compareAndSet(aCurrent, aNext)) {
+				return aCurrent;
+			}
+		}
+	}
+
+	private Object writeReplace() {
+		return new SerializedForm(this);
+	}
+
+	/**
+	 * The serialized form of the model: its namespaces and statements
+	 */
+	private static final class SerializedForm implements Serializable {
+		private static final long serialVersionUID = -4409312546151327915L;
+
+		private final Namespace[] mNamespaces;
+
+		private final Statement[] mStatements;
+
+		SerializedForm(final PersistentModel theModel) {
+			final State aState = theModel.mState.get();
+
+			mNamespaces = Iterators.toArray(aState.mNamespaces.values(), Namespace.class);
+			mStatements = Iterators.toArray(aState.mStatements.values(), Statement.class);
+		}
+
+		private Object readResolve() {
+			State aState = State.EMPTY;
+
+			for (Namespace aNamespace : mNamespaces) {
+				aState = aState.withNamespace(aNamespace.getPrefix(), aNamespace);
+			}
+
+			for (Statement aStmt : mStatements) {
+				aState = aState.add(aStmt);
+			}
+
+			return new PersistentModel(aState);
+		}
+	}
+
+	/**
+	 * An immutable version of the model
+	 */
+	private static final class State {
+		private static final State EMPTY = new State(Hamt.empty(), new Index[] { Index.EMPTY, Index.EMPTY, Index.EMPTY, Index.EMPTY },
+		                                             Hamt.empty());
+
+		private final Hamt<Statement, Statement> mStatements;
+
+		/**
+		 * The statements by subject, predicate, object and context
+		 */
+		private final Index[] mIndex;
+
+		private final Hamt<String, Namespace> mNamespaces;
+
+		State(final Hamt<Statement, Statement> theStatements, final Index[] theIndex, final Hamt<String, Namespace> theNamespaces) {
+			mStatements = theStatements;
+			mIndex = theIndex;
+			mNamespaces = theNamespaces;
+		}
+
+		State add(final Statement theStmt) {
+			if (mStatements.containsKey(theStmt)) {
+				return this;
+			}
+
+			final Index[] aIndex = new Index[4];
+
+			aIndex[0] = mIndex[0].add(theStmt.getSubject(), theStmt);
+			aIndex[1] = mIndex[1].add(theStmt.getPredicate(), theStmt);
+			aIndex[2] = mIndex[2].add(theStmt.getObject(), theStmt);
+			aIndex[3] = mIndex[3].add(theStmt.getContext(), theStmt);
+
+			return new State(mStatements.put(theStmt, theStmt), aIndex, mNamespaces);
+		}
+
+		State remove(final Statement theStmt) {
+			// use the stored statement, the index is keyed by the values of its own statements
+			final Statement aStmt = mStatements.get(theStmt);
+
+			if (aStmt == null) {
+				return this;
+			}
+
+			final Index[] aIndex = new Index[4];
+
+			aIndex[0] = mIndex[0].remove(aStmt.getSubject(), aStmt);
+			aIndex[1] = mIndex[1].remove(aStmt.getPredicate(), aStmt);
+			aIndex[2] = mIndex[2].remove(aStmt.getObject(), aStmt);
+			aIndex[3] = mIndex[3].remove(aStmt.getContext(), aStmt);
+
+			return new State(mStatements.remove(aStmt), aIndex, mNamespaces);
+		}
+
+		State withNamespace(final String thePrefix, final Namespace theNamespace) {
+			final Hamt<String, Namespace> aNamespaces = theNamespace == null
+			                                            ? mNamespaces.remove(thePrefix)
+			                                            : mNamespaces.put(thePrefix, theNamespace);
+
+			return aNamespaces == mNamespaces ? this : new State(mStatements, mIndex, aNamespaces);
+		}
+
+		Iterator<Statement> match(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+			final Resource[] aContexts = theContexts == null ? NULL_CTX : theContexts;
+
+			Hamt<Statement, Statement> aCandidates = mStatements;
+
+			final Value[] aBound = { theSubj, thePred, theObj };
+
+			for (int i = 0; i < aBound.length; i++) {
+				if (aBound[i] != null) {
+					final Hamt<Statement, Statement> aEntry = mIndex[i].get(aBound[i]);
+
+					if (aEntry.size() < aCandidates.size()) {
+						aCandidates = aEntry;
+					}
+				}
+			}
+
+			if (aCandidates.isEmpty()) {
+				return Collections.emptyIterator();
+			}
+			else if (aContexts.length == 0) {
+				return aCandidates == mStatements && theSubj == null && thePred == null && theObj == null
+				       ? aCandidates.values()
+				       : Iterators.filter(aCandidates.values(), theStmt -> matches(theStmt, theSubj, thePred, theObj, aContexts));
+			}
+			else if (aCandidates == mStatements) {
+				// only contexts are bound, or every bound value is in every statement; go through the contexts
+				final Iterator<Iterator<Statement>> aIters = Arrays.stream(aContexts)
+				                                                   .distinct()
+				                                                   .map(theContext -> mIndex[3].get(theContext).values())
+				                                                   .iterator();
+
+				return Iterators.filter(Iterators.concat(aIters),
+				                        theStmt -> matches(theStmt, theSubj, thePred, theObj, ANY_CTX));
+			}
+
+			return Iterators.filter(aCandidates.values(), theStmt -> matches(theStmt, theSubj, thePred, theObj, aContexts));
+		}
+
+		private static boolean matches(final Statement theStmt, final Resource theSubj, final IRI thePred,
+		                               final Value theObj, final Resource[] theContexts) {
+			if ((theSubj != null && !theSubj.equals(theStmt.getSubject()))
+			    || (thePred != null && !thePred.equals(theStmt.getPredicate()))
+			    || (theObj != null && !theObj.equals(theStmt.getObject()))) {
+				return false;
+			}
+
+			if (theContexts.length == 0) {
+				return true;
+			}
+
+			for (Resource aContext : theContexts) {
+				if (Objects.equals(aContext, theStmt.getContext())) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * A persistent index of the statements by the value in one position
+	 */
+	private static final class Index {
+		private static final Index EMPTY = new Index(Hamt.empty());
+
+		private final Hamt<Value, Hamt<Statement, Statement>> mEntries;
+
+		private Index(final Hamt<Value, Hamt<Statement, Statement>> theEntries) {
+			mEntries = theEntries;
+		}
+
+		Hamt<Statement, Statement> get(final Value theValue) {
+			final Hamt<Statement, Statement> aEntry = mEntries.get(theValue);
+
+			return aEntry == null ? Hamt.empty() : aEntry;
+		}
+
+		Index add(final Value theValue, final Statement theStmt) {
+			return new Index(mEntries.put(theValue, get(theValue).put(theStmt, theStmt)));
+		}
+
+		Index remove(final Value theValue, final Statement theStmt) {
+			final Hamt<Statement, Statement> aEntry = get(theValue).remove(theStmt);
+
+			return new Index(aEntry.isEmpty() ? mEntries.remove(theValue) : mEntries.put(theValue, aEntry));
+		}
+	}
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.AbstractModel;
+import org.eclipse.rdf4j.model.impl.FilteredModel;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * <p>A thread-safe {@link Model} which spreads its statements over a number of shards by statement hash code.  Each shard
+ * is an ordinary {@link LinkedHashModel} guarded by its own lock, so threads adding different statements rarely contend
+ * with each other.  This makes it a suitable target for {@link Models2#toConcurrentModel() concurrent collection} from a
+ * parallel stream.</p>
+ *
+ * <p>Operations on a single statement touch only the shard the statement hashes to; pattern operations visit each shard
+ * in turn.  Iterators are weakly consistent: each shard is copied as the iteration reaches it, so an iterator never
+ * throws {@link java.util.ConcurrentModificationException} but may or may not see modifications made after it was
+ * created.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ShardedModel extends AbstractModel {
+	private static final long serialVersionUID = -1807045525346111327L;
+
+	private static final Resource[] NULL_CTX = new Resource[] { null };
+
+	/**
+	 * Taken before the shard locks of two models whose identity hash codes are equal, so that they cannot be locked in
+	 * opposite orders
+	 */
+	private static final Object TIE_LOCK = new Object();
+
+	private final Object[] mLocks;
+
+	/**
+	 * The shards; a shard is guarded by the lock with the same index
+	 */
+	private final Model[] mShards;
+
+	private final Set<Namespace> mNamespaces = Collections.synchronizedSet(new LinkedHashSet<>());
+
+	/**
+	 * Create a new ShardedModel with a number of shards based on the number of available processors
+	 */
+	public ShardedModel() {
+		this(Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	/**
+	 * Create a new ShardedModel
+	 *
+	 * @param theShards	the minimum number of shards, this is rounded up to the next power of two
+	 */
+	public ShardedModel(final int theShards) {
+		int aShards = 1;
+		while (aShards < Math.max(theShards, 1)) {
+			aShards <<= 1;
+		}
+
+		mLocks = new Object[aShards];
+		mShards = new Model[aShards];
+
+		for (int i = 0; i < aShards; i++) {
+			mLocks[i] = new Object();
+			mShards[i] = new LinkedHashModel();
+		}
+	}
+
+	/**
+	 * Move the contents of the other model into this one, shard by shard.  Of each pair of corresponding shards, the
+	 * larger one is kept and the statements of the smaller one are added to it, so an empty shard costs nothing and only
+	 * the statements of the smaller shard are hashed and indexed again.  The other model must not be used after it has
+	 * been merged.  The shard locks of the two models are always taken in the same order, whichever model is merged
+	 * into which, so concurrent merges cannot deadlock.
+	 *
+	 * <p>This is the combiner of {@link Models2#toConcurrentModel()}, but as that collector is concurrent, a parallel
+	 * stream accumulates into a single model and never calls it; it is only used when the stream does not support
+	 * concurrent collection, or when merging models built separately.</p>
+	 *
+	 * @param theOther	the model to merge into this one
+	 * @return			this model
+	 */
+	public ShardedModel merge(final ShardedModel theOther) {
+		if (theOther == this) {
+			return this;
+		}
+		else if (theOther.mShards.length != mShards.length) {
+			addAll(theOther);
+			return this;
+		}
+
+		final int aMine = System.identityHashCode(this);
+		final int aTheirs = System.identityHashCode(theOther);
+
+		if (aMine == aTheirs) {
+			synchronized (TIE_LOCK) {
+				mergeShards(theOther, true);
+			}
+		}
+		else {
+			mergeShards(theOther, aMine < aTheirs);
+		}
+
+		mNamespaces.addAll(theOther.getNamespaces());
+
+		return this;
+	}
+
+	/**
+	 * Merge each shard of the other model into the corresponding one of this model, holding the locks of both shards,
+	 * the lock of this model's shard first or second as given
+	 */
+	private void mergeShards(final ShardedModel theOther, final boolean theMineFirst) {
+		for (int i = 0; i < mShards.length; i++) {
+			synchronized (theMineFirst ? mLocks[i] : theOther.mLocks[i]) {
+				synchronized (theMineFirst ? theOther.mLocks[i] : mLocks[i]) {
+					final Model aMine = mShards[i];
+					final Model aTheirs = theOther.mShards[i];
+
+					if (aMine.size() >= aTheirs.size()) {
+						aMine.addAll(aTheirs);
+					}
+					else {
+						aTheirs.addAll(aMine);
+						mShards[i] = aTheirs;
+					}
+
+					theOther.mShards[i] = new LinkedHashModel();
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Namespace> getNamespaces() {
+		return mNamespaces;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setNamespace(final Namespace theNamespace) {
+		synchronized (mNamespaces) {
+			removeNamespace(theNamespace.getPrefix());
+			mNamespaces.add(theNamespace);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> removeNamespace(final String thePrefix) {
+		synchronized (mNamespaces) {
+			final Optional<Namespace> aNamespace = getNamespace(thePrefix);
+			aNamespace.ifPresent(mNamespaces::remove);
+			return aNamespace;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		int aSize = 0;
+
+		for (int i = 0; i < mShards.length; i++) {
+			synchronized (mLocks[i]) {
+				aSize += mShards[i].size();
+			}
+		}
+
+		return aSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Statement theStmt) {
+		final int aShard = shard(theStmt);
+
+		synchronized (mLocks[aShard]) {
+			return mShards[aShard].add(theStmt);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		boolean aChanged = false;
+
+		for (Resource aContext : theContexts == null || theContexts.length == 0 ? NULL_CTX : theContexts) {
+			aChanged |= add(aContext == null
+			                ? SimpleValueFactory.getInstance().createStatement(theSubj, thePred, theObj)
+			                : SimpleValueFactory.getInstance().createStatement(theSubj, thePred, theObj, aContext));
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		if (!(theObj instanceof Statement)) {
+			return false;
+		}
+
+		final int aShard = shard((Statement) theObj);
+
+		synchronized (mLocks[aShard]) {
+			return mShards[aShard].contains(theObj);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		for (int i = 0; i < mShards.length; i++) {
+			synchronized (mLocks[i]) {
+				if (mShards[i].contains(theSubj, thePred, theObj, theContexts)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Object theObj) {
+		if (!(theObj instanceof Statement)) {
+			return false;
+		}
+
+		final int aShard = shard((Statement) theObj);
+
+		synchronized (mLocks[aShard]) {
+			return mShards[aShard].remove(theObj);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		boolean aChanged = false;
+
+		for (int i = 0; i < mShards.length; i++) {
+			synchronized (mLocks[i]) {
+				aChanged |= mShards[i].remove(theSubj, thePred, theObj, theContexts);
+			}
+		}
+
+		return aChanged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		for (int i = 0; i < mShards.length; i++) {
+			synchronized (mLocks[i]) {
+				mShards[i].clear();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		return new ShardIterator(null, null, null, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		return new FilteredModel(this, theSubj, thePred, theObj, theContexts) {
+			private static final long serialVersionUID = -2411985102573213645L;
+
+			@Override
+			public Iterator<Statement> iterator() {
+				return new ShardIterator(subj, pred, obj, contexts);
+			}
+
+			@Override
+			protected void removeFilteredTermIteration(final Iterator<Statement> theIter, final Resource theSubj,
+			                                           final IRI thePred, final Value theObj, final Resource... theContexts) {
+				ShardedModel.this.removeTermIteration(theIter, theSubj, thePred, theObj, theContexts);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeTermIteration(final Iterator<Statement> theIter, final Resource theSubj, final IRI thePred,
+	                                final Value theObj, final Resource... theContexts) {
+		remove(theSubj, thePred, theObj, theContexts);
+	}
+
+	private int shard(final Statement theStmt) {
+		return ValueDictionary.mix(theStmt.hashCode()) & (mShards.length - 1);
+	}
+
+	/**
+	 * Weakly consistent iterator which copies the matching statements of each shard as it gets to it
+	 */
+	private final class ShardIterator implements Iterator<Statement> {
+		private final Resource mSubj;
+
+		private final IRI mPred;
+
+		private final Value mObj;
+
+		private final Resource[] mContexts;
+
+		private int mShard = 0;
+
+		private Statement[] mCurrent = new Statement[0];
+
+		private int mIndex = 0;
+
+		private Statement mLast;
+
+		ShardIterator(final Resource theSubj, final IRI thePred, final Value theObj, final Resource[] theContexts) {
+			mSubj = theSubj;
+			mPred = thePred;
+			mObj = theObj;
+			mContexts = theContexts;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (mIndex == mCurrent.length && mShard < mShards.length) {
+				synchronized (mLocks[mShard]) {
+					final Model aShard = mShards[mShard];
+
+					mCurrent = mSubj == null && mPred == null && mObj == null && (mContexts == null || mContexts.length == 0)
+					           ? aShard.toArray(new Statement[0])
+					           : aShard.filter(mSubj, mPred, mObj, mContexts).toArray(new Statement[0]);
+				}
+
+				mIndex = 0;
+				mShard++;
+			}
+
+			return mIndex < mCurrent.length;
+		}
+
+		@Override
+		public Statement next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			mLast = mCurrent[mIndex++];
+			return mLast;
+		}
+
+		@Override
+		public void remove() {
+			if (mLast == null) {
+				throw new IllegalStateException();
+			}
+
+			ShardedModel.this.remove(mLast);
+			mLast = null;
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * <p>Routes statements to the targets whose patterns they match.  A pattern has the same meaning as with
+ * {@link Statements#matches(Resource, IRI, Value, Resource...)}: a null subject, predicate or object matches anything,
+ * as does an empty or null array of contexts, while a null context in the array matches the default context.</p>
+ *
+ * <p>Rather than testing every statement against every pattern, patterns are indexed by the positions they bind: all
+ * the patterns binding, say, the predicate and the object are in one hash table keyed by predicate and object.  Routing a
+ * statement is a lookup per combination of bound positions in use, of which there are at most sixteen, so its cost does
+ * not grow with the number of patterns.</p>
+ *
+ * <p>A router is immutable once {@link Builder#build() built} and can be used from several threads at once.  A
+ * statement is routed to a target once for each of its patterns the statement matches, in no particular order.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class StatementRouter<T> {
+	private static final int SUBJECT = 0;
+
+	private static final int PREDICATE = 1;
+
+	private static final int OBJECT = 2;
+
+	private static final int CONTEXT = 3;
+
+	private final List<Index<T>> mIndexes;
+
+	private final int mSize;
+
+	private StatementRouter(final List<Index<T>> theIndexes, final int theSize) {
+		mIndexes = theIndexes;
+		mSize = theSize;
+	}
+
+	/**
+	 * Create a new builder for a router
+	 *
+	 * @return	the builder
+	 */
+	public static <T> Builder<T> builder() {
+		return new Builder<>();
+	}
+
+	/**
+	 * Return the number of patterns in the router
+	 *
+	 * @return	the number of patterns
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * Pass the targets of the patterns the statement matches to the consumer
+	 *
+	 * @param theStatement	the statement to route
+	 * @param theConsumer	the consumer of the targets
+	 */
+	public void route(final Statement theStatement, final Consumer<? super T> theConsumer) {
+		for (Index<T> aIndex : mIndexes) {
+			for (T aTarget : aIndex.get(theStatement)) {
+				theConsumer.accept(aTarget);
+			}
+		}
+	}
+
+	/**
+	 * Return the targets of the patterns the statement matches
+	 *
+	 * @param theStatement	the statement
+	 * @return				the targets, empty if it matches no pattern
+	 */
+	public List<T> targets(final Statement theStatement) {
+		final List<T> aTargets = new ArrayList<>();
+
+		route(theStatement, aTargets::add);
+
+		return aTargets;
+	}
+
+	/**
+	 * Return whether the statement matches any of the patterns
+	 *
+	 * @param theStatement	the statement
+	 * @return				true if it matches a pattern, false otherwise
+	 */
+	public boolean matchesAny(final Statement theStatement) {
+		for (Index<T> aIndex : mIndexes) {
+			if (!aIndex.get(theStatement).isEmpty()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static Object part(final Statement theStatement, final int thePosition) {
+		switch (thePosition) {
+			case SUBJECT:
+				return theStatement.getSubject();
+			case PREDICATE:
+				return theStatement.getPredicate();
+			case OBJECT:
+				return theStatement.getObject();
+			default:
+				return theStatement.getContext();
+		}
+	}
+
+	/**
+	 * The patterns which bind a given combination of positions, in nested hash tables keyed by the value of each bound
+	 * position in turn.  The tables for the context position use null as the key of the default context.
+	 */
+	private static final class Index<T> {
+		private final int[] mPositions;
+
+		private final Map<Object, Object> mRoot = new HashMap<>();
+
+		private final List<T> mUnbound = new ArrayList<>();
+
+		Index(final int[] thePositions) {
+			mPositions = thePositions;
+		}
+
+		@SuppressWarnings("unchecked")
+		void put(final Object[] theKey, final T theTarget) {
+			if (mPositions.length == 0) {
+				mUnbound.add(theTarget);
+				return;
+			}
+
+			Map<Object, Object> aMap = mRoot;
+
+			for (int i = 0; i < mPositions.length - 1; i++) {
+				aMap = (Map<Object, Object>) aMap.computeIfAbsent(theKey[mPositions[i]], theValue -> new HashMap<>());
+			}
+
+			((List<T>) aMap.computeIfAbsent(theKey[mPositions[mPositions.length - 1]], theValue -> new ArrayList<>())).add(theTarget);
+		}
+
+		@SuppressWarnings("unchecked")
+		List<T> get(final Statement theStatement) {
+			if (mPositions.length == 0) {
+				return mUnbound;
+			}
+
+			Object aNode = mRoot;
+
+			for (int aPosition : mPositions) {
+				aNode = ((Map<Object, Object>) aNode).get(part(theStatement, aPosition));
+
+				if (aNode == null) {
+					return Collections.emptyList();
+				}
+			}
+
+			return (List<T>) aNode;
+		}
+	}
+
+	/**
+	 * <p>Builder for a {@link StatementRouter}.</p>
+	 */
+	public static final class Builder<T> {
+		@SuppressWarnings("unchecked")
+		private final Index<T>[] mIndexes = (Index<T>[]) new Index<?>[1 << 4];
+
+		private int mSize = 0;
+
+		private Builder() {
+		}
+
+		/**
+		 * Route the statements matching the pattern to the target
+		 *
+		 * @param theTarget		the target
+		 * @param theSubject	the subject of the pattern, or null for any subject
+		 * @param thePredicate	the predicate of the pattern, or null for any predicate
+		 * @param theObject		the object of the pattern, or null for any object
+		 * @param theContexts	the contexts of the pattern; a null context is the default context, no contexts any context
+		 * @return				this builder
+		 */
+		public Builder<T> add(final T theTarget, final Resource theSubject, final IRI thePredicate, final Value theObject,
+		                      final Resource... theContexts) {
+			final Object[] aKey = { theSubject, thePredicate, theObject, null };
+
+			int aMask = (theSubject != null ? 1 << SUBJECT : 0)
+			            | (thePredicate != null ? 1 << PREDICATE : 0)
+			            | (theObject != null ? 1 << OBJECT : 0);
+
+			if (theContexts == null || theContexts.length == 0) {
+				index(aMask).put(aKey, theTarget);
+			}
+			else {
+				aMask |= 1 << CONTEXT;
+
+				// duplicate contexts would route a statement to the target more than once for a single pattern
+				final Set<Resource> aContexts = new LinkedHashSet<>(Arrays.asList(theContexts));
+
+				for (Resource aContext : aContexts) {
+					aKey[CONTEXT] = aContext;
+					index(aMask).put(aKey, theTarget);
+				}
+			}
+
+			mSize++;
+
+			return this;
+		}
+
+		/**
+		 * Create the router from the patterns added so far
+		 *
+		 * @return	the router
+		 */
+		public StatementRouter<T> build() {
+			final List<Index<T>> aIndexes = new ArrayList<>();
+
+			for (Index<T> aIndex : mIndexes) {
+				if (aIndex != null) {
+					aIndexes.add(aIndex);
+				}
+			}
+
+			final StatementRouter<T> aRouter = new StatementRouter<>(aIndexes, mSize);
+
+			// the router shares the indexes, start over so that later additions do not change it
+			Arrays.fill(mIndexes, null);
+			mSize = 0;
+
+			return aRouter;
+		}
+
+		private Index<T> index(final int theMask) {
+			if (mIndexes[theMask] == null) {
+				final int[] aPositions = new int[Integer.bitCount(theMask)];
+
+				for (int aPosition = 0, i = 0; aPosition < 4; aPosition++) {
+					if ((theMask & (1 << aPosition)) != 0) {
+						aPositions[i++] = aPosition;
+					}
+				}
+
+				mIndexes[theMask] = new Index<>(aPositions);
+			}
+
+			return mIndexes[theMask];
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.common.io.Closeables;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+/**
+ * <p>The statements of a parse, iterated while the parse is still running.  The parser runs on a thread of its own,
+ * started by the first call to {@link #hasNext()}, and passes the statements over in batches through a bounded queue.
+ * When the consumer falls behind, the parser blocks, so memory use does not depend on the size of the input.</p>
+ *
+ * <p>{@link #close() Closing} the iteration stops the parser: its next statement fails the parse, which releases its
+ * input.  An optional input is also closed directly, which stops a parser blocked waiting on it.  An error raised by the
+ * parse is thrown from {@code hasNext}; {@link IOException IOExceptions} are wrapped in an
+ * {@link UncheckedIOException}.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+final class StatementStream implements Iterator<Statement>, AutoCloseable {
+	private static final int BATCH_SIZE = 1024;
+
+	private static final int QUEUE_SIZE = 16;
+
+	private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+	/**
+	 * Marker for the end of the statements
+	 */
+	private static final List<Statement> END = Collections.emptyList();
+
+	private final Source mSource;
+
+	private final Closeable mInput;
+
+	private final BlockingQueue<List<Statement>> mQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+	private Thread mThread;
+
+	private Iterator<Statement> mBatch = Collections.emptyIterator();
+
+	private boolean mDone;
+
+	private volatile boolean mClosed;
+
+	private volatile Throwable mFailure;
+
+	private StatementStream(final Source theSource, final Closeable theInput) {
+		mSource = theSource;
+		mInput = theInput;
+	}
+
+	/**
+	 * Return a sequential stream over the statements parsed by the source.  Closing the stream stops the parse.
+	 *
+	 * @param theSource	the parse to run
+	 * @param theInput	the input of the parse, to close along with the stream, or null
+	 * @return			the statements
+	 */
+	static Stream<Statement> of(final Source theSource, final Closeable theInput) {
+		final StatementStream aStatements = new StatementStream(theSource, theInput);
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(aStatements, Spliterator.ORDERED | Spliterator.NONNULL), false)
+		                    .onClose(aStatements::close);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasNext() {
+		while (!mBatch.hasNext()) {
+			if (mDone) {
+				return false;
+			}
+
+			if (mThread == null) {
+				start();
+			}
+
+			final List<Statement> aBatch = take();
+
+			if (aBatch == END) {
+				mDone = true;
+				checkFailure();
+			}
+
+			mBatch = aBatch.iterator();
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Statement next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		return mBatch.next();
+	}
+
+	/**
+	 * Stop the parse and discard the statements not yet iterated over
+	 */
+	@Override
+	public void close() {
+		if (mClosed) {
+			return;
+		}
+
+		mClosed = true;
+		mDone = true;
+		mBatch = Collections.emptyIterator();
+
+		// don't leave the parser waiting on a full queue
+		mQueue.clear();
+
+		try {
+			Closeables.close(mInput, true);
+		}
+		catch (IOException e) {
+			// swallowed by Closeables
+		}
+	}
+
+	private void start() {
+		mThread = new Thread(this::produce, "statement-stream-" + THREAD_ID.incrementAndGet());
+		mThread.setDaemon(true);
+		mThread.start();
+	}
+
+	private List<Statement> take() {
+		try {
+			return mQueue.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for statements"));
+		}
+	}
+
+	private void checkFailure() {
+		final Throwable aFailure = mFailure;
+
+		if (aFailure instanceof IOException) {
+			throw new UncheckedIOException((IOException) aFailure);
+		}
+		else if (aFailure instanceof RuntimeException) {
+			throw (RuntimeException) aFailure;
+		}
+		else if (aFailure instanceof Error) {
+			throw (Error) aFailure;
+		}
+	}
+
+	private void produce() {
+		final RDFHandler aHandler = new AbstractRDFHandler() {
+			private List<Statement> mStatements = new ArrayList<>(BATCH_SIZE);
+
+			@Override
+			public void handleStatement(final Statement theStatement) throws RDFHandlerException {
+				mStatements.add(theStatement);
+
+				if (mStatements.size() >= BATCH_SIZE) {
+					send(mStatements);
+					mStatements = new ArrayList<>(BATCH_SIZE);
+				}
+			}
+
+			@Override
+			public void endRDF() throws RDFHandlerException {
+				send(mStatements);
+				mStatements = null;
+			}
+		};
+
+		try {
+			mSource.parse(aHandler);
+		}
+		catch (Throwable e) {
+			if (!mClosed) {
+				mFailure = e;
+			}
+		}
+		finally {
+			try {
+				send(END);
+			}
+			catch (RDFHandlerException e) {
+				// closed, there is no one left to tell
+			}
+		}
+	}
+
+	private void send(final List<Statement> theBatch) throws RDFHandlerException {
+		try {
+			while (!mQueue.offer(theBatch, 100, TimeUnit.MILLISECONDS)) {
+				if (mClosed) {
+					throw new RDFHandlerException("The stream was closed");
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RDFHandlerException(e);
+		}
+
+		if (mClosed) {
+			throw new RDFHandlerException("The stream was closed");
+		}
+	}
+
+	/**
+	 * A parse which passes its results to a handler
+	 */
+	interface Source {
+		void parse(final RDFHandler theHandler) throws IOException, RDFParseException;
+	}
+}
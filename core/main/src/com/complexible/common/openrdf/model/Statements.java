@@ -11,9 +11,6 @@ import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
-import org.eclipse.rdf4j.model.util.Literals;
-import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
-import org.eclipse.rdf4j.rio.turtle.TurtleUtil;
 
 public final class Statements {
 	private Statements() {
@@ -136,49 +133,6 @@ public final class Statements {
 	}
 
 	public static boolean isLiteralValid(Literal theLiteral) {
-		String aTypeName;
-		if (Literals.isLanguageLiteral(theLiteral)) {
-			aTypeName = (String) theLiteral.getLanguage().get();
-			if (!TurtleUtil.isLanguageStartChar(aTypeName.charAt(0))) {
-				return false;
-			}
-
-			for (int e = 1; e < aTypeName.length(); ++e) {
-				if (!TurtleUtil.isLanguageChar(aTypeName.charAt(e))) {
-					return false;
-				}
-			}
-		}
-
-		if (theLiteral.getDatatype() != null
-				&& theLiteral.getDatatype().getNamespace().equals("http://www.w3.org/2001/XMLSchema#")) {
-			aTypeName = theLiteral.getDatatype().getLocalName();
-
-			try {
-				if (aTypeName.equals(XMLSchema.DATETIME.getLocalName())) {
-					theLiteral.calendarValue();
-				} else if (aTypeName.equals(XMLSchema.INT.getLocalName())) {
-					theLiteral.intValue();
-				} else if (aTypeName.equals(XMLSchema.FLOAT.getLocalName())) {
-					theLiteral.floatValue();
-				} else if (aTypeName.equals(XMLSchema.LONG.getLocalName())) {
-					theLiteral.longValue();
-				} else if (aTypeName.equals(XMLSchema.DOUBLE.getLocalName())) {
-					theLiteral.doubleValue();
-				} else if (aTypeName.equals(XMLSchema.SHORT.getLocalName())) {
-					theLiteral.shortValue();
-				} else if (aTypeName.equals(XMLSchema.BOOLEAN.getLocalName())) {
-					theLiteral.booleanValue();
-				} else if (aTypeName.equals(XMLSchema.BYTE.getLocalName())) {
-					theLiteral.byteValue();
-				} else if (aTypeName.equals(XMLSchema.DECIMAL.getLocalName())) {
-					theLiteral.decimalValue();
-				}
-			} catch (Exception arg2) {
-				return false;
-			}
-		}
-
-		return true;
+		return LiteralValidator.isValid(theLiteral);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+
+/**
+ * <p>A {@link Model} which keeps the {@link ModelStatistics statistics} of the model it wraps up to date as statements are
+ * added and removed through it.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class StatisticsModel extends NotifyingModel {
+	private static final long serialVersionUID = -2498031848503368893L;
+
+	private ModelStatistics mStatistics;
+
+	private StatisticsModel(final Model theModel) {
+		super(theModel);
+
+		mStatistics = ModelStatistics.of(theModel);
+	}
+
+	/**
+	 * Wrap the model, computing its current statistics
+	 *
+	 * @param theModel	the model
+	 * @return			the wrapped model
+	 */
+	public static StatisticsModel of(final Model theModel) {
+		return new StatisticsModel(theModel);
+	}
+
+	/**
+	 * Return the statistics of the model.  The statistics are live, they change as the model does.
+	 *
+	 * @return	the statistics
+	 */
+	public ModelStatistics getStatistics() {
+		return mStatistics;
+	}
+
+	/**
+	 * Compute the statistics from scratch, which brings the distinct counts back down after statements were removed.  The
+	 * statistics previously returned by {@link #getStatistics()} are no longer updated.
+	 */
+	public void refresh() {
+		mStatistics = ModelStatistics.of(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void statementAdded(final Statement theStatement) {
+		mStatistics.add(theStatement);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void statementRemoved(final Statement theStatement) {
+		mStatistics.remove(theStatement);
+	}
+}
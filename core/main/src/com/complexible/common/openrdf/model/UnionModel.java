@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.AbstractModel;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>A read-only view of the union of several {@link Model models}.  Unlike {@link Models2#union(Model...)}, which copies
+ * every statement into a new model, nothing is copied: {@link #filter filtering}, {@link #contains containment},
+ * iteration and the {@link #subjects() subject}, {@link #predicates() predicate}, {@link #objects() object} and
+ * {@link #contexts() context} views are all answered lazily from the underlying models.</p>
+ *
+ * <p>Duplicates are removed on the fly; a statement, or term, is only reported by the first model which contains it,
+ * which is checked by asking the models before it.  So the cost of iteration, and of {@link #size()} which has to
+ * iterate, grows with the number of models in the union, but no memory proportional to the size of the models is
+ * allocated.  Changes to the underlying models are visible through the view, which cannot itself be modified.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class UnionModel extends AbstractModel {
+	private static final long serialVersionUID = 8023377215962370157L;
+
+	private final Model[] mModels;
+
+	private UnionModel(final Model[] theModels) {
+		mModels = theModels;
+	}
+
+	/**
+	 * Create a view of the union of the given models
+	 *
+	 * @param theModels	the models
+	 * @return			the union
+	 */
+	public static UnionModel of(final Model... theModels) {
+		for (Model aModel : theModels) {
+			checkNotNull(aModel);
+		}
+
+		return new UnionModel(theModels.clone());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		if (mModels.length == 1) {
+			return mModels[0].size();
+		}
+
+		int aSize = 0;
+
+		for (Iterator<Statement> aIter = iterator(); aIter.hasNext(); aIter.next()) {
+			aSize++;
+		}
+
+		return aSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		for (Model aModel : mModels) {
+			if (!aModel.isEmpty()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Statement> iterator() {
+		return new UnionIterator<>(Model::iterator, Model::contains);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Object theObj) {
+		for (Model aModel : mModels) {
+			if (aModel.contains(theObj)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		for (Model aModel : mModels) {
+			if (aModel.contains(theSubj, thePred, theObj, theContexts)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Model filter(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		final Model[] aFiltered = new Model[mModels.length];
+
+		for (int i = 0; i < mModels.length; i++) {
+			aFiltered[i] = mModels[i].filter(theSubj, thePred, theObj, theContexts);
+		}
+
+		return new UnionModel(aFiltered);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Resource> subjects() {
+		return new UnionValueSet<>(Model::subjects, (theModel, theSubj) -> theModel.contains(theSubj, null, null));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<IRI> predicates() {
+		return new UnionValueSet<>(Model::predicates, (theModel, thePred) -> theModel.contains(null, thePred, null));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Value> objects() {
+		return new UnionValueSet<>(Model::objects, (theModel, theObj) -> theModel.contains(null, null, theObj));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Resource> contexts() {
+		return new UnionValueSet<>(Model::contexts, (theModel, theContext) -> theModel.contains(null, null, null, theContext));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The namespaces of all the models; where several models bind the same prefix, the first one wins.</p>
+	 */
+	@Override
+	public Set<Namespace> getNamespaces() {
+		final Set<String> aPrefixes = new LinkedHashSet<>();
+		final Set<Namespace> aNamespaces = new LinkedHashSet<>();
+
+		for (Model aModel : mModels) {
+			for (Namespace aNamespace : aModel.getNamespaces()) {
+				if (aPrefixes.add(aNamespace.getPrefix())) {
+					aNamespaces.add(aNamespace);
+				}
+			}
+		}
+
+		return aNamespaces;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Optional<Namespace> getNamespace(final String thePrefix) {
+		for (Model aModel : mModels) {
+			final Optional<Namespace> aNamespace = aModel.getNamespace(thePrefix);
+			if (aNamespace.isPresent()) {
+				return aNamespace;
+			}
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * Unsupported, the union is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void setNamespace(final Namespace theNamespace) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the union is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Optional<Namespace> removeNamespace(final String thePrefix) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the union is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean add(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the union is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean remove(final Resource theSubj, final IRI thePred, final Value theObj, final Resource... theContexts) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Unsupported, the union is read-only
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void removeTermIteration(final Iterator<Statement> theIter, final Resource theSubj, final IRI thePred,
+	                                final Value theObj, final Resource... theContexts) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Iterates over the elements of each model in turn, skipping those which one of the earlier models also has
+	 */
+	private final class UnionIterator<T> implements Iterator<T> {
+		private final Function<Model, Iterator<T>> mElements;
+
+		private final BiPredicate<Model, T> mContains;
+
+		private int mModel = -1;
+
+		private Iterator<T> mIter;
+
+		private T mNext;
+
+		private boolean mHasNext;
+
+		UnionIterator(final Function<Model, Iterator<T>> theElements, final BiPredicate<Model, T> theContains) {
+			mElements = theElements;
+			mContains = theContains;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!mHasNext) {
+				while (mIter == null || !mIter.hasNext()) {
+					if (++mModel == mModels.length) {
+						return false;
+					}
+
+					mIter = mElements.apply(mModels[mModel]);
+				}
+
+				final T aElem = mIter.next();
+
+				if (!seenBefore(aElem)) {
+					mNext = aElem;
+					mHasNext = true;
+				}
+			}
+
+			return true;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			mHasNext = false;
+			return mNext;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private boolean seenBefore(final T theElem) {
+			for (int i = 0; i < mModel; i++) {
+				if (mContains.test(mModels[i], theElem)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * A read-only set of the terms in one position of the statements of the union
+	 */
+	private final class UnionValueSet<V extends Value> extends AbstractSet<V> {
+		private final Function<Model, Set<V>> mValues;
+
+		private final BiPredicate<Model, V> mContains;
+
+		UnionValueSet(final Function<Model, Set<V>> theValues, final BiPredicate<Model, V> theContains) {
+			mValues = theValues;
+			mContains = theContains;
+		}
+
+		@Override
+		public Iterator<V> iterator() {
+			return new UnionIterator<>(theModel -> mValues.apply(theModel).iterator(), mContains);
+		}
+
+		@Override
+		public boolean contains(final Object theObj) {
+			if (theObj != null && !(theObj instanceof Value)) {
+				return false;
+			}
+
+			for (Model aModel : mModels) {
+				if (mValues.apply(aModel).contains(theObj)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return UnionModel.this.isEmpty();
+		}
+
+		@Override
+		public int size() {
+			int aSize = 0;
+
+			for (Iterator<V> aIter = iterator(); aIter.hasNext(); aIter.next()) {
+				aSize++;
+			}
+
+			return aSize;
+		}
+	}
+}
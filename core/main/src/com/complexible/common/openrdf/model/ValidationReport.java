@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.Statement;
+
+/**
+ * <p>The outcome of a {@link ConstrainedModel#addValid(java.util.Collection) batch addition} to a {@link ConstrainedModel}:
+ * the statements which violated a constraint, how many statements were added, and the time spent in each
+ * constraint.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ValidationReport {
+	private final int mChecked;
+
+	private final int mAdded;
+
+	private final List<Violation> mViolations;
+
+	private final long[] mConstraintNanos;
+
+	ValidationReport(final int theChecked, final int theAdded, final List<Violation> theViolations, final long[] theConstraintNanos) {
+		mChecked = theChecked;
+		mAdded = theAdded;
+		mViolations = Collections.unmodifiableList(theViolations);
+		mConstraintNanos = theConstraintNanos;
+	}
+
+	/**
+	 * Return whether every statement satisfied the constraints
+	 *
+	 * @return	true if there were no violations
+	 */
+	public boolean isValid() {
+		return mViolations.isEmpty();
+	}
+
+	/**
+	 * Return the number of statements checked
+	 *
+	 * @return	the number of statements
+	 */
+	public int getChecked() {
+		return mChecked;
+	}
+
+	/**
+	 * Return the number of valid statements which were added to the model, valid statements already in the model are
+	 * not counted
+	 *
+	 * @return	the number of statements added
+	 */
+	public int getAdded() {
+		return mAdded;
+	}
+
+	/**
+	 * Return the violations, in the order of the statements in the batch
+	 *
+	 * @return	the violations
+	 */
+	public List<Violation> getViolations() {
+		return mViolations;
+	}
+
+	/**
+	 * Return the number of constraints of the model
+	 *
+	 * @return	the number of constraints
+	 */
+	public int getConstraintCount() {
+		return mConstraintNanos.length;
+	}
+
+	/**
+	 * Return the time spent checking the statements against a constraint, summed over the threads which checked them
+	 *
+	 * @param theConstraint	the index of the constraint, in the order the constraints were given to the model
+	 * @param theUnit		the unit of the time
+	 * @return				the time spent in the constraint
+	 */
+	public long getConstraintTime(final int theConstraint, final TimeUnit theUnit) {
+		return theUnit.convert(mConstraintNanos[theConstraint], TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "ValidationReport [checked=" + mChecked + ", added=" + mAdded + ", violations=" + mViolations.size() + "]";
+	}
+
+	/**
+	 * <p>A statement which violated a constraint</p>
+	 */
+	public static final class Violation {
+		private final int mIndex;
+
+		private final Statement mStatement;
+
+		private final int mConstraint;
+
+		private final String mMessage;
+
+		Violation(final int theIndex, final Statement theStatement, final int theConstraint, final String theMessage) {
+			mIndex = theIndex;
+			mStatement = theStatement;
+			mConstraint = theConstraint;
+			mMessage = theMessage;
+		}
+
+		/**
+		 * Return the position of the statement in the batch
+		 *
+		 * @return	the position
+		 */
+		public int getIndex() {
+			return mIndex;
+		}
+
+		/**
+		 * Return the statement
+		 *
+		 * @return	the statement
+		 */
+		public Statement getStatement() {
+			return mStatement;
+		}
+
+		/**
+		 * Return the index of the first constraint the statement violated, later constraints are not checked
+		 *
+		 * @return	the index of the constraint
+		 */
+		public int getConstraint() {
+			return mConstraint;
+		}
+
+		/**
+		 * Return why the statement violated the constraint
+		 *
+		 * @return	the message
+		 */
+		public String getMessage() {
+			return mMessage;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return mStatement + ": " + mMessage;
+		}
+	}
+}
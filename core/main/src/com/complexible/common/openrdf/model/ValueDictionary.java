@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * <p>A dictionary which assigns a dense, positive {@code int} id to each {@link Value} it encodes.  The id {@code 0} is
+ * reserved for {@code null}, which is how the default context is represented.  Ids are never reused or reassigned, so a
+ * single dictionary can be shared by several {@link CompactModel models} which then share the storage of their terms.</p>
+ *
+ * <p>Like the models which use it, a dictionary is not thread-safe.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ValueDictionary implements Serializable {
+	private static final long serialVersionUID = 2191431815862339742L;
+
+	/**
+	 * The id of the {@code null} value
+	 */
+	public static final int NULL_ID = 0;
+
+	/**
+	 * The id returned by {@link #id(Value)} for a value which is not in the dictionary
+	 */
+	public static final int NO_ID = -1;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The values, indexed by id
+	 */
+	private Value[] mValues;
+
+	/**
+	 * The next id to be assigned
+	 */
+	private int mNextId = 1;
+
+	/**
+	 * Open-addressed (linear probing) table of ids keyed by the hash code of their value, 0 marks an empty bucket
+	 */
+	private int[] mTable;
+
+	public ValueDictionary() {
+		mValues = new Value[INITIAL_CAPACITY];
+		mTable = new int[INITIAL_CAPACITY * 2];
+	}
+
+	/**
+	 * Return the id of the value, or {@link #NO_ID} if the value has not been {@link #encode encoded}.
+	 *
+	 * @param theValue	the value
+	 * @return			its id
+	 */
+	public int id(final Value theValue) {
+		if (theValue == null) {
+			return NULL_ID;
+		}
+
+		final int aMask = mTable.length - 1;
+
+		for (int i = mix(theValue.hashCode()) & aMask; mTable[i] != 0; i = (i + 1) & aMask) {
+			if (mValues[mTable[i]].equals(theValue)) {
+				return mTable[i];
+			}
+		}
+
+		return NO_ID;
+	}
+
+	/**
+	 * Return the id of the value, adding it to the dictionary if it is not already present
+	 *
+	 * @param theValue	the value
+	 * @return			its id
+	 */
+	public int encode(final Value theValue) {
+		if (theValue == null) {
+			return NULL_ID;
+		}
+
+		int aMask = mTable.length - 1;
+		int i = mix(theValue.hashCode()) & aMask;
+
+		for (; mTable[i] != 0; i = (i + 1) & aMask) {
+			if (mValues[mTable[i]].equals(theValue)) {
+				return mTable[i];
+			}
+		}
+
+		if (mNextId == mValues.length) {
+			mValues = Arrays.copyOf(mValues, mValues.length * 2);
+		}
+
+		final int aId = mNextId++;
+		mValues[aId] = theValue;
+
+		if (mNextId * 2 > mTable.length) {
+			rehash(mTable.length * 2);
+		}
+		else {
+			mTable[i] = aId;
+		}
+
+		return aId;
+	}
+
+	/**
+	 * Return the value with the given id
+	 *
+	 * @param theId	the id
+	 * @return		the value, {@code null} for {@link #NULL_ID}
+	 *
+	 * @throws IllegalArgumentException if the id was not assigned by this dictionary
+	 */
+	public Value value(final int theId) {
+		if (theId < 0 || theId >= mNextId) {
+			throw new IllegalArgumentException("Unknown value id: " + theId);
+		}
+
+		return mValues[theId];
+	}
+
+	/**
+	 * Return the number of values in the dictionary
+	 *
+	 * @return	the number of values
+	 */
+	public int size() {
+		return mNextId - 1;
+	}
+
+	private void rehash(final int theCapacity) {
+		final int[] aTable = new int[theCapacity];
+		final int aMask = theCapacity - 1;
+
+		for (int aId = 1; aId < mNextId; aId++) {
+			int i = mix(mValues[aId].hashCode()) & aMask;
+			while (aTable[i] != 0) {
+				i = (i + 1) & aMask;
+			}
+
+			aTable[i] = aId;
+		}
+
+		mTable = aTable;
+	}
+
+	/**
+	 * Spread the bits of a hash code so that low quality hashes still work with a power-of-two sized table
+	 */
+	static int mix(final int theHash) {
+		final int h = theHash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2009-2013 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.repository;
+
+import com.complexible.common.openrdf.util.StatementBloomFilter;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p>Answers {@code contains} checks against a {@link RepositoryConnection} using a {@link StatementBloomFilter} built
+ * from its statements, so that checks for statements which are not in the repository do not reach it.  Only checks which
+ * the filter cannot rule out are asked of the connection.  The filter is built from, and the connection is asked about,
+ * either only the explicit statements or also the inferred ones, as chosen when the filter is created.</p>
+ *
+ * <p>The filter only knows about statements added through {@link #add(Iterable, Resource...)}, or which were in the
+ * repository when it was last {@link #rebuild() built}; when the repository is changed by other means the filter must be
+ * rebuilt.  Removals never make the answers wrong, only slower, until the filter is rebuilt.  The filter is rebuilt with
+ * twice the capacity once more statements are added than it was sized for.  When inferred statements are included, the
+ * statements inferred from those which are added are not known, so after an {@link #add(Iterable, Resource...) add}
+ * every check is asked of the connection until the filter is rebuilt.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ContainsFilter {
+	private final RepositoryConnection mConnection;
+
+	private final double mFalsePositiveRate;
+
+	private final boolean mIncludeInferred;
+
+	private long mCapacity;
+
+	private StatementBloomFilter mFilter;
+
+	/**
+	 * Whether or not the filter may be missing statements of the repository, in which case it is not used
+	 */
+	private boolean mStale;
+
+	private ContainsFilter(final RepositoryConnection theConnection, final long theCapacity, final double theFalsePositiveRate,
+	                       final boolean theIncludeInferred) {
+		mConnection = checkNotNull(theConnection);
+		mCapacity = theCapacity;
+		mFalsePositiveRate = theFalsePositiveRate;
+		mIncludeInferred = theIncludeInferred;
+	}
+
+	/**
+	 * Create a filter over the explicit statements of the connection with a false positive rate of 1%, sized for twice the
+	 * number of statements in the repository
+	 *
+	 * @param theConnection	the connection
+	 * @return				the filter
+	 *
+	 * @throws RepositoryException	if there is an error reading the statements of the repository
+	 */
+	public static ContainsFilter of(final RepositoryConnection theConnection) throws RepositoryException {
+		return of(theConnection, Math.max(1024, theConnection.size() * 2), 0.01, false);
+	}
+
+	/**
+	 * Create a filter over the connection which has the given false positive rate when it holds the given number of
+	 * statements
+	 *
+	 * @param theConnection			the connection
+	 * @param theCapacity			the number of statements the filter is sized for
+	 * @param theFalsePositiveRate	the false positive rate at that capacity
+	 * @param theIncludeInferred	whether or not the inferred statements of the repository are included
+	 * @return						the filter
+	 *
+	 * @throws RepositoryException	if there is an error reading the statements of the repository
+	 */
+	public static ContainsFilter of(final RepositoryConnection theConnection, final long theCapacity,
+	                                final double theFalsePositiveRate, final boolean theIncludeInferred) throws RepositoryException {
+		final ContainsFilter aFilter = new ContainsFilter(theConnection, theCapacity, theFalsePositiveRate, theIncludeInferred);
+
+		aFilter.rebuild();
+
+		return aFilter;
+	}
+
+	/**
+	 * Return the filter, for instance to check its {@link StatementBloomFilter#getFalsePositiveRate() false positive
+	 * rate} or its {@link StatementBloomFilter#getMemoryUsage() memory usage}
+	 *
+	 * @return	the filter
+	 */
+	public StatementBloomFilter getFilter() {
+		return mFilter;
+	}
+
+	/**
+	 * Rebuild the filter from the statements currently in the repository.  The filter is sized for the larger of its
+	 * capacity and twice the size of the repository.
+	 *
+	 * @throws RepositoryException	if there is an error reading the statements of the repository
+	 */
+	public void rebuild() throws RepositoryException {
+		mCapacity = Math.max(mCapacity, mConnection.size() * 2);
+
+		final StatementBloomFilter aFilter = StatementBloomFilter.create(mCapacity, mFalsePositiveRate);
+
+		final RepositoryResult<Statement> aResult = mConnection.getStatements(null, null, null, mIncludeInferred);
+
+		try {
+			while (aResult.hasNext()) {
+				aFilter.add(aResult.next());
+			}
+		}
+		finally {
+			aResult.close();
+		}
+
+		mFilter = aFilter;
+		mStale = false;
+	}
+
+	/**
+	 * Return whether or not the repository contains the statement, with the same meaning as
+	 * {@link RepositoryConnections#contains(RepositoryConnection, Statement)}: a statement without a context is looked
+	 * for in any context.  Inferred statements are only found when the filter includes them.
+	 *
+	 * @param theStatement	the statement
+	 * @return				true if the repository contains the statement
+	 *
+	 * @throws RepositoryException	if there is an error querying the repository
+	 */
+	public boolean contains(final Statement theStatement) throws RepositoryException {
+		if (theStatement.getContext() == null) {
+			return contains(theStatement.getSubject(), theStatement.getPredicate(), theStatement.getObject());
+		}
+
+		return (mStale || mFilter.mightContain(theStatement))
+		       && mConnection.hasStatement(theStatement, mIncludeInferred, theStatement.getContext());
+	}
+
+	/**
+	 * Return whether or not the repository contains a statement with the subject, predicate and object in any context.
+	 * Inferred statements are only found when the filter includes them.
+	 *
+	 * @param theSubj	the subject
+	 * @param thePred	the predicate
+	 * @param theObj	the object
+	 * @return			true if the repository contains such a statement
+	 *
+	 * @throws RepositoryException	if there is an error querying the repository
+	 */
+	public boolean contains(final Resource theSubj, final IRI thePred, final Value theObj) throws RepositoryException {
+		return (mStale || mFilter.mightContain(theSubj, thePred, theObj))
+		       && mConnection.hasStatement(theSubj, thePred, theObj, mIncludeInferred);
+	}
+
+	/**
+	 * Add the statements to the repository, in a single transaction, and to the filter.  The filter is rebuilt when it
+	 * holds more statements than it is sized for.
+	 *
+	 * @param theStmts		the statements to add
+	 * @param theContexts	the contexts to add the statements to, or none to add them to their own contexts
+	 *
+	 * @throws RepositoryException	if there is an error adding the statements
+	 */
+	public void add(final Iterable<? extends Statement> theStmts, final Resource... theContexts) throws RepositoryException {
+		RepositoryConnections.add(mConnection, theStmts, theContexts);
+
+		final StatementBloomFilter aFilter = mFilter;
+
+		for (Statement aStmt : theStmts) {
+			if (theContexts.length == 0) {
+				aFilter.add(aStmt);
+			}
+			else {
+				for (Resource aContext : theContexts) {
+					aFilter.add(mConnection.getValueFactory().createStatement(aStmt.getSubject(), aStmt.getPredicate(),
+					                                                          aStmt.getObject(), aContext));
+				}
+			}
+		}
+
+		if (mIncludeInferred) {
+			// the statements inferred from the new ones are not in the filter
+			mStale = true;
+		}
+		else if (aFilter.getStatementCount() > mCapacity) {
+			mCapacity *= 2;
+			rebuild();
+		}
+	}
+}
@@ -20,14 +20,18 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.concurrent.TimeUnit;
 
-import com.google.common.base.Charsets;
+import com.complexible.common.openrdf.model.ModelIO;
+import com.complexible.common.openrdf.util.AsyncRDFHandler;
+import com.complexible.common.openrdf.util.Compression;
+import com.complexible.common.openrdf.util.RDFSnapshot;
+import com.complexible.common.openrdf.util.TransferStats;
 import com.google.common.io.Closeables;
+import com.google.common.io.CountingOutputStream;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.model.Graph;
@@ -45,9 +49,9 @@ import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.RepositoryResult;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.eclipse.rdf4j.rio.RDFParseException;
-import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.Rio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -115,12 +119,47 @@ public final class Repositories {
 		}
 	}
 
+	/**
+	 * Add the contents of the file to the repository.  The format is picked from the name of the file, ignoring the
+	 * extension of a {@link Compression compressed} file, and compressed files are decompressed on a separate thread.
+	 *
+	 * @param theRepo	the repository to add to
+	 * @param theFile	the file to add
+	 *
+	 * @throws RDFParseException	if the file could not be parsed
+	 * @throws IOException			if there was an error reading the file, or adding its contents
+	 */
 	public static void add(final Repository theRepo, final File theFile) throws RDFParseException, IOException {
-		add(theRepo, new FileInputStream(theFile), Rio.getParserFormatForFileName(theFile.getName()).orElse(RDFFormat.TURTLE));
+		add(theRepo, new FileInputStream(theFile), Compression.getFormatForFileName(theFile.getName()).orElse(RDFFormat.TURTLE));
 	}
 
+	/**
+	 * Add the contents of the stream to the repository.  A {@link Compression compressed} stream is decompressed on a
+	 * separate thread, and formats without a charset, such as {@link RDFSnapshot snapshots}, are parsed from the stream
+	 * rather than decoded as text.  See {@link RepositoryConnections#add(RepositoryConnection, InputStream, RDFFormat, Resource, String)}.
+	 *
+	 * @param theRepo	the repository to add to
+	 * @param theStream	the stream to read
+	 * @param theFormat	the format of the data
+	 *
+	 * @throws RDFParseException	if the data could not be parsed
+	 * @throws IOException			if there was an error reading the stream, or adding its contents
+	 */
 	public static void add(final Repository theRepo, final InputStream theStream, final RDFFormat theFormat) throws RDFParseException, IOException {
-		add(theRepo, new InputStreamReader(theStream, Charsets.UTF_8), theFormat);
+		RepositoryConnection aConn = null;
+
+		try {
+			aConn = theRepo.getConnection();
+
+			RepositoryConnections.add(aConn, theStream, theFormat, null, null);
+		}
+		catch (RepositoryException e) {
+			throw new IOException(e);
+		}
+		finally {
+			RepositoryConnections.closeQuietly(aConn);
+			Closeables.close(theStream, false);
+		}
 	}
 
 	public static void add(final Repository theRepo, final Reader theStream, final RDFFormat theFormat) throws RDFParseException, IOException {
@@ -149,7 +188,8 @@ public final class Repositories {
 	}
 
 	/**
-	 * Write the contents of the repository to the given file in the specified format
+	 * Write the contents of the repository to the given file in the specified format.  If the name of the file has the
+	 * extension of a {@link Compression compressed} file, e.g. {@code .nt.gz}, the output is compressed in parallel.
 	 * @param theRepo the repository to write
 	 * @param theFile the file to write to
 	 * @param theFormat the format to write the RDF in
@@ -157,7 +197,59 @@ public final class Repositories {
 	 * @throws IOException if there is an error writing to the file
 	 */
 	public static void writeRepository(final Repository theRepo, File theFile, final RDFFormat theFormat) throws RepositoryException, IOException {
-		writeRepository(theRepo, Rio.createWriter(theFormat, new OutputStreamWriter(new FileOutputStream(theFile), Charsets.UTF_8)));
+		try (OutputStream aStream = newOutputStream(theFile)) {
+			writeRepository(theRepo, ModelIO.newWriter(aStream, theFormat));
+		}
+	}
+
+	/**
+	 * Write the contents of the repository to the given file in the specified format.  The statements are read from the
+	 * repository on the calling thread and formatted on another, see {@link AsyncRDFHandler}.  A file with the extension
+	 * of a {@link Compression compressed} file is compressed in parallel; the number of bytes reported is then the
+	 * number before compression.
+	 *
+	 * @param theRepo	the repository to write
+	 * @param theFile	the file to write to
+	 * @param theFormat	the format to write the RDF in
+	 * @return			the number of statements and bytes written, and how long it took
+	 *
+	 * @throws RepositoryException if there is an error getting the data from the repository
+	 * @throws IOException if there is an error writing to the file
+	 */
+	public static TransferStats writeRepositoryPipelined(final Repository theRepo, final File theFile, final RDFFormat theFormat) throws RepositoryException, IOException {
+		try (OutputStream aStream = newOutputStream(theFile)) {
+			return writeRepositoryPipelined(theRepo, aStream, theFormat);
+		}
+	}
+
+	private static OutputStream newOutputStream(final File theFile) throws IOException {
+		return Compression.isCompressed(theFile.getName())
+		       ? Compression.compress(new FileOutputStream(theFile))
+		       : new FileOutputStream(theFile);
+	}
+
+	/**
+	 * Write the contents of the repository to the given stream in the specified format.  The statements are read from
+	 * the repository on the calling thread and formatted on another, see {@link AsyncRDFHandler}.
+	 *
+	 * @param theRepo	the repository to write
+	 * @param theStream	the stream to write to
+	 * @param theFormat	the format to write the RDF in
+	 * @return			the number of statements and bytes written, and how long it took
+	 *
+	 * @throws RepositoryException if there is an error getting the data from the repository
+	 * @throws IOException if there is an error writing to the stream
+	 */
+	public static TransferStats writeRepositoryPipelined(final Repository theRepo, final OutputStream theStream, final RDFFormat theFormat) throws RepositoryException, IOException {
+		final CountingOutputStream aCounter = new CountingOutputStream(theStream);
+
+		try (AsyncRDFHandler aHandler = new AsyncRDFHandler(ModelIO.newWriter(aCounter, theFormat))) {
+			writeRepository(theRepo, aHandler);
+
+			aCounter.flush();
+
+			return new TransferStats(aHandler.getStatementCount(), aCounter.getCount(), aHandler.getElapsed(TimeUnit.NANOSECONDS));
+		}
 	}
 
 	/**
@@ -171,7 +263,8 @@ public final class Repositories {
 	 * @throws IOException if there is an error writing to the stream
 	 */
 	public static void writeRepository(final Repository theRepo, final OutputStream theStream, final RDFFormat theFormat) throws RepositoryException, IOException {
-		writeRepository(theRepo, Rio.createWriter(theFormat, new OutputStreamWriter(theStream, Charsets.UTF_8)));
+		writeRepository(theRepo, ModelIO.newWriter(theStream, theFormat));
+		theStream.flush();
 	}
 
 	/**
@@ -188,7 +281,7 @@ public final class Repositories {
 		writeRepository(theRepo, Rio.createWriter(theFormat, theWriter));
 	}
 
-	private static void writeRepository(final Repository theRepo, final RDFWriter theWriter) throws IOException, RepositoryException {
+	private static void writeRepository(final Repository theRepo, final RDFHandler theWriter) throws IOException, RepositoryException {
 		RepositoryConnection aConn = null;
 		try {
 			aConn = theRepo.getConnection();
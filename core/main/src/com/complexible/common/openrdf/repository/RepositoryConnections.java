@@ -22,11 +22,15 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 
-import com.google.common.base.Charsets;
+import com.complexible.common.openrdf.model.ChangeTrackingModel;
+import com.complexible.common.openrdf.util.Compression;
+import com.complexible.common.openrdf.util.RDFSnapshot;
 import com.google.common.io.Closeables;
 import org.eclipse.rdf4j.model.Graph;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 
@@ -80,6 +84,30 @@ public final class RepositoryConnections {
 		}
 	}
 
+	/**
+	 * Add the statements to the repository, in a single transaction, in the given contexts rather than their own.  The
+	 * statements are streamed to the connection, use this, or a {@link com.complexible.common.openrdf.model.ContextModel},
+	 * rather than copying a graph with {@link com.complexible.common.openrdf.model.Models2#withContext}.
+	 *
+	 * @param theConnection	the connection
+	 * @param theStmts		the statements to add
+	 * @param theContexts	the contexts to add the statements to
+	 *
+	 * @throws RepositoryException	if there was an error adding the statements
+	 */
+	public static void add(final RepositoryConnection theConnection, final Iterable<? extends Statement> theStmts,
+	                       final Resource... theContexts) throws RepositoryException {
+		try {
+			theConnection.begin();
+			theConnection.add(theStmts, theContexts);
+			theConnection.commit();
+		}
+		catch (RepositoryException e) {
+			theConnection.rollback();
+			throw e;
+		}
+	}
+
 	public static void remove(final RepositoryConnection theConnection, final Graph theGraph) throws RepositoryException {
 		try {
 			theConnection.begin();
@@ -92,6 +120,37 @@ public final class RepositoryConnections {
 		}
 	}
 
+	/**
+	 * Apply the changes recorded by the model to the repository, in a single transaction: its removals are removed and
+	 * its additions added, so only the difference is sent rather than the whole graph.  Once the transaction commits, the
+	 * changes of the model are {@link ChangeTrackingModel#reset() reset}.
+	 *
+	 * @param theConnection	the connection
+	 * @param theChanges	the model whose changes are applied
+	 * @param theContexts	the contexts to apply the changes to, or none to apply them to the statements' own contexts
+	 *
+	 * @throws RepositoryException	if there was an error applying the changes
+	 */
+	public static void applyChanges(final RepositoryConnection theConnection, final ChangeTrackingModel theChanges,
+	                                final Resource... theContexts) throws RepositoryException {
+		if (!theChanges.hasChanges()) {
+			return;
+		}
+
+		try {
+			theConnection.begin();
+			theConnection.remove(theChanges.getRemovals(), theContexts);
+			theConnection.add(theChanges.getAdditions(), theContexts);
+			theConnection.commit();
+		}
+		catch (RepositoryException e) {
+			theConnection.rollback();
+			throw e;
+		}
+
+		theChanges.reset();
+	}
+
 	/**
 	 * Quietly close the connection object
 	 * @param theConn the connection to close
@@ -113,12 +172,49 @@ public final class RepositoryConnections {
 		       : theConnection.hasStatement(theStatement, true, theStatement.getContext());
 	}
 
+	/**
+	 * Add the contents of the file to the repository.  The format is guessed from the name of the file, ignoring the
+	 * extension of a {@link Compression compressed} file, and compressed files are decompressed on a separate thread.
+	 *
+	 * @param theRepo	the connection to add to
+	 * @param theFile	the file to add
+	 *
+	 * @throws RDFParseException	if the file could not be parsed
+	 * @throws IOException			if there was an error reading the file, or adding its contents
+	 */
 	public static void add(final RepositoryConnection theRepo, final File theFile) throws RDFParseException, IOException {
-		add(theRepo, new FileInputStream(theFile), Rio.getParserFormatForFileName(theFile.getName()).orElse(RDFFormat.TURTLE));
+		add(theRepo, new FileInputStream(theFile), Compression.getFormatForFileName(theFile.getName()).orElse(RDFFormat.TURTLE));
 	}
 
 	public static void add(final RepositoryConnection theRepo, final InputStream theStream, final RDFFormat theFormat) throws RDFParseException, IOException {
-		add(theRepo, new InputStreamReader(theStream, Charsets.UTF_8), theFormat);
+		add(theRepo, theStream, theFormat, null, null);
+	}
+
+	/**
+	 * Add the contents of the stream to the repository in a single transaction.  A {@link Compression compressed} stream
+	 * is detected and decompressed on a separate thread.  Text formats are decoded using the charset of the format;
+	 * formats without a charset, such as {@link RDFSnapshot snapshots}, are binary and are parsed from the stream
+	 * directly.  The stream is closed after parsing.
+	 *
+	 * @param theConn		the connection to add to
+	 * @param theStream		the stream to read
+	 * @param theFormat		the format of the data
+	 * @param theContext	the context to add the statements to, or null to add them to their own contexts
+	 * @param theBase		the base IRI, or null to use the context, or a default
+	 *
+	 * @throws RDFParseException	if the data could not be parsed
+	 * @throws IOException			if there was an error reading the stream, or adding its contents
+	 */
+	public static void add(final RepositoryConnection theConn, final InputStream theStream, final RDFFormat theFormat,
+	                       final Resource theContext, final String theBase) throws RDFParseException, IOException {
+		final InputStream aInput = Compression.decompress(theStream);
+
+		if (theFormat.hasCharset()) {
+			add(theConn, new InputStreamReader(aInput, theFormat.getCharset()), theFormat, theContext, theBase);
+		}
+		else {
+			insert(theConn, newParser(theFormat, SimpleValueFactory.getInstance()), null, aInput, theContext, theBase);
+		}
 	}
 
 	public static void add(final RepositoryConnection theRepo, final Reader theStream, final RDFFormat theFormat) throws RDFParseException, IOException {
@@ -130,8 +226,19 @@ public final class RepositoryConnections {
 	}
 
 	public static void add(final RepositoryConnection theConn, Reader theStream, final RDFFormat theFormat, final Resource theContext, final String theBase) throws RDFParseException, IOException {
+		add(theConn, theStream, theFormat, theContext, theBase, SimpleValueFactory.getInstance());
+	}
+
+	public static void add(final RepositoryConnection theConn, Reader theStream, final RDFFormat theFormat, final Resource theContext, final String theBase,
+	                       final ValueFactory theFactory) throws RDFParseException, IOException {
+		insert(theConn, newParser(theFormat, theFactory), theStream, null, theContext, theBase);
+	}
+
+	private static RDFParser newParser(final RDFFormat theFormat, final ValueFactory theFactory) {
 		RDFParser aParser = Rio.createParser(theFormat);
 
+		aParser.setValueFactory(theFactory);
+
 		aParser.getParserConfig().set(BasicParserSettings.VERIFY_DATATYPE_VALUES, false);
 		aParser.getParserConfig().set(BasicParserSettings.FAIL_ON_UNKNOWN_DATATYPES, false);
 		aParser.getParserConfig().set(BasicParserSettings.NORMALIZE_DATATYPE_VALUES, false);
@@ -139,6 +246,17 @@ public final class RepositoryConnections {
 
 		aParser.getParserConfig().set(BasicParserSettings.VERIFY_RELATIVE_URIS, false);
 
+		return aParser;
+	}
+
+	/**
+	 * Parse the reader, or else the stream, and add the statements to the repository in a single transaction.  The input
+	 * is closed afterwards.
+	 */
+	private static void insert(final RepositoryConnection theConn, final RDFParser theParser, final Reader theReader,
+	                           final InputStream theInput, final Resource theContext, final String theBase) throws IOException {
+		final String aBase = theBase == null ? (theContext != null ? theContext.stringValue() : "http://openrdf.clarkparsia.com") : theBase;
+
 		try {
 			theConn.begin();
 
@@ -148,9 +266,14 @@ public final class RepositoryConnections {
 				aInserter.enforceContext(theContext);
 			}
 
-			aParser.setRDFHandler(aInserter);
+			theParser.setRDFHandler(aInserter);
 
-			aParser.parse(theStream, theBase == null ? (theContext != null ? theContext.stringValue() : "http://openrdf.clarkparsia.com") : theBase);
+			if (theReader != null) {
+				theParser.parse(theReader, aBase);
+			}
+			else {
+				theParser.parse(theInput, aBase);
+			}
 
 			theConn.commit();
 		}
@@ -158,7 +281,7 @@ public final class RepositoryConnections {
 			throw new IOException(e);
 		}
 		finally {
-			Closeables.close(theStream, false);
+			Closeables.close(theReader != null ? theReader : theInput, false);
 		}
 	}
 }
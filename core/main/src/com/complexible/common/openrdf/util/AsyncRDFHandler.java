@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+
+/**
+ * <p>An {@link RDFHandler} which hands the events it receives to another handler running on a thread of its own, so
+ * that producing statements, e.g. iterating over a repository, and consuming them, e.g. formatting them with an
+ * {@link org.eclipse.rdf4j.rio.RDFWriter}, overlap.  Statements are passed between the threads in batches through a
+ * bounded queue; when the consumer falls behind, the producer blocks rather than buffering without limit.</p>
+ *
+ * <p>The delegate is only ever called from the consumer thread, in the order the events were received.  The thread is
+ * started by {@link #startRDF()} and {@link #endRDF()} waits for it to finish, rethrowing any error the delegate
+ * raised.  An error in the delegate is also reported to the producer on its next batch.  If the producer gives up
+ * before calling {@code endRDF}, it should {@link #close()} the handler to stop the thread.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class AsyncRDFHandler implements RDFHandler, AutoCloseable {
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+
+	public static final int DEFAULT_QUEUE_SIZE = 64;
+
+	private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+	/**
+	 * Marker for the end of the events
+	 */
+	private static final List<Object> END = Collections.emptyList();
+
+	private final RDFHandler mHandler;
+
+	private final int mBatchSize;
+
+	private final BlockingQueue<List<Object>> mQueue;
+
+	private List<Object> mBatch;
+
+	private Thread mThread;
+
+	private volatile Throwable mFailure;
+
+	private long mStatements = 0;
+
+	private long mStart;
+
+	private long mEnd;
+
+	/**
+	 * Create a new AsyncRDFHandler with the default batch and queue sizes
+	 *
+	 * @param theHandler	the handler to pass the events to
+	 */
+	public AsyncRDFHandler(final RDFHandler theHandler) {
+		this(theHandler, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_SIZE);
+	}
+
+	/**
+	 * Create a new AsyncRDFHandler
+	 *
+	 * @param theHandler	the handler to pass the events to
+	 * @param theBatchSize	the number of statements passed to the consumer thread at a time
+	 * @param theQueueSize	the number of batches which can be waiting for the consumer thread
+	 */
+	public AsyncRDFHandler(final RDFHandler theHandler, final int theBatchSize, final int theQueueSize) {
+		mHandler = theHandler;
+		mBatchSize = theBatchSize;
+		mQueue = new ArrayBlockingQueue<>(theQueueSize);
+	}
+
+	/**
+	 * Return the number of statements received so far
+	 *
+	 * @return	the number of statements
+	 */
+	public long getStatementCount() {
+		return mStatements;
+	}
+
+	/**
+	 * Return the time from the start of the RDF until the delegate finished handling its end, or until now if it has
+	 * not finished yet
+	 *
+	 * @param theUnit	the unit to return the time in
+	 * @return			the elapsed time
+	 */
+	public long getElapsed(final TimeUnit theUnit) {
+		return mThread == null
+		       ? 0
+		       : theUnit.convert((mEnd == 0 ? System.nanoTime() : mEnd) - mStart, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void startRDF() throws RDFHandlerException {
+		if (mThread != null) {
+			throw new IllegalStateException("The handler has already been started");
+		}
+
+		mStart = System.nanoTime();
+		mBatch = new ArrayList<>(mBatchSize);
+
+		mThread = new Thread(this::consume, "async-rdf-handler-" + THREAD_ID.incrementAndGet());
+		mThread.setDaemon(true);
+		mThread.start();
+
+		mBatch.add((Event) RDFHandler::startRDF);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleNamespace(final String thePrefix, final String theURI) throws RDFHandlerException {
+		mBatch.add((Event) theHandler -> theHandler.handleNamespace(thePrefix, theURI));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleComment(final String theComment) throws RDFHandlerException {
+		mBatch.add((Event) theHandler -> theHandler.handleComment(theComment));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleStatement(final Statement theStatement) throws RDFHandlerException {
+		mBatch.add(theStatement);
+		mStatements++;
+
+		if (mBatch.size() >= mBatchSize) {
+			send(mBatch);
+			mBatch = new ArrayList<>(mBatchSize);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endRDF() throws RDFHandlerException {
+		mBatch.add((Event) RDFHandler::endRDF);
+
+		send(mBatch);
+		send(END);
+
+		mBatch = null;
+
+		try {
+			mThread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RDFHandlerException(e);
+		}
+
+		mEnd = System.nanoTime();
+
+		checkFailure();
+	}
+
+	/**
+	 * Stop the consumer thread if it is still running; events not yet handled by the delegate are discarded.
+	 */
+	@Override
+	public void close() {
+		if (mThread != null && mThread.isAlive()) {
+			mThread.interrupt();
+
+			try {
+				mThread.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void send(final List<Object> theBatch) throws RDFHandlerException {
+		try {
+			while (!mQueue.offer(theBatch, 100, TimeUnit.MILLISECONDS)) {
+				checkFailure();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RDFHandlerException(e);
+		}
+
+		checkFailure();
+	}
+
+	private void checkFailure() throws RDFHandlerException {
+		final Throwable aFailure = mFailure;
+
+		if (aFailure instanceof RDFHandlerException) {
+			throw (RDFHandlerException) aFailure;
+		}
+		else if (aFailure != null) {
+			throw new RDFHandlerException(aFailure);
+		}
+	}
+
+	private void consume() {
+		try {
+			for (List<Object> aBatch = mQueue.take(); aBatch != END; aBatch = mQueue.take()) {
+				for (Object aEvent : aBatch) {
+					if (aEvent instanceof Statement) {
+						mHandler.handleStatement((Statement) aEvent);
+					}
+					else {
+						((Event) aEvent).apply(mHandler);
+					}
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			mFailure = new RDFHandlerException("The handler was closed before the end of the RDF");
+		}
+		catch (Throwable e) {
+			mFailure = e;
+		}
+		finally {
+			// don't leave a producer waiting on a full queue
+			mQueue.clear();
+		}
+	}
+
+	/**
+	 * An event other than a statement, deferred until the consumer thread gets to it
+	 */
+	private interface Event {
+		void apply(final RDFHandler theHandler) throws RDFHandlerException;
+	}
+}
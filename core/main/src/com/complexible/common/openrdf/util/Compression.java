@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+/**
+ * <p>Utilities for reading and writing compressed RDF, such as {@code .nt.gz} dumps.  Compressed input is detected from
+ * its first bytes, not its name, and is decompressed on a separate thread from the one consuming it.  Compressed output
+ * is compressed in parallel by a {@link ParallelGZIPOutputStream}.  Only gzip is supported.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class Compression {
+	public static final String GZIP_EXTENSION = ".gz";
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private Compression() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Return whether the file name has the extension of a compressed file
+	 *
+	 * @param theFileName	the file name
+	 * @return				true if the name is that of a compressed file
+	 */
+	public static boolean isCompressed(final String theFileName) {
+		return theFileName.toLowerCase().endsWith(GZIP_EXTENSION);
+	}
+
+	/**
+	 * Return whether the file starts with the header of a compressed stream
+	 *
+	 * @param theFile	the file
+	 * @return			true if the file is compressed
+	 *
+	 * @throws IOException	if there was an error reading the file
+	 */
+	public static boolean isCompressed(final Path theFile) throws IOException {
+		try (FileChannel aChannel = FileChannel.open(theFile, StandardOpenOption.READ)) {
+			final ByteBuffer aHeader = ByteBuffer.allocate(2);
+
+			while (aHeader.hasRemaining() && aChannel.read(aHeader) != -1) {
+				// keep reading until we have the header or the file ends
+			}
+
+			return !aHeader.hasRemaining() && isGzipHeader(aHeader.get(0), aHeader.get(1));
+		}
+	}
+
+	/**
+	 * Return the RDF format of the file from its name, ignoring the extension of a compressed file, e.g. N-Triples for
+	 * {@code data.nt.gz}
+	 *
+	 * @param theFileName	the file name
+	 * @return				the format, or an empty optional if it is not known
+	 */
+	public static Optional<RDFFormat> getFormatForFileName(final String theFileName) {
+		return Rio.getParserFormatForFileName(isCompressed(theFileName)
+		                                      ? theFileName.substring(0, theFileName.length() - GZIP_EXTENSION.length())
+		                                      : theFileName);
+	}
+
+	/**
+	 * Return a stream over the decompressed contents of the stream if it is compressed, or over its contents as they are
+	 * otherwise.  A compressed stream is decompressed on a separate thread, ahead of the reader.
+	 *
+	 * @param theStream	the stream to read
+	 * @return			the decompressed stream
+	 *
+	 * @throws IOException	if there was an error reading the stream
+	 */
+	public static InputStream decompress(final InputStream theStream) throws IOException {
+		final InputStream aStream = theStream.markSupported() ? theStream : new BufferedInputStream(theStream, BUFFER_SIZE);
+
+		aStream.mark(2);
+
+		final int aFirst = aStream.read();
+		final int aSecond = aStream.read();
+
+		aStream.reset();
+
+		return aFirst != -1 && aSecond != -1 && isGzipHeader((byte) aFirst, (byte) aSecond)
+		       ? new ReadAheadInputStream(new GZIPInputStream(aStream, BUFFER_SIZE))
+		       : aStream;
+	}
+
+	/**
+	 * Return a stream which gzip compresses what is written to it, in parallel, onto the given stream.  Closing the
+	 * returned stream closes the given one.
+	 *
+	 * @param theStream	the stream to write the compressed data to
+	 * @return			the compressing stream
+	 */
+	public static OutputStream compress(final OutputStream theStream) {
+		return new ParallelGZIPOutputStream(theStream);
+	}
+
+	private static boolean isGzipHeader(final byte theFirst, final byte theSecond) {
+		return ((theFirst & 0xFF) | ((theSecond & 0xFF) << 8)) == GZIP_MAGIC;
+	}
+}
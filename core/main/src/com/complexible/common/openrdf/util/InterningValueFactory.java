@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.AbstractValueFactory;
+
+/**
+ * <p>A {@link org.eclipse.rdf4j.model.ValueFactory} which returns the same object for equal IRIs and literals, so that
+ * values repeated throughout a large dataset, such as {@code rdf:type} and the predicates, are only held in memory once.
+ * The canonical values are kept either in a table bounded in size, which evicts the least recently used values, or in a
+ * table of weak references, which keeps a value for as long as something else refers to it.  Both tables are split
+ * into independently locked segments so the factory can be shared by parsers running in parallel.  Blank nodes are not
+ * interned.</p>
+ *
+ * <p>The factory counts how many values it was asked to create and how many of those were already in the table, along
+ * with an estimate of the memory taken by the duplicates it did not keep.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class InterningValueFactory extends AbstractValueFactory {
+	private final Interner<Value> mTable;
+
+	private final LongAdder mLookups = new LongAdder();
+
+	private final LongAdder mHits = new LongAdder();
+
+	private final LongAdder mBytesSaved = new LongAdder();
+
+	private InterningValueFactory(final Interner<Value> theTable) {
+		mTable = theTable;
+	}
+
+	/**
+	 * Create a factory whose table holds at most the given number of values, split into one segment per four processors
+	 *
+	 * @param theMaximumSize	the maximum number of values to keep
+	 * @return					the new factory
+	 */
+	public static InterningValueFactory bounded(final int theMaximumSize) {
+		return bounded(theMaximumSize, Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	/**
+	 * Create a factory whose table holds at most the given number of values
+	 *
+	 * @param theMaximumSize	the maximum number of values to keep
+	 * @param theStripes		the number of independently locked segments of the table
+	 * @return					the new factory
+	 */
+	public static InterningValueFactory bounded(final int theMaximumSize, final int theStripes) {
+		final Cache<Value, Value> aCache = CacheBuilder.newBuilder()
+		                                               .maximumSize(theMaximumSize)
+		                                               .concurrencyLevel(theStripes)
+		                                               .build();
+
+		return new InterningValueFactory(theValue -> {
+			final Value aValue = aCache.asMap().putIfAbsent(theValue, theValue);
+			return aValue == null ? theValue : aValue;
+		});
+	}
+
+	/**
+	 * Create a factory whose table holds weak references to the values, so values are kept only while they are in use
+	 *
+	 * @return	the new factory
+	 */
+	public static InterningValueFactory weak() {
+		return new InterningValueFactory(Interners.newWeakInterner());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IRI createIRI(final String theIRI) {
+		return intern(super.createIRI(theIRI));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Literal createLiteral(final String theLabel) {
+		return intern(super.createLiteral(theLabel));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Literal createLiteral(final String theLabel, final String theLanguage) {
+		return intern(super.createLiteral(theLabel, theLanguage));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Literal createLiteral(final String theLabel, final IRI theDatatype) {
+		return intern(super.createLiteral(theLabel, theDatatype));
+	}
+
+	/**
+	 * Return the number of IRIs and literals created by the factory
+	 *
+	 * @return	the number of values created
+	 */
+	public long getLookups() {
+		return mLookups.sum();
+	}
+
+	/**
+	 * Return the number of IRIs and literals created by the factory which were already in its table
+	 *
+	 * @return	the number of duplicates
+	 */
+	public long getHits() {
+		return mHits.sum();
+	}
+
+	/**
+	 * Return the fraction of the values created by the factory which were already in its table
+	 *
+	 * @return	the hit rate, between 0 and 1
+	 */
+	public double getHitRate() {
+		final long aLookups = getLookups();
+
+		return aLookups == 0 ? 0 : getHits() / (double) aLookups;
+	}
+
+	/**
+	 * Return an estimate of the bytes taken by the duplicate values which were replaced by the values in the table.  The
+	 * estimate assumes compressed object pointers and two bytes per character.
+	 *
+	 * @return	the estimated memory saved
+	 */
+	public long getBytesSaved() {
+		return mBytesSaved.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format("InterningValueFactory [%,d lookups, %.1f%% hits, ~%,d bytes saved]",
+		                     getLookups(), getHitRate() * 100, getBytesSaved());
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends Value> T intern(final T theValue) {
+		final Value aValue = mTable.intern(theValue);
+
+		mLookups.increment();
+
+		if (aValue != theValue) {
+			mHits.increment();
+			mBytesSaved.add(size(theValue));
+		}
+
+		return (T) aValue;
+	}
+
+	private static long size(final Value theValue) {
+		if (theValue instanceof Literal) {
+			final Literal aLiteral = (Literal) theValue;
+
+			// the literal and its label; the datatype is shared
+			return 24 + size(aLiteral.getLabel()) + (aLiteral.getLanguage().isPresent() ? size(aLiteral.getLanguage().get()) : 0);
+		}
+		else {
+			// the iri and its string
+			return 24 + size(theValue.stringValue());
+		}
+	}
+
+	private static long size(final String theString) {
+		// the string object and its character array, aligned to 8 bytes
+		return 24 + ((16 + 2L * theString.length() + 7) & ~7);
+	}
+}
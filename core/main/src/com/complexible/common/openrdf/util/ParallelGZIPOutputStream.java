@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>An {@link OutputStream} which gzip compresses its data on a {@link ForkJoinPool}.  The data is cut into blocks which
+ * are compressed independently, each into a gzip member of its own, and the members are written to the underlying stream
+ * in order.  A sequence of members is a valid gzip stream which any gzip reader, including {@link java.util.zip.GZIPInputStream},
+ * decompresses to the original data.  Since a block does not share a dictionary with the previous one, the output is
+ * slightly larger than that of a {@link GZIPOutputStream}.</p>
+ *
+ * <p>Only a bounded number of blocks are compressed ahead of the underlying stream, so writes block when it falls behind.
+ * {@link #flush() Flushing} writes out the blocks which are complete, but a member only ever ends at a block boundary or
+ * when the stream is closed, so callers which flush often, such as writers flushing after each statement, do not
+ * fragment the output into many small members.  The stream is not thread-safe.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ParallelGZIPOutputStream extends OutputStream {
+	public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+	/**
+	 * How many blocks, per thread in the pool, can be compressed ahead of the underlying stream
+	 */
+	private static final int BLOCKS_IN_FLIGHT = 2;
+
+	private final OutputStream mOut;
+
+	private final ForkJoinPool mPool;
+
+	private final int mBlockSize;
+
+	private final int mMaxInFlight;
+
+	private final Deque<ForkJoinTask<byte[]>> mInFlight = new ArrayDeque<>();
+
+	private byte[] mBlock;
+
+	private int mCount;
+
+	private boolean mWritten;
+
+	private boolean mClosed;
+
+	/**
+	 * Create a new ParallelGZIPOutputStream which compresses on the {@link ForkJoinPool#commonPool() common pool}
+	 *
+	 * @param theOut	the stream to write the compressed data to
+	 */
+	public ParallelGZIPOutputStream(final OutputStream theOut) {
+		this(theOut, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create a new ParallelGZIPOutputStream
+	 *
+	 * @param theOut		the stream to write the compressed data to
+	 * @param theBlockSize	the number of bytes compressed as one block
+	 * @param thePool		the pool to compress on
+	 */
+	public ParallelGZIPOutputStream(final OutputStream theOut, final int theBlockSize, final ForkJoinPool thePool) {
+		mOut = theOut;
+		mPool = thePool;
+		mBlockSize = theBlockSize;
+		mMaxInFlight = Math.max(thePool.getParallelism() * BLOCKS_IN_FLIGHT, 2);
+		mBlock = new byte[theBlockSize];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final int theByte) throws IOException {
+		mBlock[mCount++] = (byte) theByte;
+
+		if (mCount == mBlockSize) {
+			submit();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final byte[] theBytes, final int theOffset, final int theLength) throws IOException {
+		int aOffset = theOffset;
+		int aRemaining = theLength;
+
+		while (aRemaining > 0) {
+			final int aCount = Math.min(aRemaining, mBlockSize - mCount);
+
+			System.arraycopy(theBytes, aOffset, mBlock, mCount, aCount);
+
+			mCount += aCount;
+			aOffset += aCount;
+			aRemaining -= aCount;
+
+			if (mCount == mBlockSize) {
+				submit();
+			}
+		}
+	}
+
+	/**
+	 * Wait for the complete blocks to be compressed and write them to the underlying stream before flushing it.  The data
+	 * of the current, partial, block is kept until the block is full or the stream is closed.
+	 *
+	 * @throws IOException	if there was an error compressing or writing
+	 */
+	@Override
+	public void flush() throws IOException {
+		drain();
+		mOut.flush();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (mClosed) {
+			return;
+		}
+
+		mClosed = true;
+
+		try {
+			if (!mWritten && mCount == 0) {
+				// an empty stream still needs a member to be valid gzip
+				mInFlight.add(mPool.submit(() -> compress(new byte[0], 0)));
+			}
+
+			submit();
+			flush();
+		}
+		finally {
+			for (ForkJoinTask<?> aTask : mInFlight) {
+				aTask.cancel(true);
+			}
+
+			mOut.close();
+		}
+	}
+
+	private void submit() throws IOException {
+		if (mCount == 0) {
+			return;
+		}
+
+		final byte[] aBlock = mBlock;
+		final int aCount = mCount;
+
+		mInFlight.add(mPool.submit(() -> compress(aBlock, aCount)));
+		mWritten = true;
+
+		mBlock = new byte[mBlockSize];
+		mCount = 0;
+
+		while (mInFlight.size() > mMaxInFlight) {
+			writeNext();
+		}
+	}
+
+	private void drain() throws IOException {
+		while (!mInFlight.isEmpty()) {
+			writeNext();
+		}
+	}
+
+	private void writeNext() throws IOException {
+		try {
+			mOut.write(mInFlight.removeFirst().get());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+		catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException
+			      ? (IOException) e.getCause()
+			      : new IOException(e.getCause());
+		}
+	}
+
+	private static byte[] compress(final byte[] theBlock, final int theCount) throws IOException {
+		final ByteArrayOutputStream aOut = new ByteArrayOutputStream(Math.max(theCount / 3, 64));
+
+		try (GZIPOutputStream aGzip = new GZIPOutputStream(aOut, 8192)) {
+			aGzip.write(theBlock, 0, theCount);
+		}
+
+		return aOut.toByteArray();
+	}
+}
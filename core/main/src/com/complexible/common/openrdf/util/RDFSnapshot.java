@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+/**
+ * <p>A compact binary serialization of RDF meant for saving and restoring models quickly, rather than for exchange.
+ * Each distinct value is written once and assigned an id; statements are then written as the varint encoded ids of
+ * their subject, predicate, object and context.  The format is registered with Rio, so it can be used wherever an
+ * {@link RDFFormat} is expected and is recognized by the {@code .rdfsnap} file extension.</p>
+ *
+ * <p>A snapshot starts with the bytes {@code RDFS} and a version byte, followed by a sequence of records, each starting
+ * with a tag byte:</p>
+ * <ul>
+ *     <li>an IRI, blank node, plain literal, language tagged literal or typed literal definition: its string(s) and,
+ *     for typed literals, the id of the datatype.  The value gets the next id, starting from 1.</li>
+ *     <li>a namespace: its prefix and name</li>
+ *     <li>a statement: the ids of the subject, predicate, object and context, the id 0 being the default context</li>
+ *     <li>the end of the snapshot</li>
+ * </ul>
+ * <p>Values are defined before the first statement which uses them, so a snapshot can be written and read in one
+ * pass.  Strings are written as the varint length of their UTF-8 encoding followed by the bytes.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class RDFSnapshot {
+	/**
+	 * The snapshot format
+	 */
+	public static final RDFFormat FORMAT = new RDFFormat("RDF Snapshot", "application/x-rdf-snapshot", null, "rdfsnap",
+	                                                     RDFFormat.SUPPORTS_NAMESPACES, RDFFormat.SUPPORTS_CONTEXTS);
+
+	static final byte[] MAGIC = { 'R', 'D', 'F', 'S' };
+
+	static final int VERSION = 1;
+
+	static final int END = 0;
+
+	static final int IRI = 1;
+
+	static final int BNODE = 2;
+
+	static final int LITERAL = 3;
+
+	static final int LANG_LITERAL = 4;
+
+	static final int TYPED_LITERAL = 5;
+
+	static final int NAMESPACE = 6;
+
+	static final int STATEMENT = 7;
+
+	private RDFSnapshot() {
+		throw new AssertionError();
+	}
+
+	static void writeVarInt(final DataOutput theOut, final int theValue) throws IOException {
+		int aValue = theValue;
+
+		while ((aValue & ~0x7F) != 0) {
+			theOut.writeByte((aValue & 0x7F) | 0x80);
+			aValue >>>= 7;
+		}
+
+		theOut.writeByte(aValue);
+	}
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+
+import com.google.common.base.Charsets;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFParser;
+
+/**
+ * <p>Parser for the {@link RDFSnapshot snapshot} format.  Being a binary format, it can only be parsed from an
+ * {@link InputStream}.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class RDFSnapshotParser extends AbstractRDFParser {
+	private InputStream mIn;
+
+	private byte[] mBuffer;
+
+	private int mPosition;
+
+	private int mLimit;
+
+	private Value[] mValues;
+
+	private byte[] mScratch;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RDFFormat getRDFFormat() {
+		return RDFSnapshot.FORMAT;
+	}
+
+	/**
+	 * Unsupported, snapshots are binary
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void parse(final Reader theReader, final String theBaseURI) {
+		throw new UnsupportedOperationException("RDF snapshots are binary and cannot be parsed from a Reader");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void parse(final InputStream theStream, final String theBaseURI) throws IOException, RDFParseException, RDFHandlerException {
+		mIn = theStream;
+		mBuffer = new byte[64 * 1024];
+		mPosition = 0;
+		mLimit = 0;
+		mValues = new Value[1024];
+		mScratch = new byte[256];
+
+		try {
+			readHeader();
+
+			if (rdfHandler != null) {
+				rdfHandler.startRDF();
+			}
+
+			int aNextId = 1;
+
+			for (int aTag = readByte(); aTag != RDFSnapshot.END; aTag = readByte()) {
+				switch (aTag) {
+					case RDFSnapshot.STATEMENT:
+						final Resource aSubj = (Resource) value(readVarInt());
+						final IRI aPred = (IRI) value(readVarInt());
+						final Value aObj = value(readVarInt());
+						final int aContext = readVarInt();
+
+						if (rdfHandler != null) {
+							rdfHandler.handleStatement(aContext == 0
+							                           ? valueFactory.createStatement(aSubj, aPred, aObj)
+							                           : valueFactory.createStatement(aSubj, aPred, aObj, (Resource) value(aContext)));
+						}
+						break;
+					case RDFSnapshot.NAMESPACE:
+						final String aPrefix = readString();
+						final String aName = readString();
+
+						setNamespace(aPrefix, aName);
+
+						if (rdfHandler != null) {
+							rdfHandler.handleNamespace(aPrefix, aName);
+						}
+						break;
+					default:
+						define(aNextId++, readValue(aTag));
+				}
+			}
+
+			if (rdfHandler != null) {
+				rdfHandler.endRDF();
+			}
+		}
+		catch (EOFException e) {
+			reportFatalError("Unexpected end of the snapshot");
+		}
+		catch (ClassCastException | ArrayIndexOutOfBoundsException e) {
+			reportFatalError("The snapshot is corrupt: " + e.getMessage());
+		}
+		finally {
+			mIn = null;
+			mBuffer = null;
+			mValues = null;
+			mScratch = null;
+			clear();
+		}
+	}
+
+	private void readHeader() throws IOException, RDFParseException {
+		final byte[] aMagic = new byte[RDFSnapshot.MAGIC.length];
+		readFully(aMagic, aMagic.length);
+
+		if (!Arrays.equals(aMagic, RDFSnapshot.MAGIC)) {
+			reportFatalError("Not an RDF snapshot");
+		}
+
+		final int aVersion = readByte();
+
+		if (aVersion != RDFSnapshot.VERSION) {
+			reportFatalError("Unsupported RDF snapshot version: " + aVersion);
+		}
+	}
+
+	private Value readValue(final int theTag) throws IOException, RDFParseException {
+		switch (theTag) {
+			case RDFSnapshot.IRI:
+				return valueFactory.createIRI(readString());
+			case RDFSnapshot.BNODE:
+				return createBNode(readString());
+			case RDFSnapshot.LITERAL:
+				return valueFactory.createLiteral(readString());
+			case RDFSnapshot.LANG_LITERAL:
+				final String aLabel = readString();
+				return valueFactory.createLiteral(aLabel, readString());
+			case RDFSnapshot.TYPED_LITERAL:
+				final String aTypedLabel = readString();
+				return valueFactory.createLiteral(aTypedLabel, (IRI) value(readVarInt()));
+			default:
+				reportFatalError("Unknown record in RDF snapshot: " + theTag);
+				return null;
+		}
+	}
+
+	private void define(final int theId, final Value theValue) {
+		if (theId >= mValues.length) {
+			mValues = Arrays.copyOf(mValues, mValues.length * 2);
+		}
+
+		mValues[theId] = theValue;
+	}
+
+	private Value value(final int theId) throws RDFParseException {
+		final Value aValue = theId > 0 && theId < mValues.length ? mValues[theId] : null;
+
+		if (aValue == null) {
+			reportFatalError("Undefined value id in RDF snapshot: " + theId);
+		}
+
+		return aValue;
+	}
+
+	private String readString() throws IOException {
+		final int aLength = readVarInt();
+
+		if (mLimit - mPosition >= aLength) {
+			// the common case, decode straight from the buffer
+			final String aString = new String(mBuffer, mPosition, aLength, Charsets.UTF_8);
+			mPosition += aLength;
+			return aString;
+		}
+
+		if (aLength > mScratch.length) {
+			mScratch = new byte[Math.max(aLength, mScratch.length * 2)];
+		}
+
+		readFully(mScratch, aLength);
+
+		return new String(mScratch, 0, aLength, Charsets.UTF_8);
+	}
+
+	private int readVarInt() throws IOException {
+		int aValue = 0;
+
+		for (int aShift = 0; aShift < 32; aShift += 7) {
+			final int aByte = readByte();
+
+			aValue |= (aByte & 0x7F) << aShift;
+
+			if ((aByte & 0x80) == 0) {
+				return aValue;
+			}
+		}
+
+		throw new IOException("Malformed varint");
+	}
+
+	private int readByte() throws IOException {
+		if (mPosition == mLimit && !fill()) {
+			throw new EOFException();
+		}
+
+		return mBuffer[mPosition++] & 0xFF;
+	}
+
+	private void readFully(final byte[] theBytes, final int theLength) throws IOException {
+		int aRead = 0;
+
+		while (aRead < theLength) {
+			if (mPosition == mLimit && !fill()) {
+				throw new EOFException();
+			}
+
+			final int aCount = Math.min(theLength - aRead, mLimit - mPosition);
+
+			System.arraycopy(mBuffer, mPosition, theBytes, aRead, aCount);
+
+			mPosition += aCount;
+			aRead += aCount;
+		}
+	}
+
+	private boolean fill() throws IOException {
+		final int aRead = mIn.read(mBuffer);
+
+		mPosition = 0;
+		mLimit = Math.max(aRead, 0);
+
+		return aRead > 0;
+	}
+}
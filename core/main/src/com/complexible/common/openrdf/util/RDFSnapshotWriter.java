@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFWriter;
+
+/**
+ * <p>Writer for the {@link RDFSnapshot snapshot} format.  The writer keeps the id of every value it has written, so
+ * its memory use grows with the number of distinct values.  Comments are not written.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class RDFSnapshotWriter extends AbstractRDFWriter {
+	private final DataOutputStream mOut;
+
+	private final Map<Value, Integer> mIds = new HashMap<>();
+
+	private int mNextId = 1;
+
+	/**
+	 * Create a new RDFSnapshotWriter
+	 *
+	 * @param theStream	the stream to write to
+	 */
+	public RDFSnapshotWriter(final OutputStream theStream) {
+		mOut = new DataOutputStream(new BufferedOutputStream(theStream, 64 * 1024));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RDFFormat getRDFFormat() {
+		return RDFSnapshot.FORMAT;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void startRDF() throws RDFHandlerException {
+		try {
+			mOut.write(RDFSnapshot.MAGIC);
+			mOut.writeByte(RDFSnapshot.VERSION);
+		}
+		catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endRDF() throws RDFHandlerException {
+		try {
+			mOut.writeByte(RDFSnapshot.END);
+			mOut.flush();
+		}
+		catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleNamespace(final String thePrefix, final String theURI) throws RDFHandlerException {
+		try {
+			mOut.writeByte(RDFSnapshot.NAMESPACE);
+			writeString(thePrefix);
+			writeString(theURI);
+		}
+		catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleStatement(final Statement theStatement) throws RDFHandlerException {
+		try {
+			final int aSubj = id(theStatement.getSubject());
+			final int aPred = id(theStatement.getPredicate());
+			final int aObj = id(theStatement.getObject());
+			final int aContext = theStatement.getContext() == null ? 0 : id(theStatement.getContext());
+
+			mOut.writeByte(RDFSnapshot.STATEMENT);
+			RDFSnapshot.writeVarInt(mOut, aSubj);
+			RDFSnapshot.writeVarInt(mOut, aPred);
+			RDFSnapshot.writeVarInt(mOut, aObj);
+			RDFSnapshot.writeVarInt(mOut, aContext);
+		}
+		catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleComment(final String theComment) throws RDFHandlerException {
+		// comments are not part of a snapshot
+	}
+
+	/**
+	 * Return the id of the value, writing its definition if this is the first time it has been seen
+	 */
+	private int id(final Value theValue) throws IOException {
+		final Integer aId = mIds.get(theValue);
+
+		if (aId != null) {
+			return aId;
+		}
+
+		if (theValue instanceof IRI) {
+			mOut.writeByte(RDFSnapshot.IRI);
+			writeString(theValue.stringValue());
+		}
+		else if (theValue instanceof BNode) {
+			mOut.writeByte(RDFSnapshot.BNODE);
+			writeString(((BNode) theValue).getID());
+		}
+		else {
+			final Literal aLiteral = (Literal) theValue;
+
+			if (aLiteral.getLanguage().isPresent()) {
+				mOut.writeByte(RDFSnapshot.LANG_LITERAL);
+				writeString(aLiteral.getLabel());
+				writeString(aLiteral.getLanguage().get());
+			}
+			else if (aLiteral.getDatatype() == null) {
+				mOut.writeByte(RDFSnapshot.LITERAL);
+				writeString(aLiteral.getLabel());
+			}
+			else {
+				final int aDatatype = id(aLiteral.getDatatype());
+
+				mOut.writeByte(RDFSnapshot.TYPED_LITERAL);
+				writeString(aLiteral.getLabel());
+				RDFSnapshot.writeVarInt(mOut, aDatatype);
+			}
+		}
+
+		mIds.put(theValue, mNextId);
+
+		return mNextId++;
+	}
+
+	private void writeString(final String theString) throws IOException {
+		final byte[] aBytes = theString.getBytes(Charsets.UTF_8);
+
+		RDFSnapshot.writeVarInt(mOut, aBytes.length);
+		mOut.write(aBytes);
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.io.OutputStream;
+import java.io.Writer;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.RDFWriterFactory;
+
+/**
+ * <p>{@link RDFWriterFactory} for the {@link RDFSnapshot snapshot} format.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class RDFSnapshotWriterFactory implements RDFWriterFactory {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RDFFormat getRDFFormat() {
+		return RDFSnapshot.FORMAT;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RDFWriter getWriter(final OutputStream theStream) {
+		return new RDFSnapshotWriter(theStream);
+	}
+
+	/**
+	 * Unsupported, snapshots are binary
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public RDFWriter getWriter(final Writer theWriter) {
+		throw new UnsupportedOperationException("RDF snapshots are binary and cannot be written to a Writer");
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>An {@link InputStream} which reads another stream ahead of its consumer on a thread of its own, so that the work
+ * done by the other stream, e.g. decompression, overlaps with the work done by the consumer, e.g. parsing.  At most a
+ * bounded number of chunks are read ahead.  The other stream is only ever used by the reading thread, which closes it
+ * when it stops; closing this stream stops the thread and waits for it, so a read in progress finishes before the other
+ * stream is closed.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+final class ReadAheadInputStream extends InputStream {
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private static final int QUEUE_SIZE = 16;
+
+	private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+	/**
+	 * Marker for the end of the stream
+	 */
+	private static final byte[] EOF = new byte[0];
+
+	private final InputStream mIn;
+
+	private final BlockingQueue<byte[]> mQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+	private final Thread mThread;
+
+	private byte[] mChunk;
+
+	private int mPosition;
+
+	private volatile boolean mClosed;
+
+	private volatile IOException mFailure;
+
+	/**
+	 * The error, if any, closing the other stream
+	 */
+	private volatile IOException mCloseFailure;
+
+	ReadAheadInputStream(final InputStream theIn) {
+		mIn = theIn;
+
+		mThread = new Thread(this::readAhead, "read-ahead-" + THREAD_ID.incrementAndGet());
+		mThread.setDaemon(true);
+		mThread.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		return ensure() ? mChunk[mPosition++] & 0xFF : -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(final byte[] theBytes, final int theOffset, final int theLength) throws IOException {
+		if (theLength == 0) {
+			return 0;
+		}
+
+		if (!ensure()) {
+			return -1;
+		}
+
+		final int aCount = Math.min(theLength, mChunk.length - mPosition);
+
+		System.arraycopy(mChunk, mPosition, theBytes, theOffset, aCount);
+		mPosition += aCount;
+
+		return aCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int available() throws IOException {
+		return mChunk == null || mChunk == EOF ? 0 : mChunk.length - mPosition;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (mClosed) {
+			return;
+		}
+
+		mClosed = true;
+
+		// don't leave the thread waiting on a full queue
+		mQueue.clear();
+
+		try {
+			mThread.join();
+		}
+		catch (InterruptedException e) {
+			// the thread still closes the other stream once it stops
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+
+		if (mCloseFailure != null) {
+			throw mCloseFailure;
+		}
+	}
+
+	/**
+	 * Make sure there are bytes available in the current chunk, taking the next one if needed
+	 *
+	 * @return	true if there are bytes available, false at the end of the stream
+	 */
+	private boolean ensure() throws IOException {
+		if (mClosed) {
+			throw new IOException("The stream is closed");
+		}
+
+		while (mChunk == null || mPosition == mChunk.length) {
+			if (mChunk == EOF) {
+				return false;
+			}
+
+			try {
+				mChunk = mQueue.take();
+				mPosition = 0;
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+
+			if (mChunk == EOF && mFailure != null) {
+				throw mFailure;
+			}
+		}
+
+		return true;
+	}
+
+	private void readAhead() {
+		try {
+			while (!mClosed) {
+				final byte[] aChunk = new byte[CHUNK_SIZE];
+
+				int aCount = 0;
+				int aRead = 0;
+
+				while (!mClosed && aCount < aChunk.length && (aRead = mIn.read(aChunk, aCount, aChunk.length - aCount)) != -1) {
+					aCount += aRead;
+				}
+
+				if (aCount > 0) {
+					put(aCount == aChunk.length ? aChunk : Arrays.copyOf(aChunk, aCount));
+				}
+
+				if (aRead == -1) {
+					break;
+				}
+			}
+		}
+		catch (IOException e) {
+			mFailure = e;
+		}
+		catch (RuntimeException e) {
+			mFailure = new IOException(e);
+		}
+		catch (InterruptedException e) {
+			mFailure = new InterruptedIOException();
+		}
+		finally {
+			try {
+				put(EOF);
+			}
+			catch (InterruptedException e) {
+				// nobody is waiting anymore
+			}
+
+			try {
+				mIn.close();
+			}
+			catch (IOException e) {
+				mCloseFailure = e;
+			}
+		}
+	}
+
+	private void put(final byte[] theChunk) throws InterruptedException {
+		while (!mClosed && !mQueue.offer(theChunk, 100, TimeUnit.MILLISECONDS)) {
+			// wait for the consumer, or for it to give up
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import com.google.common.base.Preconditions;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * <p>A Bloom filter over statements, used to answer {@code contains} checks which are definitely negative without
+ * looking at the statements themselves.  Each statement is recorded twice, with and without its context, so the filter
+ * answers both for a statement in a given context and for a triple in any context.  A negative answer is always right;
+ * a positive answer is wrong with a probability which depends on the number of bits per statement and grows as the
+ * filter fills up, see {@link #getFalsePositiveRate()}.</p>
+ *
+ * <p>Statements cannot be removed from a Bloom filter; once enough of the recorded statements are gone, the filter
+ * should be rebuilt from the remaining ones.</p>
+ *
+ * <p>This implementation is not thread-safe.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class StatementBloomFilter {
+	private static final double LN2 = Math.log(2);
+
+	private final long[] mBits;
+
+	private final long mSize;
+
+	private final int mHashes;
+
+	private long mSetBits;
+
+	private long mStatements;
+
+	/**
+	 * Create a new filter
+	 *
+	 * @param theBits	the number of bits of the filter
+	 * @param theHashes	the number of bits set for each statement and triple
+	 */
+	public StatementBloomFilter(final long theBits, final int theHashes) {
+		Preconditions.checkArgument(theBits > 0 && theBits <= 64L * Integer.MAX_VALUE, "Invalid number of bits: %s", theBits);
+		Preconditions.checkArgument(theHashes > 0, "The number of hashes must be positive");
+
+		mBits = new long[(int) ((theBits + 63) / 64)];
+		mSize = theBits;
+		mHashes = theHashes;
+	}
+
+	/**
+	 * Create a filter sized so that it has the given false positive rate once it holds the expected number of statements
+	 *
+	 * @param theExpectedStatements	the number of statements the filter is expected to hold
+	 * @param theFalsePositiveRate	the false positive rate at that size, between 0 and 1
+	 * @return						the new filter
+	 */
+	public static StatementBloomFilter create(final long theExpectedStatements, final double theFalsePositiveRate) {
+		Preconditions.checkArgument(theFalsePositiveRate > 0 && theFalsePositiveRate < 1, "The false positive rate must be between 0 and 1");
+
+		// every statement is recorded with and without its context
+		final long aKeys = Math.max(1, theExpectedStatements * 2);
+		final long aBits = Math.max(64, (long) Math.ceil(-aKeys * Math.log(theFalsePositiveRate) / (LN2 * LN2)));
+
+		return new StatementBloomFilter(aBits, Math.max(1, (int) Math.round(aBits / (double) aKeys * LN2)));
+	}
+
+	/**
+	 * Record the statement
+	 *
+	 * @param theStatement	the statement
+	 */
+	public void add(final Statement theStatement) {
+		final long aTriple = triple(theStatement.getSubject(), theStatement.getPredicate(), theStatement.getObject());
+
+		set(mix(aTriple));
+		set(quad(aTriple, theStatement.getContext()));
+
+		mStatements++;
+	}
+
+	/**
+	 * Return whether the statement, in its context, may have been recorded
+	 *
+	 * @param theStatement	the statement
+	 * @return				false if the statement was definitely not recorded
+	 */
+	public boolean mightContain(final Statement theStatement) {
+		return mightContain(theStatement.getSubject(), theStatement.getPredicate(), theStatement.getObject(), theStatement.getContext());
+	}
+
+	/**
+	 * Return whether a statement with the subject, predicate and object may have been recorded, in any context
+	 *
+	 * @param theSubj	the subject
+	 * @param thePred	the predicate
+	 * @param theObj	the object
+	 * @return			false if no such statement was recorded
+	 */
+	public boolean mightContain(final Resource theSubj, final IRI thePred, final Value theObj) {
+		return isSet(mix(triple(theSubj, thePred, theObj)));
+	}
+
+	/**
+	 * Return whether the statement may have been recorded in the given context
+	 *
+	 * @param theSubj		the subject
+	 * @param thePred		the predicate
+	 * @param theObj		the object
+	 * @param theContext	the context, or null for the default context
+	 * @return				false if the statement was definitely not recorded
+	 */
+	public boolean mightContain(final Resource theSubj, final IRI thePred, final Value theObj, final Resource theContext) {
+		return isSet(quad(triple(theSubj, thePred, theObj), theContext));
+	}
+
+	/**
+	 * Return the number of statements recorded
+	 *
+	 * @return	the number of statements
+	 */
+	public long getStatementCount() {
+		return mStatements;
+	}
+
+	/**
+	 * Return the estimated probability that the filter answers positively for a statement which was not recorded, given
+	 * how many of its bits are set
+	 *
+	 * @return	the false positive rate
+	 */
+	public double getFalsePositiveRate() {
+		return Math.pow(mSetBits / (double) mSize, mHashes);
+	}
+
+	/**
+	 * Return the number of bits of the filter
+	 *
+	 * @return	the number of bits
+	 */
+	public long getBitCount() {
+		return mSize;
+	}
+
+	/**
+	 * Return the number of bits set for each statement and triple
+	 *
+	 * @return	the number of hashes
+	 */
+	public int getHashCount() {
+		return mHashes;
+	}
+
+	/**
+	 * Return the number of bytes taken by the bits of the filter
+	 *
+	 * @return	the memory used
+	 */
+	public long getMemoryUsage() {
+		return mBits.length * 8L;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format("StatementBloomFilter [statements=%,d, bits=%,d, hashes=%d, fpp=%.4f]",
+		                     mStatements, mSize, mHashes, getFalsePositiveRate());
+	}
+
+	private void set(final long theHash) {
+		final long aStep = step(theHash);
+
+		for (int i = 0; i < mHashes; i++) {
+			final long aBit = index(theHash + i * aStep);
+			final long aMask = 1L << aBit;
+			final int aWord = (int) (aBit >>> 6);
+
+			if ((mBits[aWord] & aMask) == 0) {
+				mBits[aWord] |= aMask;
+				mSetBits++;
+			}
+		}
+	}
+
+	private boolean isSet(final long theHash) {
+		final long aStep = step(theHash);
+
+		for (int i = 0; i < mHashes; i++) {
+			final long aBit = index(theHash + i * aStep);
+
+			if ((mBits[(int) (aBit >>> 6)] & (1L << aBit)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private long index(final long theHash) {
+		return (theHash & Long.MAX_VALUE) % mSize;
+	}
+
+	private static long step(final long theHash) {
+		// the second hash of the double hashing, odd so that it is never 0
+		return mix(theHash ^ 0x9E3779B97F4A7C15L) | 1;
+	}
+
+	private static long triple(final Resource theSubj, final IRI thePred, final Value theObj) {
+		long aHash = theSubj.hashCode();
+		aHash = aHash * 0x9E3779B97F4A7C15L + thePred.hashCode();
+		aHash = aHash * 0x9E3779B97F4A7C15L + theObj.hashCode();
+		return aHash;
+	}
+
+	private static long quad(final long theTriple, final Resource theContext) {
+		return mix(mix(theTriple) + (theContext == null ? 0 : theContext.hashCode()) + 1);
+	}
+
+	private static long mix(final long theValue) {
+		long aValue = theValue;
+
+		aValue = (aValue ^ (aValue >>> 33)) * 0xff51afd7ed558ccdL;
+		aValue = (aValue ^ (aValue >>> 33)) * 0xc4ceb9fe1a85ec53L;
+
+		return aValue ^ (aValue >>> 33);
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The number of statements and bytes moved by a read or a write, and how long it took.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class TransferStats {
+	private final long mStatements;
+
+	private final long mBytes;
+
+	private final long mElapsedNanos;
+
+	/**
+	 * Create a new TransferStats
+	 *
+	 * @param theStatements		the number of statements transferred
+	 * @param theBytes			the number of bytes transferred
+	 * @param theElapsedNanos	the time the transfer took, in nanoseconds
+	 */
+	public TransferStats(final long theStatements, final long theBytes, final long theElapsedNanos) {
+		mStatements = theStatements;
+		mBytes = theBytes;
+		mElapsedNanos = theElapsedNanos;
+	}
+
+	/**
+	 * Return the number of statements transferred
+	 *
+	 * @return	the number of statements
+	 */
+	public long getStatements() {
+		return mStatements;
+	}
+
+	/**
+	 * Return the number of bytes transferred
+	 *
+	 * @return	the number of bytes
+	 */
+	public long getBytes() {
+		return mBytes;
+	}
+
+	/**
+	 * Return how long the transfer took
+	 *
+	 * @param theUnit	the unit to return the time in
+	 * @return			the elapsed time
+	 */
+	public long getElapsed(final TimeUnit theUnit) {
+		return theUnit.convert(mElapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Return the average number of statements transferred per second
+	 *
+	 * @return	the statement rate
+	 */
+	public double getStatementsPerSecond() {
+		return perSecond(mStatements);
+	}
+
+	/**
+	 * Return the average number of bytes transferred per second
+	 *
+	 * @return	the byte rate
+	 */
+	public double getBytesPerSecond() {
+		return perSecond(mBytes);
+	}
+
+	private double perSecond(final long theCount) {
+		return mElapsedNanos == 0 ? 0 : theCount * (double) TimeUnit.SECONDS.toNanos(1) / mElapsedNanos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format("%,d statements, %,d bytes in %,d ms (%,.0f statements/s, %,.0f bytes/s)",
+		                     mStatements, mBytes, getElapsed(TimeUnit.MILLISECONDS),
+		                     getStatementsPerSecond(), getBytesPerSecond());
+	}
+}
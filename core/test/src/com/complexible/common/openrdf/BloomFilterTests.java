@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.complexible.common.openrdf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.complexible.common.openrdf.model.BloomFilteredModel;
+import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.repository.ContainsFilter;
+import com.complexible.common.openrdf.repository.RepositoryConnections;
+import com.complexible.common.openrdf.util.StatementBloomFilter;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.inferencer.fc.ForwardChainingRDFSInferencer;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Tests for {@link StatementBloomFilter}, {@link BloomFilteredModel} and {@link ContainsFilter}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class BloomFilterTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	private static Statement statement(final int theIndex, final IRI theContext) {
+		return FACTORY.createStatement(FACTORY.createIRI("urn:s" + theIndex), RDF.VALUE, FACTORY.createLiteral(theIndex), theContext);
+	}
+
+	@Test
+	public void testFalsePositiveRate() {
+		final IRI aContext = FACTORY.createIRI("urn:g");
+		final StatementBloomFilter aFilter = StatementBloomFilter.create(10000, 0.01);
+
+		for (int i = 0; i < 10000; i++) {
+			aFilter.add(statement(i, i % 2 == 0 ? null : aContext));
+		}
+
+		for (int i = 0; i < 10000; i++) {
+			final Statement aStmt = statement(i, i % 2 == 0 ? null : aContext);
+
+			assertTrue(aFilter.mightContain(aStmt));
+			assertTrue(aFilter.mightContain(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject()));
+		}
+
+		int aFalsePositives = 0;
+
+		for (int i = 10000; i < 20000; i++) {
+			if (aFilter.mightContain(statement(i, null))) {
+				aFalsePositives++;
+			}
+		}
+
+		assertEquals(10000, aFilter.getStatementCount());
+		assertTrue(aFilter.getFalsePositiveRate() < 0.02);
+		assertTrue(aFalsePositives < 200);
+		assertTrue(aFilter.getMemoryUsage() >= aFilter.getBitCount() / 8);
+	}
+
+	@Test
+	public void testModel() {
+		final IRI aContext = FACTORY.createIRI("urn:g");
+		final BloomFilteredModel aModel = BloomFilteredModel.of(Models2.newModel(), 16, 0.01);
+
+		for (int i = 0; i < 5000; i++) {
+			aModel.add(statement(i, aContext));
+		}
+
+		// the filter grew with the model
+		assertTrue(aModel.getFilter().getStatementCount() >= 5000);
+
+		final Statement aStmt = statement(42, aContext);
+
+		assertTrue(aModel.contains(aStmt));
+		assertTrue(aModel.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject()));
+		assertTrue(aModel.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), aContext));
+		assertTrue(aModel.contains(aStmt.getSubject(), null, null));
+
+		assertFalse(aModel.contains(statement(42, null)));
+		assertFalse(aModel.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), (IRI) null));
+		assertFalse(aModel.contains(statement(5001, aContext)));
+
+		aModel.remove(aStmt);
+
+		assertFalse(aModel.contains(aStmt));
+
+		// enough removals rebuild the filter from the remaining statements
+		aModel.removeIf(theStmt -> !theStmt.getSubject().equals(FACTORY.createIRI("urn:s7")));
+
+		assertEquals(1, aModel.size());
+		assertEquals(1, aModel.getFilter().getStatementCount());
+		assertTrue(aModel.contains(statement(7, aContext)));
+	}
+
+	@Test
+	public void testConnection() throws Exception {
+		final Repository aRepo = TestRepositories.createInMemoryRepo();
+
+		final RepositoryConnection aConn = aRepo.getConnection();
+
+		try {
+			final List<Statement> aStmts = new ArrayList<>();
+
+			for (int i = 0; i < 100; i++) {
+				aStmts.add(statement(i, null));
+			}
+
+			RepositoryConnections.add(aConn, aStmts);
+
+			final ContainsFilter aFilter = ContainsFilter.of(aConn);
+			final IRI aContext = FACTORY.createIRI("urn:g");
+
+			assertEquals(100, aFilter.getFilter().getStatementCount());
+			assertTrue(aFilter.contains(statement(1, null)));
+			assertFalse(aFilter.contains(statement(1, aContext)));
+			assertFalse(aFilter.contains(statement(100, null)));
+
+			aFilter.add(Models2.newModel(statement(100, null)), aContext);
+
+			assertTrue(aFilter.contains(statement(100, aContext)));
+			assertTrue(aFilter.contains(statement(100, null)));
+
+			final Statement aStmt = statement(100, null);
+
+			assertTrue(aFilter.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject()));
+
+			// adding more statements than the filter was sized for grows it
+			final ContainsFilter aSmall = ContainsFilter.of(aConn, 0, 0.01, false);
+			final long aBits = aSmall.getFilter().getBitCount();
+			final List<Statement> aMore = new ArrayList<>();
+
+			for (int i = 101; i < 400; i++) {
+				aMore.add(statement(i, null));
+			}
+
+			aSmall.add(aMore);
+
+			assertTrue(aSmall.getFilter().getBitCount() > aBits);
+			assertEquals(aConn.size(), aSmall.getFilter().getStatementCount());
+			assertTrue(aSmall.contains(statement(399, null)));
+			assertFalse(aSmall.contains(statement(400, null)));
+		}
+		finally {
+			aConn.close();
+			aRepo.shutDown();
+		}
+	}
+
+	@Test
+	public void testConnectionInferred() throws Exception {
+		final Repository aRepo = new SailRepository(new ForwardChainingRDFSInferencer(new MemoryStore()));
+		aRepo.initialize();
+
+		final RepositoryConnection aConn = aRepo.getConnection();
+
+		try {
+			final IRI aClass = FACTORY.createIRI("urn:Class");
+			final IRI aSuper = FACTORY.createIRI("urn:Super");
+			final IRI aInstance = FACTORY.createIRI("urn:i");
+
+			RepositoryConnections.add(aConn, Models2.newModel(FACTORY.createStatement(aClass, RDFS.SUBCLASSOF, aSuper)));
+
+			final ContainsFilter aInferred = ContainsFilter.of(aConn, 1024, 0.01, true);
+
+			aInferred.add(Models2.newModel(FACTORY.createStatement(aInstance, RDF.TYPE, aClass)));
+
+			assertTrue(aConn.hasStatement(aInstance, RDF.TYPE, aSuper, true));
+
+			// the statement inferred from the added one is not in the filter, but is still found
+			assertFalse(aInferred.getFilter().mightContain(aInstance, RDF.TYPE, aSuper));
+			assertTrue(aInferred.contains(aInstance, RDF.TYPE, aSuper));
+			assertTrue(aInferred.contains(FACTORY.createStatement(aInstance, RDF.TYPE, aSuper)));
+
+			aInferred.rebuild();
+
+			assertTrue(aInferred.getFilter().mightContain(aInstance, RDF.TYPE, aSuper));
+			assertTrue(aInferred.contains(aInstance, RDF.TYPE, aSuper));
+			assertFalse(aInferred.contains(aInstance, RDF.TYPE, aInstance));
+
+			// the explicit filter answers the same as the connection does for explicit statements
+			final ContainsFilter aExplicit = ContainsFilter.of(aConn);
+
+			assertTrue(aExplicit.contains(aInstance, RDF.TYPE, aClass));
+			assertFalse(aExplicit.contains(aInstance, RDF.TYPE, aSuper));
+			assertFalse(aConn.hasStatement(aInstance, RDF.TYPE, aSuper, false));
+
+			final IRI aOther = FACTORY.createIRI("urn:j");
+
+			aExplicit.add(Models2.newModel(FACTORY.createStatement(aOther, RDF.TYPE, aClass)));
+
+			assertTrue(aExplicit.contains(aOther, RDF.TYPE, aClass));
+			assertFalse(aExplicit.contains(aOther, RDF.TYPE, aSuper));
+		}
+		finally {
+			aConn.close();
+			aRepo.shutDown();
+		}
+	}
+}
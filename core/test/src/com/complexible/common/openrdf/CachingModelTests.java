@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.complexible.common.openrdf;
+
+import java.util.Iterator;
+
+import com.complexible.common.openrdf.model.CachingModel;
+import com.complexible.common.openrdf.model.Models2;
+import com.google.common.collect.Lists;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Tests for {@link CachingModel}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class CachingModelTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testCachedLookups() {
+		final IRI aSubj = FACTORY.createIRI("urn:s");
+		final IRI aOther = FACTORY.createIRI("urn:other");
+
+		final CachingModel aModel = CachingModel.of(Models2.newModel());
+
+		aModel.add(aSubj, RDFS.LABEL, FACTORY.createLiteral("label"));
+		aModel.add(aSubj, RDF.TYPE, RDFS.CLASS);
+		aModel.add(aOther, RDF.TYPE, RDFS.RESOURCE);
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals("label", Models2.getLiteral(aModel, aSubj, RDFS.LABEL).get().getLabel());
+		}
+
+		assertEquals(1, aModel.getCachedPatterns());
+		assertEquals(10, aModel.getLookups());
+		assertEquals(9, aModel.getHits());
+		assertSame(aModel.filter(aSubj, RDFS.LABEL, null), aModel.filter(aSubj, RDFS.LABEL, null));
+
+		assertEquals(1, aModel.filter(aSubj, RDF.TYPE, null).size());
+
+		// a change to an unrelated pattern keeps the cached statements
+		aModel.add(aOther, RDFS.LABEL, FACTORY.createLiteral("other"));
+
+		assertEquals(0, aModel.getInvalidations());
+		assertEquals(1, aModel.filter(aSubj, RDF.TYPE, null).size());
+
+		// while one that matches drops them
+		aModel.add(aSubj, RDF.TYPE, RDFS.RESOURCE);
+
+		assertEquals(1, aModel.getInvalidations());
+		assertEquals(2, aModel.filter(aSubj, RDF.TYPE, null).size());
+		assertTrue(aModel.filter(aSubj, RDF.TYPE, null).objects().contains(RDFS.RESOURCE));
+
+		// changes through a view invalidate too
+		aModel.filter(aSubj, null, null).remove(aSubj, RDF.TYPE, RDFS.CLASS);
+
+		assertEquals(1, aModel.filter(aSubj, RDF.TYPE, null).size());
+		assertFalse(Models2.getResource(aModel, aSubj, RDF.TYPE).get().equals(RDFS.CLASS));
+
+		for (Iterator<Statement> aIter = aModel.filter(null, RDFS.LABEL, null).iterator(); aIter.hasNext(); ) {
+			aIter.next();
+			aIter.remove();
+		}
+
+		assertFalse(Models2.getLiteral(aModel, aSubj, RDFS.LABEL).isPresent());
+		assertEquals(2, aModel.size());
+	}
+
+	@Test
+	public void testEviction() {
+		final CachingModel aModel = CachingModel.of(TestUtils.createRandomModel(200), 10);
+
+		for (Statement aStmt : Models2.newModel(aModel)) {
+			assertTrue(aModel.filter(aStmt.getSubject(), aStmt.getPredicate(), null).contains(aStmt));
+		}
+
+		assertTrue(aModel.getCachedPatterns() <= 10);
+
+		aModel.invalidateAll();
+
+		assertEquals(0, aModel.getCachedPatterns());
+	}
+
+	@Test
+	public void testBoundedByStatements() {
+		final IRI aSubj = FACTORY.createIRI("urn:s");
+		final IRI aOther = FACTORY.createIRI("urn:other");
+
+		final CachingModel aModel = CachingModel.of(Models2.newModel(), 100);
+
+		for (int i = 0; i < 1000; i++) {
+			aModel.add(aSubj, RDF.VALUE, FACTORY.createLiteral(i));
+		}
+
+		aModel.add(aOther, RDF.VALUE, FACTORY.createLiteral(0));
+
+		// a result larger than the cache is not kept, and its view answers from the model
+		final Model aLarge = aModel.filter(aSubj, RDF.VALUE, null);
+
+		assertEquals(0, aModel.getCachedPatterns());
+		assertEquals(1000, aLarge.size());
+
+		aModel.add(aSubj, RDF.VALUE, FACTORY.createLiteral(1000));
+
+		assertEquals(1001, aLarge.size());
+		assertEquals(1001, aLarge.objects().size());
+
+		// a small one is
+		final Model aSmall = aModel.filter(aOther, RDF.VALUE, null);
+
+		assertEquals(1, aModel.getCachedPatterns());
+		assertSame(aSmall, aModel.filter(aOther, RDF.VALUE, null));
+
+		// and once a change drops it, a view which is still held sees the model
+		aModel.add(aOther, RDF.VALUE, FACTORY.createLiteral(1));
+
+		assertEquals(0, aModel.getCachedPatterns());
+		assertEquals(2, aSmall.size());
+		assertEquals(2, aModel.filter(aOther, RDF.VALUE, null).size());
+		assertFalse(aSmall == aModel.filter(aOther, RDF.VALUE, null));
+
+		aModel.add(aOther, RDF.VALUE, FACTORY.createLiteral(2));
+
+		assertEquals(3, aSmall.size());
+	}
+
+	@Test
+	public void testGetTypes() {
+		final IRI aSubj = FACTORY.createIRI("urn:s");
+
+		final CachingModel aModel = CachingModel.of(Models2.newModel());
+
+		aModel.add(aSubj, RDF.TYPE, RDFS.CLASS, FACTORY.createIRI("urn:g1"));
+		aModel.add(aSubj, RDF.TYPE, RDFS.CLASS, FACTORY.createIRI("urn:g2"));
+		aModel.add(aSubj, RDF.TYPE, RDFS.RESOURCE);
+
+		// a type is returned once per statement, as from any other model
+		assertEquals(Lists.newArrayList(Models2.getTypes(Models2.newModel(aModel), aSubj)),
+		             Lists.newArrayList(Models2.getTypes(aModel, aSubj)));
+		assertEquals(3, Lists.newArrayList(Models2.getTypes(aModel, aSubj)).size());
+	}
+}
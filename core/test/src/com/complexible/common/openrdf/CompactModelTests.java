@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf;
+
+import java.io.StringReader;
+import java.util.Iterator;
+
+import com.complexible.common.openrdf.model.CompactModel;
+import com.complexible.common.openrdf.model.ModelIO;
+import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.model.ValueDictionary;
+import com.google.common.collect.Sets;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Tests for {@link CompactModel}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class CompactModelTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testAddContainsRemove() {
+		Model aInput = TestUtils.createRandomModel(100);
+
+		Model aModel = Models2.newCompactModel();
+		assertTrue(aModel.addAll(aInput));
+		assertFalse(aModel.addAll(aInput));
+
+		assertEquals(aInput.size(), aModel.size());
+		assertEquals(Sets.newHashSet(aInput), Sets.newHashSet(aModel));
+
+		for (Statement aStmt : aInput) {
+			assertTrue(aModel.contains(aStmt));
+			assertTrue(aModel.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject()));
+			assertFalse(aModel.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), FACTORY.createIRI("urn:cxt")));
+		}
+
+		for (Statement aStmt : aInput) {
+			assertTrue(aModel.remove(aStmt));
+			assertFalse(aModel.contains(aStmt));
+		}
+
+		assertTrue(aModel.isEmpty());
+		assertFalse(aModel.iterator().hasNext());
+	}
+
+	@Test
+	public void testFilter() {
+		final IRI s = FACTORY.createIRI("urn:s");
+		final IRI s2 = FACTORY.createIRI("urn:s2");
+		final IRI p = FACTORY.createIRI("urn:p");
+		final IRI c = FACTORY.createIRI("urn:c");
+		final IRI c2 = FACTORY.createIRI("urn:c2");
+
+		Model aModel = Models2.newCompactModel();
+
+		aModel.add(s, RDF.TYPE, p);
+		aModel.add(s, p, FACTORY.createLiteral("literal"), c);
+		aModel.add(s2, p, s, c, c2);
+		aModel.add(s2, RDF.TYPE, p);
+
+		assertEquals(5, aModel.size());
+		assertEquals(2, aModel.filter(null, RDF.TYPE, null).size());
+		assertEquals(2, aModel.filter(s, null, null).size());
+		assertEquals(2, aModel.filter(null, null, null, c).size());
+		assertEquals(3, aModel.filter(null, null, null, c, c2).size());
+		assertEquals(2, aModel.filter(null, null, null, (IRI) null).size());
+		assertEquals(1, aModel.filter(s2, p, null, c2).size());
+		assertEquals(0, aModel.filter(FACTORY.createIRI("urn:unknown"), null, null).size());
+
+		assertEquals(Sets.newHashSet(s, s2), aModel.filter(null, RDF.TYPE, p).subjects());
+
+		assertTrue(aModel.filter(null, p, null).remove(s2, p, s, c));
+		assertEquals(4, aModel.size());
+
+		aModel.clear(c2);
+		assertEquals(3, aModel.size());
+		assertFalse(aModel.contains(null, null, null, c2));
+	}
+
+	@Test
+	public void testIteratorRemoveAndReuse() {
+		Model aInput = TestUtils.createRandomModel(5000);
+
+		Model aModel = Models2.newCompactModel();
+		aModel.addAll(aInput);
+
+		Iterator<Statement> aIter = aModel.iterator();
+		int aRemoved = 0;
+		while (aIter.hasNext()) {
+			aIter.next();
+			if (aRemoved++ % 5 != 0) {
+				aIter.remove();
+			}
+		}
+
+		assertEquals(1000, aModel.size());
+
+		// adding back triggers reclaiming the removed statements
+		aModel.addAll(aInput);
+
+		assertEquals(aInput.size(), aModel.size());
+		assertTrue(Models.isomorphic(aInput, aModel));
+	}
+
+	@Test
+	public void testSharedDictionary() {
+		ValueDictionary aDictionary = new ValueDictionary();
+
+		Model aFirst = Models2.newCompactModel(aDictionary);
+		Model aSecond = Models2.newCompactModel(aDictionary);
+
+		Model aInput = TestUtils.createRandomModel(20);
+
+		aFirst.addAll(aInput);
+		final int aValues = aDictionary.size();
+
+		aSecond.addAll(aInput);
+
+		assertEquals(aValues, aDictionary.size());
+		assertEquals(aFirst, aSecond);
+	}
+
+	@Test
+	public void testRead() throws Exception {
+		Model aInput = TestUtils.createRandomModel(50);
+
+		Model aModel = ModelIO.read(new StringReader(ModelIO.toString(aInput, RDFFormat.TURTLE)), RDFFormat.TURTLE,
+		                            ModelIO.DEFAULT_BASE_URI, Models2.newCompactModel());
+
+		assertTrue(aModel instanceof CompactModel);
+		assertTrue(Models.isomorphic(aInput, aModel));
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.complexible.common.openrdf;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.complexible.common.openrdf.model.ConcurrentModel;
+import com.complexible.common.openrdf.model.Models2;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Tests for {@link ConcurrentModel}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class ConcurrentModelTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testPatterns() {
+		final Model aExpected = TestUtils.createRandomModel(1000);
+		final IRI aContext = FACTORY.createIRI("urn:g");
+
+		aExpected.add(FACTORY.createIRI("urn:a"), RDF.TYPE, RDFS.CLASS, aContext);
+		aExpected.add(FACTORY.createIRI("urn:b"), RDF.TYPE, RDFS.CLASS, aContext, null);
+
+		final ConcurrentModel aModel = Models2.newConcurrentModel();
+		aModel.addAll(aExpected);
+
+		assertEquals(aExpected.size(), aModel.size());
+		assertEquals(aExpected, new LinkedHashModel(aModel));
+
+		final Statement aStmt = aExpected.iterator().next();
+
+		assertTrue(aModel.contains(aStmt));
+		assertEquals(aExpected.filter(aStmt.getSubject(), null, null), new LinkedHashModel(aModel.filter(aStmt.getSubject(), null, null)));
+		assertEquals(aExpected.filter(null, aStmt.getPredicate(), null), new LinkedHashModel(aModel.filter(null, aStmt.getPredicate(), null)));
+		assertEquals(aExpected.filter(null, null, aStmt.getObject()), new LinkedHashModel(aModel.filter(null, null, aStmt.getObject())));
+		assertEquals(aExpected.filter(null, RDF.TYPE, null, aContext), new LinkedHashModel(aModel.filter(null, RDF.TYPE, null, aContext)));
+		assertEquals(aExpected.filter(null, null, null, (Resource) null), new LinkedHashModel(aModel.filter(null, null, null, (Resource) null)));
+		assertFalse(aModel.contains(FACTORY.createIRI("urn:a"), null, null, (Resource) null));
+
+		aModel.remove(null, RDF.TYPE, RDFS.CLASS);
+
+		assertEquals(aExpected.size() - 3, aModel.size());
+		assertFalse(aModel.contains(null, null, RDFS.CLASS));
+
+		for (Iterator<Statement> aIter = aModel.filter(aStmt.getSubject(), null, null).iterator(); aIter.hasNext(); ) {
+			aIter.next();
+			aIter.remove();
+		}
+
+		assertFalse(aModel.contains(aStmt.getSubject(), null, null));
+
+		aModel.clear();
+
+		assertTrue(aModel.isEmpty());
+		assertFalse(aModel.iterator().hasNext());
+	}
+
+	@Test
+	public void testConcurrentReadersAndWriters() throws Exception {
+		final ConcurrentModel aModel = new ConcurrentModel(8);
+		final ExecutorService aExecutor = Executors.newFixedThreadPool(8);
+
+		try {
+			final List<Future<?>> aFutures = new ArrayList<>();
+
+			for (int t = 0; t < 8; t++) {
+				final int aThread = t;
+
+				aFutures.add(aExecutor.submit(() -> {
+					final Random aRandom = new Random(aThread);
+					final IRI aSubj = FACTORY.createIRI("urn:t" + aThread);
+
+					for (int i = 0; i < 5000; i++) {
+						// every thread shares the predicate, and half of the threads write
+						if (aThread % 2 == 0) {
+							aModel.add(aSubj, RDF.VALUE, FACTORY.createLiteral(i));
+
+							if (i % 2 == 1) {
+								aModel.remove(aSubj, RDF.VALUE, FACTORY.createLiteral(i - 1));
+							}
+						}
+						else {
+							for (Statement aStmt : aModel.filter(FACTORY.createIRI("urn:t" + aRandom.nextInt(8)), RDF.VALUE, null)) {
+								assertEquals(RDF.VALUE, aStmt.getPredicate());
+							}
+						}
+					}
+				}));
+			}
+
+			for (Future<?> aFuture : aFutures) {
+				aFuture.get();
+			}
+		}
+		finally {
+			aExecutor.shutdown();
+		}
+
+		assertEquals(4 * 2500, aModel.size());
+		assertEquals(4 * 2500, aModel.filter(null, RDF.VALUE, null).size());
+		assertEquals(2500, aModel.filter(FACTORY.createIRI("urn:t2"), null, null).size());
+		assertFalse(aModel.contains(FACTORY.createIRI("urn:t2"), RDF.VALUE, FACTORY.createLiteral(0)));
+	}
+}
@@ -15,16 +15,33 @@
 
 package com.complexible.common.openrdf;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import com.complexible.common.openrdf.model.ConstrainedModel;
+import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.model.ValidationReport;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.junit.Test;
 import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -68,4 +85,122 @@ public class ConstrainedModelTests {
 		}
 
 	}
+
+	@Test
+	public void testAddValid() {
+		final ValueFactory aFactory = SimpleValueFactory.getInstance();
+
+		final Predicate<Statement> noBNodes = theStatement -> !(theStatement.getSubject() instanceof BNode);
+
+		final ConstrainedModel aGraph = ConstrainedModel.of(Models2.newModel(),
+		                                                    Arrays.asList(noBNodes, ConstrainedModel.onlyValidLiterals()));
+
+		final Model aStatements = TestUtils.createRandomModel(5000);
+		final int aValid = aStatements.size();
+
+		aStatements.add(aFactory.createBNode(), RDF.TYPE, RDF.PROPERTY);
+		aStatements.add(aFactory.createIRI("urn:s"), RDF.VALUE, aFactory.createLiteral("abc", XMLSchema.INTEGER));
+		aStatements.add(aFactory.createBNode(), RDF.VALUE, aFactory.createLiteral("abc", XMLSchema.INTEGER));
+
+		final ForkJoinPool aPool = new ForkJoinPool(4);
+
+		try {
+			final ValidationReport aReport = aGraph.addValid(aStatements, aPool);
+
+			assertFalse(aReport.isValid());
+			assertEquals(aStatements.size(), aReport.getChecked());
+			assertEquals(aValid, aReport.getAdded());
+			assertEquals(aValid, aGraph.size());
+
+			final List<ValidationReport.Violation> aViolations = aReport.getViolations();
+
+			assertEquals(3, aViolations.size());
+			assertEquals(0, aViolations.get(0).getConstraint());
+			assertEquals(1, aViolations.get(1).getConstraint());
+			assertTrue(aViolations.get(1).getMessage().contains("abc"));
+
+			// a statement is reported with the first constraint it violates
+			assertEquals(0, aViolations.get(2).getConstraint());
+
+			assertEquals(2, aReport.getConstraintCount());
+			assertTrue(aReport.getConstraintTime(0, TimeUnit.NANOSECONDS) > 0);
+			assertTrue(aReport.getConstraintTime(1, TimeUnit.NANOSECONDS) > 0);
+
+			// adding the same statements again adds nothing new
+			assertEquals(0, aGraph.addValid(aStatements).getAdded());
+
+			// the valid statements are added in the order of the batch
+			final ConstrainedModel aOrdered = ConstrainedModel.of(new LinkedHashModel(), noBNodes);
+
+			aOrdered.addValid(aStatements, aPool);
+
+			assertEquals(aStatements.stream().filter(noBNodes).collect(Collectors.toList()), Lists.newArrayList(aOrdered));
+		}
+		finally {
+			aPool.shutdown();
+		}
+	}
+
+	@Test
+	public void testFalseIsViolation() {
+		final ValueFactory aFactory = SimpleValueFactory.getInstance();
+
+		final Predicate<Statement> noBNodes = theStatement -> !(theStatement.getSubject() instanceof BNode);
+		final Predicate<Statement> noLiterals = theStatement -> !(theStatement.getObject() instanceof Literal);
+
+		final Statement aBNode = aFactory.createStatement(aFactory.createBNode(), RDF.TYPE, RDF.PROPERTY);
+		final Statement aLiteral = aFactory.createStatement(aFactory.createIRI("urn:s"), RDF.VALUE, aFactory.createLiteral("a"));
+		final Statement aValid = aFactory.createStatement(aFactory.createIRI("urn:s"), RDF.TYPE, RDF.PROPERTY);
+
+		for (ConstrainedModel aGraph : Arrays.asList(ConstrainedModel.of(noBNodes),
+		                                             ConstrainedModel.of(Models2.newModel(), Arrays.asList(noBNodes, noLiterals)))) {
+			try {
+				aGraph.add(aBNode);
+				fail("should not allow an addition which violates a constraint");
+			}
+			catch (ConstrainedModel.StatementViolatedConstraintException e) {
+				// expected
+			}
+
+			try {
+				aGraph.add(aBNode.getSubject(), aBNode.getPredicate(), aBNode.getObject());
+				fail("should not allow an addition which violates a constraint");
+			}
+			catch (ConstrainedModel.StatementViolatedConstraintException e) {
+				// expected
+			}
+
+			try {
+				aGraph.addAll(Arrays.asList(aValid, aBNode));
+				fail("should not allow an addition which violates a constraint");
+			}
+			catch (ConstrainedModel.StatementViolatedConstraintException e) {
+				// expected
+			}
+
+			// the statements before the violation were added
+			assertEquals(Collections.singleton(aValid), Sets.newHashSet(aGraph));
+
+			aGraph.remove(aValid);
+
+			final ValidationReport aReport = aGraph.addValid(Arrays.asList(aValid, aBNode));
+
+			assertEquals(1, aReport.getAdded());
+			assertEquals(aBNode, aReport.getViolations().get(0).getStatement());
+		}
+
+		// the second of several constraints is checked as well
+		final ConstrainedModel aGraph = ConstrainedModel.of(Models2.newModel(), Arrays.asList(noBNodes, noLiterals));
+
+		try {
+			aGraph.add(aLiteral);
+			fail("should not allow an addition which violates a constraint");
+		}
+		catch (ConstrainedModel.StatementViolatedConstraintException e) {
+			assertTrue(e.getMessage().contains("constraint 1"));
+		}
+
+		assertEquals(1, aGraph.addValid(Arrays.asList(aLiteral)).getViolations().get(0).getConstraint());
+		assertTrue(aGraph.isEmpty());
+	}
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf;
+
+import java.util.List;
+
+import com.complexible.common.openrdf.model.FrozenModel;
+import com.complexible.common.openrdf.model.Models2;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p>Tests for {@link FrozenModel}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class FrozenModelTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testPatterns() {
+		final List<Resource> aSubjects = Lists.newArrayList(FACTORY.createIRI("urn:s1"), FACTORY.createIRI("urn:s2"), FACTORY.createBNode());
+		final List<IRI> aPredicates = Lists.newArrayList(FACTORY.createIRI("urn:p1"), FACTORY.createIRI("urn:p2"));
+		final List<Value> aObjects = Lists.newArrayList(FACTORY.createIRI("urn:s1"), FACTORY.createLiteral("o"), FACTORY.createLiteral(2));
+		final List<Resource> aContexts = Lists.newArrayList(null, FACTORY.createIRI("urn:c"));
+
+		final Model aInput = Models2.newModel();
+
+		for (Resource aSubj : aSubjects) {
+			for (IRI aPred : aPredicates) {
+				for (Value aObj : aObjects) {
+					if ((aSubj.hashCode() + aPred.hashCode() + aObj.hashCode()) % 3 != 0) {
+						aInput.add(aSubj, aPred, aObj);
+					}
+					if ((aSubj.hashCode() ^ aObj.hashCode()) % 2 == 0) {
+						aInput.add(aSubj, aPred, aObj, aContexts.get(1));
+					}
+				}
+			}
+		}
+
+		final Model aModel = Models2.freeze(aInput);
+
+		assertEquals(aInput.size(), aModel.size());
+		assertEquals(Sets.newHashSet(aInput), Sets.newHashSet(aModel));
+
+		aSubjects.add(null);
+		aSubjects.add(FACTORY.createIRI("urn:missing"));
+		aPredicates.add(null);
+		aObjects.add(null);
+
+		for (Resource aSubj : aSubjects) {
+			for (IRI aPred : aPredicates) {
+				for (Value aObj : aObjects) {
+					assertEquals(Sets.newHashSet(aInput.filter(aSubj, aPred, aObj)), Sets.newHashSet(aModel.filter(aSubj, aPred, aObj)));
+					assertEquals(aInput.contains(aSubj, aPred, aObj), aModel.contains(aSubj, aPred, aObj));
+
+					for (Resource aContext : aContexts) {
+						assertEquals(Sets.newHashSet(aInput.filter(aSubj, aPred, aObj, aContext)),
+						             Sets.newHashSet(aModel.filter(aSubj, aPred, aObj, aContext)));
+					}
+
+					assertEquals(Sets.newHashSet(aInput.filter(aSubj, aPred, aObj, aContexts.get(0), aContexts.get(1))),
+					             Sets.newHashSet(aModel.filter(aSubj, aPred, aObj, aContexts.get(0), aContexts.get(1))));
+				}
+			}
+		}
+
+		for (Statement aStmt : aInput) {
+			assertTrue(aModel.contains(aStmt));
+		}
+
+		assertFalse(aModel.contains(FACTORY.createStatement(FACTORY.createIRI("urn:s1"), FACTORY.createIRI("urn:p1"),
+		                                                    FACTORY.createLiteral("missing"))));
+	}
+
+	@Test
+	public void testHelpers() {
+		final IRI aSubj = FACTORY.createIRI("urn:s");
+		final IRI aPred = FACTORY.createIRI("urn:p");
+		final IRI aType = FACTORY.createIRI("urn:Type");
+
+		final Model aInput = TestUtils.createRandomModel(200);
+		aInput.add(aSubj, aPred, FACTORY.createLiteral("value"));
+		aInput.add(aSubj, RDF.TYPE, aType);
+		aInput.setNamespace("ex", "urn:ex#");
+
+		final Model aModel = Models2.freeze(aInput);
+
+		assertEquals(FACTORY.createLiteral("value"), Models2.getObject(aModel, aSubj, aPred).get());
+		assertEquals(Lists.newArrayList(aType), Lists.newArrayList(Models2.getTypes(aModel, aSubj)));
+		assertTrue(Models2.isInstanceOf(aModel, aSubj, aType));
+		assertEquals("urn:ex#", aModel.getNamespace("ex").get().getName());
+		assertEquals(aInput, aModel);
+		assertEquals(aInput.subjects(), aModel.subjects());
+	}
+
+	@Test
+	public void testImmutable() {
+		final Model aModel = Models2.freeze(TestUtils.createRandomModel(10));
+
+		try {
+			aModel.add(TestUtils.createRandomStatement());
+			fail("should not be able to add to a frozen model");
+		}
+		catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		try {
+			aModel.remove(aModel.iterator().next());
+			fail("should not be able to remove from a frozen model");
+		}
+		catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		try {
+			aModel.clear();
+			fail("should not be able to clear a frozen model");
+		}
+		catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		assertEquals(10, aModel.size());
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf;
+
+import com.complexible.common.openrdf.model.ConstrainedModel;
+import com.complexible.common.openrdf.model.LiteralValidator;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p>Tests for {@link LiteralValidator}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class LiteralValidatorTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	private static void valid(final IRI theDatatype, final String... theLabels) {
+		for (String aLabel : theLabels) {
+			assertTrue(aLabel + " should be a valid " + theDatatype.getLocalName(), LiteralValidator.isValid(aLabel, theDatatype));
+		}
+	}
+
+	private static void invalid(final IRI theDatatype, final String... theLabels) {
+		for (String aLabel : theLabels) {
+			assertFalse(aLabel + " should not be a valid " + theDatatype.getLocalName(), LiteralValidator.isValid(aLabel, theDatatype));
+		}
+	}
+
+	@Test
+	public void testNumbers() {
+		valid(XMLSchema.INTEGER, "0", "-0", "+12", " 42 ", "123456789012345678901234567890");
+		invalid(XMLSchema.INTEGER, "", "-", "1.0", "1e3", "abc", "1 2");
+
+		valid(XMLSchema.INT, "2147483647", "-2147483648", "0002147483647");
+		invalid(XMLSchema.INT, "2147483648", "-2147483649");
+
+		valid(XMLSchema.LONG, "9223372036854775807", "-9223372036854775808", "0009223372036854775807", "-09223372036854775808");
+		invalid(XMLSchema.LONG, "9223372036854775808", "-9223372036854775809", "100000000000000000000", "-100000000000000000000");
+
+		valid(XMLSchema.BYTE, "127", "-128");
+		invalid(XMLSchema.BYTE, "128");
+		valid(XMLSchema.UNSIGNED_BYTE, "255", "-0");
+		invalid(XMLSchema.UNSIGNED_BYTE, "256", "-1");
+		valid(XMLSchema.UNSIGNED_LONG, "18446744073709551615", "018446744073709551615", "9999999999999999999");
+		invalid(XMLSchema.UNSIGNED_LONG, "18446744073709551616", "28446744073709551615", "100000000000000000000", "-1");
+
+		valid(XMLSchema.POSITIVE_INTEGER, "1", "99999999999999999999");
+		invalid(XMLSchema.POSITIVE_INTEGER, "0", "-1");
+		valid(XMLSchema.NEGATIVE_INTEGER, "-1", "-99999999999999999999");
+		invalid(XMLSchema.NEGATIVE_INTEGER, "0", "99999999999999999999");
+		valid(XMLSchema.NON_POSITIVE_INTEGER, "0", "-5");
+		invalid(XMLSchema.NON_POSITIVE_INTEGER, "5", "99999999999999999999");
+		valid(XMLSchema.NON_NEGATIVE_INTEGER, "0", "99999999999999999999");
+		invalid(XMLSchema.NON_NEGATIVE_INTEGER, "-99999999999999999999");
+
+		valid(XMLSchema.DECIMAL, "1", "-1.5", "+.5", "1.", "007.10");
+		invalid(XMLSchema.DECIMAL, ".", "1e5", "1.2.3", "NaN");
+
+		valid(XMLSchema.DOUBLE, "1", "-1.5E10", "1e-5", ".5e+3", "INF", "-INF", "NaN");
+		invalid(XMLSchema.DOUBLE, "e5", "1e", "inf", "1.5f", "0x10");
+		valid(XMLSchema.FLOAT, "3.14");
+
+		valid(XMLSchema.BOOLEAN, "true", "false", "1", "0", " true ");
+		invalid(XMLSchema.BOOLEAN, "TRUE", "yes", "2", "");
+	}
+
+	@Test
+	public void testDatesAndTimes() {
+		valid(XMLSchema.DATETIME, "2016-02-29T12:30:00", "2016-01-01T00:00:00.123Z", "-0044-03-15T12:00:00+01:00",
+		      "12016-01-01T24:00:00", "2016-01-01T23:59:59-14:00", "12345678901234567890000-02-29T00:00:00");
+		invalid(XMLSchema.DATETIME, "2015-02-29T12:30:00", "2016-13-01T00:00:00", "2016-01-01", "2016-01-01T25:00:00",
+		        "2016-01-01T24:00:01", "2016-01-01T12:00", "016-01-01T00:00:00", "02016-01-01T00:00:00",
+		        "2016-01-01T00:00:00+15:00", "2016-01-01T00:00:00.Z", "2016-04-31T00:00:00",
+		        "12345678901234567890100-02-29T00:00:00", "12345678901234567890001-02-29T00:00:00");
+
+		valid(XMLSchema.DATE, "2016-12-31", "2016-12-31Z", "2016-12-31+05:30");
+		invalid(XMLSchema.DATE, "2016-12-32", "2016-1-01", "2016-12-31T00:00:00");
+
+		valid(XMLSchema.TIME, "13:20:00", "13:20:00.5-05:00");
+		invalid(XMLSchema.TIME, "13:60:00", "1:20:00");
+
+		valid(XMLSchema.GYEAR, "2016", "-2016Z");
+		valid(XMLSchema.GYEARMONTH, "2016-02");
+		valid(XMLSchema.GMONTHDAY, "--02-29");
+		invalid(XMLSchema.GMONTHDAY, "--02-30", "02-29");
+		valid(XMLSchema.GMONTH, "--12");
+		valid(XMLSchema.GDAY, "---31");
+		invalid(XMLSchema.GDAY, "---32", "--31");
+
+		valid(XMLSchema.DURATION, "P1Y2M3DT10H30M", "-P120D", "PT1.5S", "P0Y", "PT36H");
+		invalid(XMLSchema.DURATION, "P", "PT", "P1Y2Y", "P1M1Y", "P1.5Y", "PT1D", "1Y", "P1H");
+		valid(XMLSchema.DAYTIMEDURATION, "P1DT2H", "PT5M");
+		invalid(XMLSchema.DAYTIMEDURATION, "P1Y", "P1M");
+		valid(FACTORY.createIRI(XMLSchema.NAMESPACE, "yearMonthDuration"), "P1Y2M");
+		invalid(FACTORY.createIRI(XMLSchema.NAMESPACE, "yearMonthDuration"), "P1D", "P1YT1H");
+	}
+
+	@Test
+	public void testStringsAndBinary() {
+		valid(XMLSchema.STRING, "", "anything\tat\nall");
+		valid(XMLSchema.NORMALIZEDSTRING, "no tabs here");
+		invalid(XMLSchema.NORMALIZEDSTRING, "a\tb");
+		valid(XMLSchema.TOKEN, "a token", "");
+		invalid(XMLSchema.TOKEN, " leading", "two  spaces");
+		valid(XMLSchema.LANGUAGE, "en", "en-US", "zh-Hant-TW");
+		invalid(XMLSchema.LANGUAGE, "", "en-", "toolonglanguage", "1en");
+		valid(XMLSchema.NCNAME, "name", "_n-1.x");
+		invalid(XMLSchema.NCNAME, "ns:name", "1name", "");
+		valid(XMLSchema.NAME, "ns:name");
+		valid(XMLSchema.NMTOKEN, "1name");
+
+		valid(XMLSchema.HEXBINARY, "", "0FB7", "0fb7");
+		invalid(XMLSchema.HEXBINARY, "0FB", "0G");
+		valid(XMLSchema.BASE64BINARY, "", "aGVsbG8=", "aGVs bG8h", "aGk=", "aA==");
+		invalid(XMLSchema.BASE64BINARY, "aGVsbG8", "a===", "aB==", "aG=k", "a*==");
+	}
+
+	@Test
+	public void testLiterals() {
+		assertTrue(LiteralValidator.isValid(FACTORY.createLiteral("chat", "fr")));
+		assertFalse(LiteralValidator.isValid(FACTORY.createLiteral("chat", "1fr")));
+		assertTrue(LiteralValidator.isValid(FACTORY.createLiteral("plain")));
+		assertTrue(LiteralValidator.isValid(FACTORY.createLiteral("anything", FACTORY.createIRI("urn:unknown"))));
+		assertTrue(LiteralValidator.isValid(FACTORY.createLiteral("anything", FACTORY.createIRI(XMLSchema.NAMESPACE, "unknown"))));
+		assertFalse(LiteralValidator.isValid(FACTORY.createLiteral("abc", XMLSchema.INT)));
+	}
+
+	@Test
+	public void testOnlyValidLiterals() {
+		Model aModel = ConstrainedModel.of(ConstrainedModel.onlyValidLiterals());
+
+		aModel.add(FACTORY.createIRI("urn:s"), FACTORY.createIRI("urn:p"), FACTORY.createLiteral("2016-01-01", XMLSchema.DATE));
+
+		try {
+			aModel.add(FACTORY.createIRI("urn:s"), FACTORY.createIRI("urn:p"), FACTORY.createLiteral("2016-02-30", XMLSchema.DATE));
+			fail("An invalid date should not be added");
+		}
+		catch (ConstrainedModel.StatementViolatedConstraintException e) {
+			// expected
+		}
+
+		assertEquals(1, aModel.size());
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.complexible.common.openrdf;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.complexible.common.openrdf.model.MeteredModel;
+import com.complexible.common.openrdf.model.OperationMetrics;
+import com.complexible.common.openrdf.model.Models2;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Tests for {@link MeteredModel}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class MeteredModelTests {
+	@Test
+	public void testMetrics() {
+		final Model aStatements = TestUtils.createRandomModel(100);
+		final MeteredModel aModel = MeteredModel.of(Models2.newModel());
+
+		aModel.addAll(aStatements);
+
+		for (Statement aStmt : aStatements) {
+			assertTrue(aModel.contains(aStmt));
+		}
+
+		final Statement aStmt = aStatements.iterator().next();
+
+		// the view records in the metrics of the model
+		final Model aFiltered = aModel.filter(aStmt.getSubject(), null, null);
+
+		assertFalse(aFiltered.isEmpty());
+
+		int aCount = 0;
+		for (Statement ignored : aModel) {
+			aCount++;
+		}
+
+		assertEquals(100, aCount);
+
+		final OperationMetrics aContains = aModel.getMetrics(MeteredModel.Operation.CONTAINS);
+
+		assertEquals(100, aContains.getCount());
+		assertTrue(aContains.getTotalTime(TimeUnit.NANOSECONDS) > 0);
+		assertTrue(aContains.getPercentile(0.5) <= aContains.getPercentile(0.99));
+		assertTrue(aContains.getPercentile(0.99) <= aContains.getMaxTime(TimeUnit.NANOSECONDS));
+
+		long aInHistogram = 0;
+		for (long aBucket : aContains.getHistogram()) {
+			aInHistogram += aBucket;
+		}
+
+		assertEquals(100, aInHistogram);
+
+		assertEquals(1, aModel.getMetrics(MeteredModel.Operation.ADD_ALL).getCount());
+		assertEquals(100, aModel.getMetrics(MeteredModel.Operation.ADD_ALL).getResultSize());
+		assertEquals(1, aModel.getMetrics(MeteredModel.Operation.FILTER).getCount());
+		assertEquals(1, aModel.getMetrics(MeteredModel.Operation.SIZE).getCount());
+		assertEquals(1, aModel.getMetrics(MeteredModel.Operation.ITERATE).getCount());
+		assertEquals(100, aModel.getMetrics(MeteredModel.Operation.ITERATE).getResultSize());
+		assertEquals(0, aModel.getMetrics(MeteredModel.Operation.REMOVE).getCount());
+
+		aModel.reset();
+
+		assertEquals(0, aModel.getMetrics().get(MeteredModel.Operation.CONTAINS).getCount());
+	}
+
+	@Test
+	public void testMBeans() throws Exception {
+		final MeteredModel aModel = MeteredModel.of(TestUtils.createRandomModel(10));
+		final MBeanServer aServer = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName aName = new ObjectName("com.complexible.common.openrdf:type=MeteredModel,name=\"test\",operation=SIZE");
+
+		aModel.registerMBeans("test");
+
+		try {
+			aModel.size();
+			aModel.size();
+
+			assertEquals(2L, aServer.getAttribute(aName, "Count"));
+			assertEquals("SIZE", aServer.getAttribute(aName, "Operation"));
+		}
+		finally {
+			aModel.unregisterMBeans();
+		}
+
+		assertFalse(aServer.isRegistered(aName));
+	}
+}
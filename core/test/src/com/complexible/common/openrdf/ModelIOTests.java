@@ -15,14 +15,63 @@
 
 package com.complexible.common.openrdf;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
 import com.complexible.common.openrdf.model.ModelIO;
 import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.util.AsyncRDFHandler;
+import com.complexible.common.openrdf.util.Compression;
+import com.complexible.common.openrdf.util.InterningValueFactory;
+import com.complexible.common.openrdf.util.ModelBuildingRDFHandler;
+import com.complexible.common.openrdf.util.ParallelGZIPOutputStream;
+import com.complexible.common.openrdf.util.RDFSnapshot;
+import com.complexible.common.openrdf.util.TransferStats;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
 import org.junit.Test;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * <p></p>
@@ -46,4 +95,618 @@ public class ModelIOTests {
 
         assertEquals("<urn:s> <urn:p> <urn:o> .", aStr.trim());
     }
+
+	@Test
+	public void testReadParallel() throws Exception {
+		Path aFile = Files.createTempFile("parallel", ".nt");
+
+		try {
+			// large enough to be split into more than one chunk, with a blank node used at both ends of the file
+			try (BufferedWriter aWriter = Files.newBufferedWriter(aFile, Charsets.UTF_8)) {
+				aWriter.write("_:shared <urn:p> \"first\" .\n");
+
+				final String aPadding = Strings.repeat("x", 200);
+
+				for (int i = 0; i < 50000; i++) {
+					aWriter.write("<urn:s" + (i / 10) + "> <urn:p" + (i % 10) + "> \"" + aPadding + i + "\" .\n");
+				}
+
+				aWriter.write("<urn:s0> <urn:p> _:shared .\n");
+				aWriter.write("_:other <urn:p> \"last\" .");
+			}
+
+			Model aExpected = ModelIO.read(aFile, RDFFormat.NTRIPLES);
+			Model aModel = ModelIO.readParallel(aFile, RDFFormat.NTRIPLES);
+
+			assertEquals(50003, aModel.size());
+			assertEquals(Sets.newHashSet(aExpected), Sets.newHashSet(aModel));
+
+			BNode aShared = (BNode) aModel.filter(SimpleValueFactory.getInstance().createIRI("urn:s0"),
+			                                      SimpleValueFactory.getInstance().createIRI("urn:p"),
+			                                      null).objects().iterator().next();
+
+			assertTrue(aModel.contains(aShared, null, SimpleValueFactory.getInstance().createLiteral("first")));
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test
+	public void testReadMapped() throws Exception {
+		final String aData = "\uFEFF# a comment\n"
+		                     + "<urn:s> <urn:p> \"plain\" .\n"
+		                     + "\n"
+		                     + "  <urn:s>\t<urn:p> \"tab\\tquote\\\" \\u00e9\\U0001F600 caf\u00e9\"@en-US . # trailing comment\r\n"
+		                     + "<urn:s> <urn:p> \"1\"^^<http://www.w3.org/2001/XMLSchema#int> .\n"
+		                     + "_:b1 <urn:p> _:b2.\n"
+		                     + "<urn:s\\u00e9> <urn:p> <urn:o> .";
+
+		Path aFile = Files.createTempFile("mapped", ".nt");
+
+		try {
+			Files.write(aFile, aData.getBytes(Charsets.UTF_8));
+
+			Model aExpected = ModelIO.read(new StringReader(aData.substring(1)), RDFFormat.NTRIPLES, ModelIO.DEFAULT_BASE_URI);
+			Model aModel = ModelIO.read(aFile, RDFFormat.NTRIPLES);
+
+			assertEquals(5, aModel.size());
+			assertEquals(Sets.newHashSet(aExpected), Sets.newHashSet(aModel));
+			assertTrue(aModel.contains(null, null, SimpleValueFactory.getInstance().createLiteral("tab\tquote\" \u00e9\uD83D\uDE00 caf\u00e9", "en-US")));
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test
+	public void testReadMappedQuads() throws Exception {
+		Path aFile = Files.createTempFile("mapped", ".nq");
+
+		try {
+			Files.write(aFile, ("<urn:s> <urn:p> <urn:o> <urn:c> .\n"
+			                    + "<urn:s> <urn:p> \"o\" .\n"
+			                    + "<urn:s> <urn:p> _:o _:c .\n").getBytes(Charsets.UTF_8));
+
+			Model aModel = ModelIO.read(aFile, RDFFormat.NQUADS);
+
+			assertEquals(3, aModel.size());
+			assertEquals(3, aModel.contexts().size());
+			assertTrue(aModel.contains(null, null, null, SimpleValueFactory.getInstance().createIRI("urn:c")));
+			assertTrue(aModel.contains(null, null, null, SimpleValueFactory.getInstance().createBNode("c")));
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test(expected = RDFParseException.class)
+	public void testReadMappedInvalid() throws Exception {
+		Path aFile = Files.createTempFile("mapped", ".nt");
+
+		try {
+			Files.write(aFile, "<urn:s> <urn:p> \"unterminated .\n".getBytes(Charsets.UTF_8));
+
+			ModelIO.read(aFile, RDFFormat.NTRIPLES);
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test
+	public void testReadMappedMatchesRio() throws Exception {
+		final String[] aInvalid = { "<urn:a b> <urn:p> \"bad iri\" .",
+		                            "<urn:a\\n> <urn:p> <urn:o> .",
+		                            "_:a.b <urn:p> _:c .",
+		                            "_:a-b <urn:p> _:c .",
+		                            "_:a_b <urn:p> _:c .",
+		                            "_:-a <urn:p> _:c .",
+		                            "_:caf\u00e9 <urn:p> _:c .",
+		                            "<urn:s> <urn:p> \"o\"@-en ." };
+
+		final String[] aValid = { "_:a1 <urn:p> _:b2.",
+		                          "_:a<urn:p>_:b .",
+		                          "<urn:s\\u0020> <urn:p> \"o\"@en-US .",
+		                          "<urn:s> <urn:p> \"o\"@en_US ." };
+
+		Path aFile = Files.createTempFile("mapped", ".nt");
+
+		try {
+			for (String aLine : aInvalid) {
+				Files.write(aFile, aLine.getBytes(Charsets.UTF_8));
+
+				try {
+					ModelIO.read(aFile, RDFFormat.NTRIPLES);
+					fail("Should not have parsed " + aLine);
+				}
+				catch (RDFParseException e) {
+					assertEquals(1, e.getLineNumber());
+				}
+
+				try {
+					ModelIO.read(new StringReader(aLine), RDFFormat.NTRIPLES, ModelIO.DEFAULT_BASE_URI);
+					fail("Rio should not have parsed " + aLine);
+				}
+				catch (RDFParseException e) {
+					// expected
+				}
+			}
+
+			for (String aLine : aValid) {
+				Files.write(aFile, aLine.getBytes(Charsets.UTF_8));
+
+				assertEquals(Sets.newHashSet(ModelIO.read(new StringReader(aLine), RDFFormat.NTRIPLES, ModelIO.DEFAULT_BASE_URI)),
+				             Sets.newHashSet(ModelIO.read(aFile, RDFFormat.NTRIPLES)));
+			}
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test
+	public void testReadParallelErrorLine() throws Exception {
+		Path aFile = Files.createTempFile("parallel", ".nt");
+
+		try {
+			// the error is well past the first chunk of the file
+			try (BufferedWriter aWriter = Files.newBufferedWriter(aFile, Charsets.UTF_8)) {
+				final String aPadding = Strings.repeat("x", 200);
+
+				for (int i = 1; i <= 50000; i++) {
+					aWriter.write(i == 45000
+					              ? "<urn:s> <urn:p> \"unterminated .\n"
+					              : "<urn:s" + i + "> <urn:p> \"" + aPadding + "\" .\n");
+				}
+			}
+
+			try {
+				ModelIO.readParallel(aFile, RDFFormat.NTRIPLES);
+				fail("Should not have parsed the file");
+			}
+			catch (RDFParseException e) {
+				assertEquals(45000, e.getLineNumber());
+			}
+
+			try {
+				ModelIO.read(aFile, RDFFormat.NTRIPLES);
+				fail("Should not have parsed the file");
+			}
+			catch (RDFParseException e) {
+				assertEquals(45000, e.getLineNumber());
+			}
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test
+	public void testReadErrorCharacter() throws Exception {
+		Path aFile = Files.createTempFile("error", ".nt");
+
+		try {
+			// a non-ASCII character is reported as itself, an invalid byte in hex
+			Files.write(aFile, "_:\u00e9 <urn:p> <urn:o> .\n".getBytes(Charsets.UTF_8));
+
+			try {
+				ModelIO.read(aFile, RDFFormat.NTRIPLES);
+				fail("Should not have parsed the file");
+			}
+			catch (RDFParseException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("found '\u00e9'"));
+			}
+
+			Files.write(aFile, new byte[] { '_', ':', (byte) 0xFF, ' ', '<', 'u', ':', 'p', '>', ' ', '<', 'u', ':', 'o', '>', ' ', '.', '\n' });
+
+			try {
+				ModelIO.read(aFile, RDFFormat.NTRIPLES);
+				fail("Should not have parsed the file");
+			}
+			catch (RDFParseException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("found byte 0xFF"));
+			}
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test
+	public void testWritePipelined() throws Exception {
+		Model aGraph = TestUtils.createRandomModel(5000);
+
+		ByteArrayOutputStream aOut = new ByteArrayOutputStream();
+
+		TransferStats aStats = ModelIO.writePipelined(aGraph, aOut, RDFFormat.NTRIPLES);
+
+		assertEquals(5000, aStats.getStatements());
+		assertEquals(aOut.size(), aStats.getBytes());
+
+		assertTrue(Models.isomorphic(aGraph, ModelIO.read(new ByteArrayInputStream(aOut.toByteArray()), RDFFormat.NTRIPLES)));
+	}
+
+	@Test
+	public void testSnapshotRoundTrip() throws Exception {
+		final SimpleValueFactory aFactory = SimpleValueFactory.getInstance();
+
+		Model aGraph = TestUtils.createRandomModel(1000);
+		aGraph.add(aFactory.createBNode("b1"), aFactory.createIRI("urn:p"), aFactory.createLiteral("caf\u00e9", "fr"), aFactory.createIRI("urn:c"));
+		aGraph.add(aFactory.createIRI("urn:s"), aFactory.createIRI("urn:p"), aFactory.createLiteral(42), aFactory.createBNode("c"));
+		aGraph.add(aFactory.createIRI("urn:s"), aFactory.createIRI("urn:p"), aFactory.createLiteral(Strings.repeat("long", 100)));
+		aGraph.setNamespace("ex", "urn:example:");
+
+		Path aFile = Files.createTempFile("model", ".rdfsnap");
+
+		try {
+			ModelIO.writeBinary(aGraph, aFile);
+
+			Model aModel = ModelIO.readBinary(aFile);
+
+			assertEquals(Sets.newHashSet(aGraph), Sets.newHashSet(aModel));
+			assertEquals("urn:example:", aModel.getNamespace("ex").get().getName());
+
+			// the format is registered with Rio, so the generic read picks it up from the file name
+			assertEquals(RDFSnapshot.FORMAT, Rio.getParserFormatForFileName(aFile.toString()).get());
+			assertEquals(Sets.newHashSet(aGraph), Sets.newHashSet(ModelIO.read(aFile)));
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test(expected = RDFParseException.class)
+	public void testSnapshotTruncated() throws Exception {
+		ByteArrayOutputStream aOut = new ByteArrayOutputStream();
+
+		ModelIO.writeBinary(TestUtils.createRandomModel(100), aOut);
+
+		ModelIO.readBinary(new ByteArrayInputStream(aOut.toByteArray(), 0, aOut.size() / 2));
+	}
+
+	@Test
+	public void testStream() throws Exception {
+		Model aGraph = TestUtils.createRandomModel(5000);
+
+		Path aFile = Files.createTempFile("stream", ".nt");
+
+		try {
+			try (OutputStream aOut = Files.newOutputStream(aFile)) {
+				ModelIO.write(aGraph, aOut, RDFFormat.NTRIPLES);
+			}
+
+			try (Stream<Statement> aStream = ModelIO.stream(aFile)) {
+				assertEquals(Sets.newHashSet(aGraph), aStream.collect(Collectors.toSet()));
+			}
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test
+	public void testStreamClose() throws Exception {
+		ByteArrayOutputStream aOut = new ByteArrayOutputStream();
+
+		ModelIO.write(TestUtils.createRandomModel(50000), aOut, RDFFormat.NTRIPLES);
+
+		final AtomicBoolean aClosed = new AtomicBoolean();
+
+		InputStream aInput = new FilterInputStream(new ByteArrayInputStream(aOut.toByteArray())) {
+			@Override
+			public void close() throws IOException {
+				aClosed.set(true);
+				super.close();
+			}
+		};
+
+		try (Stream<Statement> aStream = ModelIO.stream(aInput, RDFFormat.NTRIPLES)) {
+			assertEquals(10, aStream.limit(10).count());
+		}
+
+		assertTrue(aClosed.get());
+	}
+
+	@Test(expected = RDFParseException.class)
+	public void testStreamInvalid() throws Exception {
+		try (Stream<Statement> aStream = ModelIO.stream(new ByteArrayInputStream("<urn:s> <urn:p> \"unterminated .\n".getBytes(Charsets.UTF_8)),
+		                                                RDFFormat.NTRIPLES)) {
+			aStream.count();
+		}
+	}
+
+	@Test
+	public void testCompressedFile() throws Exception {
+		Model aGraph = TestUtils.createRandomModel(5000);
+
+		Path aFile = Files.createTempFile("compressed", ".nt.gz");
+
+		try {
+			ModelIO.write(aGraph, aFile, RDFFormat.NTRIPLES);
+
+			assertTrue(Compression.isCompressed(aFile));
+			assertEquals(Sets.newHashSet(aGraph), Sets.newHashSet(ModelIO.read(aFile)));
+			assertEquals(Sets.newHashSet(aGraph), Sets.newHashSet(ModelIO.readParallel(aFile, RDFFormat.NTRIPLES)));
+
+			try (Stream<Statement> aStream = ModelIO.stream(aFile)) {
+				assertEquals(5000, aStream.count());
+			}
+		}
+		finally {
+			Files.delete(aFile);
+		}
+	}
+
+	@Test
+	public void testParallelGZIP() throws Exception {
+		byte[] aData = new byte[100_000];
+
+		for (int i = 0; i < aData.length; i++) {
+			aData[i] = (byte) (i % 251 < 100 ? 'a' : i % 7);
+		}
+
+		ByteArrayOutputStream aOut = new ByteArrayOutputStream();
+
+		// small blocks, so the data is compressed as many members on several threads
+		try (OutputStream aGzip = new ParallelGZIPOutputStream(aOut, 1000, new ForkJoinPool(4))) {
+			aGzip.write(aData, 0, 50_000);
+			aGzip.flush();
+			aGzip.write(aData, 50_000, 50_000);
+		}
+
+		assertTrue(Arrays.equals(aData, ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(aOut.toByteArray())))));
+		assertTrue(Arrays.equals(aData, ByteStreams.toByteArray(Compression.decompress(new ByteArrayInputStream(aOut.toByteArray())))));
+
+		// flushing does not end the current block, the output is the same as without flushes
+		ByteArrayOutputStream aFlushed = new ByteArrayOutputStream();
+
+		try (OutputStream aGzip = new ParallelGZIPOutputStream(aFlushed, 1000, new ForkJoinPool(4))) {
+			for (int i = 0; i < aData.length; i += 10) {
+				aGzip.write(aData, i, 10);
+				aGzip.flush();
+			}
+		}
+
+		aOut.reset();
+
+		try (OutputStream aGzip = new ParallelGZIPOutputStream(aOut, 1000, new ForkJoinPool(4))) {
+			aGzip.write(aData);
+		}
+
+		assertTrue(Arrays.equals(aOut.toByteArray(), aFlushed.toByteArray()));
+
+		// closing the read-ahead stream part way through waits for the reading thread
+		try (InputStream aIn = Compression.decompress(new ByteArrayInputStream(aOut.toByteArray()))) {
+			assertTrue(aIn.read() != -1);
+		}
+
+		// an empty stream is still valid gzip
+		aOut.reset();
+		new ParallelGZIPOutputStream(aOut).close();
+
+		assertEquals(-1, new GZIPInputStream(new ByteArrayInputStream(aOut.toByteArray())).read());
+	}
+
+	@Test
+	public void testAsyncHandlerFailure() throws Exception {
+		final AtomicInteger aHandled = new AtomicInteger();
+
+		AsyncRDFHandler aHandler = new AsyncRDFHandler(new AbstractRDFHandler() {
+			@Override
+			public void handleStatement(final Statement theStmt) throws RDFHandlerException {
+				if (aHandled.incrementAndGet() == 10) {
+					throw new RDFHandlerException("failed");
+				}
+			}
+		}, 4, 2);
+
+		try {
+			aHandler.startRDF();
+
+			for (Statement aStmt : TestUtils.createRandomModel(1000)) {
+				aHandler.handleStatement(aStmt);
+			}
+
+			aHandler.endRDF();
+			fail("The failure of the delegate should have been reported");
+		}
+		catch (RDFHandlerException e) {
+			assertEquals("failed", e.getMessage());
+		}
+		finally {
+			aHandler.close();
+		}
+
+		assertEquals(10, aHandled.get());
+	}
+
+	@Test
+	public void testCanonical() throws Exception {
+		final SimpleValueFactory aFactory = SimpleValueFactory.getInstance();
+		final IRI aNext = aFactory.createIRI("urn:next");
+
+		final Model aGraph = TestUtils.createRandomModel(200);
+
+		aGraph.addAll(Models2.toList(Collections.nCopies(20, aFactory.createLiteral("a \"quoted\"\nvalue"))));
+
+		// two cycles of three nodes, and a node with interchangeable children
+		final BNode[] aNodes = new BNode[6];
+
+		for (int i = 0; i < aNodes.length; i++) {
+			aNodes[i] = aFactory.createBNode();
+		}
+
+		for (int i = 0; i < aNodes.length; i++) {
+			aGraph.add(aNodes[i], aNext, aNodes[(i / 3) * 3 + (i + 1) % 3]);
+		}
+
+		final BNode aParent = aFactory.createBNode();
+
+		for (int i = 0; i < 10; i++) {
+			final BNode aChild = aFactory.createBNode();
+
+			aGraph.add(aParent, aNext, aChild, aParent);
+			aGraph.add(aChild, RDF.VALUE, aFactory.createLiteral(1));
+		}
+
+		// the same graph with other blank node labels, in another order
+		final Map<BNode, BNode> aRelabeling = new HashMap<>();
+		final List<Statement> aStatements = Lists.newArrayList(aGraph);
+
+		Collections.reverse(aStatements);
+
+		final Model aOther = Models2.newModel();
+
+		for (Statement aStmt : aStatements) {
+			aOther.add(relabel(aStmt.getSubject(), aRelabeling),
+			           aStmt.getPredicate(),
+			           relabel(aStmt.getObject(), aRelabeling),
+			           aStmt.getContext() == null ? new Resource[0] : new Resource[] { relabel(aStmt.getContext(), aRelabeling) });
+		}
+
+		final ByteArrayOutputStream aOut = new ByteArrayOutputStream();
+		ModelIO.writeCanonical(aGraph, aOut);
+
+		final ByteArrayOutputStream aOtherOut = new ByteArrayOutputStream();
+		ModelIO.writeCanonical(aOther, aOtherOut);
+
+		assertTrue(Arrays.equals(aOut.toByteArray(), aOtherOut.toByteArray()));
+
+		final String[] aLines = new String(aOut.toByteArray(), Charsets.UTF_8).split("\n");
+
+		assertEquals(aGraph.size(), aLines.length);
+		assertTrue(Ordering.natural().isOrdered(Arrays.asList(aLines)));
+		assertTrue(Arrays.stream(aLines).anyMatch(theLine -> theLine.contains("\"a \\\"quoted\\\"\\nvalue\"")));
+		assertTrue(Arrays.stream(aLines).anyMatch(theLine -> theLine.startsWith("_:c14n0 ")));
+
+		aOther.remove(aOther.iterator().next());
+
+		final ByteArrayOutputStream aChangedOut = new ByteArrayOutputStream();
+		ModelIO.writeCanonical(aOther, aChangedOut);
+
+		assertFalse(Arrays.equals(aOut.toByteArray(), aChangedOut.toByteArray()));
+	}
+
+	@Test(timeout = 60000)
+	public void testCanonicalSymmetric() throws Exception {
+		final SimpleValueFactory aFactory = SimpleValueFactory.getInstance();
+		final IRI aNext = aFactory.createIRI("urn:next");
+
+		// a single component: a blank root with many identical blank children, and children which each have a blank
+		// child of their own
+		final Model aGraph = Models2.newModel();
+		final BNode aRoot = aFactory.createBNode();
+
+		for (int i = 0; i < 1000; i++) {
+			aGraph.add(aRoot, aNext, aFactory.createBNode());
+		}
+
+		for (int i = 0; i < 20; i++) {
+			final BNode aChild = aFactory.createBNode();
+
+			aGraph.add(aRoot, RDF.VALUE, aChild);
+			aGraph.add(aChild, RDF.VALUE, aFactory.createBNode());
+		}
+
+		final Map<BNode, BNode> aRelabeling = new HashMap<>();
+		final List<Statement> aStatements = Lists.newArrayList(aGraph);
+
+		Collections.reverse(aStatements);
+
+		final Model aOther = Models2.newModel();
+
+		for (Statement aStmt : aStatements) {
+			aOther.add(relabel(aStmt.getSubject(), aRelabeling), aStmt.getPredicate(), relabel(aStmt.getObject(), aRelabeling));
+		}
+
+		final ByteArrayOutputStream aOut = new ByteArrayOutputStream();
+		ModelIO.writeCanonical(aGraph, aOut);
+
+		final ByteArrayOutputStream aOtherOut = new ByteArrayOutputStream();
+		ModelIO.writeCanonical(aOther, aOtherOut);
+
+		assertTrue(Arrays.equals(aOut.toByteArray(), aOtherOut.toByteArray()));
+
+		final String aCanonical = new String(aOut.toByteArray(), Charsets.UTF_8);
+
+		assertEquals(aGraph.size(), aCanonical.split("\n").length);
+		assertTrue(aCanonical.contains("_:c14n1040 "));
+		assertFalse(aCanonical.contains("_:c14n1041 "));
+	}
+
+	@Test
+	public void testInterningValueFactory() throws Exception {
+		final String aData = "<urn:a> <urn:p> \"1\" .\n<urn:b> <urn:p> \"1\" .\n<urn:c> <urn:p> <urn:a> .\n";
+
+		final InterningValueFactory aFactory = InterningValueFactory.weak();
+
+		final ModelBuildingRDFHandler aHandler = new ModelBuildingRDFHandler();
+
+		ModelIO.read(aHandler, new ByteArrayInputStream(aData.getBytes(Charsets.UTF_8)), RDFFormat.NTRIPLES, ModelIO.DEFAULT_BASE_URI, aFactory);
+
+		final Model aGraph = aHandler.getModel();
+
+		final List<Statement> aStatements = Lists.newArrayList(aGraph);
+
+		assertEquals(3, aStatements.size());
+
+		// the predicate twice, the literal once and urn:a once
+		assertEquals(4, aFactory.getHits());
+		assertTrue(aFactory.getHitRate() > 0.4);
+		assertTrue(aFactory.getBytesSaved() > 0);
+
+		assertTrue(aStatements.stream().allMatch(theStmt -> theStmt.getPredicate() == aStatements.get(0).getPredicate()));
+		assertTrue(aGraph.filter(null, null, aFactory.createLiteral("1")).stream()
+		                 .allMatch(theStmt -> theStmt.getObject() == aStatements.get(0).getObject()));
+
+		// the factory is only used by the read it was given to
+		final long aHits = aFactory.getHits();
+		final Model aOther = ModelIO.read(new ByteArrayInputStream(aData.getBytes(Charsets.UTF_8)), RDFFormat.NTRIPLES);
+
+		assertEquals(aGraph, aOther);
+		assertEquals(aHits, aFactory.getHits());
+
+		// and by the memory mapped readers
+		final Path aFile = Files.createTempFile("interning", ".nt");
+
+		try {
+			Files.write(aFile, aData.getBytes(Charsets.UTF_8));
+
+			final InterningValueFactory aMapped = InterningValueFactory.weak();
+
+			final Model aRead = ModelIO.read(aFile, RDFFormat.NTRIPLES, Models2.newModel(), aMapped);
+
+			assertEquals(aGraph, aRead);
+			assertTrue(aMapped.getHits() > 0);
+
+			final long aMappedHits = aMapped.getHits();
+			final Model aParallel = ModelIO.readParallel(aFile, RDFFormat.NTRIPLES, Models2.newModel(), aMapped);
+
+			assertEquals(aGraph, aParallel);
+			assertTrue(aMapped.getHits() > aMappedHits);
+			assertTrue(aParallel.predicates().iterator().next() == aRead.predicates().iterator().next());
+		}
+		finally {
+			Files.delete(aFile);
+		}
+
+		final InterningValueFactory aBounded = InterningValueFactory.bounded(1, 1);
+
+		final IRI aIRI = aBounded.createIRI("urn:a");
+
+		assertTrue(aIRI == aBounded.createIRI("urn:a"));
+
+		aBounded.createIRI("urn:b");
+
+		assertFalse(aIRI == aBounded.createIRI("urn:a"));
+		assertEquals(aIRI, aBounded.createIRI("urn:a"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Value> T relabel(final T theValue, final Map<BNode, BNode> theRelabeling) {
+		return theValue instanceof BNode
+		       ? (T) theRelabeling.computeIfAbsent((BNode) theValue, theNode -> SimpleValueFactory.getInstance().createBNode())
+		       : theValue;
+	}
 }
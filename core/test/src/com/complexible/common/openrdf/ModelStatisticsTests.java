@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import com.complexible.common.openrdf.model.ModelStatistics;
+import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.model.StatisticsModel;
+import com.complexible.common.openrdf.util.HyperLogLog;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Tests for {@link ModelStatistics} and {@link StatisticsModel}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class ModelStatisticsTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testHyperLogLog() {
+		final Random aRandom = new Random(42);
+
+		final HyperLogLog aFirst = new HyperLogLog();
+		final HyperLogLog aSecond = new HyperLogLog();
+
+		for (int i = 0; i < 100000; i++) {
+			final long aHash = aRandom.nextLong();
+
+			aFirst.add(aHash);
+			aFirst.add(aHash);
+
+			if (i % 2 == 0) {
+				aSecond.add(aHash);
+			}
+		}
+
+		assertEquals(100000, aFirst.estimate(), 100000 * 0.05);
+		assertEquals(50000, aSecond.estimate(), 50000 * 0.05);
+
+		aSecond.merge(aFirst);
+
+		assertEquals(aFirst.estimate(), aSecond.estimate());
+
+		final HyperLogLog aSmall = new HyperLogLog();
+
+		for (int i = 0; i < 100; i++) {
+			aSmall.add(aRandom.nextLong());
+		}
+
+		assertEquals(100, aSmall.estimate(), 2);
+	}
+
+	@Test
+	public void testStatistics() {
+		final Model aModel = model();
+		final ModelStatistics aStats = ModelStatistics.of(aModel);
+
+		assertEquals(aModel.size(), aStats.size());
+		assertEquals(3, aStats.distinctPredicates());
+		assertEquals(1000, aStats.distinctSubjects(), 30);
+		assertEquals(1000, aStats.count(RDF.TYPE));
+		assertEquals(2, aStats.distinctObjects(RDF.TYPE));
+		assertEquals(3000, aStats.count(FACTORY.createIRI("urn:knows")));
+		assertEquals(3, aStats.averageOutDegree(FACTORY.createIRI("urn:knows")), 0.1);
+		assertEquals(FACTORY.createIRI("urn:knows"), aStats.getPredicateHistogram().keySet().iterator().next());
+		assertEquals(Long.valueOf(3000), aStats.getContextSizes().get(null));
+		assertEquals(Long.valueOf(2000), aStats.getContextSizes().get(FACTORY.createIRI("urn:graph")));
+		assertEquals(0, aStats.count(FACTORY.createIRI("urn:missing")));
+	}
+
+	@Test
+	public void testStatisticsModel() {
+		final StatisticsModel aModel = StatisticsModel.of(model());
+		final ModelStatistics aStats = aModel.getStatistics();
+
+		final IRI aKnows = FACTORY.createIRI("urn:knows");
+
+		aModel.add(FACTORY.createIRI("urn:new"), RDF.TYPE, RDF.PROPERTY);
+		aModel.addAll(TestUtils.createRandomModel(10));
+		aModel.remove(null, aKnows, null);
+		aModel.clear(FACTORY.createIRI("urn:graph"));
+		aModel.filter(null, RDF.TYPE, null).remove(FACTORY.createIRI("urn:new"), RDF.TYPE, RDF.PROPERTY);
+
+		for (Iterator<Statement> aIter = aModel.iterator(); aIter.hasNext(); ) {
+			if (aIter.next().getPredicate().equals(RDF.TYPE)) {
+				aIter.remove();
+				break;
+			}
+		}
+
+		final ModelStatistics aExpected = ModelStatistics.of(aModel);
+
+		assertEquals(aExpected.size(), aStats.size());
+		assertEquals(aExpected.getPredicateHistogram(), aStats.getPredicateHistogram());
+		assertEquals(aExpected.getContextSizes(), aStats.getContextSizes());
+		assertEquals(0, aStats.count(aKnows));
+		assertTrue(aStats.distinctSubjects() >= aExpected.distinctSubjects());
+
+		aModel.clear();
+
+		assertEquals(0, aStats.size());
+		assertEquals(0, aStats.distinctPredicates());
+
+		aModel.refresh();
+
+		assertEquals(0, aModel.getStatistics().distinctSubjects());
+	}
+
+	private static Model model() {
+		final Model aModel = Models2.newModel();
+		final IRI aGraph = FACTORY.createIRI("urn:graph");
+
+		for (int i = 0; i < 1000; i++) {
+			final IRI aSubj = FACTORY.createIRI("urn:s" + i);
+
+			aModel.add(aSubj, RDF.TYPE, i % 2 == 0 ? RDF.PROPERTY : RDF.STATEMENT);
+			aModel.add(aSubj, FACTORY.createIRI("urn:name"), FACTORY.createLiteral("name " + i), aGraph);
+
+			for (int j = 1; j <= 3; j++) {
+				aModel.add(aSubj, FACTORY.createIRI("urn:knows"), FACTORY.createIRI("urn:s" + ((i + j) % 1000)), j == 3 ? aGraph : null);
+			}
+		}
+
+		return aModel;
+	}
+}
@@ -28,7 +28,11 @@ import org.junit.runner.RunWith;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ TestModels2.class, TestRepositories.class, TestQueryUtils.class,
-					  ConstrainedModelTests.class, ModelIOTests.class })
+					  ConstrainedModelTests.class, ModelIOTests.class, CompactModelTests.class,
+					  UnionModelTests.class, StatementRouterTests.class, LiteralValidatorTests.class,
+					  FrozenModelTests.class, ModelStatisticsTests.class, BloomFilterTests.class,
+					  PersistentModelTests.class, ConcurrentModelTests.class, MeteredModelTests.class,
+					  CachingModelTests.class, PartitionedModelTests.class })
 public class OpenRdfTestSuite {
 
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.complexible.common.openrdf;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.model.PartitionedModel;
+import com.complexible.common.openrdf.query.ImmutableDataset;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.model.vocabulary.SESAME;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Tests for {@link PartitionedModel}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class PartitionedModelTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	private static final IRI GRAPHS = FACTORY.createIRI("urn:graphs");
+
+	private static PartitionedModel createModel(final int theGraphs, final int theStatements) {
+		final PartitionedModel aModel = Models2.newPartitionedModel();
+
+		for (int i = 0; i < theStatements; i++) {
+			final Resource aSubj = FACTORY.createIRI("urn:s" + i);
+
+			aModel.add(aSubj, RDF.TYPE, RDFS.RESOURCE);
+			aModel.add(aSubj, RDFS.LABEL, FACTORY.createLiteral(i), graph(i % theGraphs));
+		}
+
+		return aModel;
+	}
+
+	private static IRI graph(final int theIndex) {
+		return FACTORY.createIRI("urn:g" + theIndex);
+	}
+
+	@Test
+	public void testPartitions() {
+		final PartitionedModel aModel = createModel(10, 100);
+
+		assertEquals(200, aModel.size());
+		assertEquals(11, aModel.getPartitionCount());
+		assertEquals(11, aModel.contexts().size());
+		assertTrue(aModel.contexts().contains(null));
+		assertTrue(aModel.contexts().contains(graph(3)));
+
+		assertEquals(Models2.newModel(aModel), Models2.newModel(aModel.stream().collect(Collectors.toList())));
+
+		assertEquals(10, aModel.filter(null, null, null, graph(3)).size());
+		assertEquals(100, aModel.filter(null, null, null, (Resource) null).size());
+		assertEquals(1, aModel.filter(null, RDFS.LABEL, FACTORY.createLiteral(3)).size());
+		assertTrue(aModel.contains(FACTORY.createIRI("urn:s3"), RDFS.LABEL, null, graph(3)));
+		assertFalse(aModel.contains(FACTORY.createIRI("urn:s3"), RDFS.LABEL, null, graph(4)));
+		assertFalse(aModel.contains(FACTORY.createIRI("urn:s3"), RDFS.LABEL, null, (Resource) null));
+		assertTrue(aModel.contains(FACTORY.createStatement(FACTORY.createIRI("urn:s3"), RDF.TYPE, RDFS.RESOURCE)));
+
+		assertTrue(aModel.clear(graph(3)));
+		assertFalse(aModel.clear(graph(3)));
+
+		assertEquals(190, aModel.size());
+		assertEquals(10, aModel.getPartitionCount());
+		assertFalse(aModel.contexts().contains(graph(3)));
+
+		aModel.remove(null, RDFS.LABEL, FACTORY.createLiteral(4), graph(4));
+		aModel.remove(null, RDFS.LABEL, null, graph(5));
+
+		assertEquals(179, aModel.size());
+		assertEquals(9, aModel.getPartitionCount());
+
+		aModel.contexts().remove(graph(6));
+
+		assertEquals(169, aModel.size());
+
+		for (Iterator<Statement> aIter = aModel.filter(null, null, null, graph(7)).iterator(); aIter.hasNext(); ) {
+			aIter.next();
+			aIter.remove();
+		}
+
+		for (Iterator<Statement> aIter = aModel.iterator(); aIter.hasNext(); ) {
+			if (graph(8).equals(aIter.next().getContext())) {
+				aIter.remove();
+			}
+		}
+
+		assertEquals(149, aModel.size());
+		assertEquals(6, aModel.getPartitionCount());
+		assertEquals(aModel.size(), Models2.newModel(aModel).size());
+
+		aModel.clear();
+
+		assertTrue(aModel.isEmpty());
+		assertEquals(0, aModel.getPartitionCount());
+	}
+
+	@Test
+	public void testParallelStreams() {
+		final PartitionedModel aModel = createModel(16, 2000);
+
+		assertEquals(aModel.size(), aModel.parallelStream().count());
+		assertEquals(Models2.newModel(aModel), aModel.parallelStream().collect(Models2.toConcurrentModel()));
+		assertEquals(2000, aModel.filter(null, RDFS.LABEL, null).parallelStream().count());
+
+		final Spliterator<Statement> aSpliterator = aModel.spliterator();
+		final Spliterator<Statement> aPrefix = aSpliterator.trySplit();
+
+		assertNotNull(aPrefix);
+		assertEquals(aModel.size(), aPrefix.estimateSize() + aSpliterator.estimateSize());
+
+		// the halves hold whole partitions, no context is in both
+		final Model aFirst = Models2.newModel();
+		aPrefix.forEachRemaining(aFirst::add);
+
+		aSpliterator.forEachRemaining(theStmt -> assertFalse(aFirst.contexts().contains(theStmt.getContext())));
+	}
+
+	@Test
+	public void testDatasetView() {
+		final PartitionedModel aModel = createModel(4, 100);
+
+		final Model aView = aModel.view(ImmutableDataset.builder()
+		                                                .defaultGraphs(SESAME.NIL)
+		                                                .namedGraphs(graph(1), graph(2))
+		                                                .build());
+
+		assertEquals(150, aView.size());
+		assertEquals(ImmutableSet.of(graph(1), graph(2)),
+		             aView.contexts().stream().filter(theContext -> theContext != null).collect(Collectors.toSet()));
+
+		assertEquals(25, aModel.view(ImmutableDataset.builder().namedGraphs(graph(0)).build()).size());
+
+		// a dataset without graphs has nothing in it
+		assertTrue(aModel.view(ImmutableDataset.builder().build()).isEmpty());
+		assertEquals(0, aModel.view(ImmutableDataset.builder().build()).size());
+	}
+
+	@Test
+	public void testDatasetViewMergesDefaultGraphs() {
+		final PartitionedModel aModel = createModel(4, 100);
+
+		// the same triple in two of the default graphs
+		final Resource aSubj = FACTORY.createIRI("urn:s0");
+		aModel.add(aSubj, RDFS.LABEL, FACTORY.createLiteral(0), graph(1));
+
+		final Model aView = aModel.view(ImmutableDataset.builder()
+		                                                .defaultGraphs(graph(0), graph(1))
+		                                                .namedGraphs(graph(1))
+		                                                .build());
+
+		assertEquals(50 + 26, aView.size());
+		assertEquals(50, aView.filter(null, null, null, (Resource) null).size());
+		assertEquals(Sets.newHashSet(null, graph(1)), aView.contexts());
+
+		assertTrue(aView.contains(aSubj, RDFS.LABEL, FACTORY.createLiteral(0), (Resource) null));
+		assertTrue(aView.contains(aSubj, RDFS.LABEL, FACTORY.createLiteral(0), graph(1)));
+		assertFalse(aView.contains(aSubj, RDFS.LABEL, FACTORY.createLiteral(0), graph(0)));
+
+		// the view is the dataset's merge, not the statements of the model
+		assertEquals(Models2.union(Models2.withContext(aModel.filter(null, null, null, graph(0), graph(1)), null),
+		                           aModel.filter(null, null, null, graph(1))),
+		             Models2.newModel(aView));
+	}
+}
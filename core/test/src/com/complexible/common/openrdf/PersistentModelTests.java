@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.complexible.common.openrdf;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import com.complexible.common.openrdf.model.ConstrainedModel;
+import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.model.PersistentModel;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p>Tests for {@link PersistentModel}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class PersistentModelTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testAgainstLinkedHashModel() {
+		final Random aRandom = new Random(7);
+
+		final IRI[] aPreds = { RDF.TYPE, RDFS.LABEL, RDF.VALUE };
+		final IRI[] aContexts = { null, FACTORY.createIRI("urn:g1"), FACTORY.createIRI("urn:g2") };
+
+		final Model aExpected = new LinkedHashModel();
+		final PersistentModel aModel = Models2.newPersistentModel();
+
+		for (int i = 0; i < 20000; i++) {
+			final Statement aStmt = FACTORY.createStatement(FACTORY.createIRI("urn:s" + aRandom.nextInt(500)),
+			                                                aPreds[aRandom.nextInt(aPreds.length)],
+			                                                FACTORY.createLiteral(aRandom.nextInt(50)),
+			                                                aContexts[aRandom.nextInt(aContexts.length)]);
+
+			if (aRandom.nextInt(3) == 0) {
+				assertEquals(aExpected.remove(aStmt), aModel.remove(aStmt));
+			}
+			else {
+				assertEquals(aExpected.add(aStmt), aModel.add(aStmt));
+			}
+		}
+
+		assertEquals(aExpected.size(), aModel.size());
+		assertEquals(aExpected, new LinkedHashModel(aModel));
+
+		final IRI aSubj = FACTORY.createIRI("urn:s42");
+		final Value aObj = FACTORY.createLiteral(7);
+
+		assertEquals(aExpected.filter(aSubj, null, null), new LinkedHashModel(aModel.filter(aSubj, null, null)));
+		assertEquals(aExpected.filter(null, RDF.TYPE, aObj), new LinkedHashModel(aModel.filter(null, RDF.TYPE, aObj)));
+		assertEquals(aExpected.filter(null, null, null, aContexts[1]), new LinkedHashModel(aModel.filter(null, null, null, aContexts[1])));
+		assertEquals(aExpected.filter(null, null, null, (Resource) null), new LinkedHashModel(aModel.filter(null, null, null, (Resource) null)));
+		assertEquals(aExpected.filter(aSubj, RDFS.LABEL, null, aContexts[0], aContexts[2]),
+		             new LinkedHashModel(aModel.filter(aSubj, RDFS.LABEL, null, aContexts[0], aContexts[2])));
+
+		aModel.remove(null, RDF.TYPE, null);
+		aExpected.remove(null, RDF.TYPE, null);
+
+		assertEquals(aExpected, new LinkedHashModel(aModel));
+
+		aModel.clear(aContexts[1]);
+		aExpected.clear(aContexts[1]);
+
+		assertEquals(aExpected, new LinkedHashModel(aModel));
+
+		// removing everything, one statement at a time, collapses the tries back down
+		for (Statement aStmt : new ArrayList<>(aExpected)) {
+			assertTrue(aModel.remove(aStmt));
+		}
+
+		assertTrue(aModel.isEmpty());
+		assertFalse(aModel.iterator().hasNext());
+	}
+
+	@Test
+	public void testSnapshot() {
+		final PersistentModel aModel = PersistentModel.of(TestUtils.createRandomModel(500));
+		aModel.setNamespace("ex", "urn:ex:");
+
+		final PersistentModel aSnapshot = aModel.snapshot();
+		final Model aCopy = new LinkedHashModel(aModel);
+
+		final Statement aStmt = TestUtils.createRandomStatement();
+
+		aModel.add(aStmt);
+		aModel.remove(aCopy.iterator().next());
+		aModel.removeNamespace("ex");
+
+		assertEquals(aCopy, new LinkedHashModel(aSnapshot));
+		assertFalse(aSnapshot.contains(aStmt));
+		assertTrue(aSnapshot.getNamespace("ex").isPresent());
+		assertFalse(aModel.getNamespace("ex").isPresent());
+
+		aSnapshot.clear();
+
+		assertTrue(aSnapshot.isEmpty());
+		assertEquals(500, aModel.size());
+	}
+
+	@Test
+	public void testIterationIsUnaffectedByChanges() {
+		final PersistentModel aModel = PersistentModel.of(TestUtils.createRandomModel(100));
+
+		int aCount = 0;
+
+		for (Iterator<Statement> aIter = aModel.iterator(); aIter.hasNext(); ) {
+			final Statement aStmt = aIter.next();
+
+			aModel.add(FACTORY.createStatement(aStmt.getSubject(), RDFS.COMMENT, FACTORY.createLiteral(aCount)));
+			aIter.remove();
+			aCount++;
+		}
+
+		assertEquals(100, aCount);
+		assertEquals(100, aModel.size());
+		assertEquals(100, aModel.filter(null, RDFS.COMMENT, null).size());
+	}
+
+	@Test
+	public void testConcurrentWriters() throws Exception {
+		final PersistentModel aModel = Models2.newPersistentModel();
+
+		final List<Thread> aThreads = new ArrayList<>();
+
+		for (int t = 0; t < 4; t++) {
+			final int aThread = t;
+
+			aThreads.add(new Thread(() -> {
+				for (int i = 0; i < 2000; i++) {
+					aModel.add(FACTORY.createIRI("urn:t" + aThread), RDF.VALUE, FACTORY.createLiteral(i));
+				}
+			}));
+		}
+
+		aThreads.forEach(Thread::start);
+
+		for (Thread aThread : aThreads) {
+			aThread.join();
+		}
+
+		assertEquals(8000, aModel.size());
+		assertEquals(2000, aModel.filter(FACTORY.createIRI("urn:t2"), null, null).size());
+	}
+
+	@Test
+	public void testConstrained() {
+		final Model aModel = ConstrainedModel.of(Models2.newPersistentModel(), theStmt -> {
+			if (theStmt.getSubject() instanceof BNode) {
+				throw new ConstrainedModel.StatementViolatedConstraintException("no bnodes");
+			}
+			return true;
+		});
+
+		aModel.add(FACTORY.createIRI("urn:a"), RDF.TYPE, RDFS.RESOURCE);
+
+		try {
+			aModel.add(FACTORY.createBNode(), RDF.TYPE, RDFS.RESOURCE);
+			fail("should not be able to add a bnode subject");
+		}
+		catch (ConstrainedModel.StatementViolatedConstraintException e) {
+			// expected
+		}
+
+		assertEquals(1, aModel.size());
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import com.complexible.common.openrdf.model.StatementRouter;
+import com.complexible.common.openrdf.model.Statements;
+import com.google.common.collect.HashMultiset;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * <p>Tests for {@link StatementRouter}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class StatementRouterTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testRoute() {
+		final IRI s = FACTORY.createIRI("urn:s");
+		final IRI p = FACTORY.createIRI("urn:p");
+		final IRI c = FACTORY.createIRI("urn:c");
+
+		StatementRouter<String> aRouter = StatementRouter.<String>builder()
+		                                                 .add("all", null, null, null)
+		                                                 .add("subject", s, null, null)
+		                                                 .add("predicate", null, p, null)
+		                                                 .add("default", s, p, null, (Resource) null)
+		                                                 .add("context", null, null, null, c, c)
+		                                                 .add("other", FACTORY.createIRI("urn:other"), p, null)
+		                                                 .build();
+
+		assertEquals(6, aRouter.size());
+
+		assertEquals(HashMultiset.create(Arrays.asList("all", "subject", "predicate", "default")),
+		             HashMultiset.create(aRouter.targets(FACTORY.createStatement(s, p, FACTORY.createLiteral("o")))));
+
+		assertEquals(HashMultiset.create(Arrays.asList("all", "subject", "predicate", "context")),
+		             HashMultiset.create(aRouter.targets(FACTORY.createStatement(s, p, FACTORY.createLiteral("o"), c))));
+
+		assertFalse(StatementRouter.<String>builder()
+		                           .add("subject", s, null, null)
+		                           .build()
+		                           .matchesAny(FACTORY.createStatement(p, p, s)));
+	}
+
+	@Test
+	public void testRouteMatchesStatements() {
+		final Random aRandom = new Random(42);
+
+		final List<Predicate<Statement>> aPredicates = new ArrayList<>();
+		final StatementRouter.Builder<Integer> aBuilder = StatementRouter.builder();
+
+		for (int i = 0; i < 2000; i++) {
+			final Resource aSubj = aRandom.nextBoolean() ? FACTORY.createIRI("urn:s" + aRandom.nextInt(10)) : null;
+			final IRI aPred = aRandom.nextBoolean() ? FACTORY.createIRI("urn:p" + aRandom.nextInt(10)) : null;
+			final Value aObj = aRandom.nextBoolean() ? FACTORY.createLiteral(aRandom.nextInt(10)) : null;
+			final Resource[] aContexts = aRandom.nextBoolean()
+			                             ? new Resource[0]
+			                             : new Resource[] { aRandom.nextBoolean() ? null : FACTORY.createIRI("urn:c" + aRandom.nextInt(3)),
+			                                                FACTORY.createIRI("urn:c" + aRandom.nextInt(3)) };
+
+			aPredicates.add(Statements.matches(aSubj, aPred, aObj, aContexts));
+			aBuilder.add(i, aSubj, aPred, aObj, aContexts);
+		}
+
+		final StatementRouter<Integer> aRouter = aBuilder.build();
+
+		for (int i = 0; i < 1000; i++) {
+			final int aContext = aRandom.nextInt(4);
+			final Statement aStmt = FACTORY.createStatement(FACTORY.createIRI("urn:s" + aRandom.nextInt(10)),
+			                                                FACTORY.createIRI("urn:p" + aRandom.nextInt(10)),
+			                                                FACTORY.createLiteral(aRandom.nextInt(10)),
+			                                                aContext == 3 ? null : FACTORY.createIRI("urn:c" + aContext));
+
+			final HashMultiset<Integer> aExpected = HashMultiset.create();
+
+			for (int j = 0; j < aPredicates.size(); j++) {
+				if (aPredicates.get(j).test(aStmt)) {
+					aExpected.add(j);
+				}
+			}
+
+			assertEquals(aExpected, HashMultiset.create(aRouter.targets(aStmt)));
+			assertEquals(!aExpected.isEmpty(), aRouter.matchesAny(aStmt));
+		}
+
+		assertEquals(2000, aRouter.size());
+	}
+}
@@ -20,6 +20,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.rdf4j.model.IRI;
@@ -28,6 +30,7 @@ import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.util.Models;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
@@ -35,8 +38,12 @@ import org.eclipse.rdf4j.query.impl.IteratingGraphQueryResult;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.junit.Test;
 
+import com.complexible.common.openrdf.model.ContextModel;
+import com.complexible.common.openrdf.model.DelegatingModel;
+import com.complexible.common.openrdf.model.ModelDiff;
 import com.complexible.common.openrdf.model.ModelIO;
 import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.model.ShardedModel;
 import com.complexible.common.openrdf.model.Statements;
 import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
@@ -78,6 +85,70 @@ public class TestModels2 {
 		}
 	}
 
+	@Test
+	public void testContextModel() throws Exception {
+		final IRI aCxt = SimpleValueFactory.getInstance().createIRI("urn:context");
+		final IRI aOtherCxt = SimpleValueFactory.getInstance().createIRI("urn:other");
+
+		Model aInput = TestUtils.createRandomModel(20);
+		Statement aStmt = aInput.iterator().next();
+
+		// the same triple in a second context only shows up once in the view
+		aInput.add(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), aOtherCxt);
+
+		Model aView = ContextModel.of(aInput, aCxt);
+
+		assertEquals(20, aView.size());
+		assertTrue(Models.isomorphic(Models2.withContext(aInput, aCxt), aView));
+		assertEquals(Collections.singleton(aCxt), aView.contexts());
+
+		for (Statement aViewStmt : aView) {
+			assertEquals(aCxt, aViewStmt.getContext());
+		}
+
+		assertTrue(aView.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), aCxt));
+		assertFalse(aView.contains(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), aOtherCxt));
+		assertFalse(aView.contains(aStmt));
+
+		assertEquals(1, aView.filter(aStmt.getSubject(), aStmt.getPredicate(), null, aCxt).size());
+		assertTrue(aView.filter(aStmt.getSubject(), null, null, aOtherCxt).isEmpty());
+
+		// triples which are only in other contexts, some of them in several
+		final IRI aThirdCxt = SimpleValueFactory.getInstance().createIRI("urn:third");
+		final Model aOthers = TestUtils.createRandomModel(10);
+
+		for (Statement aOther : aOthers) {
+			aInput.add(aOther.getSubject(), aOther.getPredicate(), aOther.getObject(), aOtherCxt, aThirdCxt);
+		}
+
+		aInput.add(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), aThirdCxt);
+
+		aView = ContextModel.of(aInput, aCxt);
+
+		assertEquals(30, aView.size());
+		assertEquals(Models2.withContext(aInput, aCxt), Models2.newModel(aView));
+
+		// the copy from the lowest ranked context comes last in the iteration
+		final Iterator<Statement> aTriples = TestUtils.createRandomModel(3).iterator();
+		final Statement aFirst = aTriples.next();
+		final Statement aSecond = aTriples.next();
+		final Statement aThird = aTriples.next();
+
+		final Model aInterleaved = new LinkedHashModel();
+
+		aInterleaved.add(aFirst.getSubject(), aFirst.getPredicate(), aFirst.getObject(), aCxt);
+		aInterleaved.add(aSecond.getSubject(), aSecond.getPredicate(), aSecond.getObject(), aOtherCxt);
+		aInterleaved.add(aThird.getSubject(), aThird.getPredicate(), aThird.getObject(), aThirdCxt);
+		aInterleaved.add(aSecond.getSubject(), aSecond.getPredicate(), aSecond.getObject(), aThirdCxt);
+		aInterleaved.add(aThird.getSubject(), aThird.getPredicate(), aThird.getObject(), aOtherCxt);
+		aInterleaved.add(aSecond.getSubject(), aSecond.getPredicate(), aSecond.getObject(), aCxt);
+
+		aView = ContextModel.of(aInterleaved, null);
+
+		assertEquals(3, aView.size());
+		assertEquals(Models2.withContext(aInterleaved, null), Models2.newModel(aView));
+	}
+
 	@Test
 	public void testUnion() throws Exception {
 		Model one = TestUtils.createRandomModel(20);
@@ -249,6 +320,203 @@ public class TestModels2 {
 		assertTrue(Models2.getBooleanValue(aGraph, s, p4).orElse(false));
 	}
 
+	@Test
+	public void testToConcurrentModel() {
+		Model aInput = TestUtils.createRandomModel(5000);
+
+		Model aParallel = aInput.parallelStream().collect(Models2.toConcurrentModel());
+		Model aSequential = aInput.stream().collect(Models2.toConcurrentModel());
+
+		assertEquals(aInput.size(), aParallel.size());
+		assertTrue(Models.isomorphic(aInput, aParallel));
+		assertTrue(Models.isomorphic(aInput, aSequential));
+
+		Statement aStmt = aInput.iterator().next();
+		assertTrue(aParallel.contains(aStmt));
+		assertEquals(1, aParallel.filter(aStmt.getSubject(), aStmt.getPredicate(), null).size());
+		assertTrue(aParallel.remove(aStmt));
+		assertFalse(aParallel.contains(aStmt));
+
+		assertTrue(Models.isomorphic(aInput, aInput.parallelStream().collect(Models2.toModel())));
+	}
+
+	@Test
+	public void testShardedModelMerge() {
+		Model aFirst = TestUtils.createRandomModel(200);
+		Model aSecond = TestUtils.createRandomModel(300);
+
+		ShardedModel aModel = new ShardedModel(8);
+		aModel.addAll(aFirst);
+
+		ShardedModel aOther = new ShardedModel(8);
+		aOther.addAll(aSecond);
+		aOther.addAll(aFirst);
+
+		aModel.merge(aOther);
+
+		assertEquals(500, aModel.size());
+		assertTrue(aModel.containsAll(aFirst));
+		assertTrue(aModel.containsAll(aSecond));
+		assertTrue(aOther.isEmpty());
+	}
+
+	@Test(timeout = 60000)
+	public void testShardedModelMergeBothWays() throws Exception {
+		final Model aInput = TestUtils.createRandomModel(50);
+
+		// merging each model into the other at the same time must not deadlock
+		for (int i = 0; i < 200; i++) {
+			final ShardedModel aFirst = new ShardedModel(64);
+			final ShardedModel aSecond = new ShardedModel(64);
+
+			aFirst.addAll(aInput);
+			aSecond.addAll(aInput);
+
+			final Thread aThread = new Thread(() -> aFirst.merge(aSecond));
+			aThread.start();
+
+			aSecond.merge(aFirst);
+			aThread.join();
+
+			assertEquals(aInput.size(), aFirst.size() + aSecond.size());
+		}
+	}
+
+	@Test
+	public void testIsomorphicLists() {
+		final List<Value> aValues = Lists.newArrayList();
+
+		for (int i = 0; i < 500; i++) {
+			aValues.add(SimpleValueFactory.getInstance().createLiteral(i % 3));
+		}
+
+		final Model aFirst = Models2.toList(aValues);
+		final Model aSecond = Models2.toList(aValues);
+
+		assertTrue(Models2.isomorphic(aFirst, aSecond));
+		assertTrue(Models2.diff(aFirst, aSecond).isEmpty());
+
+		aValues.set(250, SimpleValueFactory.getInstance().createLiteral("changed"));
+
+		final Model aChanged = Models2.toList(aValues);
+
+		assertFalse(Models2.isomorphic(aFirst, aChanged));
+
+		final ModelDiff aDiff = Models2.diff(aFirst, aChanged);
+
+		assertEquals(1, aDiff.getRemoved().size());
+		assertEquals(1, aDiff.getAdded().size());
+		assertEquals(SimpleValueFactory.getInstance().createLiteral(250 % 3),
+		             aDiff.getRemoved().iterator().next().getObject());
+		assertEquals(SimpleValueFactory.getInstance().createLiteral("changed"),
+		             aDiff.getAdded().iterator().next().getObject());
+	}
+
+	@Test
+	public void testIsomorphicSymmetric() {
+		final SimpleValueFactory aFactory = SimpleValueFactory.getInstance();
+		final IRI aNext = aFactory.createIRI("urn:next");
+
+		// two cycles of three blank nodes against one cycle of six: every node looks the same to colour refinement
+		final Model aCycles = Models2.newModel();
+		final Model aCycle = Models2.newModel();
+
+		final Resource[] aNodes = new Resource[6];
+		final Resource[] aOthers = new Resource[6];
+
+		for (int i = 0; i < 6; i++) {
+			aNodes[i] = aFactory.createBNode();
+			aOthers[i] = aFactory.createBNode();
+		}
+
+		for (int i = 0; i < 6; i++) {
+			aCycles.add(aNodes[i], aNext, aNodes[(i / 3) * 3 + (i + 1) % 3]);
+			aCycle.add(aOthers[i], aNext, aOthers[(i + 1) % 6]);
+		}
+
+		assertFalse(Models2.isomorphic(aCycles, aCycle));
+		assertFalse(Models2.diff(aCycles, aCycle).isEmpty());
+
+		final Model aRelabeled = Models2.newModel();
+
+		for (int i = 0; i < 6; i++) {
+			aRelabeled.add(aOthers[(i + 2) % 6], aNext, aOthers[(i + 3) % 6]);
+		}
+
+		assertTrue(Models2.isomorphic(aCycle, aRelabeled));
+		assertEquals(new DelegatingModel(aCycle) { }, aRelabeled);
+	}
+
+	@Test(timeout = 60000)
+	public void testIsomorphicAtScale() {
+		final SimpleValueFactory aFactory = SimpleValueFactory.getInstance();
+		final IRI aType = aFactory.createIRI("urn:T");
+
+		// many blank nodes with the same surroundings
+		final Model aFirst = Models2.newModel();
+		final Model aSecond = Models2.newModel();
+
+		for (int i = 0; i < 20000; i++) {
+			aFirst.add(aFactory.createBNode(), RDF.TYPE, aType);
+			aSecond.add(aFactory.createBNode(), RDF.TYPE, aType);
+		}
+
+		assertTrue(Models2.isomorphic(aFirst, aSecond));
+		assertEquals(new DelegatingModel(aFirst) { }, aSecond);
+
+		final Statement aStmt = aSecond.iterator().next();
+		aSecond.remove(aStmt);
+		aSecond.add(aStmt.getSubject(), RDF.TYPE, aFactory.createIRI("urn:U"));
+
+		assertFalse(Models2.isomorphic(aFirst, aSecond));
+
+		// a long cycle, where pairing the nodes in order fails and one node has to be individualized
+		final IRI aNext = aFactory.createIRI("urn:next");
+		final Resource[] aNodes = new Resource[2000];
+		final Resource[] aOthers = new Resource[2000];
+
+		for (int i = 0; i < aNodes.length; i++) {
+			aNodes[i] = aFactory.createBNode();
+			aOthers[i] = aFactory.createBNode();
+		}
+
+		final Model aCycle = Models2.newModel();
+		final Model aShuffled = Models2.newModel();
+
+		for (int i = 0; i < aNodes.length; i++) {
+			final int aEdge = (i * 3) % aNodes.length;
+
+			aCycle.add(aNodes[i], aNext, aNodes[(i + 1) % aNodes.length]);
+			aShuffled.add(aOthers[aEdge], aNext, aOthers[(aEdge + 1) % aNodes.length]);
+		}
+
+		assertTrue(Models2.isomorphic(aCycle, aShuffled));
+
+		aShuffled.remove(aOthers[0], aNext, aOthers[1]);
+		aShuffled.add(aOthers[0], aNext, aOthers[0]);
+
+		assertFalse(Models2.isomorphic(aCycle, aShuffled));
+	}
+
+	@Test
+	public void testNotIsomorphic() {
+		final Model aModel = TestUtils.createRandomModel(100);
+		final Model aOther = Models2.newModel(aModel);
+
+		assertTrue(Models2.isomorphic(aModel, aOther));
+
+		final Statement aStmt = aOther.iterator().next();
+		aOther.remove(aStmt);
+		aOther.add(TestUtils.createRandomStatement());
+
+		assertFalse(Models2.isomorphic(aModel, aOther));
+
+		final ModelDiff aDiff = Models2.diff(aModel, aOther);
+
+		assertEquals(Models2.newModel(aStmt), aDiff.getRemoved());
+		assertEquals(1, aDiff.getAdded().size());
+	}
+
 //	/**
 //	 * Test methods dealing with getting individuals from the graph
 //	 */
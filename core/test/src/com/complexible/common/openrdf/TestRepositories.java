@@ -15,15 +15,24 @@
 
 package com.complexible.common.openrdf;
 
+import com.complexible.common.openrdf.model.ChangeTrackingModel;
+import com.complexible.common.openrdf.model.ContextModel;
 import com.complexible.common.openrdf.model.ModelIO;
+import com.complexible.common.openrdf.model.Models2;
 import com.complexible.common.openrdf.repository.Repositories;
+import com.complexible.common.openrdf.repository.RepositoryConnections;
+import com.complexible.common.openrdf.util.TransferStats;
 import org.junit.Test;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
+import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
 import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
@@ -31,6 +40,9 @@ import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.sail.memory.MemoryStore;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.zip.GZIPInputStream;
 import java.io.ByteArrayOutputStream;
 
 /**
@@ -160,4 +172,158 @@ public class TestRepositories {
 			assertTrue(Repositories.contains(aRepo, aStmt));
 		}
 	}
+
+	/**
+	 * Test adding a graph to a repository in a context
+	 * @throws Exception test failure
+	 */
+	@Test
+	public void testAddInContext() throws Exception {
+		Repository aRepo = createInMemoryRepo();
+
+		final IRI aCxt = SimpleValueFactory.getInstance().createIRI("urn:context");
+		final IRI aOtherCxt = SimpleValueFactory.getInstance().createIRI("urn:other");
+
+		Model aGraph = TestUtils.createRandomModel(25);
+
+		Repositories.add(aRepo, ContextModel.of(aGraph, aCxt));
+
+		RepositoryConnection aConn = aRepo.getConnection();
+		try {
+			RepositoryConnections.add(aConn, aGraph, aOtherCxt);
+
+			assertEquals(25, aConn.size(aCxt));
+			assertEquals(25, aConn.size(aOtherCxt));
+
+			for (Statement aStmt : aGraph) {
+				assertTrue(aConn.hasStatement(aStmt.getSubject(), aStmt.getPredicate(), aStmt.getObject(), false, aCxt));
+			}
+		}
+		finally {
+			RepositoryConnections.closeQuietly(aConn);
+		}
+	}
+
+	/**
+	 * Test writing a repository with the pipelined writer
+	 * @throws Exception test failure
+	 */
+	@Test
+	public void testWriteRepositoryPipelined() throws Exception {
+		Repository aRepo = createInMemoryRepo();
+
+		Model aGraph = TestUtils.createRandomModel(500);
+
+		Repositories.add(aRepo, aGraph);
+
+		ByteArrayOutputStream aOut = new ByteArrayOutputStream();
+
+		TransferStats aStats = Repositories.writeRepositoryPipelined(aRepo, aOut, RDFFormat.TURTLE);
+
+		assertEquals(500, aStats.getStatements());
+		assertEquals(aOut.size(), aStats.getBytes());
+
+		assertTrue(Models.isomorphic(aGraph, ModelIO.read(new ByteArrayInputStream(aOut.toByteArray()), RDFFormat.TURTLE)));
+	}
+
+	@Test
+	public void testCompressedFile() throws Exception {
+		Repository aRepo = createInMemoryRepo();
+
+		Model aGraph = TestUtils.createRandomModel(500);
+
+		Repositories.add(aRepo, aGraph);
+
+		File aFile = File.createTempFile("repo", ".ttl.gz");
+
+		try {
+			Repositories.writeRepository(aRepo, aFile, RDFFormat.TURTLE);
+
+			Repository aCopy = createInMemoryRepo();
+			Repositories.add(aCopy, aFile);
+
+			assertEquals(500, Repositories.size(aCopy));
+			assertTrue(Models.isomorphic(aGraph, ModelIO.read(new GZIPInputStream(new FileInputStream(aFile)), RDFFormat.TURTLE)));
+		}
+		finally {
+			aFile.delete();
+		}
+	}
+
+	@Test
+	public void testSnapshotFile() throws Exception {
+		Model aGraph = TestUtils.createRandomModel(500);
+
+		File aFile = File.createTempFile("repo", ".rdfsnap");
+
+		try {
+			ModelIO.writeBinary(aGraph, aFile.toPath());
+
+			Repository aCopy = createInMemoryRepo();
+			Repositories.add(aCopy, aFile);
+
+			assertEquals(500, Repositories.size(aCopy));
+			assertTrue(Models.isomorphic(aGraph, Models2.newModel(Repositories.getStatements(aCopy))));
+
+			Repository aOther = createInMemoryRepo();
+			RepositoryConnection aConn = aOther.getConnection();
+
+			try {
+				RepositoryConnections.add(aConn, aFile);
+
+				assertEquals(500, aConn.size());
+			}
+			finally {
+				aConn.close();
+			}
+		}
+		finally {
+			aFile.delete();
+		}
+	}
+
+	/**
+	 * Test applying the changes tracked by a model to a repository
+	 * @throws Exception test failure
+	 */
+	@Test
+	public void testApplyChanges() throws Exception {
+		Repository aRepo = createInMemoryRepo();
+
+		Model aGraph = TestUtils.createRandomModel(25);
+
+		Repositories.add(aRepo, aGraph);
+
+		ChangeTrackingModel aModel = ChangeTrackingModel.of(Models2.newModel(aGraph));
+
+		Statement aAdded = TestUtils.createRandomStatement();
+		Statement aCancelled = TestUtils.createRandomStatement();
+		Statement aRemoved = aGraph.iterator().next();
+
+		aModel.add(aAdded);
+		aModel.add(aCancelled);
+		aModel.remove(aCancelled);
+		aModel.remove(aRemoved);
+
+		// re-adding an existing statement is not a change
+		aModel.add(aGraph.stream().filter(theStmt -> !theStmt.equals(aRemoved)).findFirst().get());
+
+		assertEquals(Models2.newModel(aAdded), aModel.getAdditions());
+		assertEquals(Models2.newModel(aRemoved), aModel.getRemovals());
+
+		RepositoryConnection aConn = aRepo.getConnection();
+
+		try {
+			RepositoryConnections.applyChanges(aConn, aModel);
+
+			assertFalse(aModel.hasChanges());
+			assertEquals(25, aConn.size());
+			assertTrue(RepositoryConnections.contains(aConn, aAdded));
+			assertFalse(RepositoryConnections.contains(aConn, aRemoved));
+			assertFalse(RepositoryConnections.contains(aConn, aCancelled));
+		}
+		finally {
+			aConn.close();
+		}
+	}
 }
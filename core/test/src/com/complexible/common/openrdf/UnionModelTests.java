@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf;
+
+import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.model.UnionModel;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Tests for {@link UnionModel}</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public class UnionModelTests {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testUnionRemovesDuplicates() {
+		Model one = TestUtils.createRandomModel(50);
+		Model two = TestUtils.createRandomModel(50);
+
+		Model aShared = TestUtils.createRandomModel(10);
+		one.addAll(aShared);
+		two.addAll(aShared);
+
+		Model aUnion = UnionModel.of(one, two, Models2.newModel());
+
+		assertEquals(110, aUnion.size());
+		assertEquals(110, Lists.newArrayList(aUnion).size());
+		assertTrue(Models.isomorphic(Models2.union(one, two), aUnion));
+
+		for (Statement aStmt : aShared) {
+			assertTrue(aUnion.contains(aStmt));
+		}
+
+		assertFalse(aUnion.contains(TestUtils.createRandomStatement()));
+	}
+
+	@Test
+	public void testFilterAndTerms() {
+		final IRI s = FACTORY.createIRI("urn:s");
+		final IRI s2 = FACTORY.createIRI("urn:s2");
+		final IRI p = FACTORY.createIRI("urn:p");
+		final IRI c = FACTORY.createIRI("urn:c");
+
+		Model one = Models2.newModel();
+		one.add(s, RDF.TYPE, p);
+		one.add(s, p, s2);
+
+		Model two = Models2.newModel();
+		two.add(s, RDF.TYPE, p);
+		two.add(s2, RDF.TYPE, p, c);
+
+		Model aUnion = UnionModel.of(one, two);
+
+		assertEquals(3, aUnion.size());
+		assertEquals(2, aUnion.filter(null, RDF.TYPE, null).size());
+		assertEquals(1, aUnion.filter(null, null, null, c).size());
+		assertEquals(Sets.newHashSet(s, s2), aUnion.filter(null, RDF.TYPE, p).subjects());
+
+		assertEquals(2, aUnion.subjects().size());
+		assertEquals(Sets.newHashSet(p, s2), aUnion.objects());
+		assertEquals(Sets.newHashSet(RDF.TYPE, p), aUnion.predicates());
+		assertEquals(Sets.newHashSet(null, c), aUnion.contexts());
+
+		assertTrue(aUnion.contains(s2, RDF.TYPE, p));
+		assertFalse(aUnion.contains(s2, RDF.TYPE, p, (IRI) null));
+
+		// changes to the underlying models are visible
+		two.add(s2, p, s);
+		assertEquals(4, aUnion.size());
+		assertTrue(aUnion.subjects().contains(s2));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		UnionModel.of(TestUtils.createRandomModel(5)).add(TestUtils.createRandomStatement());
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+
+import com.complexible.common.openrdf.model.Models2;
+import com.google.common.base.Stopwatch;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * <p>Compares {@link Models2#toModel()} with {@link Models2#toConcurrentModel()} when collecting a parallel stream of
+ * statements, on pools of 1, 2, 4 and so on up to the number of cores.  {@code toModel} builds a model per thread and
+ * merges them, {@code toConcurrentModel} collects into a single sharded model, so the difference shows once there are
+ * several cores.  The argument is the number of statements, ten million by default; collecting them with
+ * {@code toModel} needs a few gigabytes of heap.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class CollectorBenchmark {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	private static final int RUNS = 3;
+
+	private CollectorBenchmark() {
+		throw new AssertionError();
+	}
+
+	public static void main(final String[] theArgs) throws Exception {
+		final int aSize = theArgs.length > 0 ? Integer.parseInt(theArgs[0]) : 10_000_000;
+		final int aCores = Runtime.getRuntime().availableProcessors();
+
+		System.out.println(String.format("Collecting %,d statements, %d cores available", aSize, aCores));
+
+		for (int aParallelism = 1; aParallelism <= aCores; aParallelism *= 2) {
+			System.out.println(String.format("parallelism %2d: toModel %6d ms, toConcurrentModel %6d ms",
+			                                 aParallelism,
+			                                 time(aParallelism, aSize, Models2.toModel()),
+			                                 time(aParallelism, aSize, Models2.toConcurrentModel())));
+		}
+	}
+
+	private static long time(final int theParallelism, final int theSize,
+	                         final Collector<Statement, ?, Model> theCollector) throws Exception {
+		final ForkJoinPool aPool = new ForkJoinPool(theParallelism);
+
+		try {
+			long aBest = Long.MAX_VALUE;
+
+			for (int i = 0; i < RUNS; i++) {
+				System.gc();
+
+				final Stopwatch aWatch = Stopwatch.createStarted();
+
+				final Model aModel = aPool.submit(() -> IntStream.range(0, theSize)
+				                                                 .parallel()
+				                                                 .mapToObj(CollectorBenchmark::statement)
+				                                                 .collect(theCollector))
+				                          .get();
+
+				aBest = Math.min(aBest, aWatch.elapsed(TimeUnit.MILLISECONDS));
+
+				if (aModel.size() != theSize) {
+					throw new IllegalStateException("Expected " + theSize + " statements, collected " + aModel.size());
+				}
+			}
+
+			return aBest;
+		}
+		finally {
+			aPool.shutdown();
+		}
+	}
+
+	private static Statement statement(final int theIndex) {
+		return FACTORY.createStatement(FACTORY.createIRI("urn:s" + (theIndex / 16)),
+		                               FACTORY.createIRI("urn:p" + (theIndex % 16)),
+		                               FACTORY.createLiteral(theIndex));
+	}
+}
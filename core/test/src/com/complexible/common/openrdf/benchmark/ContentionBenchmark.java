@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.complexible.common.openrdf.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.complexible.common.openrdf.model.ConcurrentModel;
+import com.complexible.common.openrdf.model.Models2;
+import com.google.common.base.Stopwatch;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * <p>Compares a {@link LinkedHashModel} guarded by {@code synchronized} blocks with a {@link ConcurrentModel} under a
+ * mixed load: each thread repeatedly checks for a statement, reads the statements of a subject and, for a share of its
+ * operations, adds or removes a statement.  The number of threads doubles from one up to the first argument, 64 by
+ * default; the second argument is the percentage of writes, 10 by default, and the third the number of operations of
+ * each thread, 200,000 by default.  With few writes the single lock of the synchronized model is the bottleneck.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class ContentionBenchmark {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	private static final int SUBJECTS = 50_000;
+
+	private static final int RUNS = 3;
+
+	private ContentionBenchmark() {
+		throw new AssertionError();
+	}
+
+	public static void main(final String[] theArgs) throws Exception {
+		final int aThreads = theArgs.length > 0 ? Integer.parseInt(theArgs[0]) : 64;
+		final int aWrites = theArgs.length > 1 ? Integer.parseInt(theArgs[1]) : 10;
+		final int aOps = theArgs.length > 2 ? Integer.parseInt(theArgs[2]) : 200_000;
+
+		System.out.println(String.format("%d threads, %d%% writes, %,d operations per thread, %d cores available",
+		                                 aThreads, aWrites, aOps, Runtime.getRuntime().availableProcessors()));
+
+		for (int aThreadCount = 1; aThreadCount <= aThreads; aThreadCount *= 2) {
+			System.out.println(String.format("threads %2d: synchronized LinkedHashModel %6d ms, ConcurrentModel %6d ms",
+			                                 aThreadCount,
+			                                 time(new LinkedHashModel(), true, aThreadCount, aWrites, aOps),
+			                                 time(Models2.newConcurrentModel(), false, aThreadCount, aWrites, aOps)));
+		}
+	}
+
+	private static long time(final Model theModel, final boolean theLocked, final int theThreads, final int theWrites,
+	                         final int theOps) throws Exception {
+		for (int i = 0; i < SUBJECTS; i++) {
+			for (int j = 0; j < 4; j++) {
+				theModel.add(statement(i, j));
+			}
+		}
+
+		final ExecutorService aExecutor = Executors.newFixedThreadPool(theThreads);
+
+		try {
+			long aBest = Long.MAX_VALUE;
+
+			for (int aRun = 0; aRun < RUNS; aRun++) {
+				System.gc();
+
+				final Stopwatch aWatch = Stopwatch.createStarted();
+				final List<Future<Long>> aFutures = new ArrayList<>();
+
+				for (int t = 0; t < theThreads; t++) {
+					aFutures.add(aExecutor.submit(() -> run(theModel, theLocked, theWrites, theOps)));
+				}
+
+				long aFound = 0;
+
+				for (Future<Long> aFuture : aFutures) {
+					aFound += aFuture.get();
+				}
+
+				aBest = Math.min(aBest, aWatch.elapsed(TimeUnit.MILLISECONDS));
+
+				if (aFound == 0) {
+					throw new IllegalStateException("No statements were read");
+				}
+			}
+
+			return aBest;
+		}
+		finally {
+			aExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Run the operations of one thread, returning the number of statements read so the reads are not optimized away
+	 */
+	private static long run(final Model theModel, final boolean theLocked, final int theWrites, final int theOps) {
+		final ThreadLocalRandom aRandom = ThreadLocalRandom.current();
+
+		long aFound = 0;
+
+		for (int i = 0; i < theOps; i++) {
+			final int aSubject = aRandom.nextInt(SUBJECTS);
+			final Statement aStmt = statement(aSubject, aRandom.nextInt(8));
+
+			if (aRandom.nextInt(100) < theWrites) {
+				if (theLocked) {
+					synchronized (theModel) {
+						write(theModel, aStmt, aRandom.nextBoolean());
+					}
+				}
+				else {
+					write(theModel, aStmt, aRandom.nextBoolean());
+				}
+			}
+			else if (theLocked) {
+				synchronized (theModel) {
+					aFound += read(theModel, aStmt);
+				}
+			}
+			else {
+				aFound += read(theModel, aStmt);
+			}
+		}
+
+		return aFound;
+	}
+
+	private static long read(final Model theModel, final Statement theStmt) {
+		long aFound = theModel.contains(theStmt) ? 1 : 0;
+
+		for (Statement aStmt : theModel.filter(theStmt.getSubject(), null, null)) {
+			aFound += aStmt.getObject() != null ? 1 : 0;
+		}
+
+		return aFound;
+	}
+
+	private static void write(final Model theModel, final Statement theStmt, final boolean theAdd) {
+		if (theAdd) {
+			theModel.add(theStmt);
+		}
+		else {
+			theModel.remove(theStmt);
+		}
+	}
+
+	private static Statement statement(final int theSubject, final int theValue) {
+		return FACTORY.createStatement(FACTORY.createIRI("urn:s" + theSubject),
+		                               FACTORY.createIRI("urn:p" + (theValue % 4)),
+		                               FACTORY.createLiteral(theValue));
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2009-2016 Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.complexible.common.openrdf.benchmark;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.complexible.common.openrdf.model.ModelIO;
+import com.complexible.common.openrdf.model.Models2;
+import com.complexible.common.openrdf.util.RDFSnapshot;
+import com.google.common.base.Stopwatch;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+/**
+ * <p>Compares parsing Turtle with parsing an {@link RDFSnapshot RDF snapshot} of the same model.  Statements are only
+ * counted, so the time does not include building a model, which is the same for both.  The model has sixteen
+ * statements per subject, half with integer and half with language tagged objects, and as many statements as the
+ * argument, a million by default; the sizes of both files are printed along with the times.</p>
+ *
+ * @author  Michael Grove
+ * @since   4.0.1
+ * @version 4.0.1
+ */
+public final class SnapshotBenchmark {
+	private static final ValueFactory FACTORY = SimpleValueFactory.getInstance();
+
+	private static final int RUNS = 3;
+
+	private SnapshotBenchmark() {
+		throw new AssertionError();
+	}
+
+	public static void main(final String[] theArgs) throws Exception {
+		final int aSize = theArgs.length > 0 ? Integer.parseInt(theArgs[0]) : 1_000_000;
+
+		final Model aModel = Models2.newModel();
+
+		for (int i = 0; i < aSize; i++) {
+			aModel.add(FACTORY.createIRI("urn:s" + (i / 16)),
+			           FACTORY.createIRI("urn:p" + (i % 16)),
+			           i % 2 == 0 ? FACTORY.createLiteral(i) : FACTORY.createLiteral("label " + i, "en"));
+		}
+
+		final Path aTurtle = Files.createTempFile("benchmark", ".ttl");
+		final Path aSnapshot = Files.createTempFile("benchmark", ".rdfsnap");
+
+		try {
+			try (OutputStream aOut = Files.newOutputStream(aTurtle)) {
+				ModelIO.write(aModel, aOut, RDFFormat.TURTLE);
+			}
+
+			ModelIO.writeBinary(aModel, aSnapshot);
+
+			System.out.println(String.format("Parsing %,d statements: turtle %,d bytes, snapshot %,d bytes",
+			                                 aSize, Files.size(aTurtle), Files.size(aSnapshot)));
+
+			final long aTurtleTime = time(aTurtle, RDFFormat.TURTLE, aSize);
+			final long aSnapshotTime = time(aSnapshot, RDFSnapshot.FORMAT, aSize);
+
+			System.out.println(String.format("turtle %6d ms, snapshot %6d ms (%.1fx)",
+			                                 aTurtleTime, aSnapshotTime, aTurtleTime / (double) Math.max(1, aSnapshotTime)));
+		}
+		finally {
+			Files.delete(aTurtle);
+			Files.delete(aSnapshot);
+		}
+	}
+
+	private static long time(final Path theFile, final RDFFormat theFormat, final int theSize) throws Exception {
+		long aBest = Long.MAX_VALUE;
+
+		for (int i = 0; i < RUNS; i++) {
+			System.gc();
+
+			final Stopwatch aWatch = Stopwatch.createStarted();
+
+			final AtomicInteger aCount = new AtomicInteger();
+
+			ModelIO.read(theFile, theFormat, new AbstractRDFHandler() {
+				@Override
+				public void handleStatement(final Statement theStatement) throws RDFHandlerException {
+					aCount.incrementAndGet();
+				}
+			});
+
+			aBest = Math.min(aBest, aWatch.elapsed(TimeUnit.MILLISECONDS));
+
+			if (aCount.get() != theSize) {
+				throw new IllegalStateException("Expected " + theSize + " statements, parsed " + aCount.get());
+			}
+		}
+
+		return aBest;
+	}
+}